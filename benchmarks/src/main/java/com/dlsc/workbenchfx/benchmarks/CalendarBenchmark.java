@@ -0,0 +1,111 @@
+package com.dlsc.workbenchfx.benchmarks;
+
+import com.calendarfx.model.Calendar;
+import com.calendarfx.model.Entry;
+import com.calendarfx.model.Interval;
+import com.dlsc.workbenchfx.modules.calendar.CalendarUpdateDispatcher;
+import com.dlsc.workbenchfx.modules.calendar.SearchableCalendar;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Populating calendars the way {@code FixItUtils.loadTestData()} does and searching them.
+ *
+ * <p>The calendars are not shown, so this measures the model and its listeners, not layout.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Thread)
+public class CalendarBenchmark {
+
+    private static final String[] TITLES = {"Dentist", "Call", "Important meeting", "Interview",
+            "Shopping", "Car service", "Team lunch", "Code review"};
+    private static final LocalDate FIRST_DAY = LocalDate.of(2020, 1, 1);
+
+    @Param({"1000", "10000", "100000"})
+    public int size;
+
+    private List<Entry<?>> newEntries;
+    private Calendar populated;
+    private SearchableCalendar searchable;
+    private LocalDate searchDay;
+
+    @Setup(Level.Trial)
+    public void populate() {
+        populated = new Calendar("Populated");
+        populated.addEntries(createEntries());
+        searchable = new SearchableCalendar("Searchable", new CalendarUpdateDispatcher());
+        searchable.addEntries(createEntries());
+        searchDay = FIRST_DAY.plusDays(size / 8);
+    }
+
+    @Setup(Level.Invocation)
+    public void createNewEntries() {
+        // entries can only belong to one calendar, every invocation adds fresh ones
+        newEntries = createEntries();
+    }
+
+    @Benchmark
+    public Calendar addEntryOneByOne() {
+        Calendar calendar = new Calendar("Test");
+        for (Entry<?> entry : newEntries) {
+            calendar.addEntry(entry);
+        }
+        return calendar;
+    }
+
+    @Benchmark
+    public Calendar addEntriesInBatch() {
+        Calendar calendar = new Calendar("Test");
+        calendar.startBatchUpdates();
+        calendar.addEntries(newEntries);
+        calendar.stopBatchUpdates();
+        return calendar;
+    }
+
+    @Benchmark
+    public List<Entry<?>> findEntriesByText() {
+        return populated.findEntries("meeting");
+    }
+
+    @Benchmark
+    public List<Entry<?>> findEntriesByTextIndexed() {
+        return searchable.findEntries("meeting");
+    }
+
+    @Benchmark
+    public Object findEntriesByDay() {
+        return populated.findEntries(searchDay, searchDay, ZoneId.systemDefault());
+    }
+
+    private List<Entry<?>> createEntries() {
+        List<Entry<?>> entries = new ArrayList<>(size);
+        for (int i = 0; i < size; i++) {
+            // eight entries per day, like loadTestData adds four per click
+            LocalDateTime start = FIRST_DAY.plusDays(i / 8).atTime(8 + i % 8, 0);
+            entries.add(new Entry<>(TITLES[i % TITLES.length] + " " + i,
+                    new Interval(start, start.plusMinutes(90))));
+        }
+        return entries;
+    }
+}
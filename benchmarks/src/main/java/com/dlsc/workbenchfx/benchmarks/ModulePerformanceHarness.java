@@ -0,0 +1,373 @@
+package com.dlsc.workbenchfx.benchmarks;
+
+import com.dlsc.workbenchfx.Workbench;
+import com.dlsc.workbenchfx.model.WorkbenchModule;
+import com.dlsc.workbenchfx.modules.calendar.CalendarModule;
+import com.dlsc.workbenchfx.modules.dashboard.DashboardModule;
+import com.dlsc.workbenchfx.modules.preferences.Preferences;
+import com.dlsc.workbenchfx.modules.preferences.PreferencesModule;
+import com.dlsc.workbenchfx.modules.test.DialogTestModule;
+import com.dlsc.workbenchfx.modules.test.DrawerTestModule;
+import com.dlsc.workbenchfx.modules.test.LifecycleTestModule;
+import com.dlsc.workbenchfx.modules.test.NavigationDrawerTestModule;
+import com.dlsc.workbenchfx.modules.test.ToolbarItemTestModule;
+import com.dlsc.workbenchfx.modules.test.ToolbarTestModule;
+import com.dlsc.workbenchfx.modules.test.WidgetsTestModule;
+import javafx.animation.AnimationTimer;
+import javafx.application.Application;
+import javafx.application.Platform;
+import javafx.scene.Node;
+import javafx.scene.Parent;
+import javafx.scene.Scene;
+import javafx.stage.Stage;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Supplier;
+import java.util.function.ToDoubleFunction;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * Measures how expensive it is to open each module of the workbench, without a display.
+ *
+ * <p>Boots a {@link Workbench} on the headless Monocle platform, opens every module
+ * {@link #ROUNDS} times and records per module
+ * <ul>
+ * <li>the time {@code openModule} takes, i.e. {@code activate()} plus adding the view,</li>
+ * <li>how many pulses it takes until the scene is idle again and how long they take,</li>
+ * <li>the number of nodes in the scene graph afterwards.</li>
+ * </ul>
+ * Pulses run at full speed, so the distance between two pulses is the work done in the first.
+ * The first round is reported as cold, the median of the others as warm.
+ *
+ * <p>Usage: {@code ModulePerformanceHarness <result.json> [baseline.json] [threshold]}. With a
+ * baseline, modules whose warm activation or settle time grew by more than {@code threshold}
+ * (default 0.2) are reported as regressions and the process exits with status 1.
+ */
+public class ModulePerformanceHarness extends Application {
+
+    static final int ROUNDS = 6;
+    static final int MAX_PULSES = 240;
+    static final int IDLE_PULSES = 3;
+    // differences below this are noise on a shared build machine
+    static final double MIN_REGRESSION_MS = 2;
+
+    private static final CompletableFuture<ModulePerformanceHarness> INSTANCE =
+            new CompletableFuture<>();
+
+    private Workbench workbench;
+    private Scene scene;
+    private double idlePulseMs;
+
+    /**
+     * Measurements of one module.
+     */
+    static final class ModuleResult {
+        final String name;
+        double coldActivationMs;
+        double warmActivationMs;
+        double coldSettleMs;
+        double warmSettleMs;
+        int warmPulses;
+        double maxPulseMs;
+        int nodeCount;
+
+        ModuleResult(String name) {
+            this.name = name;
+        }
+    }
+
+    /**
+     * What one opening of a module cost.
+     */
+    private static final class Sample {
+        double activationMs;
+        double settleMs;
+        int pulses;
+        double maxPulseMs;
+    }
+
+    public static void main(String[] args) throws Exception {
+        if (args.length < 1) {
+            System.err.println("Usage: ModulePerformanceHarness <result.json> [baseline.json] [threshold]");
+            System.exit(2);
+        }
+        setDefault("glass.platform", "Monocle");
+        setDefault("monocle.platform", "Headless");
+        setDefault("prism.order", "sw");
+        setDefault("prism.text", "t2k");
+        setDefault("javafx.animation.fullspeed", "true");
+
+        Thread launcher = new Thread(() -> Application.launch(ModulePerformanceHarness.class),
+                "ModulePerformanceHarness: Launcher");
+        launcher.setDaemon(true);
+        launcher.start();
+
+        ModulePerformanceHarness harness = INSTANCE.get(1, TimeUnit.MINUTES);
+        List<ModuleResult> results = harness.run();
+        Path resultFile = Paths.get(args[0]);
+        writeResults(resultFile, results);
+        printResults(results);
+
+        int regressions = 0;
+        if (args.length > 1) {
+            double threshold = args.length > 2 ? Double.parseDouble(args[2]) : 0.2;
+            regressions = compare(results, readBaseline(Paths.get(args[1])), threshold);
+        }
+        Platform.exit();
+        System.exit(regressions > 0 ? 1 : 0);
+    }
+
+    @Override
+    public void start(Stage stage) {
+        workbench = Workbench.builder(
+                new DashboardModule(),
+                new CalendarModule(),
+                new PreferencesModule(new Preferences()),
+                new DialogTestModule(),
+                new DrawerTestModule(),
+                new LifecycleTestModule(),
+                new NavigationDrawerTestModule(),
+                new ToolbarItemTestModule(),
+                new ToolbarTestModule(),
+                new WidgetsTestModule())
+                .build();
+        scene = new Scene(workbench, 1080, 860);
+        stage.setScene(scene);
+        stage.show();
+        INSTANCE.complete(this);
+    }
+
+    private List<ModuleResult> run() throws Exception {
+        idlePulseMs = onFxThread(this::measureIdle).thenCompose(future -> future)
+                .get(1, TimeUnit.MINUTES);
+
+        Map<WorkbenchModule, List<Sample>> samples = new LinkedHashMap<>();
+        for (WorkbenchModule module : workbench.getModules()) {
+            samples.put(module, new ArrayList<>());
+        }
+        for (int round = 0; round < ROUNDS; round++) {
+            for (WorkbenchModule module : samples.keySet()) {
+                samples.get(module).add(open(module).get(1, TimeUnit.MINUTES));
+            }
+        }
+
+        List<ModuleResult> results = new ArrayList<>();
+        for (Map.Entry<WorkbenchModule, List<Sample>> entry : samples.entrySet()) {
+            WorkbenchModule module = entry.getKey();
+            List<Sample> moduleSamples = entry.getValue();
+            ModuleResult result = new ModuleResult(module.getName());
+            Sample cold = moduleSamples.get(0);
+            List<Sample> warm = moduleSamples.subList(1, moduleSamples.size());
+            result.coldActivationMs = cold.activationMs;
+            result.coldSettleMs = cold.settleMs;
+            result.warmActivationMs = median(warm, sample -> sample.activationMs);
+            result.warmSettleMs = median(warm, sample -> sample.settleMs);
+            result.warmPulses = (int) median(warm, sample -> sample.pulses);
+            for (Sample sample : moduleSamples) {
+                result.maxPulseMs = Math.max(result.maxPulseMs, sample.maxPulseMs);
+            }
+            result.nodeCount = onFxThread(() -> {
+                workbench.openModule(module);
+                scene.getRoot().applyCss();
+                scene.getRoot().layout();
+                return countNodes(scene.getRoot());
+            }).get(1, TimeUnit.MINUTES);
+            results.add(result);
+        }
+        return results;
+    }
+
+    /**
+     * Returns the median pulse length of the idle workbench, the reference for "settled".
+     */
+    private CompletableFuture<Double> measureIdle() {
+        CompletableFuture<Double> result = new CompletableFuture<>();
+        List<Double> pulses = new ArrayList<>();
+        new AnimationTimer() {
+            private long last = -1;
+
+            @Override
+            public void handle(long now) {
+                if (last >= 0) {
+                    pulses.add((now - last) / 1e6);
+                }
+                last = now;
+                if (pulses.size() == 60) {
+                    stop();
+                    Collections.sort(pulses);
+                    result.complete(pulses.get(pulses.size() / 2));
+                }
+            }
+        }.start();
+        return result;
+    }
+
+    /**
+     * Opens a module and follows the pulses until the scene is idle again.
+     */
+    private CompletableFuture<Sample> open(WorkbenchModule module) {
+        return onFxThread(() -> {
+            CompletableFuture<Sample> result = new CompletableFuture<>();
+            Sample sample = new Sample();
+            long start = System.nanoTime();
+            workbench.openModule(module);
+            long opened = System.nanoTime();
+            sample.activationMs = (opened - start) / 1e6;
+            double settledBelow = Math.max(1, idlePulseMs * 1.5);
+            new AnimationTimer() {
+                private long last = opened;
+                private int idle;
+
+                @Override
+                public void handle(long now) {
+                    long time = System.nanoTime();
+                    double pulseMs = (time - last) / 1e6;
+                    last = time;
+                    sample.pulses++;
+                    sample.maxPulseMs = Math.max(sample.maxPulseMs, pulseMs);
+                    idle = pulseMs < settledBelow ? idle + 1 : 0;
+                    if (idle == IDLE_PULSES || sample.pulses == MAX_PULSES) {
+                        stop();
+                        sample.pulses -= idle;
+                        sample.settleMs = (time - start) / 1e6;
+                        result.complete(sample);
+                    }
+                }
+            }.start();
+            return result;
+        }).thenCompose(future -> future);
+    }
+
+    private static int countNodes(Node node) {
+        int count = 1;
+        if (node instanceof Parent) {
+            for (Node child : ((Parent) node).getChildrenUnmodifiable()) {
+                count += countNodes(child);
+            }
+        }
+        return count;
+    }
+
+    private static <T> CompletableFuture<T> onFxThread(Supplier<T> action) {
+        CompletableFuture<T> result = new CompletableFuture<>();
+        Platform.runLater(() -> {
+            try {
+                result.complete(action.get());
+            } catch (RuntimeException ex) {
+                result.completeExceptionally(ex);
+            }
+        });
+        return result;
+    }
+
+    private static double median(List<Sample> samples,
+                                 ToDoubleFunction<Sample> value) {
+        double[] values = samples.stream().mapToDouble(value).sorted().toArray();
+        return values.length == 0 ? 0 : values[values.length / 2];
+    }
+
+    private static void setDefault(String key, String value) {
+        if (System.getProperty(key) == null) {
+            System.setProperty(key, value);
+        }
+    }
+
+    // results
+
+    private static void writeResults(Path file, List<ModuleResult> results) throws IOException {
+        StringBuilder json = new StringBuilder("[\n");
+        for (int i = 0; i < results.size(); i++) {
+            ModuleResult result = results.get(i);
+            json.append(String.format(Locale.ROOT,
+                    "  {\"module\": \"%s\", \"coldActivationMs\": %.3f, \"warmActivationMs\": %.3f, "
+                            + "\"coldSettleMs\": %.3f, \"warmSettleMs\": %.3f, \"warmPulses\": %d, "
+                            + "\"maxPulseMs\": %.3f, \"nodeCount\": %d}",
+                    result.name.replace("\\", "\\\\").replace("\"", "\\\""),
+                    result.coldActivationMs, result.warmActivationMs, result.coldSettleMs,
+                    result.warmSettleMs, result.warmPulses, result.maxPulseMs, result.nodeCount));
+            json.append(i < results.size() - 1 ? ",\n" : "\n");
+        }
+        json.append("]\n");
+        if (file.getParent() != null) {
+            Files.createDirectories(file.getParent());
+        }
+        Files.write(file, json.toString().getBytes(StandardCharsets.UTF_8));
+    }
+
+    private static void printResults(List<ModuleResult> results) {
+        System.out.println(String.format(Locale.ROOT, "%-28s %10s %10s %10s %10s %7s %9s %7s",
+                "module", "cold ms", "warm ms", "cold set.", "warm set.", "pulses", "max pulse",
+                "nodes"));
+        for (ModuleResult result : results) {
+            System.out.println(String.format(Locale.ROOT,
+                    "%-28s %10.2f %10.2f %10.2f %10.2f %7d %9.2f %7d", result.name,
+                    result.coldActivationMs, result.warmActivationMs, result.coldSettleMs,
+                    result.warmSettleMs, result.warmPulses, result.maxPulseMs, result.nodeCount));
+        }
+    }
+
+    /**
+     * Reads a result file written by this harness, only the warm timings are needed.
+     */
+    private static Map<String, double[]> readBaseline(Path file) throws IOException {
+        Pattern line = Pattern.compile("\"module\": \"((?:[^\"\\\\]|\\\\.)*)\".*"
+                + "\"warmActivationMs\": ([0-9.]+).*\"warmSettleMs\": ([0-9.]+)");
+        Map<String, double[]> baseline = new HashMap<>();
+        for (String text : Files.readAllLines(file, StandardCharsets.UTF_8)) {
+            Matcher matcher = line.matcher(text);
+            if (matcher.find()) {
+                String name = matcher.group(1).replace("\\\"", "\"").replace("\\\\", "\\");
+                baseline.put(name, new double[] {
+                        Double.parseDouble(matcher.group(2)), Double.parseDouble(matcher.group(3))});
+            }
+        }
+        return baseline;
+    }
+
+    private static int compare(List<ModuleResult> results, Map<String, double[]> baseline,
+                               double threshold) {
+        int regressions = 0;
+        for (ModuleResult result : results) {
+            double[] before = baseline.get(result.name);
+            if (before == null) {
+                continue;
+            }
+            List<String> slower = new ArrayList<>();
+            if (isRegression(before[0], result.warmActivationMs, threshold)) {
+                slower.add(String.format(Locale.ROOT, "activation %.2f -> %.2f ms",
+                        before[0], result.warmActivationMs));
+            }
+            if (isRegression(before[1], result.warmSettleMs, threshold)) {
+                slower.add(String.format(Locale.ROOT, "settle %.2f -> %.2f ms",
+                        before[1], result.warmSettleMs));
+            }
+            if (!slower.isEmpty()) {
+                regressions++;
+                System.out.println("REGRESSION " + result.name + ": " + String.join(", ", slower));
+            }
+        }
+        System.out.println(regressions == 0
+                ? "No regressions against the baseline"
+                : regressions + " module(s) regressed by more than "
+                        + Math.round(threshold * 100) + "%");
+        return regressions;
+    }
+
+    static boolean isRegression(double before, double after, double threshold) {
+        return after > before * (1 + threshold) && after - before > MIN_REGRESSION_MS;
+    }
+}
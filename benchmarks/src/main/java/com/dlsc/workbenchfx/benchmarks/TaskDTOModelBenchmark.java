@@ -0,0 +1,115 @@
+package com.dlsc.workbenchfx.benchmarks;
+
+import com.dlsc.workbenchfx.modules.dashboard.model.ColorCategories;
+import com.dlsc.workbenchfx.modules.dashboard.model.TaskDTOModel;
+import com.dlsc.workbenchfx.modules.dashboard.model.TaskFactory;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Construction and {@code toString()} of single tasks, and of a generated dataset through the
+ * builder and through the {@link TaskFactory}.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Thread)
+public class TaskDTOModelBenchmark {
+
+    private static final int DATASET_SIZE = 10_000;
+    private static final String[] TAG_VALUES = {"work", "home", "meeting", "q3", "errand"};
+
+    private final String uuid = UUID.randomUUID().toString();
+    private final List<String> tags = Arrays.asList("work", "meeting", "q3");
+    private final LocalDateTime created = LocalDateTime.of(2020, 4, 2, 9, 0);
+    private final List<LocalDateTime> dateTimes = Arrays.asList(
+            LocalDateTime.of(2020, 4, 2, 9, 0), LocalDateTime.of(2020, 4, 2, 12, 0));
+    private TaskDTOModel task;
+    private String[] names;
+    private TaskFactory.Columns dataset;
+
+    @Setup
+    public void setUp() {
+        task = build();
+
+        int size = DATASET_SIZE;
+        names = new String[size];
+        int[] urgencies = new int[size];
+        byte[] colorCategories = new byte[size];
+        int[][] taskTags = new int[size][];
+        for (int i = 0; i < size; i++) {
+            names[i] = "Task " + i;
+            urgencies[i] = i % 10;
+            colorCategories[i] = (byte) (i % ColorCategories.values().length);
+            taskTags[i] = new int[] {i % TAG_VALUES.length, (i + 1) % TAG_VALUES.length};
+        }
+        dataset = new TaskFactory.Columns(size)
+                .names(names)
+                .urgencies(urgencies)
+                .colorCategories(colorCategories)
+                .tags(TAG_VALUES, taskTags);
+    }
+
+    @Benchmark
+    public TaskDTOModel builder() {
+        return build();
+    }
+
+    @Benchmark
+    public String toStringOfTask() {
+        return task.toString();
+    }
+
+    @Benchmark
+    public List<TaskDTOModel> datasetFromFactory() {
+        return new TaskFactory().create(dataset);
+    }
+
+    @Benchmark
+    public List<TaskDTOModel> datasetFromBuilder() {
+        ColorCategories[] categories = ColorCategories.values();
+        List<TaskDTOModel> tasks = new ArrayList<>(DATASET_SIZE);
+        for (int i = 0; i < DATASET_SIZE; i++) {
+            tasks.add(new TaskDTOModel.TaskBuilder()
+                    .uuid(UUID.randomUUID().toString())
+                    .name(names[i])
+                    .urgency(i % 10)
+                    .colorCategory(categories[i % categories.length])
+                    .tags(Arrays.asList(TAG_VALUES[i % TAG_VALUES.length],
+                            TAG_VALUES[(i + 1) % TAG_VALUES.length]))
+                    .build());
+        }
+        return tasks;
+    }
+
+    private TaskDTOModel build() {
+        return new TaskDTOModel.TaskBuilder()
+                .uuid(uuid)
+                .name("Important meeting")
+                .description("Quarterly planning with the whole team")
+                .urgency(7)
+                .importance(9)
+                .colorCategory(ColorCategories.RED)
+                .tags(tags)
+                .createLocalDateTime(created)
+                .listOfLocalDateTimes(dateTimes)
+                .build();
+    }
+}
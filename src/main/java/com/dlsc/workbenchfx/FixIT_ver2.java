@@ -1,33 +1,52 @@
 package com.dlsc.workbenchfx;
 
+import com.dlsc.workbenchfx.controls.MetricsOverlay;
+import com.dlsc.workbenchfx.modules.ModulePreloader;
 import com.dlsc.workbenchfx.modules.calendar.CalendarFxView;
 import com.dlsc.workbenchfx.modules.calendar.CalendarModule;
 import com.dlsc.workbenchfx.modules.dashboard.DashboardModule;
 import com.dlsc.workbenchfx.modules.preferences.Preferences;
 import com.dlsc.workbenchfx.modules.preferences.PreferencesModule;
 import com.dlsc.workbenchfx.modules.webview.WebModule;
+import com.dlsc.workbenchfx.persistence.LocalStore;
 import com.dlsc.workbenchfx.utils.FixItUtils;
+import com.dlsc.workbenchfx.utils.ThemeEngine;
 import com.dlsc.workbenchfx.view.controls.ToolbarItem;
 import de.jensd.fx.glyphs.materialdesignicons.MaterialDesignIcon;
 import de.jensd.fx.glyphs.materialdesignicons.MaterialDesignIconView;
+import java.io.File;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
 import javafx.application.Application;
 import javafx.application.Platform;
-import javafx.collections.ObservableList;
 import javafx.scene.Scene;
 import javafx.scene.control.Button;
 import javafx.scene.control.Label;
 import javafx.scene.control.MenuItem;
 import javafx.scene.control.TextField;
+import javafx.scene.input.KeyCode;
+import javafx.scene.input.KeyCodeCombination;
+import javafx.scene.input.KeyCombination;
 import javafx.scene.layout.VBox;
+import javafx.stage.FileChooser;
 import javafx.stage.Stage;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
 
 public class FixIT_ver2 extends Application {
 
+  private static final Logger LOGGER = LogManager.getLogger(FixIT_ver2.class.getName());
+  private static final long OPEN_TIMEOUT_SECONDS = 10;
   private static final String DOCUMENTATION_PATH =
       WebModule.class.getResource("index.html").toExternalForm();
 
+  private final long startNanos = System.nanoTime();
   private Workbench workbench;
   private Preferences preferences;
+  private CalendarModule calendarModule;
+  private MetricsOverlay metricsOverlay;
+  private ThemeEngine themeEngine;
 
   FixItUtils fixItUtils = new FixItUtils();
 
@@ -41,12 +60,48 @@ public class FixIT_ver2 extends Application {
     Scene myScene = new Scene(initWorkbench());
     primaryStage.setTitle("FixIT-organizer-app");
     primaryStage.setScene(myScene);
+    myScene.getAccelerators().put(new KeyCodeCombination(KeyCode.Z, KeyCombination.SHORTCUT_DOWN),
+        () -> FixItUtils.getHistory().undo());
+    myScene.getAccelerators().put(new KeyCodeCombination(KeyCode.Y, KeyCombination.SHORTCUT_DOWN),
+        () -> FixItUtils.getHistory().redo());
+    myScene.getAccelerators().put(new KeyCodeCombination(KeyCode.Z, KeyCombination.SHORTCUT_DOWN,
+        KeyCombination.SHIFT_DOWN), () -> FixItUtils.getHistory().redo());
     primaryStage.setWidth(1080);
     primaryStage.setHeight(860);
     primaryStage.show();
     primaryStage.centerOnScreen();
 
     initNightMode();
+
+    // recovers the autosaved workspace, the store is replayed in the background
+    FixItUtils.loadData().exceptionally(ex -> showStoreError("Load Data", ex));
+
+    // web modules stay lazy, most sessions never open them
+    new ModulePreloader(startNanos, calendarModule).start();
+  }
+
+  @Override
+  public void stop() {
+    saveAndClose();
+  }
+
+  /**
+   * Hands the last changes to the local store and waits until they are on disk. The FX thread
+   * runs no more tasks when the app exits, so a store which is still being opened is waited for
+   * here instead of by the autosave.
+   */
+  private static void saveAndClose() {
+    LocalStore store = FixItUtils.getLocalStore();
+    try {
+      store.whenOpen().get(OPEN_TIMEOUT_SECONDS, TimeUnit.SECONDS);
+      FixItUtils.getAutosave().flush();
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+    } catch (ExecutionException | TimeoutException e) {
+      LOGGER.error("Saving the last changes failed", e);
+    }
+    // waits for the pending group commit
+    store.close();
   }
 
   private Workbench initWorkbench() {
@@ -70,6 +125,19 @@ public class FixIT_ver2 extends Application {
             new MaterialDesignIconView(MaterialDesignIcon.ARROW_DOWN));
     ToolbarItem toolbarButtonLoadTestData = new ToolbarItem("LoadTestData",
             new MaterialDesignIconView(MaterialDesignIcon.SETTINGS));
+    ToolbarItem toolbarButtonImportPatients = new ToolbarItem("Patients",
+            new MaterialDesignIconView(MaterialDesignIcon.ACCOUNT_MULTIPLE));
+    ToolbarItem toolbarButtonMetrics = new ToolbarItem(
+            new MaterialDesignIconView(MaterialDesignIcon.CHART_LINE),
+            event -> metricsOverlay.toggle());
+    ToolbarItem toolbarButtonUndo = new ToolbarItem(
+            new MaterialDesignIconView(MaterialDesignIcon.UNDO),
+            event -> FixItUtils.getHistory().undo());
+    toolbarButtonUndo.disableProperty().bind(FixItUtils.getHistory().undoableProperty().not());
+    ToolbarItem toolbarButtonRedo = new ToolbarItem(
+            new MaterialDesignIconView(MaterialDesignIcon.REDO),
+            event -> FixItUtils.getHistory().redo());
+    toolbarButtonRedo.disableProperty().bind(FixItUtils.getHistory().redoableProperty().not());
 
 
     toolbarButtonLoadTestData.setOnClick(event -> workbench.showConfirmationDialog("Load Test Data",
@@ -79,12 +147,21 @@ public class FixIT_ver2 extends Application {
               }}));
 
     toolbarButtonPullData.setOnClick(event -> workbench.showConfirmationDialog("Pull Data",
-            "Are you sure you want to pull data?", null));
+            "Are you sure you want to pull data?", buttonType -> {
+              if(buttonType.getText().equals("Yes")) {
+                FixItUtils.pullData().exceptionally(ex -> showStoreError("Pull Data", ex));
+              }}));
     toolbarButtonPushData.setOnClick(event -> workbench.showConfirmationDialog("Push Data",
             "Are you sure you want to push data?", buttonType -> {
-              if(buttonType.getText().equals("Yes")) {Platform.exit();System.exit(0);
+              if(buttonType.getText().equals("Yes")) {
+                FixItUtils.pushData().exceptionally(ex -> {
+                  showStoreError("Push Data", ex);
+                  return 0;
+                });
               }}));
 
+    toolbarButtonImportPatients.setOnClick(event -> importPatients());
+
 
     //menu items
     MenuItem menuItem1 = new MenuItem("Demolition", new MaterialDesignIconView(MaterialDesignIcon.BOMB));
@@ -96,36 +173,70 @@ public class FixIT_ver2 extends Application {
     menuItem2.setOnAction(event -> workbench.hideNavigationDrawer());
     menuItem3.setOnAction(event -> workbench.hideNavigationDrawer());
     menuItem4.setOnAction(event -> workbench.showConfirmationDialog(
-                    "Close without saving?",
-                    "Are you sure you want to continue without saving"
-                            + "your document?", buttonType -> {
-                                      if(buttonType.getText().equals("Yes")) {Platform.exit();System.exit(0);
+                    "Close App",
+                    "Are you sure you want to close the app?", buttonType -> {
+                                      if(buttonType.getText().equals("Yes")) {
+                                        // System.exit skips stop()
+                                        saveAndClose();
+                                        Platform.exit();
+                                        System.exit(0);
                                       }}));
 
 
     //workbench
+    calendarModule = new CalendarModule();
     workbench =
         Workbench.builder(
 
             new DashboardModule(),
-            new CalendarModule(),
+            calendarModule,
             new WebModule("WebNotepad", MaterialDesignIcon.NOTE, "https://docs.google.com"),
             new WebModule("DLSC",  MaterialDesignIcon.WEB,"http://dlsc.com"),
             new WebModule("Documentation", MaterialDesignIcon.BOOK, DOCUMENTATION_PATH),
             new PreferencesModule(preferences)
         )
             .toolbarLeft(new ToolbarItem("FixIT-organizer-app"))
-            .toolbarRight( toolbarButtonPushData, toolbarButtonPullData, toolbarButtonLoadTestData, toolbarButtonAccount)
+            .toolbarRight(toolbarButtonUndo, toolbarButtonRedo, toolbarButtonMetrics,
+                toolbarButtonPushData, toolbarButtonPullData, toolbarButtonLoadTestData,
+                toolbarButtonImportPatients, toolbarButtonAccount)
             .navigationDrawerItems(menuItem1, menuItem2, menuItem3, menuItem4)
             .build();
 
+    metricsOverlay = new MetricsOverlay(workbench);
+
     //styles
-    workbench.getStylesheets().add(FixIT_ver2.class.getResource("customTheme.css").toExternalForm());
-    workbench.getStylesheets().add(FixIT_ver2.class.getResource("darkTheme.css").toExternalForm());
+    themeEngine = new ThemeEngine(workbench);
 
     return workbench;
   }
 
+  private void importPatients() {
+    FileChooser fileChooser = new FileChooser();
+    fileChooser.setTitle("Import Patients");
+    fileChooser.getExtensionFilters().add(
+        new FileChooser.ExtensionFilter("Patients (semicolon-delimited)", "*.csv"));
+    File file = fileChooser.showOpenDialog(workbench.getScene().getWindow());
+    if (file == null) {
+      return;
+    }
+    FixItUtils.importPatients(file.toPath()).whenComplete((imported, ex) -> Platform.runLater(
+        () -> {
+          if (ex != null) {
+            workbench.showErrorDialog("Import Patients",
+                "Importing " + file.getName() + " failed: " + ex.getMessage(), null);
+          } else {
+            workbench.showInformationDialog("Import Patients",
+                "Imported " + imported + " patients from " + file.getName() + ".", null);
+          }
+        }));
+  }
+
+  private Void showStoreError(String title, Throwable ex) {
+    Platform.runLater(() -> workbench.showErrorDialog(title,
+        "Accessing the local store failed: " + ex.getMessage(), null));
+    return null;
+  }
+
   private void initNightMode() {
     setNightMode(preferences.isNightMode());
     preferences.nightModeProperty().addListener(
@@ -134,15 +245,6 @@ public class FixIT_ver2 extends Application {
   }
 
   private void setNightMode(boolean on) {
-    String customTheme = FixIT_ver2.class.getResource("customTheme.css").toExternalForm();
-    String darkTheme = FixIT_ver2.class.getResource("darkTheme.css").toExternalForm();
-    ObservableList<String> stylesheets = workbench.getStylesheets();
-    if (on) {
-      stylesheets.remove(customTheme);
-      stylesheets.add(darkTheme);
-    } else {
-      stylesheets.remove(darkTheme);
-      stylesheets.add(customTheme);
-    }
+    themeEngine.setNightMode(on);
   }
 }
@@ -0,0 +1,237 @@
+package com.dlsc.workbenchfx.controls;
+
+import com.dlsc.workbenchfx.utils.ThemeEngine;
+import java.util.Objects;
+import javafx.application.Platform;
+import javafx.beans.InvalidationListener;
+import javafx.beans.property.BooleanProperty;
+import javafx.beans.property.SimpleBooleanProperty;
+import javafx.collections.ObservableList;
+import javafx.collections.SetChangeListener;
+import javafx.css.PseudoClass;
+import javafx.geometry.Bounds;
+import javafx.geometry.HPos;
+import javafx.geometry.VPos;
+import javafx.scene.Node;
+import javafx.scene.Parent;
+import javafx.scene.Scene;
+import javafx.scene.SnapshotParameters;
+import javafx.scene.control.Control;
+import javafx.scene.image.ImageView;
+import javafx.scene.layout.Region;
+import javafx.scene.paint.Color;
+
+/**
+ * Shows a content node as an image from the {@link SnapshotCache}.
+ *
+ * <p>The content stays a hidden child, so it is styled like before and defines the size of the
+ * pane, but it is neither rendered nor laid out again while its image is cached. When a
+ * layout does not find an image for the current cache key, theme, CSS state of the control and
+ * size, the live content is shown and rendered into an image after the pulse, so snapshots are
+ * never taken during layout. Changing the stylesheets of the scene or its root, or switching the
+ * {@link ThemeEngine#NIGHT night mode}, drops the images of the old theme.
+ *
+ * <p>Images are rendered at scale 1, see {@link SnapshotCache#isEnabledByDefault()}.
+ */
+public class CachedRenderPane extends Region {
+
+  private final SnapshotCache cache = SnapshotCache.getInstance();
+  private final Node content;
+  private final Control control;
+  private final ImageView imageView = new ImageView();
+  private final BooleanProperty cachingEnabled =
+      new SimpleBooleanProperty(this, "cachingEnabled", SnapshotCache.isEnabledByDefault());
+  private final InvalidationListener themeListener = observable -> updateTheme();
+  private final SetChangeListener<PseudoClass> nightModeListener = change -> updateTheme();
+  private Object cacheKey;
+  private String theme;
+  private String state;
+  private Scene themeScene;
+  private Parent themeRoot;
+  private boolean snapshotScheduled;
+
+  /**
+   * Creates a pane which shows {@code content}.
+   *
+   * @param content to render, CSS selectors have to match it as a descendant of the control
+   * @param control whose pseudo-classes and styles change how the content looks
+   */
+  public CachedRenderPane(Node content, Control control) {
+    this.content = Objects.requireNonNull(content);
+    this.control = Objects.requireNonNull(control);
+    getStyleClass().add("cached-render-pane");
+    imageView.setManaged(false);
+    imageView.setMouseTransparent(true);
+    getChildren().addAll(content, imageView);
+
+    control.getPseudoClassStates().addListener((SetChangeListener<PseudoClass>) change ->
+        updateState());
+    control.getStyleClass().addListener((InvalidationListener) observable -> updateState());
+    control.styleProperty().addListener(observable -> updateState());
+    sceneProperty().addListener((observable, oldScene, newScene) -> watchTheme(newScene));
+    cachingEnabled.addListener(observable -> requestLayout());
+    updateState();
+    watchTheme(getScene());
+  }
+
+  /**
+   * Sets what the content shows, e.g. its name and icon. Equal keys have to render equally.
+   */
+  public void setCacheKey(Object cacheKey) {
+    if (!Objects.equals(this.cacheKey, cacheKey)) {
+      this.cacheKey = cacheKey;
+      requestLayout();
+    }
+  }
+
+  public final BooleanProperty cachingEnabledProperty() {
+    return cachingEnabled;
+  }
+
+  public final boolean isCachingEnabled() {
+    return cachingEnabled.get();
+  }
+
+  public final void setCachingEnabled(boolean cachingEnabled) {
+    this.cachingEnabled.set(cachingEnabled);
+  }
+
+  @Override
+  protected void layoutChildren() {
+    SnapshotCache.Key key = currentKey();
+    SnapshotCache.Snapshot snapshot = key == null ? null : cache.get(key);
+    if (snapshot == null) {
+      content.setVisible(true);
+      imageView.setImage(null);
+      layoutInArea(content, snappedLeftInset(), snappedTopInset(), contentWidth(),
+          contentHeight(), 0, HPos.CENTER, VPos.CENTER);
+      if (key != null) {
+        scheduleSnapshot();
+      }
+      return;
+    }
+    content.setVisible(false);
+    imageView.setImage(snapshot.getImage());
+    imageView.relocate(snapPosition(snappedLeftInset() + snapshot.getOffsetX()),
+        snapPosition(snappedTopInset() + snapshot.getOffsetY()));
+  }
+
+  @Override
+  protected double computeMinWidth(double height) {
+    return snappedLeftInset() + content.minWidth(height) + snappedRightInset();
+  }
+
+  @Override
+  protected double computeMinHeight(double width) {
+    return snappedTopInset() + content.minHeight(width) + snappedBottomInset();
+  }
+
+  @Override
+  protected double computePrefWidth(double height) {
+    return snappedLeftInset() + content.prefWidth(height) + snappedRightInset();
+  }
+
+  @Override
+  protected double computePrefHeight(double width) {
+    return snappedTopInset() + content.prefHeight(width) + snappedBottomInset();
+  }
+
+  @Override
+  protected double computeMaxWidth(double height) {
+    return snappedLeftInset() + content.maxWidth(height) + snappedRightInset();
+  }
+
+  @Override
+  protected double computeMaxHeight(double width) {
+    return snappedTopInset() + content.maxHeight(width) + snappedBottomInset();
+  }
+
+  /**
+   * Returns the key of the image for the current state, or null if nothing is cached.
+   */
+  private SnapshotCache.Key currentKey() {
+    double width = contentWidth();
+    double height = contentHeight();
+    if (!isCachingEnabled() || cacheKey == null || getScene() == null
+        || width <= 0 || height <= 0) {
+      return null;
+    }
+    return new SnapshotCache.Key(cacheKey, theme, state, width, height);
+  }
+
+  private double contentWidth() {
+    return snapSize(getWidth() - snappedLeftInset() - snappedRightInset());
+  }
+
+  private double contentHeight() {
+    return snapSize(getHeight() - snappedTopInset() - snappedBottomInset());
+  }
+
+  private void scheduleSnapshot() {
+    if (!snapshotScheduled) {
+      snapshotScheduled = true;
+      Platform.runLater(this::renderSnapshot);
+    }
+  }
+
+  /**
+   * Renders the content which was laid out and shown in the last pulse, then lays out again to
+   * show the image.
+   */
+  private void renderSnapshot() {
+    snapshotScheduled = false;
+    SnapshotCache.Key key = currentKey();
+    if (key == null || isNeedsLayout() || !content.isVisible()) {
+      // the next layout shows a cached image or schedules a snapshot again
+      return;
+    }
+    SnapshotParameters parameters = new SnapshotParameters();
+    parameters.setFill(Color.TRANSPARENT);
+    // renders the bounds in parent, including effects which reach out of the layout bounds
+    Bounds bounds = content.getBoundsInParent();
+    cache.put(key, new SnapshotCache.Snapshot(content.snapshot(parameters, null),
+        bounds.getMinX() - snappedLeftInset(), bounds.getMinY() - snappedTopInset()));
+    requestLayout();
+  }
+
+  private void updateState() {
+    state = control.getPseudoClassStates() + "|" + control.getStyleClass() + "|"
+        + control.getStyle();
+    if (isCachingEnabled()) {
+      requestLayout();
+    }
+  }
+
+  private void watchTheme(Scene scene) {
+    if (themeScene != null) {
+      themeScene.getStylesheets().removeListener(themeListener);
+      themeRoot.getStylesheets().removeListener(themeListener);
+      themeRoot.getPseudoClassStates().removeListener(nightModeListener);
+    }
+    themeScene = scene;
+    themeRoot = scene == null ? null : scene.getRoot();
+    if (themeScene != null) {
+      themeScene.getStylesheets().addListener(themeListener);
+      themeRoot.getStylesheets().addListener(themeListener);
+      themeRoot.getPseudoClassStates().addListener(nightModeListener);
+    }
+    updateTheme();
+  }
+
+  private void updateTheme() {
+    if (themeScene == null) {
+      return;
+    }
+    String newTheme = join(themeScene.getStylesheets()) + "|" + join(themeRoot.getStylesheets())
+        + "|" + themeRoot.getPseudoClassStates().contains(ThemeEngine.NIGHT);
+    if (!newTheme.equals(theme)) {
+      theme = newTheme;
+      cache.retainTheme(theme);
+      requestLayout();
+    }
+  }
+
+  private static String join(ObservableList<String> stylesheets) {
+    return String.join(",", stylesheets);
+  }
+}
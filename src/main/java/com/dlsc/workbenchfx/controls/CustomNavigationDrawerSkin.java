@@ -1,9 +1,14 @@
 package com.dlsc.workbenchfx.controls;
 
 import com.dlsc.workbenchfx.view.controls.PrettyScrollPane;
-import javafx.beans.Observable;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
 import javafx.beans.binding.Bindings;
+import javafx.collections.ListChangeListener;
+import javafx.collections.ObservableList;
 import javafx.geometry.Side;
+import javafx.scene.Node;
 import javafx.scene.control.Button;
 import javafx.scene.control.Label;
 import javafx.scene.control.Menu;
@@ -96,22 +101,71 @@ public class CustomNavigationDrawerSkin extends SkinBase<CustomNavigationDrawer>
   }
 
   private void setupValueChangedListeners() {
-    navigationDrawer.getItems().addListener((Observable it) -> buildMenu());
+    navigationDrawer.getItems().addListener((ListChangeListener<MenuItem>) this::updateMenu);
   }
 
   private void buildMenu() {
-    menuContainer.getChildren().clear();
+    List<Node> nodes = new ArrayList<>(getSkinnable().getItems().size());
     for (MenuItem item : getSkinnable().getItems()) {
-      if (item instanceof Menu) {
-        // item is a submenu
-        menuContainer.getChildren().add(buildSubmenu(item));
+      nodes.add(buildNode(item));
+    }
+    menuContainer.getChildren().setAll(nodes);
+  }
+
+  /**
+   * Applies the changes of the items to the menu, so only the nodes of added items are created.
+   * The children of {@link #menuContainer} always correspond to the items by index.
+   */
+  private void updateMenu(ListChangeListener.Change<? extends MenuItem> change) {
+    ObservableList<Node> nodes = menuContainer.getChildren();
+    while (change.next()) {
+      int from = change.getFrom();
+      int to = change.getTo();
+      if (change.wasPermutated()) {
+        Node[] permuted = new Node[to - from];
+        for (int i = from; i < to; i++) {
+          permuted[change.getPermutation(i) - from] = nodes.get(i);
+        }
+        nodes.remove(from, to);
+        nodes.addAll(from, Arrays.asList(permuted));
+      } else if (change.wasUpdated()) {
+        for (int i = from; i < to; i++) {
+          releaseNode(nodes.get(i));
+          nodes.set(i, buildNode(change.getList().get(i)));
+        }
       } else {
-        // item is a regular menu item
-        menuContainer.getChildren().add(buildMenuItem(item));
+        if (change.wasRemoved()) {
+          List<Node> removed = nodes.subList(from, from + change.getRemovedSize());
+          removed.forEach(this::releaseNode);
+          removed.clear();
+        }
+        if (change.wasAdded()) {
+          List<Node> added = new ArrayList<>(change.getAddedSize());
+          for (MenuItem item : change.getAddedSubList()) {
+            added.add(buildNode(item));
+          }
+          nodes.addAll(from, added);
+        }
       }
     }
   }
 
+  private Node buildNode(MenuItem item) {
+    if (item instanceof Menu) {
+      // item is a submenu
+      return buildSubmenu(item);
+    }
+    // item is a regular menu item
+    return buildMenuItem(item);
+  }
+
+  private void releaseNode(Node node) {
+    if (node == hoveredBtn) {
+      hoveredBtn.hide();
+      hoveredBtn = null;
+    }
+  }
+
   private MenuButton hoveredBtn;
   private boolean isTouchUsed = false;
 
@@ -2,9 +2,15 @@ package com.dlsc.workbenchfx.controls;
 
 import com.dlsc.workbenchfx.Workbench;
 import com.dlsc.workbenchfx.view.controls.module.Tab;
+import javafx.beans.property.BooleanProperty;
+import javafx.beans.property.SimpleBooleanProperty;
 import javafx.scene.control.Skin;
 
 public class CustomTab extends Tab {
+
+  private final BooleanProperty renderCached =
+      new SimpleBooleanProperty(this, "renderCached", SnapshotCache.isEnabledByDefault());
+
   /**
    * Constructs a new {@link CustomTab}.
    *
@@ -18,4 +24,20 @@ public class CustomTab extends Tab {
   protected Skin<?> createDefaultSkin() {
     return new CustomTabSkin(this);
   }
+
+  /**
+   * Whether the icon and the name of the tab are shown as an image from the
+   * {@link SnapshotCache}. The close button is always rendered normally.
+   */
+  public final BooleanProperty renderCachedProperty() {
+    return renderCached;
+  }
+
+  public final boolean isRenderCached() {
+    return renderCached.get();
+  }
+
+  public final void setRenderCached(boolean renderCached) {
+    this.renderCached.set(renderCached);
+  }
 }
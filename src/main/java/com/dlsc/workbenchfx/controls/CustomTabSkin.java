@@ -1,8 +1,8 @@
 package com.dlsc.workbenchfx.controls;
 
+import java.util.Arrays;
 import javafx.beans.property.ReadOnlyObjectProperty;
 import javafx.beans.property.ReadOnlyStringProperty;
-import javafx.collections.ObservableList;
 import javafx.scene.Node;
 import javafx.scene.control.Button;
 import javafx.scene.control.Label;
@@ -27,6 +27,9 @@ public class CustomTabSkin extends SkinBase<CustomTab> {
   private Button closeBtn;
 
   private Label nameLbl;
+  private StackPane iconBox;
+  private HBox labelBox;
+  private CachedRenderPane cachedLabel;
 
   private final ReadOnlyStringProperty name;
   private final ReadOnlyObjectProperty<Node> icon;
@@ -63,15 +66,24 @@ public class CustomTabSkin extends SkinBase<CustomTab> {
 
     controlBox = new HBox();
     controlBox.getStyleClass().add("tab-box");
+
+    iconBox = new StackPane();
+    labelBox = new HBox();
+    labelBox.getStyleClass().add("tab-label-box");
+    cachedLabel = new CachedRenderPane(labelBox, getSkinnable());
   }
 
   private void layoutParts() {
-    Label iconPlaceholder = new Label(); // Will be replaced in the listener
-    controlBox.getChildren().addAll(iconPlaceholder, nameLbl, closeBtn);
+    labelBox.getChildren().addAll(iconBox, nameLbl);
+    controlBox.getChildren().addAll(cachedLabel, closeBtn);
   }
 
   private void setupBindings() {
     nameLbl.textProperty().bind(name);
+    // the icon and the name are laid out as if they were children of the tab box
+    labelBox.spacingProperty().bind(controlBox.spacingProperty());
+    labelBox.alignmentProperty().bind(controlBox.alignmentProperty());
+    cachedLabel.cachingEnabledProperty().bind(getSkinnable().renderCachedProperty());
   }
 
   private void setupEventHandlers() {
@@ -85,16 +97,27 @@ public class CustomTabSkin extends SkinBase<CustomTab> {
         updateIcon();
       }
     });
+    name.addListener(observable -> updateCacheKey());
   }
 
   /**
-   * Replaces the Icon when calling setModule().
+   * Replaces the Icon when calling setModule(). Only the icon slot changes, the tab box and the
+   * other children keep their places.
    */
   private void updateIcon() {
     Node iconNode = icon.get();
-    ObservableList<Node> children = controlBox.getChildren();
-    children.remove(0);
-    children.add(0, iconNode);
-    iconNode.getStyleClass().add("tab-icon");
+    if (iconNode == null) {
+      iconBox.getChildren().clear();
+    } else {
+      if (!iconNode.getStyleClass().contains("tab-icon")) {
+        iconNode.getStyleClass().add("tab-icon");
+      }
+      iconBox.getChildren().setAll(iconNode);
+    }
+    updateCacheKey();
+  }
+
+  private void updateCacheKey() {
+    cachedLabel.setCacheKey(Arrays.asList(name.get(), SnapshotCache.iconKey(icon.get())));
   }
 }
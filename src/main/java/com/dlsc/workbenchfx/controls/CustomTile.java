@@ -2,9 +2,15 @@ package com.dlsc.workbenchfx.controls;
 
 import com.dlsc.workbenchfx.Workbench;
 import com.dlsc.workbenchfx.view.controls.module.Tile;
+import javafx.beans.property.BooleanProperty;
+import javafx.beans.property.SimpleBooleanProperty;
 import javafx.scene.control.Skin;
 
 public class CustomTile extends Tile {
+
+  private final BooleanProperty renderCached =
+      new SimpleBooleanProperty(this, "renderCached", SnapshotCache.isEnabledByDefault());
+
   /**
    * Constructs a new {@link CustomTile}.
    *
@@ -18,4 +24,20 @@ public class CustomTile extends Tile {
   protected Skin<?> createDefaultSkin() {
     return new CustomTileSkin(this);
   }
+
+  /**
+   * Whether the tile is shown as an image from the {@link SnapshotCache} instead of being
+   * rendered and laid out again on every hover and resize.
+   */
+  public final BooleanProperty renderCachedProperty() {
+    return renderCached;
+  }
+
+  public final boolean isRenderCached() {
+    return renderCached.get();
+  }
+
+  public final void setRenderCached(boolean renderCached) {
+    this.renderCached.set(renderCached);
+  }
 }
@@ -1,6 +1,8 @@
 package com.dlsc.workbenchfx.controls;
 
 import com.dlsc.workbenchfx.view.controls.MultilineLabel;
+import java.util.Arrays;
+import javafx.beans.InvalidationListener;
 import javafx.scene.control.Label;
 import javafx.scene.control.SkinBase;
 import javafx.scene.layout.VBox;
@@ -20,6 +22,7 @@ public class CustomTileSkin extends SkinBase<CustomTile> {
   private VBox contentBox;
   private Label icon;
   private MultilineLabel textLbl;
+  private CachedRenderPane cachedPane;
 
   /**
    * Creates a new {@link CustomTileSkin} object for a corresponding {@link CustomTile}.
@@ -41,16 +44,25 @@ public class CustomTileSkin extends SkinBase<CustomTile> {
     contentBox.getStyleClass().add("tile-box");
     textLbl = new MultilineLabel(getSkinnable().getName());
     textLbl.getStyleClass().add("text-lbl");
+    cachedPane = new CachedRenderPane(contentBox, getSkinnable());
   }
 
   private void layoutParts() {
     contentBox.getChildren().addAll(icon, textLbl);
-    getChildren().add(contentBox);
+    getChildren().add(cachedPane);
   }
 
   private void setupBindings() {
-    icon.graphicProperty().bind(getSkinnable().iconProperty());
-    textLbl.textProperty().bind(getSkinnable().nameProperty());
+    CustomTile tile = getSkinnable();
+    icon.graphicProperty().bind(tile.iconProperty());
+    textLbl.textProperty().bind(tile.nameProperty());
+    cachedPane.cachingEnabledProperty().bind(tile.renderCachedProperty());
+
+    InvalidationListener cacheKeyUpdater = observable -> cachedPane.setCacheKey(
+        Arrays.asList(tile.getName(), SnapshotCache.iconKey(tile.getIcon())));
+    tile.nameProperty().addListener(cacheKeyUpdater);
+    tile.iconProperty().addListener(cacheKeyUpdater);
+    cacheKeyUpdater.invalidated(null);
   }
 
 }
@@ -0,0 +1,214 @@
+package com.dlsc.workbenchfx.controls;
+
+import com.dlsc.workbenchfx.Workbench;
+import com.dlsc.workbenchfx.utils.LatencyHistogram;
+import com.dlsc.workbenchfx.utils.Metrics;
+import de.jensd.fx.glyphs.fontawesome.FontAwesomeIcon;
+import de.jensd.fx.glyphs.fontawesome.FontAwesomeIconView;
+import java.util.HashMap;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.DoubleSupplier;
+import javafx.animation.AnimationTimer;
+import javafx.animation.KeyFrame;
+import javafx.animation.Timeline;
+import javafx.geometry.Pos;
+import javafx.scene.control.Button;
+import javafx.scene.control.Label;
+import javafx.scene.control.ScrollPane;
+import javafx.scene.layout.BorderPane;
+import javafx.scene.layout.GridPane;
+import javafx.scene.layout.HBox;
+import javafx.scene.layout.StackPane;
+import javafx.util.Duration;
+
+/**
+ * Non-blocking overlay which shows the {@link Metrics} of the running application.
+ *
+ * <p>While the overlay is shown, it refreshes twice a second and records the interval between
+ * FX pulses as {@code fx.pulse.interval}. Nothing runs while it is hidden. The labels of a
+ * metric are created when it first shows up and only get new texts afterwards, the table is only
+ * laid out again when a new metric was added.
+ */
+public class MetricsOverlay extends BorderPane {
+
+  private static final Duration REFRESH_INTERVAL = Duration.millis(500);
+  private static final double NANOS_PER_MILLI = 1_000_000d;
+
+  private final Workbench workbench;
+  private final GridPane table = new GridPane();
+  private final Label[] histogramHeader =
+      header("histogram", "count", "p50 ms", "p90 ms", "p99 ms", "max ms");
+  private final Label[] counterHeader = header("counter", "value");
+  private final Label[] gaugeHeader = header("gauge", "value");
+  private final Map<String, Label[]> histogramRows = new HashMap<>();
+  private final Map<String, Label[]> counterRows = new HashMap<>();
+  private final Map<String, Label[]> gaugeRows = new HashMap<>();
+  private final Timeline refresh = new Timeline(new KeyFrame(REFRESH_INTERVAL, event -> update()));
+  private final LatencyHistogram pulseInterval = Metrics.histogram("fx.pulse.interval");
+  private final AnimationTimer pulseMonitor = new AnimationTimer() {
+    private long last = -1;
+
+    @Override
+    public void handle(long now) {
+      if (last >= 0) {
+        pulseInterval.record(now - last);
+      }
+      last = now;
+    }
+
+    @Override
+    public void stop() {
+      super.stop();
+      last = -1;
+    }
+  };
+  private boolean shown;
+
+  public MetricsOverlay(Workbench workbench) {
+    StackPane.setAlignment(this, Pos.TOP_RIGHT);
+    Objects.requireNonNull(workbench);
+    this.workbench = workbench;
+    init();
+  }
+
+  private void init() {
+    getStyleClass().addAll("custom-overlay", "metrics-overlay");
+    getStylesheets().add(
+        MetricsOverlay.class.getResource("/com/dlsc/workbenchfx/customOverlay.css").toExternalForm());
+
+    Label titleLbl = new Label("Metrics");
+    titleLbl.getStyleClass().add("centerLbl");
+    Button resetBtn = new Button("", new FontAwesomeIconView(FontAwesomeIcon.REFRESH));
+    resetBtn.setOnAction(event -> {
+      Metrics.reset();
+      update();
+    });
+    Button closeBtn = new Button("", new FontAwesomeIconView(FontAwesomeIcon.CLOSE));
+    closeBtn.setOnAction(event -> toggle());
+    BorderPane top = new BorderPane();
+    top.setLeft(titleLbl);
+    top.setRight(new HBox(resetBtn, closeBtn));
+    setTop(top);
+
+    table.getStyleClass().add("metrics-table");
+    ScrollPane scrollPane = new ScrollPane(table);
+    scrollPane.setFitToWidth(true);
+    setCenter(scrollPane);
+
+    refresh.setCycleCount(Timeline.INDEFINITE);
+    // the workbench hides non-blocking overlays itself when clicking next to them
+    visibleProperty().addListener((observable, wasVisible, visible) -> {
+      if (!visible && shown) {
+        stopUpdates();
+      }
+    });
+  }
+
+  /**
+   * Shows the overlay or hides it when it is already shown.
+   */
+  public void toggle() {
+    if (shown && isVisible()) {
+      workbench.hideOverlay(this);
+      stopUpdates();
+    } else {
+      shown = true;
+      update();
+      workbench.showOverlay(this, false);
+      pulseMonitor.start();
+      refresh.play();
+    }
+  }
+
+  private void stopUpdates() {
+    shown = false;
+    refresh.stop();
+    pulseMonitor.stop();
+  }
+
+  private void update() {
+    Map<String, LatencyHistogram> histograms = Metrics.getHistograms();
+    Map<String, LongAdder> counters = Metrics.getCounters();
+    Map<String, DoubleSupplier> gauges = Metrics.getGauges();
+    int rowCount = histogramRows.size() + counterRows.size() + gaugeRows.size();
+    for (Map.Entry<String, LatencyHistogram> entry : histograms.entrySet()) {
+      LatencyHistogram.Snapshot snapshot = entry.getValue().snapshot();
+      setValues(row(histogramRows, entry.getKey(), histogramHeader.length),
+          Long.toString(snapshot.getCount()), millis(snapshot.getP50()),
+          millis(snapshot.getP90()), millis(snapshot.getP99()), millis(snapshot.getMax()));
+    }
+    for (Map.Entry<String, LongAdder> entry : counters.entrySet()) {
+      setValues(row(counterRows, entry.getKey(), counterHeader.length),
+          Long.toString(entry.getValue().sum()));
+    }
+    for (Map.Entry<String, DoubleSupplier> entry : gauges.entrySet()) {
+      setValues(row(gaugeRows, entry.getKey(), gaugeHeader.length),
+          String.format(Locale.ROOT, "%.1f", entry.getValue().getAsDouble()));
+    }
+    // metrics are never removed, so only new ones change the layout
+    if (table.getChildren().isEmpty()
+        || histogramRows.size() + counterRows.size() + gaugeRows.size() != rowCount) {
+      table.getChildren().clear();
+      int row = addRows(0, histogramHeader, histogramRows, histograms.keySet());
+      row = addRows(row, counterHeader, counterRows, counters.keySet());
+      addRows(row, gaugeHeader, gaugeRows, gauges.keySet());
+    }
+  }
+
+  private int addRows(int row, Label[] header, Map<String, Label[]> rows, Set<String> names) {
+    addRow(row++, header);
+    for (String name : names) {
+      addRow(row++, rows.get(name));
+    }
+    return row;
+  }
+
+  private void addRow(int row, Label[] cells) {
+    for (int column = 0; column < cells.length; column++) {
+      table.add(cells[column], column, row);
+    }
+  }
+
+  private static Label[] header(String... texts) {
+    Label[] cells = new Label[texts.length];
+    for (int column = 0; column < texts.length; column++) {
+      cells[column] = new Label(texts[column]);
+      cells[column].getStyleClass().add("metrics-header");
+      if (column > 0) {
+        cells[column].getStyleClass().add("metrics-value");
+      }
+    }
+    return cells;
+  }
+
+  private static Label[] row(Map<String, Label[]> rows, String name, int columns) {
+    return rows.computeIfAbsent(name, key -> {
+      Label[] cells = new Label[columns];
+      cells[0] = new Label(name);
+      for (int column = 1; column < columns; column++) {
+        cells[column] = new Label();
+        cells[column].getStyleClass().add("metrics-value");
+      }
+      return cells;
+    });
+  }
+
+  private static void setValues(Label[] cells, String... values) {
+    for (int i = 0; i < values.length; i++) {
+      cells[i + 1].setText(values[i]);
+    }
+  }
+
+  private static String millis(long nanos) {
+    return String.format(Locale.ROOT, "%.2f", nanos / NANOS_PER_MILLI);
+  }
+
+  @Override
+  public String toString() {
+    return "Metrics Overlay";
+  }
+}
@@ -0,0 +1,161 @@
+package com.dlsc.workbenchfx.controls;
+
+import com.dlsc.workbenchfx.utils.Metrics;
+import de.jensd.fx.glyphs.GlyphIcon;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.atomic.LongAdder;
+import javafx.scene.Node;
+import javafx.scene.image.Image;
+
+/**
+ * Shared cache of rendered images of controls, used by {@link CachedRenderPane}.
+ *
+ * <p>Images are keyed by what a control shows (e.g. name and icon), the theme, the CSS state of
+ * the control and the size, so equal tiles and tabs share one image. The least recently used
+ * images are dropped once there are more than {@link #MAX_ENTRIES}. Only used on the FX thread.
+ */
+public final class SnapshotCache {
+
+  static final int MAX_ENTRIES = 128;
+
+  private static final SnapshotCache INSTANCE = new SnapshotCache();
+  private static final boolean ENABLED =
+      Boolean.parseBoolean(System.getProperty("fixit.render.cache", "false"));
+
+  private final LongAdder hits = Metrics.counter("render.cache.hits");
+  private final LongAdder misses = Metrics.counter("render.cache.misses");
+  private final Map<Key, Snapshot> snapshots = new LinkedHashMap<Key, Snapshot>(16, 0.75f, true) {
+    @Override
+    protected boolean removeEldestEntry(Map.Entry<Key, Snapshot> eldest) {
+      return size() > MAX_ENTRIES;
+    }
+  };
+
+  /**
+   * Rendered image and its position relative to the top left corner of the content area.
+   */
+  static final class Snapshot {
+    private final Image image;
+    private final double offsetX;
+    private final double offsetY;
+
+    Snapshot(Image image, double offsetX, double offsetY) {
+      this.image = image;
+      this.offsetX = offsetX;
+      this.offsetY = offsetY;
+    }
+
+    Image getImage() {
+      return image;
+    }
+    double getOffsetX() {
+      return offsetX;
+    }
+    double getOffsetY() {
+      return offsetY;
+    }
+  }
+
+  /**
+   * Identifies one rendering of a control.
+   */
+  static final class Key {
+    private final Object content;
+    private final String theme;
+    private final String state;
+    private final double width;
+    private final double height;
+
+    Key(Object content, String theme, String state, double width, double height) {
+      this.content = content;
+      this.theme = theme;
+      this.state = state;
+      this.width = width;
+      this.height = height;
+    }
+
+    @Override
+    public boolean equals(Object obj) {
+      if (this == obj) {
+        return true;
+      }
+      if (!(obj instanceof Key)) {
+        return false;
+      }
+      Key other = (Key) obj;
+      return Double.compare(width, other.width) == 0
+          && Double.compare(height, other.height) == 0
+          && Objects.equals(content, other.content)
+          && Objects.equals(theme, other.theme)
+          && Objects.equals(state, other.state);
+    }
+
+    @Override
+    public int hashCode() {
+      return Objects.hash(content, theme, state, width, height);
+    }
+  }
+
+  private SnapshotCache() {
+  }
+
+  public static SnapshotCache getInstance() {
+    return INSTANCE;
+  }
+
+  /**
+   * Returns whether controls render through the cache unless configured otherwise, turned on
+   * with {@code -Dfixit.render.cache=true}. Images are rendered at scale 1 and look blurry on
+   * HiDPI screens, so the cache is off by default.
+   */
+  public static boolean isEnabledByDefault() {
+    return ENABLED;
+  }
+
+  /**
+   * Returns a key for an icon which is equal for icon nodes showing the same glyph.
+   */
+  public static Object iconKey(Node icon) {
+    if (icon instanceof GlyphIcon) {
+      GlyphIcon<?> glyphIcon = (GlyphIcon<?>) icon;
+      return icon.getClass().getName() + ':' + glyphIcon.getGlyphName();
+    }
+    return icon;
+  }
+
+  Snapshot get(Key key) {
+    Snapshot snapshot = snapshots.get(key);
+    if (snapshot == null) {
+      misses.increment();
+    } else {
+      hits.increment();
+    }
+    return snapshot;
+  }
+
+  void put(Key key, Snapshot snapshot) {
+    snapshots.put(key, snapshot);
+  }
+
+  /**
+   * Drops the images which were rendered with another theme.
+   */
+  void retainTheme(String theme) {
+    for (Iterator<Key> keys = snapshots.keySet().iterator(); keys.hasNext(); ) {
+      if (!Objects.equals(keys.next().theme, theme)) {
+        keys.remove();
+      }
+    }
+  }
+
+  public void clear() {
+    snapshots.clear();
+  }
+
+  public int size() {
+    return snapshots.size();
+  }
+}
@@ -0,0 +1,303 @@
+package com.dlsc.workbenchfx.history;
+
+import com.dlsc.workbenchfx.utils.Metrics;
+import com.dlsc.workbenchfx.utils.PersistentMap;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayDeque;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Deque;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+
+/**
+ * Undo and redo history of a keyed state, e.g. of encoded tasks and entries.
+ *
+ * <p>Every version of the state is a {@link PersistentMap}, consecutive versions share all
+ * unchanged nodes and values. Recording a change keeps the previous version on the undo stack,
+ * undo and redo only move versions between the stacks and hand the keys which differ to a
+ * {@link Target}, so their cost depends on the size of the change and not of the state.
+ * Changes with the same label and keys within {@link #MERGE_WINDOW_MILLIS} are merged into one
+ * step, e.g. the interval changes while an entry is dragged.
+ *
+ * <p>At most {@code depth} steps are kept in memory. Older steps are dropped, or in spill mode
+ * written to a file as the values which differ from the next version, and read back when undo
+ * reaches them. Not thread-safe.
+ */
+public class CommandLog {
+
+  static final long MERGE_WINDOW_MILLIS = 1000;
+
+  private static final Logger LOGGER = LogManager.getLogger(CommandLog.class.getName());
+
+  private final int depth;
+  private final Path spillFile;
+  private final Deque<Step> undoSteps = new ArrayDeque<>();
+  private final Deque<Step> redoSteps = new ArrayDeque<>();
+  private final Deque<Long> spillOffsets = new ArrayDeque<>();
+  private final LongAdder spilledSteps = Metrics.counter("history.spilled");
+  private RandomAccessFile spill;
+  private PersistentMap<String, byte[]> current = PersistentMap.empty();
+
+  /**
+   * Receives the values which change when a step is undone or redone.
+   */
+  public interface Target {
+    /**
+     * @param value the new value of the key, null if it has been removed
+     */
+    void restore(String key, byte[] value);
+  }
+
+  /**
+   * A labeled change and the version of the state on the other side of it: the version before
+   * the change on the undo stack, the one after it on the redo stack.
+   */
+  private static final class Step {
+    final String label;
+    final PersistentMap<String, byte[]> state;
+    final Set<String> keys;
+    long time;
+
+    Step(String label, PersistentMap<String, byte[]> state, Set<String> keys, long time) {
+      this.label = label;
+      this.state = state;
+      this.keys = keys;
+      this.time = time;
+    }
+  }
+
+  /**
+   * @param depth maximum number of steps which are kept in memory
+   * @param spillFile where older steps are kept, null to drop them
+   */
+  public CommandLog(int depth, Path spillFile) {
+    if (depth < 1) {
+      throw new IllegalArgumentException("Depth has to be positive, is " + depth);
+    }
+    this.depth = depth;
+    this.spillFile = spillFile;
+  }
+
+  /**
+   * Replaces the state without recording a step and clears the history.
+   */
+  public void reset(Map<String, byte[]> state) {
+    PersistentMap<String, byte[]> newState = PersistentMap.empty();
+    for (Map.Entry<String, byte[]> entry : state.entrySet()) {
+      newState = newState.plus(entry.getKey(), entry.getValue());
+    }
+    current = newState;
+    undoSteps.clear();
+    redoSteps.clear();
+    clearSpill();
+  }
+
+  /**
+   * Records changed values as one step which can be undone.
+   *
+   * @param changes new values by key, null for removed keys
+   * @return false if nothing changed
+   */
+  public boolean record(String label, Map<String, byte[]> changes) {
+    PersistentMap<String, byte[]> next = current;
+    Set<String> keys = new HashSet<>();
+    for (Map.Entry<String, byte[]> change : changes.entrySet()) {
+      String key = change.getKey();
+      byte[] value = change.getValue();
+      byte[] oldValue = current.get(key);
+      if (value == null ? oldValue == null : Arrays.equals(oldValue, value)) {
+        continue;
+      }
+      next = value == null ? next.minus(key) : next.plus(key, value);
+      keys.add(key);
+    }
+    if (keys.isEmpty()) {
+      return false;
+    }
+    redoSteps.clear();
+    long now = System.currentTimeMillis();
+    Step last = undoSteps.peekLast();
+    if (last != null && last.label.equals(label) && last.keys.equals(keys)
+        && now - last.time < MERGE_WINDOW_MILLIS) {
+      last.time = now;
+    } else {
+      undoSteps.addLast(new Step(label, current, keys, now));
+      trim();
+    }
+    current = next;
+    return true;
+  }
+
+  public boolean canUndo() {
+    return !undoSteps.isEmpty() || !spillOffsets.isEmpty();
+  }
+
+  public boolean canRedo() {
+    return !redoSteps.isEmpty();
+  }
+
+  /**
+   * Returns the label of the step {@link #undo} would undo, or null. The labels of spilled
+   * steps are only read when they are undone, for them it is empty.
+   */
+  public String getUndoLabel() {
+    Step step = undoSteps.peekLast();
+    return step != null ? step.label : spillOffsets.isEmpty() ? null : "";
+  }
+
+  public String getRedoLabel() {
+    Step step = redoSteps.peekLast();
+    return step == null ? null : step.label;
+  }
+
+  /**
+   * Undoes the last step.
+   *
+   * @return false if there was nothing to undo
+   */
+  public boolean undo(Target target) {
+    Step step = undoSteps.pollLast();
+    if (step == null) {
+      step = readSpilledStep();
+      if (step == null) {
+        return false;
+      }
+    }
+    redoSteps.addLast(new Step(step.label, current, step.keys, 0));
+    switchTo(step.state, target);
+    return true;
+  }
+
+  /**
+   * Redoes the last undone step.
+   *
+   * @return false if there was nothing to redo
+   */
+  public boolean redo(Target target) {
+    Step step = redoSteps.pollLast();
+    if (step == null) {
+      return false;
+    }
+    undoSteps.addLast(new Step(step.label, current, step.keys, 0));
+    trim();
+    switchTo(step.state, target);
+    return true;
+  }
+
+  private void switchTo(PersistentMap<String, byte[]> state, Target target) {
+    PersistentMap<String, byte[]> previous = current;
+    current = state;
+    previous.diff(state, (key, oldValue, newValue) -> target.restore(key, newValue));
+  }
+
+  private void trim() {
+    while (undoSteps.size() > depth) {
+      Step oldest = undoSteps.pollFirst();
+      if (spillFile != null) {
+        PersistentMap<String, byte[]> next = undoSteps.isEmpty()
+            ? current : undoSteps.peekFirst().state;
+        spillStep(oldest, next);
+      }
+    }
+  }
+
+  /**
+   * Appends the label of a step and the values of its state which differ from the next state.
+   */
+  private void spillStep(Step step, PersistentMap<String, byte[]> next) {
+    ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+    DataOutputStream out = new DataOutputStream(bytes);
+    try {
+      out.writeUTF(step.label);
+      next.diff(step.state, (key, nextValue, value) -> {
+        try {
+          out.writeBoolean(true);
+          out.writeUTF(key);
+          out.writeInt(value == null ? -1 : value.length);
+          if (value != null) {
+            out.write(value);
+          }
+        } catch (IOException e) {
+          // cannot happen when writing to memory
+          throw new IllegalStateException(e);
+        }
+      });
+      out.writeBoolean(false);
+
+      if (spill == null) {
+        Files.createDirectories(spillFile.toAbsolutePath().getParent());
+        spill = new RandomAccessFile(spillFile.toFile(), "rw");
+        spill.setLength(0);
+      }
+      long offset = spill.length();
+      spill.seek(offset);
+      spill.write(bytes.toByteArray());
+      spillOffsets.addLast(offset);
+      spilledSteps.increment();
+    } catch (IOException e) {
+      LOGGER.error("Writing the undo history to " + spillFile + " failed, dropping older steps", e);
+      clearSpill();
+    }
+  }
+
+  private Step readSpilledStep() {
+    Long offset = spillOffsets.pollLast();
+    if (offset == null) {
+      return null;
+    }
+    long start = System.nanoTime();
+    try {
+      byte[] bytes = new byte[(int) (spill.length() - offset)];
+      spill.seek(offset);
+      spill.readFully(bytes);
+      spill.setLength(offset);
+
+      DataInputStream in = new DataInputStream(new ByteArrayInputStream(bytes));
+      String label = in.readUTF();
+      PersistentMap<String, byte[]> state = current;
+      while (in.readBoolean()) {
+        String key = in.readUTF();
+        int length = in.readInt();
+        if (length < 0) {
+          state = state.minus(key);
+        } else {
+          byte[] value = new byte[length];
+          in.readFully(value);
+          state = state.plus(key, value);
+        }
+      }
+      LOGGER.debug("Read a spilled undo step in {} ms",
+          TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start));
+      return new Step(label, state, Collections.emptySet(), 0);
+    } catch (IOException e) {
+      LOGGER.error("Reading the undo history from " + spillFile + " failed", e);
+      clearSpill();
+      return null;
+    }
+  }
+
+  private void clearSpill() {
+    spillOffsets.clear();
+    if (spill != null) {
+      try {
+        spill.close();
+      } catch (IOException e) {
+        LOGGER.warn("Closing " + spillFile + " failed", e);
+      }
+      spill = null;
+    }
+  }
+}
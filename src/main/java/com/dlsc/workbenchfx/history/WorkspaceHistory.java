@@ -0,0 +1,339 @@
+package com.dlsc.workbenchfx.history;
+
+import com.calendarfx.model.Calendar;
+import com.calendarfx.model.CalendarEvent;
+import com.calendarfx.model.Entry;
+import com.calendarfx.model.Interval;
+import com.dlsc.workbenchfx.modules.calendar.RecurrenceEngine;
+import com.dlsc.workbenchfx.modules.dashboard.model.TaskDTOModel;
+import com.dlsc.workbenchfx.persistence.EntryRecord;
+import com.dlsc.workbenchfx.sync.RecordCodec;
+import java.nio.file.Path;
+import java.time.ZoneId;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.IdentityHashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.function.Consumer;
+import java.util.function.Predicate;
+import javafx.application.Platform;
+import javafx.beans.property.ReadOnlyBooleanProperty;
+import javafx.beans.property.ReadOnlyBooleanWrapper;
+import javafx.collections.ListChangeListener;
+import javafx.collections.ObservableList;
+import javafx.event.EventHandler;
+
+/**
+ * Application-wide undo and redo of task and calendar entry changes, kept in a
+ * {@link CommandLog}.
+ *
+ * <p>Entries are followed through their {@link CalendarEvent}s, so changes made in the calendar
+ * views are recorded without further code. Adding and removing tasks is recorded from the task
+ * list and removed tasks are added again from their recorded fields. Changes to the fields of a
+ * task are not recorded, the tasks have no change events and the app does not edit them. All
+ * changes made before the FX thread gets to the next pulse are recorded as one step. Batch
+ * updates of a calendar, e.g. when data is loaded, are not user edits: they reset the history if
+ * they changed the entries. Occurrences of recurring entries are not recorded.
+ *
+ * <p>Has to be used on the FX thread.
+ */
+public class WorkspaceHistory {
+
+  private static final String TASK_PREFIX = "task:";
+  private static final String ENTRY_PREFIX = "entry:";
+
+  private final CommandLog log;
+  private final ObservableList<TaskDTOModel> tasks;
+  private final Map<String, Calendar> calendars = new LinkedHashMap<>();
+  private final Map<String, TaskDTOModel> tasksByUuid = new HashMap<>();
+  private final Map<String, Entry<?>> entriesById = new HashMap<>();
+  private final Map<String, byte[]> pending = new LinkedHashMap<>();
+  private final ReadOnlyBooleanWrapper undoable = new ReadOnlyBooleanWrapper(this, "undoable");
+  private final ReadOnlyBooleanWrapper redoable = new ReadOnlyBooleanWrapper(this, "redoable");
+  private final EventHandler<CalendarEvent> calendarHandler = this::calendarChanged;
+  private Consumer<TaskDTOModel> onTaskEdited = task -> { };
+  private String pendingLabel;
+  private boolean commitScheduled;
+  private boolean recording = true;
+
+  /**
+   * @param depth number of steps which can be undone from memory
+   * @param spillFile where older steps are kept, null to drop them
+   */
+  public WorkspaceHistory(ObservableList<TaskDTOModel> tasks, Collection<Calendar> calendars,
+                          int depth, Path spillFile) {
+    this.log = new CommandLog(depth, spillFile);
+    this.tasks = tasks;
+    for (Calendar calendar : calendars) {
+      this.calendars.put(calendar.getName(), calendar);
+      calendar.addEventHandler(calendarHandler);
+    }
+    tasks.addListener((ListChangeListener<TaskDTOModel>) this::tasksChanged);
+    reset();
+  }
+
+  public ReadOnlyBooleanProperty undoableProperty() {
+    return undoable.getReadOnlyProperty();
+  }
+
+  public ReadOnlyBooleanProperty redoableProperty() {
+    return redoable.getReadOnlyProperty();
+  }
+
+  /**
+   * Sets the callback for tasks whose fields were changed by undo or redo, e.g. to index and
+   * save them.
+   */
+  public void setOnTaskEdited(Consumer<TaskDTOModel> onTaskEdited) {
+    this.onTaskEdited = onTaskEdited;
+  }
+
+  /**
+   * Applies changes which are not recorded, e.g. loading data, and starts a new history.
+   */
+  public void runUnrecorded(Runnable change) {
+    boolean wasRecording = recording;
+    recording = false;
+    try {
+      change.run();
+    } finally {
+      recording = wasRecording;
+    }
+    reset();
+  }
+
+  public void undo() {
+    commit();
+    restore(log::undo);
+  }
+
+  public void redo() {
+    commit();
+    restore(log::redo);
+  }
+
+  /**
+   * Starts a new history from the current tasks and entries.
+   */
+  public void reset() {
+    pending.clear();
+    pendingLabel = null;
+    Map<String, byte[]> state = new HashMap<>();
+    tasksByUuid.clear();
+    for (TaskDTOModel task : tasks) {
+      if (task.getUuid() != null) {
+        tasksByUuid.put(task.getUuid(), task);
+        state.put(TASK_PREFIX + task.getUuid(), encode(task));
+      }
+    }
+    entriesById.clear();
+    for (Calendar calendar : calendars.values()) {
+      for (Entry<?> entry : recordedEntries(calendar)) {
+        entriesById.put(entry.getId(), entry);
+        state.put(ENTRY_PREFIX + entry.getId(), encode(entry));
+      }
+    }
+    log.reset(state);
+    updateProperties();
+  }
+
+  private void restore(Predicate<CommandLog.Target> action) {
+    boolean wasRecording = recording;
+    recording = false;
+    try {
+      action.test(this::restore);
+    } finally {
+      recording = wasRecording;
+    }
+    updateProperties();
+  }
+
+  private void restore(String key, byte[] value) {
+    if (key.startsWith(TASK_PREFIX)) {
+      String uuid = key.substring(TASK_PREFIX.length());
+      TaskDTOModel task = tasksByUuid.get(uuid);
+      if (value == null) {
+        if (task != null) {
+          tasks.remove(task);
+        }
+        return;
+      }
+      TaskDTOModel restored = RecordCodec.toTask(uuid, RecordCodec.decode(value));
+      if (task == null) {
+        tasks.add(restored);
+      } else {
+        task.setName(restored.getName());
+        task.setDescription(restored.getDescription());
+        task.setUrgency(restored.getUrgency());
+        task.setImportance(restored.getImportance());
+        task.setColorCategory(restored.getColorCategory());
+        task.setTags(restored.getTags());
+        task.setCreateLocalDateTime(restored.getCreateLocalDateTime());
+        task.setListOfLocalDateTimes(restored.getListOfLocalDateTimes());
+        onTaskEdited.accept(task);
+      }
+      return;
+    }
+
+    String id = key.substring(ENTRY_PREFIX.length());
+    Entry<?> entry = entriesById.get(id);
+    if (value == null) {
+      if (entry != null) {
+        entry.removeFromCalendar();
+      }
+      return;
+    }
+    EntryRecord record = RecordCodec.toEntry(id, RecordCodec.decode(value));
+    Calendar calendar = calendars.get(record.getCalendarName());
+    if (entry == null) {
+      if (calendar != null) {
+        calendar.addEntry(record.toEntry());
+      }
+      return;
+    }
+    entry.setTitle(record.getTitle());
+    entry.setLocation(record.getLocation());
+    entry.setInterval(new Interval(record.getStartDateTime(), record.getEndDateTime(),
+        ZoneId.of(record.getZoneId())));
+    entry.setFullDay(record.isFullDay());
+    entry.setRecurrenceRule(record.getRecurrenceRule());
+    if (calendar != null && entry.getCalendar() != calendar) {
+      entry.setCalendar(calendar);
+    }
+  }
+
+  private void tasksChanged(ListChangeListener.Change<? extends TaskDTOModel> change) {
+    while (change.next()) {
+      for (TaskDTOModel task : change.getRemoved()) {
+        if (task.getUuid() != null && tasksByUuid.get(task.getUuid()) == task) {
+          tasksByUuid.remove(task.getUuid());
+          addPending("Remove task", TASK_PREFIX + task.getUuid(), null);
+        }
+      }
+      for (TaskDTOModel task : change.getAddedSubList()) {
+        if (task.getUuid() != null) {
+          tasksByUuid.put(task.getUuid(), task);
+          addPending("Add task", TASK_PREFIX + task.getUuid(), encode(task));
+        }
+      }
+    }
+  }
+
+  private void calendarChanged(CalendarEvent event) {
+    if (event.getEventType() == CalendarEvent.CALENDAR_CHANGED) {
+      // fired instead of the entry events after batch updates
+      Calendar calendar = event.getCalendar();
+      if (calendars.containsValue(calendar) && batchChangedEntries(calendar)) {
+        reset();
+      }
+      return;
+    }
+    Entry<?> entry = event.getEntry();
+    if (entry == null || !isRecorded(entry)) {
+      return;
+    }
+    String key = ENTRY_PREFIX + entry.getId();
+    if (!calendars.containsValue(entry.getCalendar())) {
+      if (entriesById.remove(entry.getId()) != null) {
+        addPending("Delete entry", key, null);
+      }
+      return;
+    }
+    boolean added = entriesById.put(entry.getId(), entry) == null;
+    addPending(added ? "Add entry" : labelOf(event), key, encode(entry));
+  }
+
+  private static String labelOf(CalendarEvent event) {
+    if (event.getEventType() == CalendarEvent.ENTRY_INTERVAL_CHANGED) {
+      return "Move entry";
+    } else if (event.getEventType() == CalendarEvent.ENTRY_TITLE_CHANGED) {
+      return "Rename entry";
+    } else if (event.getEventType() == CalendarEvent.ENTRY_CALENDAR_CHANGED) {
+      return "Change calendar";
+    }
+    return "Edit entry";
+  }
+
+  /**
+   * Returns whether the entries of a calendar differ from the ones known before its batch
+   * update, apart from occurrences.
+   */
+  private boolean batchChangedEntries(Calendar calendar) {
+    Set<Entry<?>> known = Collections.newSetFromMap(new IdentityHashMap<>());
+    for (Entry<?> entry : entriesById.values()) {
+      if (entry.getCalendar() == calendar) {
+        known.add(entry);
+      } else if (!calendars.containsValue(entry.getCalendar())) {
+        // removed in the batch
+        return true;
+      }
+    }
+    List<Entry<?>> current = recordedEntries(calendar);
+    if (current.size() != known.size()) {
+      return true;
+    }
+    for (Entry<?> entry : current) {
+      if (!known.contains(entry)) {
+        return true;
+      }
+    }
+    return false;
+  }
+
+  private static List<Entry<?>> recordedEntries(Calendar calendar) {
+    List<Entry<?>> entries = new ArrayList<>();
+    for (Entry<?> entry : calendar.findEntries("")) {
+      if (isRecorded(entry)) {
+        entries.add(entry);
+      }
+    }
+    return entries;
+  }
+
+  private static boolean isRecorded(Entry<?> entry) {
+    return !entry.isRecurrence() && !(entry instanceof RecurrenceEngine.Occurrence);
+  }
+
+  private void addPending(String label, String key, byte[] value) {
+    if (!recording) {
+      return;
+    }
+    if (pendingLabel == null) {
+      pendingLabel = label;
+    }
+    pending.put(key, value);
+    if (!commitScheduled) {
+      commitScheduled = true;
+      Platform.runLater(this::commit);
+    }
+  }
+
+  private void commit() {
+    commitScheduled = false;
+    if (pending.isEmpty()) {
+      return;
+    }
+    log.record(pendingLabel, pending);
+    pending.clear();
+    pendingLabel = null;
+    updateProperties();
+  }
+
+  private void updateProperties() {
+    undoable.set(log.canUndo());
+    redoable.set(log.canRedo());
+  }
+
+  private static byte[] encode(TaskDTOModel task) {
+    return RecordCodec.encode(RecordCodec.fieldsOf(task));
+  }
+
+  private static byte[] encode(Entry<?> entry) {
+    return RecordCodec.encode(RecordCodec.fieldsOf(EntryRecord.of(entry)));
+  }
+}
@@ -0,0 +1,181 @@
+package com.dlsc.workbenchfx.modules;
+
+import java.io.IOException;
+import java.lang.management.ManagementFactory;
+import java.net.URISyntaxException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.security.CodeSource;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Enumeration;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executor;
+import java.util.concurrent.TimeUnit;
+import java.util.jar.JarEntry;
+import java.util.jar.JarFile;
+import java.util.stream.Stream;
+import javafx.animation.AnimationTimer;
+import javafx.application.Platform;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+
+/**
+ * Warms up selected modules once the window has been painted for the first time.
+ *
+ * <p>Waits for the second pulse after {@link #start()}, at that point the first frame has been
+ * rendered and the time to first frame is logged. Then the background part of every module is
+ * run on a daemon thread and the FX part one module per pulse, so the UI keeps responding while
+ * modules are warmed up.
+ */
+public class ModulePreloader {
+
+  private static final Logger LOGGER = LogManager.getLogger(ModulePreloader.class.getName());
+
+  private final List<Preloadable> modules;
+  private final long startNanos;
+  private final Executor background = runnable -> {
+    Thread thread = new Thread(runnable, "ModulePreloader: Background Thread");
+    thread.setPriority(Thread.MIN_PRIORITY);
+    thread.setDaemon(true);
+    thread.start();
+  };
+  private final CompletableFuture<Void> done = new CompletableFuture<>();
+  private long firstFrameNanos = -1;
+
+  /**
+   * Creates a preloader.
+   *
+   * @param startNanos {@link System#nanoTime()} when the application started, used for the time
+   *                   to first frame
+   * @param modules the modules to warm up, in this order
+   */
+  public ModulePreloader(long startNanos, Preloadable... modules) {
+    this.startNanos = startNanos;
+    this.modules = new ArrayList<>(Arrays.asList(modules));
+  }
+
+  /**
+   * Starts waiting for the first frame, has to be called on the FX thread after the stage has
+   * been shown.
+   *
+   * @return completes when all modules are preloaded
+   */
+  public CompletableFuture<Void> start() {
+    new AnimationTimer() {
+      private int pulses;
+
+      @Override
+      public void handle(long now) {
+        if (++pulses < 2) {
+          return;
+        }
+        stop();
+        firstFrameNanos = System.nanoTime() - startNanos;
+        LOGGER.info("Time to first frame: " + TimeUnit.NANOSECONDS.toMillis(firstFrameNanos)
+            + " ms after start, " + ManagementFactory.getRuntimeMXBean().getUptime()
+            + " ms after JVM launch");
+        preloadInBackground();
+      }
+    }.start();
+    return done;
+  }
+
+  /**
+   * Returns the time from start to the first rendered frame in nanoseconds, or -1 before that.
+   */
+  public long getTimeToFirstFrame() {
+    return firstFrameNanos;
+  }
+
+  /**
+   * Loads the classes of a package and its subpackages from the jar or directory the given
+   * class comes from, without initializing them. Reading and defining the classes is most of
+   * the time it takes to show a view of a library for the first time and, unlike creating its
+   * nodes, can be done off the FX thread.
+   *
+   * @return the number of loaded classes
+   */
+  public static int loadClasses(Class<?> member) {
+    CodeSource source = member.getProtectionDomain().getCodeSource();
+    if (source == null) {
+      return 0;
+    }
+    String prefix = member.getPackage().getName().replace('.', '/') + '/';
+    List<String> names = new ArrayList<>();
+    try {
+      Path location = Paths.get(source.getLocation().toURI());
+      if (Files.isDirectory(location)) {
+        try (Stream<Path> files = Files.walk(location.resolve(prefix))) {
+          files.map(file -> location.relativize(file).toString().replace('\\', '/'))
+              .forEach(names::add);
+        }
+      } else {
+        try (JarFile jar = new JarFile(location.toFile())) {
+          for (Enumeration<JarEntry> entries = jar.entries(); entries.hasMoreElements(); ) {
+            names.add(entries.nextElement().getName());
+          }
+        }
+      }
+    } catch (IOException | URISyntaxException | RuntimeException ex) {
+      LOGGER.warn("Listing the classes of " + member.getPackage().getName() + " failed", ex);
+      return 0;
+    }
+    int loaded = 0;
+    for (String name : names) {
+      if (!name.startsWith(prefix) || !name.endsWith(".class")
+          || name.endsWith("module-info.class")) {
+        continue;
+      }
+      String className = name.substring(0, name.length() - ".class".length()).replace('/', '.');
+      try {
+        Class.forName(className, false, member.getClassLoader());
+        loaded++;
+      } catch (ClassNotFoundException | LinkageError ex) {
+        LOGGER.debug("Could not load {}: {}", className, ex);
+      }
+    }
+    return loaded;
+  }
+
+  private void preloadInBackground() {
+    CompletableFuture.runAsync(() -> {
+      for (Preloadable module : modules) {
+        try {
+          module.preloadInBackground();
+        } catch (RuntimeException ex) {
+          LOGGER.warn("Preloading " + module + " in the background failed", ex);
+        }
+      }
+    }, background).whenComplete((result, ex) -> Platform.runLater(this::preloadPerPulse));
+  }
+
+  private void preloadPerPulse() {
+    new AnimationTimer() {
+      private int index;
+
+      @Override
+      public void handle(long now) {
+        if (index == modules.size()) {
+          stop();
+          done.complete(null);
+          return;
+        }
+        preload(modules.get(index++));
+      }
+    }.start();
+  }
+
+  private void preload(Preloadable module) {
+    long start = System.nanoTime();
+    try {
+      module.preload();
+      LOGGER.debug("Preloaded {} in {} ms", module,
+          TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start));
+    } catch (RuntimeException ex) {
+      LOGGER.warn("Preloading " + module + " failed", ex);
+    }
+  }
+}
@@ -0,0 +1,22 @@
+package com.dlsc.workbenchfx.modules;
+
+/**
+ * Module whose heavyweight parts can be built before it is opened for the first time.
+ *
+ * <p>Modules must still work without being preloaded, {@code activate()} builds whatever is
+ * missing. See {@link ModulePreloader}.
+ */
+public interface Preloadable {
+
+  /**
+   * Called on a background thread, e.g. to load classes or read resources. Must not create or
+   * touch nodes.
+   */
+  default void preloadInBackground() {
+  }
+
+  /**
+   * Called on the FX thread to build the view of the module.
+   */
+  void preload();
+}
@@ -20,22 +20,29 @@ package com.dlsc.workbenchfx.modules.calendar;
 import com.calendarfx.model.Calendar;
 import com.calendarfx.model.CalendarSource;
 import com.calendarfx.view.CalendarView;
-import javafx.application.Platform;
+import com.dlsc.workbenchfx.utils.ClockService;
 import javafx.scene.layout.StackPane;
 
 import java.time.LocalDate;
+import java.time.LocalDateTime;
 import java.time.LocalTime;
+import java.util.Arrays;
+import java.util.List;
+import java.util.function.Consumer;
 
 public class CalendarFxView extends StackPane {
 
-  private Thread updateTimeThread;
-  boolean running = false;
- private static Calendar entries_Urgent_Important = new Calendar("Urgent-Important");
-  private static Calendar entries_Urgent_nImportant = new Calendar("Urgent-nImportant");
-  private static Calendar entries_nUrgent_Important = new Calendar("nUrgent-Important");
-  private static Calendar entries_nUrgent_nImportant = new Calendar("nUrgent-nImportant");
-  private static Calendar entries_OfficialMatters = new Calendar("Official Matters");
-  private static Calendar entries_ShoppingList = new Calendar("Shopping List");
+  private final Consumer<LocalDateTime> clockSubscriber;
+  private final CalendarView calendarView = new CalendarView();
+  private static final CalendarUpdateDispatcher updateDispatcher = new CalendarUpdateDispatcher();
+ private static Calendar entries_Urgent_Important = new SearchableCalendar("Urgent-Important", updateDispatcher);
+  private static Calendar entries_Urgent_nImportant = new SearchableCalendar("Urgent-nImportant", updateDispatcher);
+  private static Calendar entries_nUrgent_Important = new SearchableCalendar("nUrgent-Important", updateDispatcher);
+  private static Calendar entries_nUrgent_nImportant = new SearchableCalendar("nUrgent-nImportant", updateDispatcher);
+  private static Calendar entries_OfficialMatters = new SearchableCalendar("Official Matters", updateDispatcher);
+  private static Calendar entries_ShoppingList = new SearchableCalendar("Shopping List", updateDispatcher);
+  private static final RecurrenceEngine recurrenceEngine =
+      new RecurrenceEngine(getCalendars(), updateDispatcher);
 
   public static Calendar getEntries_Urgent_Important() {
     return entries_Urgent_Important;
@@ -56,11 +63,36 @@ public class CalendarFxView extends StackPane {
     return entries_ShoppingList;
   }
 
+  public static List<Calendar> getCalendars() {
+    return Arrays.asList(
+            entries_Urgent_Important, entries_Urgent_nImportant,
+            entries_nUrgent_Important, entries_nUrgent_nImportant,
+            entries_OfficialMatters, entries_ShoppingList);
+  }
+
+  /**
+   * Returns the number of entries in the calendars, without the occurrences of recurring entries.
+   */
+  public static int getEntryCount() {
+    int count = 0;
+    for (Calendar calendar : getCalendars()) {
+      count += ((SearchableCalendar) calendar).getIndexedEntryCount();
+    }
+    return count;
+  }
+
+  public static CalendarUpdateDispatcher getUpdateDispatcher() {
+    return updateDispatcher;
+  }
+
+  public static RecurrenceEngine getRecurrenceEngine() {
+    return recurrenceEngine;
+  }
+
 
 
 
   public CalendarFxView() {
-    CalendarView calendarView = new CalendarView();
 
 
     entries_Urgent_Important.setShortName("U-I");
@@ -90,36 +122,41 @@ public class CalendarFxView extends StackPane {
     calendarView.setShowDeveloperConsole(true);
     getChildren().addAll(calendarView);
 
-    updateTimeThread = new Thread("Calendar: Update Time Thread") {
-      @Override
-      public void run() {
-        while (running) {
-          Platform.runLater(() -> {
-            calendarView.setToday(LocalDate.now());
-            calendarView.setTime(LocalTime.now());
-          });
-
-          try {
-            sleep(10000);
-          } catch (InterruptedException e) {
-            e.printStackTrace();
-          }
-
-        }
-      }
+    calendarView.dateProperty().addListener(observable -> updateRecurrenceWindow());
+    calendarView.selectedPageProperty().addListener(observable -> updateRecurrenceWindow());
+
+    clockSubscriber = now -> {
+      calendarView.setToday(now.toLocalDate());
+      calendarView.setTime(now.toLocalTime());
     };
+  }
 
-    updateTimeThread.setPriority(Thread.MIN_PRIORITY);
-    updateTimeThread.setDaemon(true);
-    updateTimeThread.start();
+  /**
+   * Expands the recurring entries for the whole year on the year page, otherwise for the
+   * months the month page shows around the date.
+   */
+  private void updateRecurrenceWindow() {
+    LocalDate date = calendarView.getDate();
+    if (calendarView.getSelectedPage() == calendarView.getYearPage()) {
+      recurrenceEngine.setWindow(this, date.withDayOfYear(1),
+          date.withDayOfYear(date.lengthOfYear()));
+    } else {
+      recurrenceEngine.setWindow(this, date.withDayOfMonth(1).minusWeeks(1),
+          date.withDayOfMonth(date.lengthOfMonth()).plusWeeks(2));
+    }
   }
 
   public void start() {
-    running = true;
+    ClockService.getInstance().subscribe(clockSubscriber);
+    updateRecurrenceWindow();
   }
 
+  /**
+   * Stops updating the view, its months no longer need occurrences of recurring entries.
+   */
   public void stop() {
-    running = false;
+    ClockService.getInstance().unsubscribe(clockSubscriber);
+    recurrenceEngine.removeWindow(this);
   }
 
 }
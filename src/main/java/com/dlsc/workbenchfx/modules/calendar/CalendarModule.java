@@ -1,24 +1,54 @@
 package com.dlsc.workbenchfx.modules.calendar;
 
+import com.calendarfx.view.CalendarView;
 import com.dlsc.workbenchfx.model.WorkbenchModule;
+import com.dlsc.workbenchfx.modules.ModulePreloader;
+import com.dlsc.workbenchfx.modules.Preloadable;
+import com.dlsc.workbenchfx.utils.LatencyHistogram;
+import com.dlsc.workbenchfx.utils.Metrics;
 import de.jensd.fx.glyphs.materialdesignicons.MaterialDesignIcon;
 import java.util.Objects;
+import java.util.concurrent.TimeUnit;
 import javafx.scene.Node;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
 
-public class CalendarModule extends WorkbenchModule {
+public class CalendarModule extends WorkbenchModule implements Preloadable {
 
+  private static final Logger LOGGER = LogManager.getLogger(CalendarModule.class.getName());
+
+  private final LatencyHistogram activationTime = Metrics.histogram("module.activate." + getName());
   private CalendarFxView calendarView;
 
   public CalendarModule() {
     super("CalendarFX", MaterialDesignIcon.CALENDAR);
   }
 
+  /**
+   * Loads the view classes of CalendarFX. The calendars and their indexes need no preloading,
+   * they are created with {@link com.dlsc.workbenchfx.utils.FixItUtils} at startup.
+   */
   @Override
-  public Node activate() {
+  public void preloadInBackground() {
+    long start = System.nanoTime();
+    int loaded = ModulePreloader.loadClasses(CalendarView.class);
+    LOGGER.debug("Loaded {} CalendarFX classes in {} ms", loaded,
+        TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start));
+  }
+
+  @Override
+  public void preload() {
     if (Objects.isNull(calendarView)) {
       calendarView = new CalendarFxView();
     }
+  }
+
+  @Override
+  public Node activate() {
+    long start = System.nanoTime();
+    preload();
     calendarView.start();
+    activationTime.recordSince(start);
     return calendarView;
   }
 
@@ -0,0 +1,187 @@
+package com.dlsc.workbenchfx.modules.calendar;
+
+import com.calendarfx.model.Calendar;
+import com.calendarfx.model.Entry;
+import com.dlsc.workbenchfx.utils.LatencyHistogram;
+import com.dlsc.workbenchfx.utils.Metrics;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.IdentityHashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.atomic.LongAdder;
+import javafx.application.Platform;
+
+/**
+ * Collects changes to calendars from any thread and applies them on the FX thread in batches.
+ *
+ * <p>The first change after a flush schedules one {@link Platform#runLater(Runnable)}, every
+ * change made before it runs is applied in the same batch. Each calendar is changed inside
+ * {@link Calendar#startBatchUpdates()} and {@link Calendar#stopBatchUpdates()}, so the views
+ * receive a single {@code CALENDAR_CHANGED} event and lay out once per batch instead of once per
+ * entry. Adding an entry and removing it again before the flush cancels out.
+ *
+ * <p>{@link BatchListener}s learn which entries a batch added and removed, so they do not have
+ * to compare all entries of the calendar when its {@code CALENDAR_CHANGED} event arrives.
+ */
+public class CalendarUpdateDispatcher {
+
+  private static final LatencyHistogram flushTime = Metrics.histogram("calendar.flush");
+  private static final LongAdder entriesAdded = Metrics.counter("calendar.entries.added");
+
+  private final List<BatchListener> batchListeners = new CopyOnWriteArrayList<>();
+  private Map<Calendar, PendingChanges> pending = new LinkedHashMap<>();
+  private boolean flushScheduled;
+  // FX thread only
+  private Calendar applying;
+
+  /**
+   * Notified on the FX thread of the entries a batch changed, before the calendar fires its
+   * {@code CALENDAR_CHANGED} event.
+   */
+  public interface BatchListener {
+    /**
+     * @param removed entries removed from the calendar, including the ones of a {@link #clear},
+     *     may contain entries which were not in it
+     * @param added entries added to the calendar, an entry in both lists was removed and added
+     *     again
+     */
+    void batchApplied(Calendar calendar, Collection<Entry<?>> removed, Collection<Entry<?>> added);
+  }
+
+  /**
+   * Changes of one calendar which have not been applied yet.
+   */
+  private static final class PendingChanges {
+    boolean clear;
+    final List<Entry<?>> added = new ArrayList<>();
+    final Set<Entry<?>> addedSet = Collections.newSetFromMap(new IdentityHashMap<>());
+    final Set<Entry<?>> removed = Collections.newSetFromMap(new IdentityHashMap<>());
+  }
+
+  public void addEntry(Calendar calendar, Entry<?> entry) {
+    synchronized (this) {
+      PendingChanges changes = changesOf(calendar);
+      changes.removed.remove(entry);
+      if (changes.addedSet.add(entry)) {
+        changes.added.add(entry);
+      }
+    }
+  }
+
+  public void addEntries(Calendar calendar, Collection<? extends Entry<?>> entries) {
+    synchronized (this) {
+      PendingChanges changes = changesOf(calendar);
+      for (Entry<?> entry : entries) {
+        changes.removed.remove(entry);
+        if (changes.addedSet.add(entry)) {
+          changes.added.add(entry);
+        }
+      }
+    }
+  }
+
+  public void removeEntry(Calendar calendar, Entry<?> entry) {
+    synchronized (this) {
+      PendingChanges changes = changesOf(calendar);
+      if (!changes.addedSet.remove(entry)) {
+        changes.removed.add(entry);
+      }
+    }
+  }
+
+  public void addBatchListener(BatchListener listener) {
+    batchListeners.add(listener);
+  }
+
+  public void removeBatchListener(BatchListener listener) {
+    batchListeners.remove(listener);
+  }
+
+  /**
+   * Returns whether the {@code CALENDAR_CHANGED} event of {@code calendar} which is being fired
+   * comes from a batch of this dispatcher, whose changes the {@link BatchListener}s already got.
+   * Has to be called on the FX thread.
+   */
+  public boolean isApplying(Calendar calendar) {
+    return applying == calendar;
+  }
+
+  /**
+   * Removes all entries of the calendar, including the ones still waiting to be added.
+   */
+  public void clear(Calendar calendar) {
+    synchronized (this) {
+      PendingChanges changes = changesOf(calendar);
+      changes.clear = true;
+      changes.added.clear();
+      changes.addedSet.clear();
+      changes.removed.clear();
+    }
+  }
+
+  /**
+   * Applies all pending changes right away, has to be called on the FX thread.
+   */
+  public void flush() {
+    Map<Calendar, PendingChanges> changes;
+    synchronized (this) {
+      changes = pending;
+      pending = new LinkedHashMap<>();
+      flushScheduled = false;
+    }
+    long start = System.nanoTime();
+    changes.forEach(this::apply);
+    flushTime.recordSince(start);
+  }
+
+  private void apply(Calendar calendar, PendingChanges changes) {
+    List<Entry<?>> removed = new ArrayList<>(changes.removed);
+    List<Entry<?>> added = new ArrayList<>(changes.added.size());
+    calendar.startBatchUpdates();
+    try {
+      if (changes.clear) {
+        if (!batchListeners.isEmpty()) {
+          removed.addAll(calendar.findEntries(""));
+        }
+        calendar.clear();
+      }
+      if (!changes.removed.isEmpty()) {
+        calendar.removeEntries(new ArrayList<>(changes.removed));
+      }
+      for (Entry<?> entry : changes.added) {
+        // entries removed again before the flush are only dropped from the set, entries added
+        // twice are taken once
+        if (changes.addedSet.remove(entry)) {
+          added.add(entry);
+        }
+      }
+      if (!added.isEmpty()) {
+        calendar.addEntries(added);
+        entriesAdded.add(added.size());
+      }
+    } finally {
+      for (BatchListener listener : batchListeners) {
+        listener.batchApplied(calendar, removed, added);
+      }
+      applying = calendar;
+      try {
+        calendar.stopBatchUpdates();
+      } finally {
+        applying = null;
+      }
+    }
+  }
+
+  private PendingChanges changesOf(Calendar calendar) {
+    if (!flushScheduled) {
+      flushScheduled = true;
+      Platform.runLater(this::flush);
+    }
+    return pending.computeIfAbsent(calendar, key -> new PendingChanges());
+  }
+}
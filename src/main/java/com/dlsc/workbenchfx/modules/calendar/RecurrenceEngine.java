@@ -0,0 +1,579 @@
+package com.dlsc.workbenchfx.modules.calendar;
+
+import com.calendarfx.model.Calendar;
+import com.calendarfx.model.CalendarEvent;
+import com.calendarfx.model.Entry;
+import com.calendarfx.model.Interval;
+import com.dlsc.workbenchfx.persistence.EntryRecord;
+import com.dlsc.workbenchfx.utils.LatencyHistogram;
+import com.dlsc.workbenchfx.utils.Metrics;
+import java.time.Duration;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.YearMonth;
+import java.time.ZoneId;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.IdentityHashMap;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+import java.util.TreeSet;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Consumer;
+import javafx.application.Platform;
+import javafx.event.EventType;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+
+/**
+ * Expands recurring entries lazily, only for the months the calendar views show.
+ *
+ * <p>CalendarFX expands the rule of a recurring entry on the FX thread whenever a view asks for
+ * a date range. The engine keeps the recurring entries out of the calendars instead and adds a
+ * plain {@link Occurrence} entry per occurrence in the months of the current window. The dates
+ * are computed by {@link RecurrenceRule} on a background thread and cached per rule, start and
+ * month, the least recently used months are dropped once there are more than
+ * {@link #MAX_CACHED_MONTHS}. Moving the window only expands the months which were not shown
+ * before and removes the occurrences of the months which are no longer shown, all changes to
+ * the calendars go through the {@link CalendarUpdateDispatcher}.
+ *
+ * <p>Every calendar view sets its own window, the engine shows the union of them. Editing an
+ * occurrence edits its recurring entry: changing the title, location or full-day flag changes
+ * all occurrences, moving or resizing it moves the start and changes the length of the series,
+ * moving it to another calendar moves the series and removing it removes the series. Only the
+ * occurrences of the changed recurring entry are expanded again, the ones of the others stay in
+ * their calendars. A recurring entry whose rule is changed to one which is not supported goes
+ * back to its calendar as a plain entry. {@link SourceListener}s are told about these changes,
+ * e.g. to save them; they are not part of the undo history.
+ *
+ * <p>Entries with rules which {@link RecurrenceRule} does not support are not taken, they stay
+ * in the calendars and are expanded by CalendarFX. Apart from the expansion itself the engine
+ * has to be used on the FX thread.
+ */
+public class RecurrenceEngine {
+
+  static final int MAX_CACHED_MONTHS = 8192;
+
+  private static final Logger LOGGER = LogManager.getLogger(RecurrenceEngine.class.getName());
+
+  private final LatencyHistogram expandTime = Metrics.histogram("recurrence.expand");
+  private final LongAdder hits = Metrics.counter("recurrence.cache.hits");
+  private final LongAdder misses = Metrics.counter("recurrence.cache.misses");
+  private final ExecutorService expansionThread;
+  // only used on the expansion thread
+  private final Map<Key, List<LocalDate>> expansions =
+      new LinkedHashMap<Key, List<LocalDate>>(16, 0.75f, true) {
+        @Override
+        protected boolean removeEldestEntry(Map.Entry<Key, List<LocalDate>> eldest) {
+          return size() > MAX_CACHED_MONTHS;
+        }
+      };
+
+  private final CalendarUpdateDispatcher dispatcher;
+  private final Map<String, Calendar> calendars = new HashMap<>();
+  private final Map<YearMonth, MonthOccurrences> shownMonths = new HashMap<>();
+  private final Map<Object, Set<YearMonth>> windows = new IdentityHashMap<>();
+  private final List<SourceListener> sourceListeners = new CopyOnWriteArrayList<>();
+  private List<Source> sources = Collections.emptyList();
+  private Set<YearMonth> window = Collections.emptySet();
+
+  /**
+   * Notified on the FX thread when recurring entries were changed or removed through the
+   * engine, not when they are replaced with {@link #setSources(Collection)}.
+   */
+  public interface SourceListener {
+    /**
+     * @param changed recurring entries which were added or changed
+     * @param removedIds ids of the recurring entries which were removed, including the ones
+     *     which went back to their calendar as plain entries
+     */
+    void sourcesChanged(Collection<EntryRecord> changed, Collection<String> removedIds);
+  }
+
+  /**
+   * Occurrence of a recurring entry on one date, its user object is the recurring entry.
+   */
+  public static final class Occurrence extends Entry<EntryRecord> {
+
+    Occurrence(EntryRecord source, LocalDateTime start, Duration duration, ZoneId zoneId) {
+      super(source.getTitle(), new Interval(start, start.plus(duration), zoneId),
+          source.getId() + "@" + start.toLocalDate());
+      setLocation(source.getLocation());
+      setFullDay(source.isFullDay());
+      setUserObject(source);
+    }
+
+    public EntryRecord getSource() {
+      return getUserObject();
+    }
+  }
+
+  /**
+   * Recurring entry with its parsed rule and calendar.
+   */
+  private static final class Source {
+    final EntryRecord record;
+    final RecurrenceRule rule;
+    final Calendar calendar;
+
+    Source(EntryRecord record, RecurrenceRule rule, Calendar calendar) {
+      this.record = record;
+      this.rule = rule;
+      this.calendar = calendar;
+    }
+  }
+
+  /**
+   * Occurrences shown for one month, null while they are being expanded.
+   */
+  private static final class MonthOccurrences {
+    Map<Calendar, List<Occurrence>> occurrences;
+  }
+
+  /**
+   * Identifies the expansion of one rule for one month.
+   */
+  private static final class Key {
+    private final RecurrenceRule rule;
+    private final LocalDateTime start;
+    private final YearMonth month;
+
+    Key(RecurrenceRule rule, LocalDateTime start, YearMonth month) {
+      this.rule = rule;
+      this.start = start;
+      this.month = month;
+    }
+
+    @Override
+    public boolean equals(Object obj) {
+      if (this == obj) {
+        return true;
+      }
+      if (!(obj instanceof Key)) {
+        return false;
+      }
+      Key other = (Key) obj;
+      return rule.equals(other.rule) && start.equals(other.start) && month.equals(other.month);
+    }
+
+    @Override
+    public int hashCode() {
+      return Objects.hash(rule, start, month);
+    }
+  }
+
+  public RecurrenceEngine(Collection<Calendar> calendars, CalendarUpdateDispatcher dispatcher) {
+    this.dispatcher = dispatcher;
+    for (Calendar calendar : calendars) {
+      this.calendars.put(calendar.getName(), calendar);
+    }
+    expansionThread = Executors.newSingleThreadExecutor(runnable -> {
+      Thread thread = new Thread(runnable, "RecurrenceEngine: Expansion Thread");
+      thread.setDaemon(true);
+      return thread;
+    });
+    for (Calendar calendar : calendars) {
+      calendar.addEventHandler(this::calendarChanged);
+    }
+  }
+
+  public void addSourceListener(SourceListener listener) {
+    sourceListeners.add(listener);
+  }
+
+  public void removeSourceListener(SourceListener listener) {
+    sourceListeners.remove(listener);
+  }
+
+  /**
+   * Returns whether the engine can expand the entry, i.e. it has a supported rule and belongs
+   * to one of the calendars. Can be called on any thread.
+   */
+  public boolean accepts(EntryRecord record) {
+    String rule = record.getRecurrenceRule();
+    return rule != null && !rule.isEmpty() && calendars.containsKey(record.getCalendarName())
+        && RecurrenceRule.isSupported(rule);
+  }
+
+  /**
+   * Replaces the recurring entries, the ones the engine does not {@link #accepts(EntryRecord)
+   * accept} are ignored. The occurrences of the current window are expanded again.
+   */
+  public void setSources(Collection<EntryRecord> records) {
+    List<Source> newSources = new ArrayList<>(records.size());
+    for (EntryRecord record : records) {
+      if (accepts(record)) {
+        newSources.add(toSource(record));
+      }
+    }
+    replaceSources(newSources);
+  }
+
+  /**
+   * Adds or replaces the recurring entry with the id of {@code record}. If the engine does not
+   * {@link #accepts(EntryRecord) accept} it anymore, it is added to its calendar as a plain
+   * entry, or dropped if it has no calendar.
+   */
+  public void updateSource(EntryRecord record) {
+    Source old = findSource(record.getId());
+    if (accepts(record)) {
+      Source source = toSource(record);
+      List<Source> newSources = new ArrayList<>(sources.size() + 1);
+      for (Source other : sources) {
+        newSources.add(other == old ? source : other);
+      }
+      if (old == null) {
+        newSources.add(source);
+      }
+      sources = Collections.unmodifiableList(newSources);
+      replaceOccurrences(record.getId(), source);
+      fireSourcesChanged(Collections.singletonList(record), Collections.emptyList());
+      return;
+    }
+    if (old != null) {
+      dropSource(old);
+    }
+    Calendar calendar = calendars.get(record.getCalendarName());
+    if (calendar != null) {
+      dispatcher.addEntry(calendar, record.toEntry());
+    }
+    fireSourcesChanged(Collections.emptyList(), Collections.singletonList(record.getId()));
+  }
+
+  /**
+   * Removes the recurring entry with the id and its occurrences.
+   */
+  public void removeSource(String id) {
+    Source old = findSource(id);
+    if (old != null) {
+      dropSource(old);
+      fireSourcesChanged(Collections.emptyList(), Collections.singletonList(id));
+    }
+  }
+
+  /**
+   * Returns the recurring entries, e.g. to save them.
+   */
+  public List<EntryRecord> getSources() {
+    List<EntryRecord> records = new ArrayList<>(sources.size());
+    for (Source source : sources) {
+      records.add(source.record);
+    }
+    return records;
+  }
+
+  /**
+   * Sets the months a view shows, from {@code startDate} to {@code endDate}. The occurrences of
+   * the months which no view shows are removed.
+   *
+   * @param view identifies the view, e.g. the view itself
+   */
+  public void setWindow(Object view, LocalDate startDate, LocalDate endDate) {
+    Set<YearMonth> viewWindow = new TreeSet<>();
+    for (YearMonth month = YearMonth.from(startDate); !month.isAfter(YearMonth.from(endDate));
+         month = month.plusMonths(1)) {
+      viewWindow.add(month);
+    }
+    windows.put(view, viewWindow);
+    updateWindow();
+  }
+
+  /**
+   * Forgets the months of a view, e.g. when it is no longer shown.
+   */
+  public void removeWindow(Object view) {
+    if (windows.remove(view) != null) {
+      updateWindow();
+    }
+  }
+
+  private void updateWindow() {
+    Set<YearMonth> newWindow = new TreeSet<>();
+    windows.values().forEach(newWindow::addAll);
+    window = newWindow;
+    for (YearMonth month : new ArrayList<>(shownMonths.keySet())) {
+      if (!window.contains(month)) {
+        hideMonth(month);
+      }
+    }
+    for (YearMonth month : window) {
+      if (!shownMonths.containsKey(month)) {
+        showMonth(month);
+      }
+    }
+  }
+
+  private Source toSource(EntryRecord record) {
+    return new Source(record, RecurrenceRule.parse(record.getRecurrenceRule()),
+        calendars.get(record.getCalendarName()));
+  }
+
+  private Source findSource(String id) {
+    for (Source source : sources) {
+      if (source.record.getId().equals(id)) {
+        return source;
+      }
+    }
+    return null;
+  }
+
+  private void dropSource(Source old) {
+    List<Source> newSources = new ArrayList<>(sources);
+    newSources.remove(old);
+    sources = Collections.unmodifiableList(newSources);
+    replaceOccurrences(old.record.getId(), null);
+  }
+
+  /**
+   * Expands the occurrences of the current window again.
+   */
+  private void replaceSources(List<Source> newSources) {
+    sources = Collections.unmodifiableList(newSources);
+    for (YearMonth month : new ArrayList<>(shownMonths.keySet())) {
+      hideMonth(month);
+    }
+    for (YearMonth month : window) {
+      showMonth(month);
+    }
+  }
+
+  /**
+   * Replaces the shown occurrences of one recurring entry and leaves the ones of the others in
+   * their calendars, only that entry is expanded again.
+   *
+   * @param source the changed recurring entry, null if it was removed
+   */
+  private void replaceOccurrences(String id, Source source) {
+    for (Map.Entry<YearMonth, MonthOccurrences> entry : new ArrayList<>(shownMonths.entrySet())) {
+      YearMonth month = entry.getKey();
+      MonthOccurrences shown = entry.getValue();
+      if (shown.occurrences == null) {
+        // still being expanded from the old recurring entries
+        hideMonth(month);
+        showMonth(month);
+        continue;
+      }
+      for (Map.Entry<Calendar, List<Occurrence>> occurrences : shown.occurrences.entrySet()) {
+        Iterator<Occurrence> iterator = occurrences.getValue().iterator();
+        while (iterator.hasNext()) {
+          Occurrence occurrence = iterator.next();
+          if (occurrence.getSource().getId().equals(id)) {
+            removeOccurrence(occurrences.getKey(), occurrence);
+            iterator.remove();
+          }
+        }
+      }
+      if (source != null) {
+        expandLater(Collections.singletonList(source), month, added -> {
+          // the month may have been hidden or the dates changed again in the meantime, a new
+          // title or location keeps the rule
+          Source current = findSource(id);
+          if (shownMonths.get(month) != shown || current == null || current.rule != source.rule) {
+            return;
+          }
+          added.forEach((calendar, occurrences) -> {
+            if (current.record != source.record) {
+              occurrences.forEach(occurrence -> updateOccurrence(occurrence, current.record));
+            }
+            shown.occurrences.computeIfAbsent(calendar, key -> new ArrayList<>())
+                .addAll(occurrences);
+            dispatcher.addEntries(calendar, occurrences);
+          });
+        });
+      }
+    }
+  }
+
+  private void fireSourcesChanged(Collection<EntryRecord> changed,
+                                  Collection<String> removedIds) {
+    for (SourceListener listener : sourceListeners) {
+      listener.sourcesChanged(changed, removedIds);
+    }
+  }
+
+  /**
+   * Routes the edits of an occurrence to its recurring entry. Adding and removing occurrences
+   * happens in batches, which fire no entry events.
+   */
+  private void calendarChanged(CalendarEvent event) {
+    if (!(event.getEntry() instanceof Occurrence)) {
+      return;
+    }
+    Occurrence occurrence = (Occurrence) event.getEntry();
+    Source source = findSource(occurrence.getSource().getId());
+    if (source == null) {
+      // left over from sources which were replaced in the meantime
+      return;
+    }
+    EntryRecord record = source.record;
+    EventType<? extends CalendarEvent> type = event.getEventType();
+    if (type == CalendarEvent.ENTRY_CALENDAR_CHANGED) {
+      Calendar calendar = occurrence.getCalendar();
+      if (calendar == null) {
+        removeSource(record.getId());
+      } else if (!calendar.getName().equals(record.getCalendarName())) {
+        // the old and the new calendar both fire the event
+        updateSource(new EntryRecord(record.getId(), calendar.getName(), record.getTitle(),
+            record.getLocation(), record.getStartDateTime(), record.getEndDateTime(),
+            record.getZoneId(), record.isFullDay(), record.getRecurrenceRule()));
+      }
+    } else if (type == CalendarEvent.ENTRY_INTERVAL_CHANGED) {
+      Interval interval = occurrence.getInterval();
+      LocalDateTime start = record.getStartDateTime().plus(Duration.between(
+          event.getOldInterval().getStartDateTime(), interval.getStartDateTime()));
+      LocalDateTime end = start.plus(
+          Duration.between(interval.getStartDateTime(), interval.getEndDateTime()));
+      updateSource(new EntryRecord(record.getId(), record.getCalendarName(), record.getTitle(),
+          record.getLocation(), start, end, interval.getZoneId().getId(), record.isFullDay(),
+          record.getRecurrenceRule()));
+    } else if (type == CalendarEvent.ENTRY_RECURRENCE_RULE_CHANGED) {
+      updateSource(new EntryRecord(record.getId(), record.getCalendarName(), record.getTitle(),
+          record.getLocation(), record.getStartDateTime(), record.getEndDateTime(),
+          record.getZoneId(), record.isFullDay(), occurrence.getRecurrenceRule()));
+    } else if (type == CalendarEvent.ENTRY_TITLE_CHANGED
+        || type == CalendarEvent.ENTRY_LOCATION_CHANGED
+        || type == CalendarEvent.ENTRY_FULL_DAY_CHANGED) {
+      if (Objects.equals(record.getTitle(), occurrence.getTitle())
+          && Objects.equals(record.getLocation(), occurrence.getLocation())
+          && record.isFullDay() == occurrence.isFullDay()) {
+        // one of the other occurrences being updated below
+        return;
+      }
+      EntryRecord changed = new EntryRecord(record.getId(), record.getCalendarName(),
+          occurrence.getTitle(), occurrence.getLocation(), record.getStartDateTime(),
+          record.getEndDateTime(), record.getZoneId(), occurrence.isFullDay(),
+          record.getRecurrenceRule());
+      updateShownOccurrences(changed);
+    }
+  }
+
+  /**
+   * Replaces a recurring entry whose dates did not change and updates its shown occurrences in
+   * place, so an occurrence which is being edited stays in its calendar.
+   */
+  private void updateShownOccurrences(EntryRecord record) {
+    List<Source> newSources = new ArrayList<>(sources.size());
+    for (Source source : sources) {
+      newSources.add(source.record.getId().equals(record.getId())
+          ? new Source(record, source.rule, source.calendar) : source);
+    }
+    sources = Collections.unmodifiableList(newSources);
+    for (MonthOccurrences shown : shownMonths.values()) {
+      if (shown.occurrences == null) {
+        continue;
+      }
+      for (List<Occurrence> occurrences : shown.occurrences.values()) {
+        for (Occurrence occurrence : occurrences) {
+          if (occurrence.getSource().getId().equals(record.getId())) {
+            updateOccurrence(occurrence, record);
+          }
+        }
+      }
+    }
+    fireSourcesChanged(Collections.singletonList(record), Collections.emptyList());
+  }
+
+  private static void updateOccurrence(Occurrence occurrence, EntryRecord record) {
+    occurrence.setUserObject(record);
+    occurrence.setTitle(record.getTitle());
+    occurrence.setLocation(record.getLocation());
+    occurrence.setFullDay(record.isFullDay());
+  }
+
+  private void showMonth(YearMonth month) {
+    MonthOccurrences shown = new MonthOccurrences();
+    shownMonths.put(month, shown);
+    List<Source> monthSources = sources;
+    if (monthSources.isEmpty()) {
+      shown.occurrences = new LinkedHashMap<>();
+      return;
+    }
+    expandLater(monthSources, month, occurrences -> {
+      // the month may have been hidden or expanded again in the meantime
+      if (shownMonths.get(month) == shown) {
+        shown.occurrences = occurrences;
+        occurrences.forEach(dispatcher::addEntries);
+      }
+    });
+  }
+
+  private void hideMonth(YearMonth month) {
+    MonthOccurrences shown = shownMonths.remove(month);
+    if (shown != null && shown.occurrences != null) {
+      shown.occurrences.forEach((calendar, occurrences) -> {
+        for (Occurrence occurrence : occurrences) {
+          removeOccurrence(calendar, occurrence);
+        }
+      });
+    }
+  }
+
+  private void removeOccurrence(Calendar calendar, Occurrence occurrence) {
+    // edits may have moved the occurrence to another calendar, without one it may still be
+    // waiting to be added
+    Calendar current = occurrence.getCalendar();
+    dispatcher.removeEntry(current == null ? calendar : current, occurrence);
+  }
+
+  /**
+   * Expands the recurring entries for the month on the expansion thread and hands the
+   * occurrences to {@code expanded} on the FX thread.
+   */
+  private void expandLater(List<Source> monthSources, YearMonth month,
+                           Consumer<Map<Calendar, List<Occurrence>>> expanded) {
+    CompletableFuture.supplyAsync(() -> expand(monthSources, month), expansionThread)
+        .whenComplete((occurrences, ex) -> {
+          if (ex != null) {
+            LOGGER.error("Expanding the recurring entries of " + month + " failed", ex);
+            return;
+          }
+          Platform.runLater(() -> expanded.accept(occurrences));
+        });
+  }
+
+  private Map<Calendar, List<Occurrence>> expand(List<Source> monthSources, YearMonth month) {
+    long start = System.nanoTime();
+    Map<Calendar, List<Occurrence>> occurrences = new LinkedHashMap<>();
+    int count = 0;
+    for (Source source : monthSources) {
+      EntryRecord record = source.record;
+      LocalDateTime sourceStart = record.getStartDateTime();
+      Duration duration = Duration.between(sourceStart, record.getEndDateTime());
+      ZoneId zoneId = ZoneId.of(record.getZoneId());
+      for (LocalDate date : datesOf(source.rule, sourceStart, month)) {
+        occurrences.computeIfAbsent(source.calendar, calendar -> new ArrayList<>())
+            .add(new Occurrence(record, date.atTime(sourceStart.toLocalTime()), duration, zoneId));
+        count++;
+      }
+    }
+    long duration = System.nanoTime() - start;
+    expandTime.record(duration);
+    LOGGER.debug("Expanded {} recurring entries to {} occurrences in {} in {} ms",
+        monthSources.size(), count, month, TimeUnit.NANOSECONDS.toMillis(duration));
+    return occurrences;
+  }
+
+  private List<LocalDate> datesOf(RecurrenceRule rule, LocalDateTime start, YearMonth month) {
+    Key key = new Key(rule, start, month);
+    List<LocalDate> dates = expansions.get(key);
+    if (dates == null) {
+      misses.increment();
+      dates = rule.occurrences(start, month.atDay(1), month.atEndOfMonth());
+      expansions.put(key, dates);
+    } else {
+      hits.increment();
+    }
+    return dates;
+  }
+}
@@ -0,0 +1,419 @@
+package com.dlsc.workbenchfx.modules.calendar;
+
+import java.time.DayOfWeek;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.LocalTime;
+import java.time.YearMonth;
+import java.time.format.DateTimeFormatter;
+import java.time.format.DateTimeParseException;
+import java.time.temporal.ChronoUnit;
+import java.time.temporal.TemporalAdjusters;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Locale;
+import java.util.TreeSet;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * Parsed RFC 5545 recurrence rule, like {@code RRULE:FREQ=WEEKLY;BYDAY=MO,WE}.
+ *
+ * <p>Supports the daily, weekly, monthly and yearly frequencies with {@code INTERVAL},
+ * {@code COUNT}, {@code UNTIL}, {@code BYDAY}, {@code BYMONTHDAY} and {@code BYMONTH}, weeks
+ * start on Monday. Occurrences are computed for a window only: without {@code COUNT} the
+ * expansion starts at the first period of the window instead of the start of the rule, so its
+ * cost depends on the size of the window and not on how long ago the rule started.
+ *
+ * <p>Instances are immutable.
+ */
+public final class RecurrenceRule {
+
+  private static final String[] WEEKDAYS = {"MO", "TU", "WE", "TH", "FR", "SA", "SU"};
+  private static final Pattern WEEKDAY = Pattern.compile("([+-]?\\d{1,2})?(MO|TU|WE|TH|FR|SA|SU)");
+  private static final DateTimeFormatter UNTIL_DATE = DateTimeFormatter.ofPattern("yyyyMMdd");
+  private static final DateTimeFormatter UNTIL_DATE_TIME =
+      DateTimeFormatter.ofPattern("yyyyMMdd'T'HHmmss");
+
+  enum Frequency {
+    DAILY, WEEKLY, MONTHLY, YEARLY
+  }
+
+  private final String text;
+  private final Frequency frequency;
+  private final int interval;
+  private final int count;
+  private final LocalDateTime until;
+  private final int[] byDayOrdinals;
+  private final DayOfWeek[] byDayWeekdays;
+  private final int[] byMonthDays;
+  private final int[] byMonths;
+
+  private RecurrenceRule(String text, Frequency frequency, int interval, int count,
+                         LocalDateTime until, int[] byDayOrdinals, DayOfWeek[] byDayWeekdays,
+                         int[] byMonthDays, int[] byMonths) {
+    this.text = text;
+    this.frequency = frequency;
+    this.interval = interval;
+    this.count = count;
+    this.until = until;
+    this.byDayOrdinals = byDayOrdinals;
+    this.byDayWeekdays = byDayWeekdays;
+    this.byMonthDays = byMonthDays;
+    this.byMonths = byMonths;
+  }
+
+  /**
+   * Parses a rule with or without the {@code RRULE:} prefix.
+   *
+   * @throws IllegalArgumentException if the rule is malformed or uses unsupported parts
+   */
+  public static RecurrenceRule parse(String text) {
+    String rule = text.trim();
+    if (rule.startsWith("RRULE:")) {
+      rule = rule.substring("RRULE:".length());
+    }
+    Frequency frequency = null;
+    int interval = 1;
+    int count = 0;
+    LocalDateTime until = null;
+    int[] byDayOrdinals = new int[0];
+    DayOfWeek[] byDayWeekdays = new DayOfWeek[0];
+    int[] byMonthDays = new int[0];
+    int[] byMonths = new int[0];
+    for (String part : rule.split(";")) {
+      if (part.isEmpty()) {
+        continue;
+      }
+      int separator = part.indexOf('=');
+      if (separator < 0) {
+        throw new IllegalArgumentException("Malformed recurrence rule " + text);
+      }
+      String value = part.substring(separator + 1);
+      switch (part.substring(0, separator).toUpperCase(Locale.ROOT)) {
+        case "FREQ":
+          try {
+            frequency = Frequency.valueOf(value);
+          } catch (IllegalArgumentException e) {
+            throw new IllegalArgumentException("Unsupported frequency in " + text, e);
+          }
+          break;
+        case "INTERVAL":
+          interval = parseNumber(text, value, 1, Integer.MAX_VALUE);
+          break;
+        case "COUNT":
+          count = parseNumber(text, value, 1, Integer.MAX_VALUE);
+          break;
+        case "UNTIL":
+          until = parseUntil(text, value);
+          break;
+        case "BYDAY":
+          String[] days = value.split(",");
+          byDayOrdinals = new int[days.length];
+          byDayWeekdays = new DayOfWeek[days.length];
+          for (int i = 0; i < days.length; i++) {
+            Matcher matcher = WEEKDAY.matcher(days[i]);
+            if (!matcher.matches()) {
+              throw new IllegalArgumentException("Malformed BYDAY in " + text);
+            }
+            if (matcher.group(1) != null) {
+              byDayOrdinals[i] = parseNumber(text, matcher.group(1), -5, 5);
+              if (byDayOrdinals[i] == 0) {
+                throw new IllegalArgumentException("Malformed BYDAY in " + text);
+              }
+            }
+            byDayWeekdays[i] = DayOfWeek.of(Arrays.asList(WEEKDAYS).indexOf(matcher.group(2)) + 1);
+          }
+          break;
+        case "BYMONTHDAY":
+          byMonthDays = parseNumbers(text, value, -31, 31);
+          break;
+        case "BYMONTH":
+          byMonths = parseNumbers(text, value, 1, 12);
+          Arrays.sort(byMonths);
+          break;
+        case "WKST":
+          if (!"MO".equals(value)) {
+            throw new IllegalArgumentException("Unsupported week start in " + text);
+          }
+          break;
+        default:
+          throw new IllegalArgumentException("Unsupported part " + part + " in " + text);
+      }
+    }
+    if (frequency == null) {
+      throw new IllegalArgumentException("Missing FREQ in " + text);
+    }
+    if (count > 0 && until != null) {
+      throw new IllegalArgumentException("COUNT and UNTIL in " + text);
+    }
+    for (int ordinal : byDayOrdinals) {
+      if (ordinal != 0 && frequency != Frequency.MONTHLY
+          && (frequency != Frequency.YEARLY || byMonths.length == 0)) {
+        throw new IllegalArgumentException("Unsupported BYDAY ordinal in " + text);
+      }
+    }
+    return new RecurrenceRule(rule, frequency, interval, count, until, byDayOrdinals,
+        byDayWeekdays, byMonthDays, byMonths);
+  }
+
+  /**
+   * Returns whether {@link #parse(String)} accepts the rule.
+   */
+  public static boolean isSupported(String text) {
+    try {
+      parse(text);
+      return true;
+    } catch (IllegalArgumentException e) {
+      return false;
+    }
+  }
+
+  /**
+   * Returns the start dates of the occurrences between {@code from} and {@code to}, both
+   * inclusive, in ascending order.
+   *
+   * @param start start of the first occurrence, which is always the first date of the rule
+   */
+  public List<LocalDate> occurrences(LocalDateTime start, LocalDate from, LocalDate to) {
+    List<LocalDate> result = new ArrayList<>();
+    LocalDate first = start.toLocalDate();
+    LocalDate last = to;
+    if (until != null) {
+      LocalDate lastOfRule = until.toLocalDate();
+      if (start.toLocalTime().isAfter(until.toLocalTime())) {
+        lastOfRule = lastOfRule.minusDays(1);
+      }
+      if (lastOfRule.isBefore(last)) {
+        last = lastOfRule;
+      }
+    }
+    if (last.isBefore(first) || last.isBefore(from)) {
+      return result;
+    }
+
+    // occurrences before the window only have to be visited to count them
+    long period = count == 0 ? firstPeriod(first, from) : 0;
+    int emitted = 0;
+    TreeSet<LocalDate> candidates = new TreeSet<>();
+    while (true) {
+      LocalDate periodStart = periodStart(first, period);
+      if (periodStart.isAfter(last)) {
+        return result;
+      }
+      candidates.clear();
+      addCandidates(periodStart, first, candidates);
+      for (LocalDate date : candidates) {
+        if (date.isBefore(first)) {
+          continue;
+        }
+        if (date.isAfter(last) || (count > 0 && emitted == count)) {
+          return result;
+        }
+        emitted++;
+        if (!date.isBefore(from)) {
+          result.add(date);
+        }
+      }
+      period += interval;
+    }
+  }
+
+  private long firstPeriod(LocalDate first, LocalDate from) {
+    LocalDate periodStart = periodStart(first, 0);
+    if (!from.isAfter(periodStart)) {
+      return 0;
+    }
+    long periods;
+    switch (frequency) {
+      case DAILY:
+        periods = ChronoUnit.DAYS.between(periodStart, from);
+        break;
+      case WEEKLY:
+        periods = ChronoUnit.WEEKS.between(periodStart, from);
+        break;
+      case MONTHLY:
+        periods = ChronoUnit.MONTHS.between(periodStart, from);
+        break;
+      default:
+        periods = ChronoUnit.YEARS.between(periodStart, from);
+        break;
+    }
+    return periods - periods % interval;
+  }
+
+  private LocalDate periodStart(LocalDate first, long period) {
+    switch (frequency) {
+      case DAILY:
+        return first.plusDays(period);
+      case WEEKLY:
+        return first.with(TemporalAdjusters.previousOrSame(DayOfWeek.MONDAY)).plusWeeks(period);
+      case MONTHLY:
+        return first.withDayOfMonth(1).plusMonths(period);
+      default:
+        return first.withDayOfYear(1).plusYears(period);
+    }
+  }
+
+  private void addCandidates(LocalDate periodStart, LocalDate first,
+                             TreeSet<LocalDate> candidates) {
+    switch (frequency) {
+      case DAILY:
+        if (matchesMonth(periodStart) && matchesMonthDay(periodStart)
+            && matchesWeekday(periodStart)) {
+          candidates.add(periodStart);
+        }
+        break;
+      case WEEKLY:
+        if (byDayWeekdays.length == 0) {
+          addIfMonthMatches(periodStart.with(TemporalAdjusters.nextOrSame(first.getDayOfWeek())),
+              candidates);
+        } else {
+          for (DayOfWeek weekday : byDayWeekdays) {
+            addIfMonthMatches(periodStart.plusDays(weekday.getValue() - 1), candidates);
+          }
+        }
+        break;
+      case MONTHLY:
+        if (matchesMonth(periodStart)) {
+          addMonthDays(YearMonth.from(periodStart), first, candidates);
+        }
+        break;
+      default:
+        if (byMonths.length > 0) {
+          for (int month : byMonths) {
+            addMonthDays(YearMonth.of(periodStart.getYear(), month), first, candidates);
+          }
+        } else if (byMonthDays.length > 0 || byDayWeekdays.length > 0) {
+          for (int month = 1; month <= 12; month++) {
+            addMonthDays(YearMonth.of(periodStart.getYear(), month), first, candidates);
+          }
+        } else {
+          addMonthDays(YearMonth.of(periodStart.getYear(), first.getMonth()), first, candidates);
+        }
+        break;
+    }
+  }
+
+  private void addMonthDays(YearMonth month, LocalDate first, TreeSet<LocalDate> candidates) {
+    int length = month.lengthOfMonth();
+    if (byMonthDays.length > 0) {
+      for (int monthDay : byMonthDays) {
+        int day = monthDay > 0 ? monthDay : length + monthDay + 1;
+        if (day >= 1 && day <= length && matchesWeekday(month.atDay(day))) {
+          candidates.add(month.atDay(day));
+        }
+      }
+    } else if (byDayWeekdays.length > 0) {
+      for (int i = 0; i < byDayWeekdays.length; i++) {
+        DayOfWeek weekday = byDayWeekdays[i];
+        int ordinal = byDayOrdinals[i];
+        if (ordinal == 0) {
+          for (LocalDate date = month.atDay(1).with(TemporalAdjusters.nextOrSame(weekday));
+               date.getMonthValue() == month.getMonthValue(); date = date.plusWeeks(1)) {
+            candidates.add(date);
+          }
+        } else {
+          LocalDate date = ordinal > 0
+              ? month.atDay(1).with(TemporalAdjusters.nextOrSame(weekday)).plusWeeks(ordinal - 1)
+              : month.atEndOfMonth().with(TemporalAdjusters.previousOrSame(weekday))
+                  .minusWeeks(-ordinal - 1);
+          if (date.getMonthValue() == month.getMonthValue()) {
+            candidates.add(date);
+          }
+        }
+      }
+    } else if (first.getDayOfMonth() <= length) {
+      // months without the day of the start are skipped, like February for the 30th
+      candidates.add(month.atDay(first.getDayOfMonth()));
+    }
+  }
+
+  private void addIfMonthMatches(LocalDate date, TreeSet<LocalDate> candidates) {
+    if (matchesMonth(date)) {
+      candidates.add(date);
+    }
+  }
+
+  private boolean matchesMonth(LocalDate date) {
+    return byMonths.length == 0 || Arrays.binarySearch(byMonths, date.getMonthValue()) >= 0;
+  }
+
+  private boolean matchesMonthDay(LocalDate date) {
+    if (byMonthDays.length == 0) {
+      return true;
+    }
+    int length = date.lengthOfMonth();
+    for (int monthDay : byMonthDays) {
+      if ((monthDay > 0 ? monthDay : length + monthDay + 1) == date.getDayOfMonth()) {
+        return true;
+      }
+    }
+    return false;
+  }
+
+  private boolean matchesWeekday(LocalDate date) {
+    if (byDayWeekdays.length == 0) {
+      return true;
+    }
+    for (DayOfWeek weekday : byDayWeekdays) {
+      if (weekday == date.getDayOfWeek()) {
+        return true;
+      }
+    }
+    return false;
+  }
+
+  private static LocalDateTime parseUntil(String text, String value) {
+    try {
+      if (value.length() == 8) {
+        return LocalDate.parse(value, UNTIL_DATE).atTime(LocalTime.MAX);
+      }
+      // times in UTC are taken as local times, the rules are only expanded to whole days
+      String dateTime = value.endsWith("Z") ? value.substring(0, value.length() - 1) : value;
+      return LocalDateTime.parse(dateTime, UNTIL_DATE_TIME);
+    } catch (DateTimeParseException e) {
+      throw new IllegalArgumentException("Malformed UNTIL in " + text, e);
+    }
+  }
+
+  private static int[] parseNumbers(String text, String value, int min, int max) {
+    String[] parts = value.split(",");
+    int[] numbers = new int[parts.length];
+    for (int i = 0; i < parts.length; i++) {
+      numbers[i] = parseNumber(text, parts[i], min, max);
+      if (numbers[i] == 0) {
+        throw new IllegalArgumentException("Malformed number " + parts[i] + " in " + text);
+      }
+    }
+    return numbers;
+  }
+
+  private static int parseNumber(String text, String value, int min, int max) {
+    try {
+      int number = Integer.parseInt(value.startsWith("+") ? value.substring(1) : value);
+      if (number < min || number > max) {
+        throw new IllegalArgumentException("Number " + value + " out of range in " + text);
+      }
+      return number;
+    } catch (NumberFormatException e) {
+      throw new IllegalArgumentException("Malformed number " + value + " in " + text, e);
+    }
+  }
+
+  @Override
+  public boolean equals(Object obj) {
+    return obj instanceof RecurrenceRule && text.equals(((RecurrenceRule) obj).text);
+  }
+
+  @Override
+  public int hashCode() {
+    return text.hashCode();
+  }
+
+  @Override
+  public String toString() {
+    return "RRULE:" + text;
+  }
+}
@@ -0,0 +1,137 @@
+package com.dlsc.workbenchfx.modules.calendar;
+
+import com.calendarfx.model.Calendar;
+import com.calendarfx.model.CalendarEvent;
+import com.calendarfx.model.Entry;
+import com.dlsc.workbenchfx.utils.FullTextIndex;
+import com.dlsc.workbenchfx.utils.LatencyHistogram;
+import com.dlsc.workbenchfx.utils.Metrics;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Set;
+
+/**
+ * Calendar which answers text searches from its own {@link FullTextIndex} instead of matching
+ * every entry.
+ *
+ * <p>The index follows the entry events and the batches of the {@link CalendarUpdateDispatcher},
+ * only a {@code CALENDAR_CHANGED} event of a batch the dispatcher did not apply compares all
+ * entries. Occurrences of recurring entries are not indexed, a series is found once by its
+ * recurring entry.
+ *
+ * <p>The search field of the {@code CalendarView} queries the calendars from a background
+ * service, so all access to the index is synchronized on it.
+ */
+public class SearchableCalendar extends Calendar {
+
+  private static final int MAX_RESULTS = 500;
+  private static final LatencyHistogram searchTime = Metrics.histogram("search.entries");
+
+  private final FullTextIndex<Entry<?>> searchIndex = new FullTextIndex<>();
+  private final Set<Entry<?>> indexedEntries = Collections.newSetFromMap(new IdentityHashMap<>());
+  private final CalendarUpdateDispatcher dispatcher;
+
+  public SearchableCalendar(String name, CalendarUpdateDispatcher dispatcher) {
+    super(name);
+    this.dispatcher = dispatcher;
+    dispatcher.addBatchListener(this::batchApplied);
+    addEventHandler(this::calendarChanged);
+  }
+
+  /**
+   * Returns the entries of this calendar matching the text, best match first. A blank text
+   * returns all entries, like the default implementation.
+   */
+  @Override
+  public List<Entry<?>> findEntries(String text) {
+    if (text == null || text.trim().isEmpty()) {
+      return super.findEntries(text);
+    }
+    long start = System.nanoTime();
+    List<Entry<?>> result;
+    synchronized (searchIndex) {
+      result = new ArrayList<>(searchIndex.search(text, MAX_RESULTS));
+    }
+    searchTime.recordSince(start);
+    return result;
+  }
+
+  /**
+   * Returns the number of entries in the search index.
+   */
+  public int getIndexedEntryCount() {
+    synchronized (searchIndex) {
+      return indexedEntries.size();
+    }
+  }
+
+  private void batchApplied(Calendar calendar, Collection<Entry<?>> removed,
+      Collection<Entry<?>> added) {
+    if (calendar != this) {
+      return;
+    }
+    synchronized (searchIndex) {
+      for (Entry<?> entry : removed) {
+        if (indexedEntries.remove(entry)) {
+          searchIndex.remove(entry);
+        }
+      }
+      for (Entry<?> entry : added) {
+        if (isIndexed(entry) && indexedEntries.add(entry)) {
+          searchIndex.put(entry, entry.getTitle(), entry.getLocation());
+        }
+      }
+    }
+  }
+
+  private void calendarChanged(CalendarEvent event) {
+    if (event.getEventType() == CalendarEvent.CALENDAR_CHANGED && event.getCalendar() == this) {
+      // fired instead of the entry events after batch updates, the ones of the dispatcher
+      // were already taken from its batch
+      if (!dispatcher.isApplying(this)) {
+        reindex();
+      }
+      return;
+    }
+    Entry<?> entry = event.getEntry();
+    if (entry == null || !isIndexed(entry)) {
+      return;
+    }
+    if (event.getEventType() == CalendarEvent.ENTRY_CALENDAR_CHANGED
+        || event.getEventType() == CalendarEvent.ENTRY_TITLE_CHANGED
+        || event.getEventType() == CalendarEvent.ENTRY_LOCATION_CHANGED) {
+      synchronized (searchIndex) {
+        if (entry.getCalendar() == this) {
+          searchIndex.put(entry, entry.getTitle(), entry.getLocation());
+          indexedEntries.add(entry);
+        } else if (indexedEntries.remove(entry)) {
+          searchIndex.remove(entry);
+        }
+      }
+    }
+  }
+
+  private void reindex() {
+    synchronized (searchIndex) {
+      indexedEntries.removeIf(entry -> {
+        if (entry.getCalendar() != this) {
+          searchIndex.remove(entry);
+          return true;
+        }
+        return false;
+      });
+      for (Entry<?> entry : super.findEntries("")) {
+        if (isIndexed(entry) && indexedEntries.add(entry)) {
+          searchIndex.put(entry, entry.getTitle(), entry.getLocation());
+        }
+      }
+    }
+  }
+
+  private static boolean isIndexed(Entry<?> entry) {
+    return !entry.isRecurrence() && !(entry instanceof RecurrenceEngine.Occurrence);
+  }
+}
@@ -1,18 +1,32 @@
 package com.dlsc.workbenchfx.modules.dashboard;
 
 import com.dlsc.workbenchfx.model.WorkbenchModule;
+import com.dlsc.workbenchfx.utils.LatencyHistogram;
+import com.dlsc.workbenchfx.utils.Metrics;
 import de.jensd.fx.glyphs.materialdesignicons.MaterialDesignIcon;
 import javafx.scene.Node;
 
 public class DashboardModule extends WorkbenchModule {
 
+  private final LatencyHistogram activationTime = Metrics.histogram("module.activate." + getName());
+  private DashboardView view;
+
   public DashboardModule() {
     super("Dashboard", MaterialDesignIcon.HUMAN_HANDSUP);
   }
 
   @Override
   public Node activate() {
-    return new DashboardView();
+    long start = System.nanoTime();
+    view = new DashboardView();
+    activationTime.recordSince(start);
+    return view;
+  }
+
+  @Override
+  public void deactivate() {
+    view.dispose();
+    view = null;
   }
 
 }
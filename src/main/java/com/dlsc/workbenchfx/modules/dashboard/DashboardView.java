@@ -1,13 +1,181 @@
 package com.dlsc.workbenchfx.modules.dashboard;
 
+import com.dlsc.workbenchfx.modules.dashboard.model.Quadrant;
+import com.dlsc.workbenchfx.modules.dashboard.model.TagIndex;
+import com.dlsc.workbenchfx.modules.dashboard.model.TaskDTOModel;
+import com.dlsc.workbenchfx.modules.dashboard.model.TaskIndex;
+import com.dlsc.workbenchfx.utils.CompressedBitmap;
+import com.dlsc.workbenchfx.utils.FixItUtils;
+import java.util.List;
+import javafx.application.Platform;
+import javafx.collections.FXCollections;
+import javafx.collections.ListChangeListener;
+import javafx.collections.ObservableList;
 import javafx.scene.control.Label;
+import javafx.scene.control.ListView;
+import javafx.scene.control.TextField;
 import javafx.scene.layout.BorderPane;
+import javafx.scene.layout.GridPane;
+import javafx.scene.layout.HBox;
+import javafx.scene.layout.Priority;
+import javafx.scene.layout.VBox;
 
 public class DashboardView extends BorderPane {
 
+  private static final int TOP_TASKS = 3;
+  private static final double TASK_CELL_HEIGHT = 28;
+  private static final int SEARCH_LIMIT = 1000;
+
+  private final TaskIndex taskIndex = FixItUtils.getTaskIndex();
+  private final TagIndex tagIndex = FixItUtils.getTagIndex();
+  private final TextField tagFilter = new TextField();
+  private final TextField searchField = new TextField();
+  private final Label matchesLbl = new Label();
+  private final ObservableList<TaskDTOModel> matchingTasks = FXCollections.observableArrayList();
+  private final ListView<TaskDTOModel> taskList = new ListView<>();
+  private final VBox content = new VBox(20);
+  private final ListChangeListener<TaskDTOModel> tasksListener = change -> scheduleUpdate();
+  private final TagIndex.ChangeListener tagIndexListener = index -> scheduleUpdate();
+  private final TaskIndex.ChangeListener taskIndexListener = index -> scheduleGridUpdate();
+  private CompressedBitmap matches = new CompressedBitmap();
+  private boolean filtered;
+  private boolean updateScheduled;
+  private boolean gridUpdateScheduled;
+
   public DashboardView() {
     getStyleClass().add("module-background");
-    setCenter(new Label("DashboardModule"));
+    getStylesheets().add(DashboardView.class.getResource("dashboard.css").toExternalForm());
+    tagFilter.setPromptText("Tags, e.g. work & !shopping");
+    searchField.setPromptText("Search tasks");
+    setTop(new HBox(10, tagFilter, searchField, matchesLbl));
+
+    // a fixed cell size spares the virtual flow from measuring every cell while scrolling
+    taskList.getStyleClass().add("task-list");
+    taskList.setFixedCellSize(TASK_CELL_HEIGHT);
+    taskList.setCellFactory(listView -> new TaskListCell());
+    VBox.setVgrow(taskList, Priority.ALWAYS);
+    content.getChildren().setAll(new GridPane(), taskList);
+    setCenter(content);
+
+    tagFilter.textProperty().addListener((observable, oldValue, newValue) -> updateView());
+    searchField.textProperty().addListener((observable, oldValue, newValue) -> updateView());
+    // the query runs again once per pulse after tasks or their tags changed
+    FixItUtils.getTasks().addListener(tasksListener);
+    tagIndex.addListener(tagIndexListener);
+    // edited priorities only move tasks between and within the quadrants
+    taskIndex.addListener(taskIndexListener);
+    updateView();
+  }
+
+  /**
+   * Stops following the tasks, has to be called when the view is not shown anymore.
+   */
+  public void dispose() {
+    FixItUtils.getTasks().removeListener(tasksListener);
+    tagIndex.removeListener(tagIndexListener);
+    taskIndex.removeListener(taskIndexListener);
+  }
+
+  private void scheduleUpdate() {
+    if (!updateScheduled) {
+      updateScheduled = true;
+      Platform.runLater(this::updateView);
+    }
+  }
+
+  private void scheduleGridUpdate() {
+    if (!updateScheduled && !gridUpdateScheduled) {
+      gridUpdateScheduled = true;
+      Platform.runLater(this::updateGrid);
+    }
+  }
+
+  private void updateGrid() {
+    boolean scheduled = gridUpdateScheduled;
+    gridUpdateScheduled = false;
+    // a whole update shows the grid as well, it may have run or be pending already
+    if (scheduled && !updateScheduled) {
+      content.getChildren().set(0, createQuadrantGrid());
+    }
+  }
+
+  private void updateView() {
+    updateScheduled = false;
+    CompressedBitmap matches;
+    try {
+      matches = tagIndex.query(tagFilter.getText());
+    } catch (IllegalArgumentException e) {
+      matchesLbl.setText(e.getMessage());
+      return;
+    }
+    String matchesText = " tasks";
+    if (!isBlank(searchField.getText())) {
+      // full-text hits of the names and descriptions, narrowed down by the tag query
+      List<TaskDTOModel> searchHits = FixItUtils.searchTasks(searchField.getText(), SEARCH_LIMIT);
+      CompressedBitmap hits = new CompressedBitmap();
+      for (TaskDTOModel task : searchHits) {
+        int ordinal = tagIndex.ordinalOf(task);
+        if (ordinal >= 0) {
+          hits.add(ordinal);
+        }
+      }
+      matches = matches.and(hits);
+      if (searchHits.size() >= SEARCH_LIMIT) {
+        // the search stopped early, more tasks may match
+        matchesText = " tasks, only the best " + SEARCH_LIMIT + " search hits";
+      }
+    }
+    this.matches = matches;
+    filtered = !isBlank(tagFilter.getText()) || !isBlank(searchField.getText());
+    gridUpdateScheduled = false;
+    matchesLbl.setText(matches.getCardinality() + matchesText);
+    content.getChildren().set(0, createQuadrantGrid());
+    if (!filtered) {
+      taskList.setItems(FixItUtils.getTasks());
+      matchingTasks.clear();
+    } else {
+      // only the matches are looked up, the ordinals are resolved before they can be reused
+      matchingTasks.setAll(tagIndex.tasks(matches));
+      taskList.setItems(matchingTasks);
+    }
+  }
+
+  private static boolean isBlank(String text) {
+    return text == null || text.trim().isEmpty();
+  }
+
+  private GridPane createQuadrantGrid() {
+    int[] counts = new int[Quadrant.values().length];
+    if (filtered) {
+      // the headers count the matches, the filter usually leaves far fewer than all tasks
+      for (TaskDTOModel task : tagIndex.tasks(matches)) {
+        if (taskIndex.contains(task)) {
+          counts[taskIndex.quadrantOf(task).ordinal()]++;
+        }
+      }
+    } else {
+      for (Quadrant quadrant : Quadrant.values()) {
+        counts[quadrant.ordinal()] = taskIndex.getQuadrant(quadrant).size();
+      }
+    }
+    GridPane grid = new GridPane();
+    grid.setHgap(20);
+    grid.setVgap(20);
+    for (Quadrant quadrant : Quadrant.values()) {
+      VBox box = new VBox(new Label(quadrant.getCalendarName() + " ("
+          + counts[quadrant.ordinal()] + ")"));
+      // quadrants are sorted by priority, so this stops after the first few matches
+      for (TaskDTOModel task : taskIndex.getQuadrant(quadrant)) {
+        if (box.getChildren().size() > TOP_TASKS) {
+          break;
+        }
+        if (matches.contains(tagIndex.ordinalOf(task))) {
+          box.getChildren().add(new Label(task.getName()));
+        }
+      }
+      grid.add(box, quadrant.ordinal() % 2, quadrant.ordinal() / 2);
+    }
+    return grid;
   }
 
 }
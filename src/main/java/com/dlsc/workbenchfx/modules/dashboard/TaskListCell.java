@@ -0,0 +1,104 @@
+package com.dlsc.workbenchfx.modules.dashboard;
+
+import com.dlsc.workbenchfx.modules.dashboard.model.ColorCategories;
+import com.dlsc.workbenchfx.modules.dashboard.model.TaskDTOModel;
+import javafx.css.PseudoClass;
+import javafx.scene.control.ContentDisplay;
+import javafx.scene.control.Label;
+import javafx.scene.control.ListCell;
+import javafx.scene.layout.HBox;
+import javafx.scene.layout.Priority;
+import javafx.scene.layout.Region;
+
+/**
+ * Cell which shows the name, urgency, importance and color category of a task.
+ *
+ * <p>The {@link javafx.scene.control.ListView} only creates cells for the visible rows and hands
+ * them a new task while scrolling. The nodes of a cell are created once, {@link #updateItem}
+ * only changes texts and pseudo-classes, so scrolling does not allocate nodes or parse styles.
+ * While a cell shows a task it listens to its priority, so edited urgencies and importances are
+ * shown right away; the listener moves to the next task when the cell is reused.
+ */
+public class TaskListCell extends ListCell<TaskDTOModel> {
+
+  // indexed by the ordinal of the color category
+  private static final PseudoClass[] COLOR_PSEUDO_CLASSES =
+      new PseudoClass[ColorCategories.values().length];
+
+  static {
+    for (ColorCategories category : ColorCategories.values()) {
+      COLOR_PSEUDO_CLASSES[category.ordinal()] =
+          PseudoClass.getPseudoClass(category.getName().toLowerCase());
+    }
+  }
+
+  private final Region colorMarker = new Region();
+  private final Label nameLbl = new Label();
+  private final Label urgencyLbl = new Label();
+  private final Label importanceLbl = new Label();
+  private final HBox content = new HBox(colorMarker, nameLbl, urgencyLbl, importanceLbl);
+  private final TaskDTOModel.PriorityListener priorityListener = this::showPriority;
+  private PseudoClass colorPseudoClass;
+  private TaskDTOModel listenedTask;
+
+  public TaskListCell() {
+    getStyleClass().add("task-cell");
+    colorMarker.getStyleClass().add("color-marker");
+    nameLbl.getStyleClass().add("task-name");
+    urgencyLbl.getStyleClass().addAll("task-value", "task-urgency");
+    importanceLbl.getStyleClass().addAll("task-value", "task-importance");
+    nameLbl.setMaxWidth(Double.MAX_VALUE);
+    HBox.setHgrow(nameLbl, Priority.ALWAYS);
+    content.getStyleClass().add("task-cell-content");
+    setContentDisplay(ContentDisplay.GRAPHIC_ONLY);
+  }
+
+  @Override
+  protected void updateItem(TaskDTOModel task, boolean empty) {
+    super.updateItem(task, empty);
+    listenTo(empty ? null : task);
+    if (empty || task == null) {
+      setColorPseudoClass(null);
+      setGraphic(null);
+      return;
+    }
+    nameLbl.setText(task.getName());
+    showPriority(task);
+    setColorPseudoClass(task.getColorCategory() == null
+        ? null : COLOR_PSEUDO_CLASSES[task.getColorCategory().ordinal()]);
+    if (getGraphic() != content) {
+      setGraphic(content);
+    }
+  }
+
+  private void listenTo(TaskDTOModel task) {
+    if (task == listenedTask) {
+      return;
+    }
+    if (listenedTask != null) {
+      listenedTask.removePriorityListener(priorityListener);
+    }
+    if (task != null) {
+      task.addPriorityListener(priorityListener);
+    }
+    listenedTask = task;
+  }
+
+  private void showPriority(TaskDTOModel task) {
+    urgencyLbl.setText(Integer.toString(task.getUrgency()));
+    importanceLbl.setText(Integer.toString(task.getImportance()));
+  }
+
+  private void setColorPseudoClass(PseudoClass pseudoClass) {
+    if (pseudoClass == colorPseudoClass) {
+      return;
+    }
+    if (colorPseudoClass != null) {
+      pseudoClassStateChanged(colorPseudoClass, false);
+    }
+    if (pseudoClass != null) {
+      pseudoClassStateChanged(pseudoClass, true);
+    }
+    colorPseudoClass = pseudoClass;
+  }
+}
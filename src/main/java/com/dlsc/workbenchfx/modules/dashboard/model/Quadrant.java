@@ -0,0 +1,27 @@
+package com.dlsc.workbenchfx.modules.dashboard.model;
+
+/**
+ * Eisenhower quadrants, named like the matching calendars in the calendar module.
+ */
+public enum Quadrant {
+
+    URGENT_IMPORTANT("Urgent-Important"), URGENT_NOT_IMPORTANT("Urgent-nImportant"),
+    NOT_URGENT_IMPORTANT("nUrgent-Important"), NOT_URGENT_NOT_IMPORTANT("nUrgent-nImportant");
+
+    private String calendarName;
+
+    Quadrant(String calendarName) {
+        this.calendarName = calendarName;
+    }
+
+    public String getCalendarName() {
+        return calendarName;
+    }
+
+    public static Quadrant of(boolean urgent, boolean important) {
+        if (urgent) {
+            return important ? URGENT_IMPORTANT : URGENT_NOT_IMPORTANT;
+        }
+        return important ? NOT_URGENT_IMPORTANT : NOT_URGENT_NOT_IMPORTANT;
+    }
+}
@@ -0,0 +1,282 @@
+package com.dlsc.workbenchfx.modules.dashboard.model;
+
+import com.dlsc.workbenchfx.utils.CompressedBitmap;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Deque;
+import java.util.HashMap;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CopyOnWriteArrayList;
+
+/**
+ * Inverted index from tag to the ordinals of the tasks carrying it.
+ *
+ * <p>Every indexed task gets a small int ordinal, the postings of a tag are kept in a
+ * {@link CompressedBitmap}. Tag queries are evaluated as bitmap operations, e.g.
+ * {@code work & !shopping} or {@code (home | family) & urgent}: {@code !} binds strongest, then
+ * {@code &}, then {@code |}. Tags are matched case-sensitively.
+ *
+ * <p>{@link TaskDTOModel#getTags()} is a plain list, so call {@link #update(TaskDTOModel)} after
+ * changing the tags of an indexed task. Not thread-safe.
+ */
+public class TagIndex {
+
+    /**
+     * Notified after tasks were added or removed or their tags changed, e.g. to run a query
+     * again.
+     */
+    public interface ChangeListener {
+        void tagIndexChanged(TagIndex index);
+    }
+
+    private final Map<String, CompressedBitmap> postings = new HashMap<>();
+    private final CompressedBitmap allTasks = new CompressedBitmap();
+    private final Map<TaskDTOModel, Integer> ordinals = new IdentityHashMap<>();
+    private final Map<TaskDTOModel, List<String>> indexedTags = new IdentityHashMap<>();
+    private final List<TaskDTOModel> tasksByOrdinal = new ArrayList<>();
+    private final Deque<Integer> freeOrdinals = new ArrayDeque<>();
+    private final List<ChangeListener> listeners = new CopyOnWriteArrayList<>();
+
+    public void addListener(ChangeListener listener) {
+        listeners.add(listener);
+    }
+
+    public void removeListener(ChangeListener listener) {
+        listeners.remove(listener);
+    }
+
+    public void add(TaskDTOModel task) {
+        if (addTask(task)) {
+            fireChanged();
+        }
+    }
+
+    public void addAll(Collection<? extends TaskDTOModel> tasks) {
+        boolean changed = false;
+        for (TaskDTOModel task : tasks) {
+            changed |= addTask(task);
+        }
+        if (changed) {
+            fireChanged();
+        }
+    }
+
+    public void remove(TaskDTOModel task) {
+        Integer ordinal = ordinals.remove(task);
+        if (ordinal == null) {
+            return;
+        }
+        unindexTags(task, ordinal);
+        allTasks.remove(ordinal);
+        tasksByOrdinal.set(ordinal, null);
+        freeOrdinals.push(ordinal);
+        fireChanged();
+    }
+
+    /**
+     * Re-reads the tags of an indexed task.
+     */
+    public void update(TaskDTOModel task) {
+        Integer ordinal = ordinals.get(task);
+        if (ordinal != null) {
+            unindexTags(task, ordinal);
+            indexTags(task, ordinal);
+            fireChanged();
+        }
+    }
+
+    public void clear() {
+        postings.clear();
+        allTasks.clear();
+        ordinals.clear();
+        indexedTags.clear();
+        tasksByOrdinal.clear();
+        freeOrdinals.clear();
+        fireChanged();
+    }
+
+    public int size() {
+        return ordinals.size();
+    }
+
+    public int ordinalOf(TaskDTOModel task) {
+        Integer ordinal = ordinals.get(task);
+        return ordinal == null ? -1 : ordinal;
+    }
+
+    public TaskDTOModel taskAt(int ordinal) {
+        return tasksByOrdinal.get(ordinal);
+    }
+
+    /**
+     * Returns the ordinals of all tasks with the tag, the bitmap must not be modified.
+     */
+    public CompressedBitmap tasksWithTag(String tag) {
+        CompressedBitmap bitmap = postings.get(tag);
+        return bitmap == null ? new CompressedBitmap() : bitmap;
+    }
+
+    /**
+     * Evaluates a tag query.
+     *
+     * @param expression like {@code work & !shopping}, blank matches all tasks
+     * @return the ordinals of the matching tasks
+     * @throws IllegalArgumentException if the expression cannot be parsed
+     */
+    public CompressedBitmap query(String expression) {
+        if (expression == null || expression.trim().isEmpty()) {
+            return allTasks.copy();
+        }
+        QueryParser parser = new QueryParser(expression);
+        CompressedBitmap result = parser.parseOr();
+        parser.expectEnd();
+        return result;
+    }
+
+    public List<TaskDTOModel> tasks(CompressedBitmap bitmap) {
+        List<TaskDTOModel> result = new ArrayList<>(bitmap.getCardinality());
+        bitmap.forEach(ordinal -> result.add(tasksByOrdinal.get(ordinal)));
+        return result;
+    }
+
+    private boolean addTask(TaskDTOModel task) {
+        if (ordinals.containsKey(task)) {
+            return false;
+        }
+        int ordinal;
+        if (freeOrdinals.isEmpty()) {
+            ordinal = tasksByOrdinal.size();
+            tasksByOrdinal.add(task);
+        } else {
+            ordinal = freeOrdinals.pop();
+            tasksByOrdinal.set(ordinal, task);
+        }
+        ordinals.put(task, ordinal);
+        allTasks.add(ordinal);
+        indexTags(task, ordinal);
+        return true;
+    }
+
+    private void fireChanged() {
+        for (ChangeListener listener : listeners) {
+            listener.tagIndexChanged(this);
+        }
+    }
+
+    private void indexTags(TaskDTOModel task, int ordinal) {
+        List<String> tags = task.getTags();
+        if (tags == null || tags.isEmpty()) {
+            return;
+        }
+        List<String> copy = new ArrayList<>(tags);
+        indexedTags.put(task, copy);
+        for (String tag : copy) {
+            postings.computeIfAbsent(tag, key -> new CompressedBitmap()).add(ordinal);
+        }
+    }
+
+    private void unindexTags(TaskDTOModel task, int ordinal) {
+        List<String> tags = indexedTags.remove(task);
+        if (tags == null) {
+            return;
+        }
+        for (String tag : tags) {
+            CompressedBitmap bitmap = postings.get(tag);
+            if (bitmap != null) {
+                bitmap.remove(ordinal);
+                if (bitmap.isEmpty()) {
+                    postings.remove(tag);
+                }
+            }
+        }
+    }
+
+    /**
+     * Recursive descent parser which evaluates while parsing.
+     */
+    private final class QueryParser {
+        private final String expression;
+        private int position;
+
+        QueryParser(String expression) {
+            this.expression = expression;
+        }
+
+        CompressedBitmap parseOr() {
+            CompressedBitmap result = parseAnd();
+            while (accept('|')) {
+                result = result.or(parseAnd());
+            }
+            return result;
+        }
+
+        CompressedBitmap parseAnd() {
+            CompressedBitmap result = parseNot();
+            while (accept('&')) {
+                result = result.and(parseNot());
+            }
+            return result;
+        }
+
+        CompressedBitmap parseNot() {
+            if (accept('!')) {
+                return allTasks.andNot(parseNot());
+            }
+            if (accept('(')) {
+                CompressedBitmap result = parseOr();
+                if (!accept(')')) {
+                    throw error("')' expected");
+                }
+                return result;
+            }
+            return tasksWithTag(parseTag());
+        }
+
+        String parseTag() {
+            skipWhitespace();
+            int start = position;
+            while (position < expression.length() && isTagChar(expression.charAt(position))) {
+                position++;
+            }
+            if (start == position) {
+                throw error("tag expected");
+            }
+            return expression.substring(start, position);
+        }
+
+        void expectEnd() {
+            skipWhitespace();
+            if (position < expression.length()) {
+                throw error("unexpected '" + expression.charAt(position) + "'");
+            }
+        }
+
+        private boolean accept(char operator) {
+            skipWhitespace();
+            if (position < expression.length() && expression.charAt(position) == operator) {
+                position++;
+                return true;
+            }
+            return false;
+        }
+
+        private void skipWhitespace() {
+            while (position < expression.length()
+                    && Character.isWhitespace(expression.charAt(position))) {
+                position++;
+            }
+        }
+
+        private boolean isTagChar(char c) {
+            return !Character.isWhitespace(c) && "&|!()".indexOf(c) < 0;
+        }
+
+        private IllegalArgumentException error(String message) {
+            return new IllegalArgumentException(
+                    "Invalid tag query '" + expression + "' at " + position + ": " + message);
+        }
+    }
+}
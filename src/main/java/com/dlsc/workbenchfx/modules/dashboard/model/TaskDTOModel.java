@@ -4,110 +4,251 @@ package com.dlsc.workbenchfx.modules.dashboard.model;
 import org.apache.commons.lang3.builder.ToStringBuilder;
 
 import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.List;
 
 
-public class TaskDTOModel {
-
-    private String uuid;
-    private String name;
-    private String description;
-    private int urgency;
-    private int importance;
-    private String colorCategory;
-    private List<String> tags;
-    private LocalDateTime createLocalDateTime;
-    private List<LocalDateTime> listOfLocalDateTimes;
-
-    public TaskDTOModel(TaskBuilder tb) {
-        this.uuid = tb.uuid;
-        this.name = name;
-        this.description = description;
-        this.urgency = urgency;
-        this.importance = importance;
-        this.colorCategory = colorCategory;
-        this.tags = tags;
-        this.createLocalDateTime = createLocalDateTime;
-        this.listOfLocalDateTimes = listOfLocalDateTimes;
-    }
+/**
+ * A task. Tasks are created by the {@link TaskBuilder}, which keeps the values on the heap, or
+ * are views of a row of a {@link TaskStore}.
+ */
+public abstract class TaskDTOModel {
 
-    public String getUuid() {
-        return uuid;
-    }
-    public void setUuid(String uuid) {
-        this.uuid = uuid;
-    }
-    public String getName() {
-        return name;
-    }
-    public void setName(String name) {
-        this.name = name;
-    }
-    public String getDescription() {
-        return description;
-    }
-    public void setDescription(String description) {
-        this.description = description;
-    }
-    public int getUrgency() {
-        return urgency;
-    }
-    public void setUrgency(int urgency) {
-        this.urgency = urgency;
-    }
-    public int getImportance() {
-        return importance;
-    }
-    public void setImportance(int importance) {
-        this.importance = importance;
-    }
-    public String getColorCategory() {
-        return colorCategory;
-    }
-    public void setColorCategory(String colorCategory) {
-        this.colorCategory = colorCategory;
-    }
-    public List<String> getTags() {
-        return tags;
-    }
-    public void setTags(List<String> tags) {
-        this.tags = tags;
+    /**
+     * Notified on the thread which changes the task when its urgency or importance changes.
+     */
+    public interface PriorityListener {
+        void priorityChanged(TaskDTOModel task);
     }
-    public LocalDateTime getCreateLocalDateTime() {
-        return createLocalDateTime;
+
+    private PriorityListener[] priorityListeners;
+
+    // only the builder and the store create tasks
+    TaskDTOModel() {
     }
-    public void setCreateLocalDateTime(LocalDateTime createLocalDateTime) {
-        this.createLocalDateTime = createLocalDateTime;
+
+    public abstract String getUuid();
+    public abstract void setUuid(String uuid);
+    public abstract String getName();
+    public abstract void setName(String name);
+    public abstract String getDescription();
+    public abstract void setDescription(String description);
+    public abstract int getUrgency();
+    public abstract void setUrgency(int urgency);
+    public abstract int getImportance();
+    public abstract void setImportance(int importance);
+    public abstract ColorCategories getColorCategory();
+    public abstract void setColorCategory(ColorCategories colorCategory);
+    public abstract List<String> getTags();
+    public abstract void setTags(List<String> tags);
+    public abstract LocalDateTime getCreateLocalDateTime();
+    public abstract void setCreateLocalDateTime(LocalDateTime createLocalDateTime);
+    /**
+     * Returns the date-times in ascending order, as an unmodifiable {@link TimeList}. To log
+     * another time set a new list, e.g. {@link TimeList#plus}, or a modifiable copy.
+     */
+    public abstract List<LocalDateTime> getListOfLocalDateTimes();
+    /**
+     * Sets the date-times. They are copied into a {@link TimeList} and sorted, later changes of
+     * {@code listOfLocalDateTimes} do not change the task.
+     *
+     * @throws NullPointerException if an element is null
+     */
+    public abstract void setListOfLocalDateTimes(List<LocalDateTime> listOfLocalDateTimes);
+
+    // an array instead of a list, most tasks have one listener or none
+    public void addPriorityListener(PriorityListener listener) {
+        if (priorityListeners == null) {
+            priorityListeners = new PriorityListener[] {listener};
+        } else {
+            priorityListeners = Arrays.copyOf(priorityListeners, priorityListeners.length + 1);
+            priorityListeners[priorityListeners.length - 1] = listener;
+        }
     }
-    public List<LocalDateTime> getListOfLocalDateTimes() {
-        return listOfLocalDateTimes;
+    public void removePriorityListener(PriorityListener listener) {
+        if (priorityListeners == null) {
+            return;
+        }
+        for (int i = 0; i < priorityListeners.length; i++) {
+            if (priorityListeners[i] == listener) {
+                if (priorityListeners.length == 1) {
+                    priorityListeners = null;
+                } else {
+                    PriorityListener[] remaining =
+                            new PriorityListener[priorityListeners.length - 1];
+                    System.arraycopy(priorityListeners, 0, remaining, 0, i);
+                    System.arraycopy(priorityListeners, i + 1, remaining, i, remaining.length - i);
+                    priorityListeners = remaining;
+                }
+                return;
+            }
+        }
     }
-    public void setListOfLocalDateTimes(List<LocalDateTime> listOfLocalDateTimes) {
-        this.listOfLocalDateTimes = listOfLocalDateTimes;
+
+    void firePriorityChanged() {
+        PriorityListener[] listeners = priorityListeners;
+        if (listeners != null) {
+            for (PriorityListener listener : listeners) {
+                listener.priorityChanged(this);
+            }
+        }
     }
 
     @Override
     public String toString() {
         return new ToStringBuilder(this)
-                .append("uuid", uuid)
-                .append("name", name)
-                .append("description", description)
-                .append("urgency", urgency)
-                .append("importance", importance)
-                .append("colorCategory", colorCategory)
-                .append("tags", tags)
-                .append("createLocalDateTime", createLocalDateTime)
-                .append("listOfLocalDateTimes", listOfLocalDateTimes)
+                .append("uuid", getUuid())
+                .append("name", getName())
+                .append("description", getDescription())
+                .append("urgency", getUrgency())
+                .append("importance", getImportance())
+                .append("colorCategory", getColorCategory())
+                .append("tags", getTags())
+                .append("createLocalDateTime", getCreateLocalDateTime())
+                .append("listOfLocalDateTimes", getListOfLocalDateTimes())
                 .toString();
     }
 
+    /**
+     * Task which keeps its values in fields.
+     */
+    private static final class HeapTask extends TaskDTOModel {
+        private static final ColorCategories[] COLOR_CATEGORIES = ColorCategories.values();
+
+        private String uuid;
+        private String name;
+        private String description;
+        private int urgency;
+        private int importance;
+        // a ColorCategories ordinal, or TaskFactory.NO_COLOR_CATEGORY
+        private byte colorCategory;
+        private List<String> tags;
+        private LocalDateTime createLocalDateTime;
+        private TimeList listOfLocalDateTimes;
+
+        HeapTask(TaskBuilder tb) {
+            this.uuid = tb.uuid;
+            this.name = tb.name;
+            this.description = tb.description;
+            this.urgency = tb.urgency;
+            this.importance = tb.importance;
+            this.colorCategory = ordinalOf(tb.colorCategory);
+            this.tags = tb.tags;
+            this.createLocalDateTime = tb.createLocalDateTime;
+            this.listOfLocalDateTimes = TimeList.copyOf(tb.listOfLocalDateTimes);
+        }
+
+        @Override
+        public String getUuid() {
+            return uuid;
+        }
+        @Override
+        public void setUuid(String uuid) {
+            this.uuid = uuid;
+        }
+        @Override
+        public String getName() {
+            return name;
+        }
+        @Override
+        public void setName(String name) {
+            this.name = name;
+        }
+        @Override
+        public String getDescription() {
+            return description;
+        }
+        @Override
+        public void setDescription(String description) {
+            this.description = description;
+        }
+        @Override
+        public int getUrgency() {
+            return urgency;
+        }
+        @Override
+        public void setUrgency(int urgency) {
+            if (this.urgency != urgency) {
+                this.urgency = urgency;
+                firePriorityChanged();
+            }
+        }
+        @Override
+        public int getImportance() {
+            return importance;
+        }
+        @Override
+        public void setImportance(int importance) {
+            if (this.importance != importance) {
+                this.importance = importance;
+                firePriorityChanged();
+            }
+        }
+        @Override
+        public ColorCategories getColorCategory() {
+            return colorCategory == TaskFactory.NO_COLOR_CATEGORY
+                    ? null : COLOR_CATEGORIES[colorCategory];
+        }
+        @Override
+        public void setColorCategory(ColorCategories colorCategory) {
+            this.colorCategory = ordinalOf(colorCategory);
+        }
+        @Override
+        public List<String> getTags() {
+            return tags;
+        }
+        @Override
+        public void setTags(List<String> tags) {
+            this.tags = tags;
+        }
+        @Override
+        public LocalDateTime getCreateLocalDateTime() {
+            return createLocalDateTime;
+        }
+        @Override
+        public void setCreateLocalDateTime(LocalDateTime createLocalDateTime) {
+            this.createLocalDateTime = createLocalDateTime;
+        }
+        @Override
+        public List<LocalDateTime> getListOfLocalDateTimes() {
+            return listOfLocalDateTimes;
+        }
+        @Override
+        public void setListOfLocalDateTimes(List<LocalDateTime> listOfLocalDateTimes) {
+            this.listOfLocalDateTimes = TimeList.copyOf(listOfLocalDateTimes);
+        }
+
+        private static byte ordinalOf(ColorCategories colorCategory) {
+            return colorCategory == null
+                    ? TaskFactory.NO_COLOR_CATEGORY : (byte) colorCategory.ordinal();
+        }
+    }
+
     public static class TaskBuilder {
-        private String uuid, name, description, colorCategory;
+        private String uuid, name, description;
+        private ColorCategories colorCategory;
         private int urgency,importance;
         private List<String> tags;
         private LocalDateTime createLocalDateTime;
         private List<LocalDateTime> listOfLocalDateTimes;
 
+        /**
+         * Copies all fields of a task, e.g. to hand a snapshot of it to another thread. The tags
+         * are copied, the date-times are immutable.
+         */
+        public TaskDTOModel.TaskBuilder from(TaskDTOModel task) {
+            this.uuid = task.getUuid();
+            this.name = task.getName();
+            this.description = task.getDescription();
+            this.colorCategory = task.getColorCategory();
+            this.urgency = task.getUrgency();
+            this.importance = task.getImportance();
+            this.tags = task.getTags() == null ? null : new ArrayList<>(task.getTags());
+            this.createLocalDateTime = task.getCreateLocalDateTime();
+            this.listOfLocalDateTimes = task.getListOfLocalDateTimes();
+            return this;
+        }
         public TaskDTOModel.TaskBuilder uuid(String uuid) {
             this.uuid = uuid;
             return this;
@@ -120,7 +261,7 @@ public class TaskDTOModel {
             this.description= description;
             return this;
         }
-        public TaskDTOModel.TaskBuilder colorCategory(String colorCategory) {
+        public TaskDTOModel.TaskBuilder colorCategory(ColorCategories colorCategory) {
             this.colorCategory = colorCategory;
             return this;
         }
@@ -148,7 +289,7 @@ public class TaskDTOModel {
         }
 
         public TaskDTOModel build() {
-            return new TaskDTOModel(this);
+            return new HeapTask(this);
         }
     }
 }
@@ -0,0 +1,195 @@
+package com.dlsc.workbenchfx.modules.dashboard.model;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+
+/**
+ * Builds many tasks at once from columnar arrays, e.g. for generated datasets and for the tasks
+ * decoded from the local store.
+ *
+ * <p>Color categories are given as {@link ColorCategories} ordinals, which is also how a task
+ * keeps them. Tag values are interned and tasks with the same tags share one unmodifiable tag
+ * list. Both are kept across calls, so loading several batches through one factory shares
+ * strings and lists between them.
+ *
+ * <p>Not thread-safe, use one factory per thread.
+ */
+public class TaskFactory {
+
+    public static final byte NO_COLOR_CATEGORY = -1;
+
+    private static final int COLOR_CATEGORY_COUNT = ColorCategories.values().length;
+
+    private final Map<String, String> strings = new HashMap<>();
+    private final Map<List<String>, List<String>> tagLists = new HashMap<>();
+
+    /**
+     * Values of the tasks to create, one array element per task. Columns which are not set
+     * stay empty, only the uuids are generated if missing.
+     */
+    public static class Columns {
+        private final int size;
+        private String[] uuids;
+        private String[] names;
+        private String[] descriptions;
+        private int[] urgencies;
+        private int[] importances;
+        private byte[] colorCategories;
+        private String[] tagValues;
+        private int[][] tags;
+        private LocalDateTime[] createLocalDateTimes;
+        private TimeList[] listsOfLocalDateTimes;
+
+        public Columns(int size) {
+            if (size < 0) {
+                throw new IllegalArgumentException("Negative size " + size);
+            }
+            this.size = size;
+        }
+
+        public int size() {
+            return size;
+        }
+
+        public Columns uuids(String[] uuids) {
+            this.uuids = checkSize(uuids.length, uuids);
+            return this;
+        }
+        public Columns names(String[] names) {
+            this.names = checkSize(names.length, names);
+            return this;
+        }
+        public Columns descriptions(String[] descriptions) {
+            this.descriptions = checkSize(descriptions.length, descriptions);
+            return this;
+        }
+        public Columns urgencies(int[] urgencies) {
+            this.urgencies = checkSize(urgencies.length, urgencies);
+            return this;
+        }
+        public Columns importances(int[] importances) {
+            this.importances = checkSize(importances.length, importances);
+            return this;
+        }
+
+        /**
+         * @param colorCategories {@link ColorCategories} ordinals, or {@link #NO_COLOR_CATEGORY}
+         */
+        public Columns colorCategories(byte[] colorCategories) {
+            for (byte ordinal : colorCategories) {
+                if (ordinal != NO_COLOR_CATEGORY
+                        && (ordinal < 0 || ordinal >= COLOR_CATEGORY_COUNT)) {
+                    throw new IllegalArgumentException("Unknown color category ordinal " + ordinal);
+                }
+            }
+            this.colorCategories = checkSize(colorCategories.length, colorCategories);
+            return this;
+        }
+
+        /**
+         * @param tagValues the distinct tags
+         * @param tags per task the indexes of its tags in {@code tagValues}, or null for no tags
+         */
+        public Columns tags(String[] tagValues, int[][] tags) {
+            for (int[] taskTags : tags) {
+                if (taskTags != null) {
+                    for (int tag : taskTags) {
+                        if (tag < 0 || tag >= tagValues.length) {
+                            throw new IllegalArgumentException("Unknown tag index " + tag);
+                        }
+                    }
+                }
+            }
+            this.tagValues = tagValues;
+            this.tags = checkSize(tags.length, tags);
+            return this;
+        }
+        public Columns createLocalDateTimes(LocalDateTime[] createLocalDateTimes) {
+            this.createLocalDateTimes = checkSize(createLocalDateTimes.length, createLocalDateTimes);
+            return this;
+        }
+        public Columns listsOfLocalDateTimes(TimeList[] listsOfLocalDateTimes) {
+            this.listsOfLocalDateTimes =
+                    checkSize(listsOfLocalDateTimes.length, listsOfLocalDateTimes);
+            return this;
+        }
+
+        private <T> T checkSize(int length, T column) {
+            if (length != size) {
+                throw new IllegalArgumentException(
+                        "Column has " + length + " values, expected " + size);
+            }
+            return column;
+        }
+    }
+
+    /**
+     * Creates one task per row of {@code columns}.
+     */
+    public List<TaskDTOModel> create(Columns columns) {
+        String[] tagValues = null;
+        if (columns.tagValues != null) {
+            tagValues = new String[columns.tagValues.length];
+            for (int i = 0; i < tagValues.length; i++) {
+                tagValues[i] = intern(columns.tagValues[i]);
+            }
+        }
+
+        ColorCategories[] colorCategories = ColorCategories.values();
+        List<TaskDTOModel> tasks = new ArrayList<>(columns.size);
+        TaskDTOModel.TaskBuilder builder = new TaskDTOModel.TaskBuilder();
+        for (int i = 0; i < columns.size; i++) {
+            byte colorCategory = columns.colorCategories == null
+                    ? NO_COLOR_CATEGORY : columns.colorCategories[i];
+            tasks.add(builder
+                    .uuid(columns.uuids == null ? UUID.randomUUID().toString() : columns.uuids[i])
+                    .name(columns.names == null ? null : columns.names[i])
+                    .description(columns.descriptions == null ? null : columns.descriptions[i])
+                    .urgency(columns.urgencies == null ? 0 : columns.urgencies[i])
+                    .importance(columns.importances == null ? 0 : columns.importances[i])
+                    .colorCategory(colorCategory == NO_COLOR_CATEGORY
+                            ? null : colorCategories[colorCategory])
+                    .tags(columns.tags == null ? null : tagList(tagValues, columns.tags[i]))
+                    .createLocalDateTime(columns.createLocalDateTimes == null
+                            ? null : columns.createLocalDateTimes[i])
+                    .listOfLocalDateTimes(columns.listsOfLocalDateTimes == null
+                            ? null : columns.listsOfLocalDateTimes[i])
+                    .build());
+        }
+        return tasks;
+    }
+
+    /**
+     * Returns the shared instance of {@code value}.
+     */
+    public String intern(String value) {
+        if (value == null) {
+            return null;
+        }
+        String shared = strings.putIfAbsent(value, value);
+        return shared == null ? value : shared;
+    }
+
+    private List<String> tagList(String[] tagValues, int[] indexes) {
+        if (indexes == null) {
+            return null;
+        }
+        String[] taskTags = new String[indexes.length];
+        for (int i = 0; i < indexes.length; i++) {
+            taskTags[i] = tagValues[indexes[i]];
+        }
+        List<String> key = Arrays.asList(taskTags);
+        List<String> shared = tagLists.get(key);
+        if (shared == null) {
+            shared = Collections.unmodifiableList(key);
+            tagLists.put(key, shared);
+        }
+        return shared;
+    }
+}
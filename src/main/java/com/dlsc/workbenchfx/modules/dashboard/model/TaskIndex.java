@@ -0,0 +1,257 @@
+package com.dlsc.workbenchfx.modules.dashboard.model;
+
+import java.util.AbstractCollection;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.EnumMap;
+import java.util.IdentityHashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.NavigableSet;
+import java.util.TreeSet;
+import java.util.concurrent.CopyOnWriteArrayList;
+
+/**
+ * Buckets tasks into Eisenhower {@link Quadrant}s by urgency and importance.
+ *
+ * <p>Every quadrant keeps its tasks ordered by descending priority score
+ * ({@code urgency * importance}, ties in insertion order), so quadrant views are O(1), top-k
+ * queries are O(k) per quadrant and adding, removing or re-bucketing a task is O(log n).
+ * Indexed tasks notify the index themselves when {@link TaskDTOModel#setUrgency(int)} or
+ * {@link TaskDTOModel#setImportance(int)} change them. A task can be in several indexes.
+ *
+ * <p>Not thread-safe, use it from the thread which mutates the tasks.
+ */
+public class TaskIndex implements TaskDTOModel.PriorityListener {
+
+    public static final int DEFAULT_THRESHOLD = 5;
+
+    /**
+     * Notified after tasks were added or removed or moved within or between quadrants, e.g. to
+     * show the quadrants again.
+     */
+    public interface ChangeListener {
+        void taskIndexChanged(TaskIndex index);
+    }
+
+    private static final Comparator<Slot> PRIORITY_ORDER = (a, b) -> {
+        int result = Integer.compare(b.score, a.score);
+        return result != 0 ? result : Long.compare(a.sequence, b.sequence);
+    };
+
+    private final int urgentThreshold;
+    private final int importantThreshold;
+    private final Map<TaskDTOModel, Slot> slots = new IdentityHashMap<>();
+    private final Map<Quadrant, NavigableSet<Slot>> buckets = new EnumMap<>(Quadrant.class);
+    private final Map<Quadrant, Collection<TaskDTOModel>> views = new EnumMap<>(Quadrant.class);
+    private final List<ChangeListener> listeners = new CopyOnWriteArrayList<>();
+    private long sequence;
+
+    private static final class Slot {
+        final TaskDTOModel task;
+        final Quadrant quadrant;
+        final int score;
+        final long sequence;
+
+        Slot(TaskDTOModel task, Quadrant quadrant, int score, long sequence) {
+            this.task = task;
+            this.quadrant = quadrant;
+            this.score = score;
+            this.sequence = sequence;
+        }
+    }
+
+    public TaskIndex() {
+        this(DEFAULT_THRESHOLD, DEFAULT_THRESHOLD);
+    }
+
+    /**
+     * @param urgentThreshold from which on a task counts as urgent
+     * @param importantThreshold from which on a task counts as important
+     */
+    public TaskIndex(int urgentThreshold, int importantThreshold) {
+        this.urgentThreshold = urgentThreshold;
+        this.importantThreshold = importantThreshold;
+        for (Quadrant quadrant : Quadrant.values()) {
+            NavigableSet<Slot> bucket = new TreeSet<>(PRIORITY_ORDER);
+            buckets.put(quadrant, bucket);
+            views.put(quadrant, new TaskView(bucket));
+        }
+    }
+
+    public void addListener(ChangeListener listener) {
+        listeners.add(listener);
+    }
+
+    public void removeListener(ChangeListener listener) {
+        listeners.remove(listener);
+    }
+
+    public static int priorityScore(TaskDTOModel task) {
+        return task.getUrgency() * task.getImportance();
+    }
+
+    public Quadrant quadrantOf(TaskDTOModel task) {
+        return Quadrant.of(task.getUrgency() >= urgentThreshold,
+                task.getImportance() >= importantThreshold);
+    }
+
+    public void add(TaskDTOModel task) {
+        if (addTask(task)) {
+            fireChanged();
+        }
+    }
+
+    public void addAll(Collection<? extends TaskDTOModel> tasks) {
+        boolean changed = false;
+        for (TaskDTOModel task : tasks) {
+            changed |= addTask(task);
+        }
+        if (changed) {
+            fireChanged();
+        }
+    }
+
+    public void remove(TaskDTOModel task) {
+        Slot slot = slots.remove(task);
+        if (slot != null) {
+            buckets.get(slot.quadrant).remove(slot);
+            task.removePriorityListener(this);
+            fireChanged();
+        }
+    }
+
+    public void clear() {
+        for (TaskDTOModel task : slots.keySet()) {
+            task.removePriorityListener(this);
+        }
+        slots.clear();
+        buckets.values().forEach(Collection::clear);
+        fireChanged();
+    }
+
+    public boolean contains(TaskDTOModel task) {
+        return slots.containsKey(task);
+    }
+
+    public int size() {
+        return slots.size();
+    }
+
+    /**
+     * Returns a live, unmodifiable view of the tasks in a quadrant, highest priority first.
+     */
+    public Collection<TaskDTOModel> getQuadrant(Quadrant quadrant) {
+        return views.get(quadrant);
+    }
+
+    /**
+     * Returns the {@code k} tasks of a quadrant with the highest priority score.
+     */
+    public List<TaskDTOModel> topK(Quadrant quadrant, int k) {
+        List<TaskDTOModel> result = new ArrayList<>(Math.min(k, buckets.get(quadrant).size()));
+        Iterator<Slot> iterator = buckets.get(quadrant).iterator();
+        while (result.size() < k && iterator.hasNext()) {
+            result.add(iterator.next().task);
+        }
+        return result;
+    }
+
+    /**
+     * Returns the {@code k} tasks with the highest priority score over all quadrants, merging
+     * the already sorted quadrants instead of sorting all tasks.
+     */
+    public List<TaskDTOModel> topK(int k) {
+        List<Iterator<Slot>> iterators = new ArrayList<>();
+        List<Slot> heads = new ArrayList<>();
+        for (NavigableSet<Slot> bucket : buckets.values()) {
+            Iterator<Slot> iterator = bucket.iterator();
+            if (iterator.hasNext()) {
+                iterators.add(iterator);
+                heads.add(iterator.next());
+            }
+        }
+        List<TaskDTOModel> result = new ArrayList<>(Math.min(k, slots.size()));
+        while (result.size() < k && !heads.isEmpty()) {
+            int best = 0;
+            for (int i = 1; i < heads.size(); i++) {
+                if (PRIORITY_ORDER.compare(heads.get(i), heads.get(best)) < 0) {
+                    best = i;
+                }
+            }
+            result.add(heads.get(best).task);
+            if (iterators.get(best).hasNext()) {
+                heads.set(best, iterators.get(best).next());
+            } else {
+                heads.remove(best);
+                iterators.remove(best);
+            }
+        }
+        return result;
+    }
+
+    @Override
+    public void priorityChanged(TaskDTOModel task) {
+        Slot slot = slots.get(task);
+        if (slot != null) {
+            buckets.get(slot.quadrant).remove(slot);
+            insert(task, slot.sequence);
+            fireChanged();
+        }
+    }
+
+    private boolean addTask(TaskDTOModel task) {
+        if (slots.containsKey(task)) {
+            return false;
+        }
+        task.addPriorityListener(this);
+        insert(task, sequence++);
+        return true;
+    }
+
+    private void fireChanged() {
+        for (ChangeListener listener : listeners) {
+            listener.taskIndexChanged(this);
+        }
+    }
+
+    private void insert(TaskDTOModel task, long taskSequence) {
+        Slot slot = new Slot(task, quadrantOf(task), priorityScore(task), taskSequence);
+        slots.put(task, slot);
+        buckets.get(slot.quadrant).add(slot);
+    }
+
+    /**
+     * Read-only view of one bucket.
+     */
+    private static final class TaskView extends AbstractCollection<TaskDTOModel> {
+        private final NavigableSet<Slot> bucket;
+
+        TaskView(NavigableSet<Slot> bucket) {
+            this.bucket = bucket;
+        }
+
+        @Override
+        public Iterator<TaskDTOModel> iterator() {
+            Iterator<Slot> iterator = bucket.iterator();
+            return new Iterator<TaskDTOModel>() {
+                @Override
+                public boolean hasNext() {
+                    return iterator.hasNext();
+                }
+
+                @Override
+                public TaskDTOModel next() {
+                    return iterator.next().task;
+                }
+            };
+        }
+
+        @Override
+        public int size() {
+            return bucket.size();
+        }
+    }
+}
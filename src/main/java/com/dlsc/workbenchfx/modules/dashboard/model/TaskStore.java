@@ -0,0 +1,817 @@
+package com.dlsc.workbenchfx.modules.dashboard.model;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDateTime;
+import java.time.ZoneOffset;
+import java.util.AbstractList;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+
+/**
+ * Keeps tasks column by column in direct {@link ByteBuffer}s, outside of the Java heap.
+ *
+ * <p>Every task is a row. Urgency, importance and the references to variable-sized values are
+ * int columns, the creation time and the uuid are long columns. Uuids in the canonical form are
+ * stored as two longs, other uuids, names and descriptions as UTF-8 in a text heap. Color
+ * categories are a byte column of {@link ColorCategories} ordinals. Tags are the id of a shared
+ * tag list and the date-times are stored in a long heap, as seconds since the epoch plus the
+ * nano of second, so any {@link LocalDateTime} fits. A row costs about 60 bytes plus its text,
+ * the GC only sees a handful of buffers instead of an object graph per task.
+ *
+ * <p>{@link #get(int)} returns a flyweight {@link TaskDTOModel} which only holds the store and
+ * the row and reads and writes its values in the store. The int and byte columns are read
+ * without allocating. Texts are decoded into a small cache, so redrawing the same rows while
+ * scrolling reuses the strings. Every distinct tag list is kept once, as an unmodifiable list
+ * which all rows with these tags return; tag lists are never dropped, tags are meant to be a
+ * small vocabulary. Values which are replaced leave garbage in the heaps, which is dropped by
+ * {@link #compact()}, automatically once it takes more than half of a heap. Rows are never
+ * moved, so views stay valid.
+ *
+ * <p>Not thread-safe and not locked. A store is filled by the thread which loads it and then
+ * handed to the FX thread, which is the only one to use it and its views from then on. The
+ * handoff has to be safe, e.g. through {@code Platform.runLater} or a
+ * {@link java.util.concurrent.CompletableFuture}, and tasks which are read elsewhere later, e.g.
+ * to save them, are copied on the FX thread first.
+ */
+public class TaskStore {
+
+    private static final int NULL_REF = -1;
+    private static final int UUID_IN_COLUMNS = -2;
+    private static final long NULL_TIME = Long.MIN_VALUE;
+    private static final int COMPACT_THRESHOLD = 1 << 20;
+    private static final int CACHE_BITS = 10;
+    private static final int CACHE_SIZE = 1 << CACHE_BITS;
+    private static final ColorCategories[] COLOR_CATEGORIES = ColorCategories.values();
+
+    private int size;
+    private int capacity;
+    private ByteBuffer urgencies;
+    private ByteBuffer importances;
+    private ByteBuffer created;
+    private ByteBuffer createdNanos;
+    private ByteBuffer uuidHighs;
+    private ByteBuffer uuidLows;
+    private ByteBuffer uuidTexts;
+    private ByteBuffer names;
+    private ByteBuffer descriptions;
+    private ByteBuffer colorCategories;
+    private ByteBuffer tags;
+    private ByteBuffer dateTimes;
+    private ByteBuffer removed;
+
+    private ByteBuffer textHeap = ByteBuffer.allocateDirect(1024);
+    private ByteBuffer longHeap = ByteBuffer.allocateDirect(1024);
+    private int textGarbage;
+    private int longGarbage;
+
+    private final Map<String, String> tagValues = new HashMap<>();
+    private final Map<List<String>, Integer> tagListIds = new HashMap<>();
+    private final List<List<String>> tagLists = new ArrayList<>();
+
+    // decoded texts by their reference in the text heap, uuids in columns by their row
+    private final int[] cachedTextRefs = new int[CACHE_SIZE];
+    private final String[] cachedTexts = new String[CACHE_SIZE];
+    private final int[] cachedUuidRows = new int[CACHE_SIZE];
+    private final String[] cachedUuids = new String[CACHE_SIZE];
+
+    public TaskStore() {
+        this(1024);
+    }
+
+    public TaskStore(int initialCapacity) {
+        resize(Math.max(initialCapacity, 16));
+        Arrays.fill(cachedTextRefs, NULL_REF);
+        Arrays.fill(cachedUuidRows, NULL_REF);
+    }
+
+    /**
+     * Copies a task into a new row.
+     *
+     * @return the row of the task
+     */
+    public int add(TaskDTOModel task) {
+        if (size == capacity) {
+            resize(capacity * 2);
+        }
+        int row = size++;
+        urgencies.putInt(row * 4, task.getUrgency());
+        importances.putInt(row * 4, task.getImportance());
+        removed.put(row, (byte) 0);
+        writeUuid(row, task.getUuid());
+        names.putInt(row * 4, putText(task.getName()));
+        descriptions.putInt(row * 4, putText(task.getDescription()));
+        setColorCategory(row, task.getColorCategory());
+        tags.putInt(row * 4, tagListId(task.getTags()));
+        setCreated(row, task.getCreateLocalDateTime());
+        dateTimes.putInt(row * 4, putTimes(task.getListOfLocalDateTimes()));
+        return row;
+    }
+
+    /**
+     * Copies the tasks into new rows and returns their views, in the same order.
+     */
+    public List<TaskDTOModel> addAll(Collection<? extends TaskDTOModel> tasks) {
+        if (size + tasks.size() > capacity) {
+            resize(Math.max(capacity * 2, size + tasks.size()));
+        }
+        List<TaskDTOModel> views = new ArrayList<>(tasks.size());
+        for (TaskDTOModel task : tasks) {
+            views.add(new TaskView(this, add(task)));
+        }
+        return views;
+    }
+
+    /**
+     * Returns a writer which appends rows value by value, e.g. straight from encoded tasks,
+     * without creating a task or strings for them first.
+     */
+    public RowWriter rowWriter() {
+        return new RowWriter();
+    }
+
+    /**
+     * Returns a view of the task in {@code row}. Views of the same row are equal.
+     */
+    public TaskDTOModel get(int row) {
+        checkRow(row);
+        return new TaskView(this, row);
+    }
+
+    /**
+     * Returns views of all rows which were not removed. The list is a snapshot of the rows, a
+     * view is created whenever an element is accessed. A view only holds the store, the row and
+     * its priority listeners, copying all views into a list costs about 24 bytes per row.
+     */
+    public List<TaskDTOModel> views() {
+        int[] rows = new int[size];
+        int count = 0;
+        for (int row = 0; row < size; row++) {
+            if (removed.get(row) == 0) {
+                rows[count++] = row;
+            }
+        }
+        int viewCount = count;
+        return new AbstractList<TaskDTOModel>() {
+            @Override
+            public TaskDTOModel get(int index) {
+                if (index < 0 || index >= viewCount) {
+                    throw new IndexOutOfBoundsException("Index " + index + ", size " + viewCount);
+                }
+                return new TaskView(TaskStore.this, rows[index]);
+            }
+
+            @Override
+            public int size() {
+                return viewCount;
+            }
+        };
+    }
+
+    /**
+     * Marks a row as removed and drops its values. The row is not reused.
+     */
+    public void remove(int row) {
+        checkRow(row);
+        if (removed.get(row) == 0) {
+            removed.put(row, (byte) 1);
+            releaseText(uuidTexts.getInt(row * 4));
+            releaseText(names.getInt(row * 4));
+            releaseText(descriptions.getInt(row * 4));
+            releaseLongs(dateTimes.getInt(row * 4));
+            uuidTexts.putInt(row * 4, NULL_REF);
+            names.putInt(row * 4, NULL_REF);
+            descriptions.putInt(row * 4, NULL_REF);
+            tags.putInt(row * 4, NULL_REF);
+            dateTimes.putInt(row * 4, NULL_REF);
+            forgetUuid(row);
+        }
+    }
+
+    public boolean isRemoved(int row) {
+        checkRow(row);
+        return removed.get(row) != 0;
+    }
+
+    /**
+     * Returns the number of rows, including removed ones.
+     */
+    public int size() {
+        return size;
+    }
+
+    /**
+     * Returns the number of bytes allocated outside of the heap.
+     */
+    public long getOffHeapBytes() {
+        return (long) capacity * (8 * 4 + 3 * 8 + 2) + textHeap.capacity() + longHeap.capacity();
+    }
+
+    /**
+     * Rewrites the heaps without the values which were replaced or removed.
+     */
+    public void compact() {
+        ByteBuffer oldText = textHeap;
+        ByteBuffer oldLongs = longHeap;
+        textHeap = ByteBuffer.allocateDirect(Math.max(oldText.position() - textGarbage, 1024));
+        longHeap = ByteBuffer.allocateDirect(Math.max(oldLongs.position() - longGarbage, 1024));
+        textGarbage = 0;
+        longGarbage = 0;
+        // the references change
+        Arrays.fill(cachedTextRefs, NULL_REF);
+        Arrays.fill(cachedTexts, null);
+        for (int row = 0; row < size; row++) {
+            uuidTexts.putInt(row * 4, copyText(oldText, uuidTexts.getInt(row * 4)));
+            names.putInt(row * 4, copyText(oldText, names.getInt(row * 4)));
+            descriptions.putInt(row * 4, copyText(oldText, descriptions.getInt(row * 4)));
+            dateTimes.putInt(row * 4, copyLongs(oldLongs, dateTimes.getInt(row * 4)));
+        }
+    }
+
+    String getUuid(int row) {
+        int text = uuidTexts.getInt(row * 4);
+        if (text != UUID_IN_COLUMNS) {
+            return getText(text);
+        }
+        int slot = cacheSlot(row);
+        if (cachedUuidRows[slot] != row) {
+            cachedUuids[slot] =
+                    new UUID(uuidHighs.getLong(row * 8), uuidLows.getLong(row * 8)).toString();
+            cachedUuidRows[slot] = row;
+        }
+        return cachedUuids[slot];
+    }
+
+    void setUuid(int row, String uuid) {
+        releaseText(uuidTexts.getInt(row * 4));
+        forgetUuid(row);
+        writeUuid(row, uuid);
+        compactIfWasteful();
+    }
+
+    String getName(int row) {
+        return getText(names.getInt(row * 4));
+    }
+
+    void setName(int row, String name) {
+        releaseText(names.getInt(row * 4));
+        names.putInt(row * 4, putText(name));
+        compactIfWasteful();
+    }
+
+    String getDescription(int row) {
+        return getText(descriptions.getInt(row * 4));
+    }
+
+    void setDescription(int row, String description) {
+        releaseText(descriptions.getInt(row * 4));
+        descriptions.putInt(row * 4, putText(description));
+        compactIfWasteful();
+    }
+
+    int getUrgency(int row) {
+        return urgencies.getInt(row * 4);
+    }
+
+    void setUrgency(int row, int urgency) {
+        urgencies.putInt(row * 4, urgency);
+    }
+
+    int getImportance(int row) {
+        return importances.getInt(row * 4);
+    }
+
+    void setImportance(int row, int importance) {
+        importances.putInt(row * 4, importance);
+    }
+
+    ColorCategories getColorCategory(int row) {
+        byte ordinal = colorCategories.get(row);
+        return ordinal == TaskFactory.NO_COLOR_CATEGORY ? null : COLOR_CATEGORIES[ordinal];
+    }
+
+    void setColorCategory(int row, ColorCategories colorCategory) {
+        colorCategories.put(row, colorCategory == null
+                ? TaskFactory.NO_COLOR_CATEGORY : (byte) colorCategory.ordinal());
+    }
+
+    List<String> getTags(int row) {
+        int id = tags.getInt(row * 4);
+        return id == NULL_REF ? null : tagLists.get(id);
+    }
+
+    void setTags(int row, List<String> values) {
+        tags.putInt(row * 4, tagListId(values));
+    }
+
+    LocalDateTime getCreateLocalDateTime(int row) {
+        long seconds = created.getLong(row * 8);
+        return seconds == NULL_TIME ? null
+                : LocalDateTime.ofEpochSecond(seconds, createdNanos.getInt(row * 4), ZoneOffset.UTC);
+    }
+
+    void setCreateLocalDateTime(int row, LocalDateTime dateTime) {
+        setCreated(row, dateTime);
+    }
+
+    List<LocalDateTime> getListOfLocalDateTimes(int row) {
+        int ref = dateTimes.getInt(row * 4);
+        if (ref == NULL_REF) {
+            return null;
+        }
+        int count = (int) longHeap.getLong(ref);
+        long[] seconds = new long[count];
+        int[] nanos = new int[count];
+        for (int i = 0; i < count; i++) {
+            seconds[i] = longHeap.getLong(ref + 8 + i * 8);
+            nanos[i] = longHeap.getInt(ref + 8 + count * 8 + i * 4);
+        }
+        return TimeList.ofEpochSeconds(seconds, nanos);
+    }
+
+    void setListOfLocalDateTimes(int row, List<LocalDateTime> values) {
+        releaseLongs(dateTimes.getInt(row * 4));
+        dateTimes.putInt(row * 4, putTimes(values));
+        compactIfWasteful();
+    }
+
+    private void checkRow(int row) {
+        if (row < 0 || row >= size()) {
+            throw new IndexOutOfBoundsException("Row " + row + ", size " + size());
+        }
+    }
+
+    private void resize(int newCapacity) {
+        urgencies = copyOf(urgencies, newCapacity * 4);
+        importances = copyOf(importances, newCapacity * 4);
+        created = copyOf(created, newCapacity * 8);
+        createdNanos = copyOf(createdNanos, newCapacity * 4);
+        uuidHighs = copyOf(uuidHighs, newCapacity * 8);
+        uuidLows = copyOf(uuidLows, newCapacity * 8);
+        uuidTexts = copyOf(uuidTexts, newCapacity * 4);
+        names = copyOf(names, newCapacity * 4);
+        descriptions = copyOf(descriptions, newCapacity * 4);
+        colorCategories = copyOf(colorCategories, newCapacity);
+        tags = copyOf(tags, newCapacity * 4);
+        dateTimes = copyOf(dateTimes, newCapacity * 4);
+        removed = copyOf(removed, newCapacity);
+        capacity = newCapacity;
+    }
+
+    private static ByteBuffer copyOf(ByteBuffer column, int newCapacity) {
+        ByteBuffer copy = ByteBuffer.allocateDirect(newCapacity);
+        if (column != null) {
+            ByteBuffer source = column.duplicate();
+            source.clear();
+            source.limit(Math.min(source.capacity(), newCapacity));
+            copy.put(source);
+            copy.clear();
+        }
+        return copy;
+    }
+
+    private void writeUuid(int row, String uuid) {
+        if (!putCanonicalUuid(row, uuid)) {
+            uuidTexts.putInt(row * 4, putText(uuid));
+        }
+    }
+
+    /**
+     * Stores the uuid as two longs if it is in the canonical form of {@link UUID#toString()},
+     * the only form which survives the round trip through them.
+     */
+    private boolean putCanonicalUuid(int row, String uuid) {
+        if (uuid == null || uuid.length() != 36) {
+            return false;
+        }
+        long high = 0;
+        long low = 0;
+        for (int i = 0; i < 36; i++) {
+            char c = uuid.charAt(i);
+            if (i == 8 || i == 13 || i == 18 || i == 23) {
+                if (c != '-') {
+                    return false;
+                }
+                continue;
+            }
+            int digit = c >= '0' && c <= '9' ? c - '0' : c >= 'a' && c <= 'f' ? c - 'a' + 10 : -1;
+            if (digit < 0) {
+                return false;
+            }
+            if (i < 18) {
+                high = high << 4 | digit;
+            } else {
+                low = low << 4 | digit;
+            }
+        }
+        uuidHighs.putLong(row * 8, high);
+        uuidLows.putLong(row * 8, low);
+        uuidTexts.putInt(row * 4, UUID_IN_COLUMNS);
+        return true;
+    }
+
+    /**
+     * Returns the id of the shared, unmodifiable copy of a tag list.
+     */
+    private int tagListId(List<String> values) {
+        if (values == null) {
+            return NULL_REF;
+        }
+        Integer id = tagListIds.get(values);
+        if (id == null) {
+            List<String> copy = new ArrayList<>(values.size());
+            for (String value : values) {
+                String shared = value == null ? null : tagValues.putIfAbsent(value, value);
+                copy.add(shared == null ? value : shared);
+            }
+            id = tagLists.size();
+            List<String> shared = Collections.unmodifiableList(copy);
+            tagLists.add(shared);
+            tagListIds.put(shared, id);
+        }
+        return id;
+    }
+
+    private int putText(String value) {
+        if (value == null) {
+            return NULL_REF;
+        }
+        byte[] utf8 = value.getBytes(StandardCharsets.UTF_8);
+        return putText(utf8, 0, utf8.length);
+    }
+
+    private int putText(byte[] utf8, int offset, int length) {
+        textHeap = ensureRemaining(textHeap, 4 + length);
+        int ref = textHeap.position();
+        textHeap.putInt(length).put(utf8, offset, length);
+        return ref;
+    }
+
+    private String getText(int ref) {
+        if (ref < 0) {
+            return null;
+        }
+        // references are not reused until the heap is compacted
+        int slot = cacheSlot(ref);
+        if (cachedTextRefs[slot] != ref) {
+            cachedTexts[slot] = readText(textHeap, ref);
+            cachedTextRefs[slot] = ref;
+        }
+        return cachedTexts[slot];
+    }
+
+    private void forgetUuid(int row) {
+        int slot = cacheSlot(row);
+        if (cachedUuidRows[slot] == row) {
+            cachedUuidRows[slot] = NULL_REF;
+            cachedUuids[slot] = null;
+        }
+    }
+
+    private static int cacheSlot(int key) {
+        return (key * 0x9E3779B9) >>> (Integer.SIZE - CACHE_BITS);
+    }
+
+    private static String readText(ByteBuffer heap, int ref) {
+        byte[] utf8 = new byte[heap.getInt(ref)];
+        ByteBuffer source = heap.duplicate();
+        source.position(ref + 4);
+        source.get(utf8);
+        return new String(utf8, StandardCharsets.UTF_8);
+    }
+
+    private void releaseText(int ref) {
+        if (ref >= 0) {
+            textGarbage += 4 + textHeap.getInt(ref);
+        }
+    }
+
+    private int copyText(ByteBuffer oldHeap, int ref) {
+        if (ref < 0) {
+            return ref;
+        }
+        int length = 4 + oldHeap.getInt(ref);
+        ByteBuffer source = oldHeap.duplicate();
+        source.position(ref).limit(ref + length);
+        textHeap = ensureRemaining(textHeap, length);
+        int newRef = textHeap.position();
+        textHeap.put(source);
+        return newRef;
+    }
+
+    private int putTimes(List<LocalDateTime> values) {
+        if (values == null) {
+            return NULL_REF;
+        }
+        // the count, the seconds and then the nanos of the sorted date-times
+        TimeList sorted = TimeList.copyOf(values);
+        long[] seconds = new long[sorted.size()];
+        int[] nanos = new int[seconds.length];
+        sorted.copyTo(seconds, nanos);
+        return putSortedTimes(seconds, nanos, seconds.length);
+    }
+
+    private int putSortedTimes(long[] seconds, int[] nanos, int count) {
+        longHeap = ensureRemaining(longHeap, 8 + count * 12);
+        int ref = longHeap.position();
+        longHeap.putLong(count);
+        for (int i = 0; i < count; i++) {
+            longHeap.putLong(seconds[i]);
+        }
+        for (int i = 0; i < count; i++) {
+            longHeap.putInt(nanos[i]);
+        }
+        return ref;
+    }
+
+    private void releaseLongs(int ref) {
+        if (ref >= 0) {
+            longGarbage += 8 + (int) longHeap.getLong(ref) * 12;
+        }
+    }
+
+    private int copyLongs(ByteBuffer oldHeap, int ref) {
+        if (ref < 0) {
+            return ref;
+        }
+        int length = 8 + (int) oldHeap.getLong(ref) * 12;
+        ByteBuffer source = oldHeap.duplicate();
+        source.position(ref).limit(ref + length);
+        longHeap = ensureRemaining(longHeap, length);
+        int newRef = longHeap.position();
+        longHeap.put(source);
+        return newRef;
+    }
+
+    private static boolean isSorted(long[] seconds, int[] nanos, int count) {
+        for (int i = 1; i < count; i++) {
+            if (seconds[i] < seconds[i - 1]
+                    || seconds[i] == seconds[i - 1] && nanos[i] < nanos[i - 1]) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private static ByteBuffer ensureRemaining(ByteBuffer heap, int bytes) {
+        if (heap.remaining() >= bytes) {
+            return heap;
+        }
+        long needed = (long) heap.position() + bytes;
+        if (needed > Integer.MAX_VALUE) {
+            throw new IllegalStateException("Task store heap is full");
+        }
+        ByteBuffer grown = ByteBuffer.allocateDirect(
+                (int) Math.min(Math.max(needed, heap.capacity() * 2L), Integer.MAX_VALUE));
+        heap.flip();
+        grown.put(heap);
+        return grown;
+    }
+
+    private void compactIfWasteful() {
+        if (textGarbage > Math.max(COMPACT_THRESHOLD, textHeap.position() / 2)
+                || longGarbage > Math.max(COMPACT_THRESHOLD, longHeap.position() / 2)) {
+            compact();
+        }
+    }
+
+    private void setCreated(int row, LocalDateTime dateTime) {
+        created.putLong(row * 8,
+                dateTime == null ? NULL_TIME : dateTime.toEpochSecond(ZoneOffset.UTC));
+        createdNanos.putInt(row * 4, dateTime == null ? 0 : dateTime.getNano());
+    }
+
+    /**
+     * Appends rows to the store one value at a time. {@link #begin()} starts a row with all of
+     * its values empty, the other methods set a value of the row which was begun last.
+     */
+    public final class RowWriter {
+        private int row = NULL_REF;
+
+        private RowWriter() {
+        }
+
+        /**
+         * Appends an empty row.
+         *
+         * @return this writer, which writes into the new row now
+         */
+        public RowWriter begin() {
+            if (size == capacity) {
+                resize(capacity * 2);
+            }
+            row = size++;
+            urgencies.putInt(row * 4, 0);
+            importances.putInt(row * 4, 0);
+            removed.put(row, (byte) 0);
+            uuidTexts.putInt(row * 4, NULL_REF);
+            names.putInt(row * 4, NULL_REF);
+            descriptions.putInt(row * 4, NULL_REF);
+            colorCategories.put(row, TaskFactory.NO_COLOR_CATEGORY);
+            tags.putInt(row * 4, NULL_REF);
+            setCreated(row, null);
+            dateTimes.putInt(row * 4, NULL_REF);
+            return this;
+        }
+
+        public RowWriter uuid(long mostSignificantBits, long leastSignificantBits) {
+            uuidHighs.putLong(row() * 8, mostSignificantBits);
+            uuidLows.putLong(row * 8, leastSignificantBits);
+            uuidTexts.putInt(row * 4, UUID_IN_COLUMNS);
+            return this;
+        }
+
+        public RowWriter uuid(String uuid) {
+            writeUuid(row(), uuid);
+            return this;
+        }
+
+        public RowWriter name(byte[] utf8, int offset, int length) {
+            names.putInt(row() * 4, putText(utf8, offset, length));
+            return this;
+        }
+
+        public RowWriter description(byte[] utf8, int offset, int length) {
+            descriptions.putInt(row() * 4, putText(utf8, offset, length));
+            return this;
+        }
+
+        public RowWriter urgency(int urgency) {
+            urgencies.putInt(row() * 4, urgency);
+            return this;
+        }
+
+        public RowWriter importance(int importance) {
+            importances.putInt(row() * 4, importance);
+            return this;
+        }
+
+        /**
+         * @param ordinal of a {@link ColorCategories}, or {@link TaskFactory#NO_COLOR_CATEGORY}
+         */
+        public RowWriter colorCategory(byte ordinal) {
+            if (ordinal != TaskFactory.NO_COLOR_CATEGORY
+                    && (ordinal < 0 || ordinal >= COLOR_CATEGORIES.length)) {
+                throw new IllegalArgumentException("Unknown color category ordinal " + ordinal);
+            }
+            colorCategories.put(row(), ordinal);
+            return this;
+        }
+
+        public RowWriter tags(List<String> tags) {
+            TaskStore.this.tags.putInt(row() * 4, tagListId(tags));
+            return this;
+        }
+
+        /**
+         * @param epochSecond seconds since the epoch in UTC
+         * @param nano nano of second
+         */
+        public RowWriter createLocalDateTime(long epochSecond, int nano) {
+            created.putLong(row() * 8, epochSecond);
+            createdNanos.putInt(row * 4, nano);
+            return this;
+        }
+
+        /**
+         * Sets the date-times from the first {@code count} elements of the arrays, which are
+         * not kept.
+         *
+         * @param seconds seconds since the epoch in UTC
+         * @param nanos nano of second of every element
+         */
+        public RowWriter listOfLocalDateTimes(long[] seconds, int[] nanos, int count) {
+            if (!isSorted(seconds, nanos, count)) {
+                seconds = Arrays.copyOf(seconds, count);
+                nanos = Arrays.copyOf(nanos, count);
+                // sorts the copies in place
+                TimeList.ofEpochSeconds(seconds, nanos);
+            }
+            dateTimes.putInt(row() * 4, putSortedTimes(seconds, nanos, count));
+            return this;
+        }
+
+        /**
+         * Returns a view of the row which was begun last.
+         */
+        public TaskDTOModel view() {
+            return new TaskView(TaskStore.this, row());
+        }
+
+        private int row() {
+            if (row == NULL_REF) {
+                throw new IllegalStateException("No row was begun");
+            }
+            return row;
+        }
+    }
+
+    /**
+     * Flyweight task which reads and writes one row of the store.
+     */
+    private static final class TaskView extends TaskDTOModel {
+        private final TaskStore store;
+        private final int row;
+
+        TaskView(TaskStore store, int row) {
+            this.store = store;
+            this.row = row;
+        }
+
+        @Override
+        public String getUuid() {
+            return store.getUuid(row);
+        }
+        @Override
+        public void setUuid(String uuid) {
+            store.setUuid(row, uuid);
+        }
+        @Override
+        public String getName() {
+            return store.getName(row);
+        }
+        @Override
+        public void setName(String name) {
+            store.setName(row, name);
+        }
+        @Override
+        public String getDescription() {
+            return store.getDescription(row);
+        }
+        @Override
+        public void setDescription(String description) {
+            store.setDescription(row, description);
+        }
+        @Override
+        public int getUrgency() {
+            return store.getUrgency(row);
+        }
+        @Override
+        public void setUrgency(int urgency) {
+            if (getUrgency() != urgency) {
+                store.setUrgency(row, urgency);
+                firePriorityChanged();
+            }
+        }
+        @Override
+        public int getImportance() {
+            return store.getImportance(row);
+        }
+        @Override
+        public void setImportance(int importance) {
+            if (getImportance() != importance) {
+                store.setImportance(row, importance);
+                firePriorityChanged();
+            }
+        }
+        @Override
+        public ColorCategories getColorCategory() {
+            return store.getColorCategory(row);
+        }
+        @Override
+        public void setColorCategory(ColorCategories colorCategory) {
+            store.setColorCategory(row, colorCategory);
+        }
+        @Override
+        public List<String> getTags() {
+            return store.getTags(row);
+        }
+        @Override
+        public void setTags(List<String> tags) {
+            store.setTags(row, tags);
+        }
+        @Override
+        public LocalDateTime getCreateLocalDateTime() {
+            return store.getCreateLocalDateTime(row);
+        }
+        @Override
+        public void setCreateLocalDateTime(LocalDateTime createLocalDateTime) {
+            store.setCreateLocalDateTime(row, createLocalDateTime);
+        }
+        @Override
+        public List<LocalDateTime> getListOfLocalDateTimes() {
+            return store.getListOfLocalDateTimes(row);
+        }
+        @Override
+        public void setListOfLocalDateTimes(List<LocalDateTime> listOfLocalDateTimes) {
+            store.setListOfLocalDateTimes(row, listOfLocalDateTimes);
+        }
+
+        @Override
+        public boolean equals(Object obj) {
+            return obj instanceof TaskView
+                    && ((TaskView) obj).store == store && ((TaskView) obj).row == row;
+        }
+
+        @Override
+        public int hashCode() {
+            return 31 * System.identityHashCode(store) + row;
+        }
+    }
+}
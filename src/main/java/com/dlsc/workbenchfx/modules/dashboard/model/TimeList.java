@@ -0,0 +1,375 @@
+package com.dlsc.workbenchfx.modules.dashboard.model;
+
+import java.time.LocalDateTime;
+import java.time.ZoneOffset;
+import java.util.AbstractList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.Iterator;
+import java.util.List;
+import java.util.NoSuchElementException;
+
+/**
+ * Immutable, sorted list of date-times, stored as delta-encoded primitives instead of boxed
+ * {@link LocalDateTime}s.
+ *
+ * <p>Date-times are converted to a count of units since the epoch in UTC, the unit is the
+ * largest of seconds, milliseconds, microseconds and nanoseconds which represents all of them
+ * exactly and in which they fit into a long. Values are grouped into blocks of
+ * {@link #BLOCK_SIZE}: the first value of a block is kept in a {@code long[]}, the others as
+ * varint deltas to their predecessor. Timestamps a few minutes or hours apart take two or three
+ * bytes. Range queries binary-search the first values of the blocks and scan one block. Any
+ * {@link LocalDateTime} fits: nanosecond date-times outside of the years 1677 to 2262 are kept
+ * as seconds plus an {@code int[]} of the nanos.
+ *
+ * <p>Used for {@link TaskDTOModel#getListOfLocalDateTimes()}, so a task with thousands of
+ * logged times keeps a few arrays instead of thousands of objects. Elements cannot be null, a
+ * list with more times is created with {@link #plus(LocalDateTime)}.
+ */
+public final class TimeList extends AbstractList<LocalDateTime> {
+
+    static final int BLOCK_SIZE = 32;
+
+    private static final int NANOS_PER_SECOND = 1_000_000_000;
+    private static final int[] UNITS_PER_SECOND = {1, 1_000, 1_000_000, NANOS_PER_SECOND};
+    private static final TimeList EMPTY = new TimeList(new long[0], null);
+
+    private final int size;
+    private final int unitsPerSecond;
+    private final long[] blockFirsts;
+    private final int[] blockOffsets;
+    private final byte[] deltas;
+    // nano of second per element if the values are seconds although the date-times are not
+    private final int[] nanos;
+
+    private TimeList(long[] sortedSeconds, int[] sortedNanos) {
+        size = sortedSeconds.length;
+        int units = 0;
+        for (int candidate : UNITS_PER_SECOND) {
+            if (fits(sortedSeconds, sortedNanos, candidate)) {
+                units = candidate;
+                break;
+            }
+        }
+        unitsPerSecond = units == 0 ? 1 : units;
+        nanos = units == 0 ? sortedNanos : null;
+
+        int blocks = (size + BLOCK_SIZE - 1) / BLOCK_SIZE;
+        blockFirsts = new long[blocks];
+        blockOffsets = new int[blocks];
+        byte[] buffer = new byte[Math.max(16, size * 2)];
+        int length = 0;
+        long previous = 0;
+        for (int i = 0; i < size; i++) {
+            long value = sortedSeconds[i] * unitsPerSecond;
+            if (nanos == null && sortedNanos != null) {
+                value += sortedNanos[i] / (NANOS_PER_SECOND / unitsPerSecond);
+            }
+            if (i % BLOCK_SIZE == 0) {
+                blockFirsts[i / BLOCK_SIZE] = value;
+                blockOffsets[i / BLOCK_SIZE] = length;
+            } else {
+                if (buffer.length - length < 10) {
+                    buffer = Arrays.copyOf(buffer, buffer.length * 2);
+                }
+                // wraps around for values of both ends of the range, adding it back wraps too
+                long delta = value - previous;
+                while ((delta & ~0x7FL) != 0) {
+                    buffer[length++] = (byte) ((delta & 0x7F) | 0x80);
+                    delta >>>= 7;
+                }
+                buffer[length++] = (byte) delta;
+            }
+            previous = value;
+        }
+        deltas = Arrays.copyOf(buffer, length);
+    }
+
+    /**
+     * Returns whether all date-times are whole multiples of the unit and fit into a long in it.
+     */
+    private static boolean fits(long[] seconds, int[] nanos, int unitsPerSecond) {
+        int nanosPerUnit = NANOS_PER_SECOND / unitsPerSecond;
+        for (int i = 0; i < seconds.length; i++) {
+            int nano = nanos == null ? 0 : nanos[i];
+            if (nano % nanosPerUnit != 0) {
+                return false;
+            }
+            try {
+                Math.addExact(Math.multiplyExact(seconds[i], unitsPerSecond), nano / nanosPerUnit);
+            } catch (ArithmeticException e) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    public static TimeList empty() {
+        return EMPTY;
+    }
+
+    /**
+     * Returns a list with the date-times in ascending order, or the list itself if it already
+     * is a {@code TimeList}. Returns null for null, like the plain lists of a task.
+     *
+     * @throws NullPointerException if an element is null
+     */
+    public static TimeList copyOf(Collection<LocalDateTime> dateTimes) {
+        if (dateTimes == null || dateTimes instanceof TimeList) {
+            return (TimeList) dateTimes;
+        }
+        long[] seconds = new long[dateTimes.size()];
+        int[] nanos = new int[seconds.length];
+        int i = 0;
+        for (LocalDateTime dateTime : dateTimes) {
+            seconds[i] = dateTime.toEpochSecond(ZoneOffset.UTC);
+            nanos[i++] = dateTime.getNano();
+        }
+        return ofEpochSeconds(seconds, nanos);
+    }
+
+    /**
+     * Returns a list with the given times, the arrays are sorted in place.
+     *
+     * @param seconds seconds since the epoch in UTC
+     * @param nanos nano of second of every element, or null if they are all 0
+     */
+    public static TimeList ofEpochSeconds(long[] seconds, int[] nanos) {
+        if (seconds.length == 0) {
+            return EMPTY;
+        }
+        if (nanos == null) {
+            Arrays.sort(seconds);
+        } else if (!isSorted(seconds, nanos)) {
+            sort(seconds, nanos);
+        }
+        return new TimeList(seconds, nanos);
+    }
+
+    @Override
+    public int size() {
+        return size;
+    }
+
+    /**
+     * Copies the seconds since the epoch and the nano of second of the elements, in order,
+     * without creating {@link LocalDateTime}s.
+     */
+    void copyTo(long[] seconds, int[] nanosOfSecond) {
+        Cursor cursor = new Cursor(0);
+        for (int i = 0; i < size; i++) {
+            long value = cursor.nextValue();
+            seconds[i] = cursor.secondOf(value);
+            nanosOfSecond[i] = cursor.nanoOf(value, i);
+        }
+    }
+
+    @Override
+    public LocalDateTime get(int index) {
+        if (index < 0 || index >= size) {
+            throw new IndexOutOfBoundsException("Index " + index + ", size " + size);
+        }
+        Cursor cursor = new Cursor(index / BLOCK_SIZE);
+        while (cursor.index < index) {
+            cursor.nextValue();
+        }
+        return cursor.next();
+    }
+
+    /**
+     * Returns the index of the first element at or after {@code dateTime}, or {@link #size()}.
+     */
+    public int lowerBound(LocalDateTime dateTime) {
+        return bound(dateTime, false);
+    }
+
+    /**
+     * Returns the index of the first element after {@code dateTime}, or {@link #size()}.
+     */
+    public int upperBound(LocalDateTime dateTime) {
+        return bound(dateTime, true);
+    }
+
+    /**
+     * Returns the elements from {@code from} inclusive to {@code to} exclusive, as a view.
+     */
+    public List<LocalDateTime> range(LocalDateTime from, LocalDateTime to) {
+        int fromIndex = lowerBound(from);
+        return subList(fromIndex, Math.max(fromIndex, lowerBound(to)));
+    }
+
+    /**
+     * Returns the number of elements from {@code from} inclusive to {@code to} exclusive.
+     */
+    public int count(LocalDateTime from, LocalDateTime to) {
+        return Math.max(0, lowerBound(to) - lowerBound(from));
+    }
+
+    /**
+     * Returns a list which also contains {@code dateTime}.
+     */
+    public TimeList plus(LocalDateTime dateTime) {
+        long[] seconds = new long[size + 1];
+        int[] nanoOfSeconds = new int[size + 1];
+        Cursor cursor = new Cursor(0);
+        for (int i = 0; i < size; i++) {
+            long value = cursor.nextValue();
+            seconds[i] = cursor.secondOf(value);
+            nanoOfSeconds[i] = cursor.nanoOf(value, i);
+        }
+        seconds[size] = dateTime.toEpochSecond(ZoneOffset.UTC);
+        nanoOfSeconds[size] = dateTime.getNano();
+        return ofEpochSeconds(seconds, nanoOfSeconds);
+    }
+
+    @Override
+    public boolean contains(Object o) {
+        if (!(o instanceof LocalDateTime)) {
+            return false;
+        }
+        int index = lowerBound((LocalDateTime) o);
+        return index < size && get(index).equals(o);
+    }
+
+    @Override
+    public Iterator<LocalDateTime> iterator() {
+        return new Cursor(0);
+    }
+
+    /**
+     * Returns the number of bytes of the arrays, to compare with the boxed representation.
+     */
+    public long getEncodedBytes() {
+        return blockFirsts.length * 8L + blockOffsets.length * 4L + deltas.length
+                + (nanos == null ? 0 : nanos.length * 4L);
+    }
+
+    private int bound(LocalDateTime dateTime, boolean after) {
+        long second = dateTime.toEpochSecond(ZoneOffset.UTC);
+        int nano = dateTime.getNano();
+        // the last block which starts before the bound
+        int low = 0;
+        int high = blockFirsts.length - 1;
+        int block = -1;
+        Cursor cursor = new Cursor(0);
+        while (low <= high) {
+            int mid = (low + high) >>> 1;
+            if (isBefore(cursor.compare(blockFirsts[mid], mid * BLOCK_SIZE, second, nano), after)) {
+                block = mid;
+                low = mid + 1;
+            } else {
+                high = mid - 1;
+            }
+        }
+        if (block < 0) {
+            return 0;
+        }
+        cursor = new Cursor(block);
+        int end = Math.min(size, (block + 1) * BLOCK_SIZE);
+        for (int i = block * BLOCK_SIZE; i < end; i++) {
+            if (!isBefore(cursor.compare(cursor.nextValue(), i, second, nano), after)) {
+                return i;
+            }
+        }
+        return end;
+    }
+
+    private static boolean isBefore(int comparison, boolean after) {
+        return after ? comparison <= 0 : comparison < 0;
+    }
+
+    private static boolean isSorted(long[] seconds, int[] nanos) {
+        for (int i = 1; i < seconds.length; i++) {
+            if (seconds[i - 1] > seconds[i]
+                    || seconds[i - 1] == seconds[i] && nanos[i - 1] > nanos[i]) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private static void sort(long[] seconds, int[] nanos) {
+        Integer[] order = new Integer[seconds.length];
+        for (int i = 0; i < order.length; i++) {
+            order[i] = i;
+        }
+        Arrays.sort(order, Comparator.<Integer>comparingLong(i -> seconds[i])
+                .thenComparingInt(i -> nanos[i]));
+        long[] sortedSeconds = new long[seconds.length];
+        int[] sortedNanos = new int[nanos.length];
+        for (int i = 0; i < order.length; i++) {
+            sortedSeconds[i] = seconds[order[i]];
+            sortedNanos[i] = nanos[order[i]];
+        }
+        System.arraycopy(sortedSeconds, 0, seconds, 0, seconds.length);
+        System.arraycopy(sortedNanos, 0, nanos, 0, nanos.length);
+    }
+
+    /**
+     * Decodes the elements in order, starting at a block.
+     */
+    private final class Cursor implements Iterator<LocalDateTime> {
+        private int index;
+        private int offset;
+        private long value;
+
+        Cursor(int block) {
+            index = block * BLOCK_SIZE;
+        }
+
+        @Override
+        public boolean hasNext() {
+            return index < size;
+        }
+
+        @Override
+        public LocalDateTime next() {
+            if (!hasNext()) {
+                throw new NoSuchElementException();
+            }
+            int elementIndex = index;
+            long elementValue = nextValue();
+            return LocalDateTime.ofEpochSecond(secondOf(elementValue),
+                    nanoOf(elementValue, elementIndex), ZoneOffset.UTC);
+        }
+
+        long nextValue() {
+            if (index % BLOCK_SIZE == 0) {
+                value = blockFirsts[index / BLOCK_SIZE];
+                offset = blockOffsets[index / BLOCK_SIZE];
+            } else {
+                long delta = 0;
+                int shift = 0;
+                byte b;
+                do {
+                    b = deltas[offset++];
+                    delta |= (long) (b & 0x7F) << shift;
+                    shift += 7;
+                } while (b < 0);
+                value += delta;
+            }
+            index++;
+            return value;
+        }
+
+        long secondOf(long elementValue) {
+            return Math.floorDiv(elementValue, unitsPerSecond);
+        }
+
+        int nanoOf(long elementValue, int elementIndex) {
+            return nanos != null ? nanos[elementIndex]
+                    : (int) Math.floorMod(elementValue, unitsPerSecond)
+                            * (NANOS_PER_SECOND / unitsPerSecond);
+        }
+
+        /**
+         * Compares the element with the value at the index to a date-time.
+         */
+        int compare(long elementValue, int elementIndex, long second, int nano) {
+            int comparison = Long.compare(secondOf(elementValue), second);
+            return comparison != 0 ? comparison
+                    : Integer.compare(nanoOf(elementValue, elementIndex), nano);
+        }
+    }
+}
@@ -20,17 +20,16 @@ import com.calendarfx.model.Calendar;
 import com.calendarfx.model.Calendar.Style;
 import com.calendarfx.model.CalendarSource;
 import com.calendarfx.view.CalendarView;
-import javafx.application.Platform;
+import com.dlsc.workbenchfx.utils.ClockService;
 import javafx.scene.layout.StackPane;
 
-import java.time.LocalDate;
+import java.time.LocalDateTime;
 import java.time.LocalTime;
+import java.util.function.Consumer;
 
 public class NotepadView extends StackPane {
 
-  private Thread updateTimeThread;
-
-  boolean running = false;
+  private final Consumer<LocalDateTime> clockSubscriber;
 
   public NotepadView() {
     CalendarView calendarView = new CalendarView();
@@ -56,36 +55,18 @@ public class NotepadView extends StackPane {
 
     getChildren().addAll(calendarView);
 
-    updateTimeThread = new Thread("Calendar: Update Time Thread") {
-      @Override
-      public void run() {
-        while (running) {
-          Platform.runLater(() -> {
-            calendarView.setToday(LocalDate.now());
-            calendarView.setTime(LocalTime.now());
-          });
-
-          try {
-            sleep(10000);
-          } catch (InterruptedException e) {
-            e.printStackTrace();
-          }
-
-        }
-      }
+    clockSubscriber = now -> {
+      calendarView.setToday(now.toLocalDate());
+      calendarView.setTime(now.toLocalTime());
     };
-
-    updateTimeThread.setPriority(Thread.MIN_PRIORITY);
-    updateTimeThread.setDaemon(true);
-    updateTimeThread.start();
   }
 
   public void start() {
-    running = true;
+    ClockService.getInstance().subscribe(clockSubscriber);
   }
 
   public void stop() {
-    running = false;
+    ClockService.getInstance().unsubscribe(clockSubscriber);
   }
 
 }
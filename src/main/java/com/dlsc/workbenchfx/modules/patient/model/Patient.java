@@ -0,0 +1,127 @@
+package com.dlsc.workbenchfx.modules.patient.model;
+
+
+import com.dlsc.workbenchfx.persistence.CsvImport;
+import com.dlsc.workbenchfx.persistence.CsvRow;
+import org.apache.commons.lang3.builder.ToStringBuilder;
+
+import java.util.List;
+
+import static com.dlsc.workbenchfx.persistence.CsvImport.columnIndex;
+
+
+public class Patient {
+
+    public enum Gender {
+        MALE, FEMALE, UNKNOWN
+    }
+
+    private final int id;
+    private final String firstName;
+    private final String lastName;
+    private final double bloodPressureSystolic;
+    private final double bloodPressureDiastolic;
+    private final double weight;
+    private final double tallness;
+    private final int age;
+    private final Gender gender;
+    private final String imageURL;
+
+    public Patient(int id, String firstName, String lastName,
+                   double bloodPressureSystolic, double bloodPressureDiastolic,
+                   double weight, double tallness, int age, Gender gender, String imageURL) {
+        this.id = id;
+        this.firstName = firstName;
+        this.lastName = lastName;
+        this.bloodPressureSystolic = bloodPressureSystolic;
+        this.bloodPressureDiastolic = bloodPressureDiastolic;
+        this.weight = weight;
+        this.tallness = tallness;
+        this.age = age;
+        this.gender = gender;
+        this.imageURL = imageURL;
+    }
+
+    /**
+     * Creates the mapper for {@code PATIENT.csv} style files from their header line.
+     */
+    public static CsvImport.RowMapper<Patient> csvMapper(List<String> columns) {
+        int id = columnIndex(columns, "id");
+        int firstName = columnIndex(columns, "firstName");
+        int lastName = columnIndex(columns, "lastName");
+        int systolic = columnIndex(columns, "bloodPressureSystolic");
+        int diastolic = columnIndex(columns, "bloodPressureDiastolic");
+        int weight = columnIndex(columns, "weight");
+        int tallness = columnIndex(columns, "tallness");
+        int age = columnIndex(columns, "age");
+        int gender = columnIndex(columns, "gender");
+        int imageURL = columnIndex(columns, "imageURL");
+        return row -> new Patient(
+                row.getInt(id),
+                row.getString(firstName),
+                row.getString(lastName),
+                row.getDouble(systolic),
+                row.getDouble(diastolic),
+                row.getDouble(weight),
+                row.getDouble(tallness),
+                row.getInt(age),
+                genderOf(row, gender),
+                row.getString(imageURL));
+    }
+
+    private static Gender genderOf(CsvRow row, int field) {
+        for (Gender gender : Gender.values()) {
+            if (row.equalsAscii(field, gender.name())) {
+                return gender;
+            }
+        }
+        return Gender.UNKNOWN;
+    }
+
+    public int getId() {
+        return id;
+    }
+    public String getFirstName() {
+        return firstName;
+    }
+    public String getLastName() {
+        return lastName;
+    }
+    public double getBloodPressureSystolic() {
+        return bloodPressureSystolic;
+    }
+    public double getBloodPressureDiastolic() {
+        return bloodPressureDiastolic;
+    }
+    public double getWeight() {
+        return weight;
+    }
+    public double getTallness() {
+        return tallness;
+    }
+    public int getAge() {
+        return age;
+    }
+    public Gender getGender() {
+        return gender;
+    }
+    public String getImageURL() {
+        return imageURL;
+    }
+
+    @Override
+    public String toString() {
+        return new ToStringBuilder(this)
+                .append("id", id)
+                .append("firstName", firstName)
+                .append("lastName", lastName)
+                .append("bloodPressureSystolic", bloodPressureSystolic)
+                .append("bloodPressureDiastolic", bloodPressureDiastolic)
+                .append("weight", weight)
+                .append("tallness", tallness)
+                .append("age", age)
+                .append("gender", gender)
+                .append("imageURL", imageURL)
+                .toString();
+    }
+}
@@ -194,10 +194,10 @@ public class DialogTestModule extends WorkbenchModule implements MapComponentIni
       ).onResult(buttonType -> {
         if (ButtonType.OK.equals(buttonType)) {
           // Do your OK stuff
-          LOGGER.trace("OK pressed: SettingsBox.isSelected() = " + settingsBox.isSelected());
+          LOGGER.trace("OK pressed: SettingsBox.isSelected() = {}", settingsBox.isSelected());
         }
         if (ButtonType.CANCEL.equals(buttonType)) {
-          LOGGER.trace("CANCEL pressed: SettingsBox.isSelected() = " + settingsBox.isSelected());
+          LOGGER.trace("CANCEL pressed: SettingsBox.isSelected() = {}", settingsBox.isSelected());
         }
       }).build();
       dialog.setOnShown(event1 -> {
@@ -1,6 +1,9 @@
 package com.dlsc.workbenchfx.modules.webview;
 
 import com.dlsc.workbenchfx.model.WorkbenchModule;
+import com.dlsc.workbenchfx.modules.Preloadable;
+import com.dlsc.workbenchfx.utils.LatencyHistogram;
+import com.dlsc.workbenchfx.utils.Metrics;
 import com.dlsc.workbenchfx.view.controls.ToolbarItem;
 import com.google.common.base.Strings;
 import de.jensd.fx.glyphs.materialdesignicons.MaterialDesignIcon;
@@ -17,7 +20,7 @@ import javafx.scene.web.WebEngine;
 import javafx.scene.web.WebView;
 import org.w3c.dom.Document;
 
-public class WebModule extends WorkbenchModule {
+public class WebModule extends WorkbenchModule implements Preloadable {
 
   // Custom icons as SVG
   private final SVGPath decreaseFontIcon = new SVGPath();
@@ -31,17 +34,16 @@ public class WebModule extends WorkbenchModule {
 
   private static final double FONT_SCALE_INCREMENT = 0.1;
   private final String url;
-  private final WebView browser;
   private final TextField browserUrl;
-  private final WebEngine webEngine;
+  private final LatencyHistogram activationTime;
+  // created on first use, starting WebKit is expensive
+  private WebView browser;
+  private WebEngine webEngine;
 
   public WebModule(String name, MaterialDesignIcon icon, String url) {
     super(name, icon);
     this.url = url;
-
-    // setup webview
-    browser = new WebView();
-    webEngine = browser.getEngine();
+    activationTime = Metrics.histogram("module.activate." + name);
 
     // workaround since HTTP headers related to CORS, are restricted, see: https://bugs.openjdk.java.net/browse/JDK-8096797
     System.setProperty("sun.net.http.allowRestrictedHeaders", "true");
@@ -54,36 +56,57 @@ public class WebModule extends WorkbenchModule {
 
     // setup toolbar
     ToolbarItem back = new ToolbarItem(new MaterialDesignIconView(MaterialDesignIcon.CHEVRON_LEFT),
-        event -> webEngine.executeScript("history.back()"));
+        event -> getWebEngine().executeScript("history.back()"));
     ToolbarItem forward = new ToolbarItem(new MaterialDesignIconView(MaterialDesignIcon.CHEVRON_RIGHT),
-        event -> webEngine.executeScript("history.forward()"));
+        event -> getWebEngine().executeScript("history.forward()"));
     ToolbarItem home = new ToolbarItem(new MaterialDesignIconView(MaterialDesignIcon.HOME),
-        event -> webEngine.load(url));
+        event -> getWebEngine().load(url));
     ToolbarItem reload = new ToolbarItem(new MaterialDesignIconView(MaterialDesignIcon.REFRESH),
-        event -> webEngine.reload());
+        event -> getWebEngine().reload());
     getToolbarControlsLeft().addAll(back, forward, home, reload, new ToolbarItem(browserUrl));
 
     ToolbarItem increaseSize = new ToolbarItem(new Group(increaseFontIcon),
-        event -> browser.setFontScale(browser.getFontScale() + FONT_SCALE_INCREMENT));
+        event -> getBrowser().setFontScale(getBrowser().getFontScale() + FONT_SCALE_INCREMENT));
     ToolbarItem decreaseSize = new ToolbarItem(new Group(decreaseFontIcon),
-        event -> browser.setFontScale(browser.getFontScale() - FONT_SCALE_INCREMENT));
+        event -> getBrowser().setFontScale(getBrowser().getFontScale() - FONT_SCALE_INCREMENT));
     getToolbarControlsRight().addAll(increaseSize, decreaseSize);
+  }
 
-    // update textfield with url every time the url of the webview changes
-    webEngine.documentProperty().addListener(
-        observable -> {
-          Document document = webEngine.getDocument();
-          if (!Objects.isNull(document) &&
-              !Strings.isNullOrEmpty(document.getDocumentURI())) {
-            browserUrl.setText(document.getDocumentURI());
-          }
-        });
+  @Override
+  public void preload() {
+    getBrowser();
   }
 
   @Override
   public Node activate() {
-    Platform.runLater(() -> webEngine.load(url));
+    long start = System.nanoTime();
+    WebView view = getBrowser();
+    activationTime.recordSince(start);
+    Platform.runLater(() -> getWebEngine().load(url));
+    return view;
+  }
+
+  private WebView getBrowser() {
+    if (Objects.isNull(browser)) {
+      browser = new WebView();
+      webEngine = browser.getEngine();
+
+      // update textfield with url every time the url of the webview changes
+      webEngine.documentProperty().addListener(
+          observable -> {
+            Document document = webEngine.getDocument();
+            if (!Objects.isNull(document) &&
+                !Strings.isNullOrEmpty(document.getDocumentURI())) {
+              browserUrl.setText(document.getDocumentURI());
+            }
+          });
+    }
     return browser;
   }
 
+  private WebEngine getWebEngine() {
+    getBrowser();
+    return webEngine;
+  }
+
 }
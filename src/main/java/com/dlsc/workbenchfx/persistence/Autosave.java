@@ -0,0 +1,270 @@
+package com.dlsc.workbenchfx.persistence;
+
+import com.calendarfx.model.Calendar;
+import com.calendarfx.model.CalendarEvent;
+import com.calendarfx.model.Entry;
+import com.dlsc.workbenchfx.modules.calendar.CalendarUpdateDispatcher;
+import com.dlsc.workbenchfx.modules.calendar.RecurrenceEngine;
+import com.dlsc.workbenchfx.modules.dashboard.model.TaskDTOModel;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import javafx.application.Platform;
+import javafx.collections.ListChangeListener;
+import javafx.collections.ObservableList;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+
+/**
+ * Saves changed tasks and calendar entries to a {@link LocalStore} as they happen, so a crash
+ * or closing the app loses nothing.
+ *
+ * <p>Changes are collected on the FX thread and handed to {@link LocalStore#saveChanges} once
+ * per pulse. Only the changed records are encoded there, the store writes and fsyncs them in
+ * group commits on its writer thread. Tasks have no change events, edits of their fields are
+ * reported through {@link #taskChanged}. Batch updates of a calendar fire no entry events, the
+ * {@link CalendarUpdateDispatcher} reports the entries its batches added and removed, batches
+ * which only changed occurrences are ignored. After a batch update from elsewhere all entries
+ * are saved again, the store skips the ones whose bytes did not change. Recurring entries are
+ * kept by the {@link RecurrenceEngine}, which reports their changes.
+ *
+ * <p>Has to be used on the FX thread.
+ */
+public class Autosave {
+
+  private static final Logger LOGGER = LogManager.getLogger(Autosave.class.getName());
+
+  private final LocalStore store;
+  private final Collection<Calendar> calendars;
+  private final CalendarUpdateDispatcher dispatcher;
+  private final RecurrenceEngine recurrenceEngine;
+  // null values are removals
+  private final Map<String, TaskDTOModel> changedTasks = new LinkedHashMap<>();
+  private final Map<String, Entry<?>> changedEntries = new LinkedHashMap<>();
+  private final Map<String, EntryRecord> changedRecurringEntries = new LinkedHashMap<>();
+  private final Set<String> savedEntryIds = new HashSet<>();
+  private boolean rescanEntries;
+  private boolean flushScheduled;
+  private boolean saving = true;
+
+  /**
+   * @param dispatcher which applies the batch updates of the calendars
+   * @param recurrenceEngine keeps the recurring entries, which are expanded into occurrences
+   *     instead of being kept in a calendar
+   */
+  public Autosave(LocalStore store, ObservableList<TaskDTOModel> tasks,
+                  Collection<Calendar> calendars, CalendarUpdateDispatcher dispatcher,
+                  RecurrenceEngine recurrenceEngine) {
+    this.store = store;
+    this.calendars = calendars;
+    this.dispatcher = dispatcher;
+    this.recurrenceEngine = recurrenceEngine;
+    tasks.addListener((ListChangeListener<TaskDTOModel>) this::tasksChanged);
+    for (Calendar calendar : calendars) {
+      calendar.addEventHandler(this::calendarChanged);
+    }
+    dispatcher.addBatchListener(this::batchApplied);
+    recurrenceEngine.addSourceListener(this::recurringEntriesChanged);
+  }
+
+  /**
+   * Saves a task whose fields were changed.
+   */
+  public void taskChanged(TaskDTOModel task) {
+    if (saving && task.getUuid() != null) {
+      changedTasks.put(task.getUuid(), task);
+      scheduleFlush();
+    }
+  }
+
+  /**
+   * Applies changes which are not saved, e.g. showing data which was loaded from the store.
+   * Task and recurring entry changes which were not saved yet are dropped.
+   */
+  public void runUnsaved(Runnable change) {
+    boolean wasSaving = saving;
+    saving = false;
+    try {
+      change.run();
+    } finally {
+      saving = wasSaving;
+    }
+    changedTasks.clear();
+    changedRecurringEntries.clear();
+  }
+
+  /**
+   * Hands all collected changes to the store right away.
+   *
+   * @return completes when the changes have been forced to the storage device
+   */
+  public CompletableFuture<Integer> flush() {
+    flushScheduled = false;
+    if (!store.isOpen()) {
+      return store.whenOpen().thenComposeAsync(ignored -> flush(), Platform::runLater);
+    }
+    List<TaskDTOModel> tasks = new ArrayList<>();
+    Set<String> removedTasks = new HashSet<>();
+    for (Map.Entry<String, TaskDTOModel> change : changedTasks.entrySet()) {
+      if (change.getValue() == null) {
+        removedTasks.add(change.getKey());
+      } else {
+        tasks.add(change.getValue());
+      }
+    }
+    changedTasks.clear();
+    Map<String, EntryRecord> entries = new LinkedHashMap<>();
+    Set<String> removedEntries = new HashSet<>();
+    if (rescanEntries) {
+      rescanEntries = false;
+      changedEntries.clear();
+      for (Calendar calendar : calendars) {
+        for (Entry<?> entry : calendar.findEntries("")) {
+          if (isSaved(entry)) {
+            entries.put(entry.getId(), EntryRecord.of(entry));
+          }
+        }
+      }
+      changedRecurringEntries.clear();
+      for (EntryRecord entry : recurrenceEngine.getSources()) {
+        entries.put(entry.getId(), entry);
+      }
+      removedEntries.addAll(savedEntryIds);
+      removedEntries.removeAll(entries.keySet());
+      savedEntryIds.clear();
+    } else {
+      for (Map.Entry<String, Entry<?>> change : changedEntries.entrySet()) {
+        if (change.getValue() == null) {
+          removedEntries.add(change.getKey());
+        } else {
+          entries.put(change.getKey(), EntryRecord.of(change.getValue()));
+        }
+      }
+      changedEntries.clear();
+      for (Map.Entry<String, EntryRecord> change : changedRecurringEntries.entrySet()) {
+        if (change.getValue() == null) {
+          removedEntries.add(change.getKey());
+        } else {
+          entries.put(change.getKey(), change.getValue());
+        }
+      }
+      changedRecurringEntries.clear();
+      savedEntryIds.removeAll(removedEntries);
+    }
+    savedEntryIds.addAll(entries.keySet());
+    if (tasks.isEmpty() && removedTasks.isEmpty() && entries.isEmpty()
+        && removedEntries.isEmpty()) {
+      return CompletableFuture.completedFuture(0);
+    }
+    return store.saveChanges(tasks, removedTasks, entries.values(), removedEntries)
+        .whenComplete((written, ex) -> {
+          if (ex != null) {
+            LOGGER.error("Autosave failed", ex);
+          }
+        });
+  }
+
+  private void tasksChanged(ListChangeListener.Change<? extends TaskDTOModel> change) {
+    if (!saving) {
+      return;
+    }
+    while (change.next()) {
+      for (TaskDTOModel task : change.getRemoved()) {
+        if (task.getUuid() != null) {
+          changedTasks.put(task.getUuid(), null);
+        }
+      }
+      for (TaskDTOModel task : change.getAddedSubList()) {
+        if (task.getUuid() != null) {
+          changedTasks.put(task.getUuid(), task);
+        }
+      }
+    }
+    scheduleFlush();
+  }
+
+  private void calendarChanged(CalendarEvent event) {
+    if (event.getEventType() == CalendarEvent.CALENDAR_CHANGED) {
+      // fired instead of the entry events after batch updates, the ones of the dispatcher were
+      // reported to batchApplied
+      if (dispatcher.isApplying(event.getCalendar())) {
+        return;
+      }
+      rescanEntries = true;
+    } else {
+      Entry<?> entry = event.getEntry();
+      if (entry == null || !isSaved(entry)) {
+        return;
+      }
+      entryChanged(entry.getId(), calendars.contains(entry.getCalendar()) ? entry : null);
+    }
+    scheduleFlush();
+  }
+
+  private void batchApplied(Calendar calendar, Collection<Entry<?>> removed,
+                            Collection<Entry<?>> added) {
+    if (!calendars.contains(calendar)) {
+      return;
+    }
+    boolean changed = false;
+    for (Entry<?> entry : removed) {
+      // skips occurrences, entries which were not in the calendar and, when data is loaded,
+      // entries whose replacement was already added to another calendar
+      Entry<?> current = changedEntries.get(entry.getId());
+      if (isSaved(entry) && !calendars.contains(entry.getCalendar())
+          && (current == null || !calendars.contains(current.getCalendar()))) {
+        entryChanged(entry.getId(), null);
+        changed = true;
+      }
+    }
+    for (Entry<?> entry : added) {
+      if (isSaved(entry)) {
+        entryChanged(entry.getId(), calendars.contains(entry.getCalendar()) ? entry : null);
+        changed = true;
+      }
+    }
+    if (changed) {
+      scheduleFlush();
+    }
+  }
+
+  /**
+   * Records a change of an entry kept in a calendar, null for a removal.
+   */
+  private void entryChanged(String id, Entry<?> entry) {
+    // the entry is no longer recurring
+    changedRecurringEntries.remove(id);
+    changedEntries.put(id, entry);
+  }
+
+  private void recurringEntriesChanged(Collection<EntryRecord> changed,
+                                       Collection<String> removedIds) {
+    if (!saving) {
+      return;
+    }
+    for (String id : removedIds) {
+      changedRecurringEntries.put(id, null);
+    }
+    for (EntryRecord entry : changed) {
+      changedEntries.remove(entry.getId());
+      changedRecurringEntries.put(entry.getId(), entry);
+    }
+    scheduleFlush();
+  }
+
+  private static boolean isSaved(Entry<?> entry) {
+    return !entry.isRecurrence() && !(entry instanceof RecurrenceEngine.Occurrence);
+  }
+
+  private void scheduleFlush() {
+    if (!flushScheduled) {
+      flushScheduled = true;
+      Platform.runLater(this::flush);
+    }
+  }
+}
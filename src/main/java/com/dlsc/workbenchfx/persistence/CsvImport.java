@@ -0,0 +1,267 @@
+package com.dlsc.workbenchfx.persistence;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Consumer;
+import java.util.function.Function;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+
+/**
+ * Streaming import of large delimited text files with a header line.
+ *
+ * <p>The file is memory-mapped window by window, so it is never read into the heap as a whole.
+ * A reader thread cuts each window into batches of lines, the batches are mapped to model objects
+ * in parallel and handed to the consumer in file order on its executor, usually
+ * {@code Platform::runLater}. At most {@link #MAX_BATCHES_IN_FLIGHT} batches are read ahead: the
+ * reader waits while the consumer is behind, so a slow UI slows the import down instead of
+ * filling the heap.
+ *
+ * @param <T> type of the model objects
+ */
+public class CsvImport<T> {
+
+  private static final Logger LOGGER = LogManager.getLogger(CsvImport.class.getName());
+
+  /**
+   * Maps one row to a model object, called concurrently for different batches.
+   */
+  @FunctionalInterface
+  public interface RowMapper<T> {
+    T map(CsvRow row);
+  }
+
+  static final int BATCH_LINES = 4096;
+  static final int MAX_BATCHES_IN_FLIGHT = 8;
+  static final int WINDOW_SIZE = 64 * 1024 * 1024;
+
+  @SuppressWarnings("rawtypes")
+  private static final List END_OF_FILE = Collections.emptyList();
+
+  private static final ThreadFactory THREAD_FACTORY = new ThreadFactory() {
+    private final AtomicInteger count = new AtomicInteger();
+
+    @Override
+    public Thread newThread(Runnable runnable) {
+      Thread thread = new Thread(runnable, "CsvImport: Worker Thread " + count.incrementAndGet());
+      thread.setDaemon(true);
+      return thread;
+    }
+  };
+
+  private final Path file;
+  private final byte delimiter;
+  private final Function<List<String>, RowMapper<T>> mapperFactory;
+  private final int windowSize;
+
+  /**
+   * Creates an import.
+   *
+   * @param file the file to read, UTF-8 encoded
+   * @param delimiter the field delimiter, e.g. {@code ';'}
+   * @param mapperFactory creates the mapper from the column names of the header line, so the
+   *                      mapper can look up its column indices once
+   */
+  public CsvImport(Path file, char delimiter, Function<List<String>, RowMapper<T>> mapperFactory) {
+    this(file, delimiter, mapperFactory, WINDOW_SIZE);
+  }
+
+  CsvImport(Path file, char delimiter, Function<List<String>, RowMapper<T>> mapperFactory,
+            int windowSize) {
+    if (delimiter > 127) {
+      throw new IllegalArgumentException("Only ASCII delimiters are supported: " + delimiter);
+    }
+    this.file = file;
+    this.delimiter = (byte) delimiter;
+    this.mapperFactory = mapperFactory;
+    this.windowSize = windowSize;
+  }
+
+  /**
+   * Starts the import in the background.
+   *
+   * @param consumer receives the mapped batches in file order
+   * @param consumerExecutor runs the consumer, e.g. {@code Platform::runLater}
+   * @return the number of imported rows, completes after the consumer received the last batch
+   */
+  public CompletableFuture<Long> start(Consumer<List<T>> consumer, Executor consumerExecutor) {
+    int workers = Math.max(1, Runtime.getRuntime().availableProcessors() - 1);
+    ExecutorService executor = Executors.newFixedThreadPool(workers + 2, THREAD_FACTORY);
+    BlockingQueue<CompletableFuture<List<T>>> batches =
+        new ArrayBlockingQueue<>(MAX_BATCHES_IN_FLIGHT);
+
+    CompletableFuture<Void> reading = CompletableFuture.runAsync(() -> {
+      try {
+        read(batches, executor);
+      } catch (IOException ex) {
+        throw new UncheckedIOException(ex);
+      } catch (InterruptedException ex) {
+        Thread.currentThread().interrupt();
+        throw new CompletionException(ex);
+      }
+    }, executor);
+
+    CompletableFuture<Long> delivering = CompletableFuture.supplyAsync(() -> {
+      long rows = 0;
+      try {
+        while (true) {
+          CompletableFuture<List<T>> next = batches.take();
+          List<T> batch = next.join();
+          if (batch == END_OF_FILE) {
+            return rows;
+          }
+          // wait for the consumer, this is what holds the reader back
+          CompletableFuture.runAsync(() -> consumer.accept(batch), consumerExecutor).join();
+          rows += batch.size();
+        }
+      } catch (InterruptedException ex) {
+        Thread.currentThread().interrupt();
+        throw new CompletionException(ex);
+      }
+    }, executor);
+
+    reading.whenComplete((result, ex) -> {
+      if (ex != null) {
+        // unblocks the delivering thread
+        CompletableFuture<List<T>> failed = new CompletableFuture<>();
+        failed.completeExceptionally(ex);
+        batches.clear();
+        batches.offer(failed);
+      }
+    });
+    return delivering.whenComplete((rows, ex) -> {
+      executor.shutdownNow();
+      if (ex != null) {
+        LOGGER.error("Import of " + file + " failed", ex);
+      } else {
+        LOGGER.info("Imported " + rows + " rows from " + file);
+      }
+    });
+  }
+
+  @SuppressWarnings("unchecked")
+  private void read(BlockingQueue<CompletableFuture<List<T>>> batches, Executor executor)
+      throws IOException, InterruptedException {
+    try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+      long size = channel.size();
+      long windowStart = 0;
+      RowMapper<T> mapper = null;
+      while (windowStart < size) {
+        int length = (int) Math.min(windowSize, size - windowStart);
+        ByteBuffer window = channel.map(FileChannel.MapMode.READ_ONLY, windowStart, length);
+        boolean lastWindow = windowStart + length == size;
+        int start = 0;
+        if (mapper == null) {
+          int headerEnd = lineEnd(window, 0, length);
+          if (headerEnd == length && !lastWindow) {
+            throw new IOException("Header line of " + file + " is longer than the window");
+          }
+          mapper = mapperFactory.apply(parseHeader(window, headerEnd));
+          start = Math.min(length, headerEnd + 1);
+        }
+        int end = start;
+        int lines = 0;
+        while (end < length) {
+          int next = lineEnd(window, end, length);
+          if (next == length && !lastWindow) {
+            // incomplete line, read again with the next window
+            break;
+          }
+          lines++;
+          end = Math.min(length, next + 1);
+          if (lines == BATCH_LINES || end == length) {
+            batches.put(mapAsync(mapper, window, windowStart, start, end, executor));
+            start = end;
+            lines = 0;
+          }
+        }
+        if (start != end) {
+          batches.put(mapAsync(mapper, window, windowStart, start, end, executor));
+        }
+        if (end == 0) {
+          throw new IOException("Line at byte " + windowStart + " of " + file
+              + " is longer than the window");
+        }
+        windowStart += end;
+      }
+    }
+    batches.put(CompletableFuture.completedFuture((List<T>) END_OF_FILE));
+  }
+
+  private CompletableFuture<List<T>> mapAsync(RowMapper<T> mapper, ByteBuffer window,
+                                             long windowStart, int start, int end,
+                                             Executor executor) {
+    return CompletableFuture.supplyAsync(() -> {
+      CsvRow row = new CsvRow(delimiter);
+      List<T> result = new ArrayList<>(BATCH_LINES);
+      int lineStart = start;
+      while (lineStart < end) {
+        int lineEnd = lineEnd(window, lineStart, end);
+        if (lineEnd > lineStart && !(lineEnd == lineStart + 1 && window.get(lineStart) == '\r')) {
+          row.reset(window, windowStart, lineStart, lineEnd);
+          result.add(mapper.map(row));
+        }
+        lineStart = lineEnd + 1;
+      }
+      return result;
+    }, executor);
+  }
+
+  private List<String> parseHeader(ByteBuffer window, int headerEnd) {
+    CsvRow header = new CsvRow(delimiter);
+    int start = 0;
+    if (headerEnd >= 3 && (window.get(0) & 0xFF) == 0xEF && (window.get(1) & 0xFF) == 0xBB
+        && (window.get(2) & 0xFF) == 0xBF) {
+      // UTF-8 byte order mark
+      start = 3;
+    }
+    header.reset(window, 0, start, headerEnd);
+    List<String> columns = new ArrayList<>(header.getFieldCount());
+    for (int i = 0; i < header.getFieldCount(); i++) {
+      String column = header.getString(i);
+      columns.add(column == null ? "" : column.trim());
+    }
+    return columns;
+  }
+
+  /**
+   * Returns the index of the next line feed at or after {@code from}, or {@code limit}.
+   */
+  private static int lineEnd(ByteBuffer buffer, int from, int limit) {
+    for (int i = from; i < limit; i++) {
+      if (buffer.get(i) == '\n') {
+        return i;
+      }
+    }
+    return limit;
+  }
+
+  /**
+   * Returns the index of a column, for use in mapper factories.
+   *
+   * @throws IllegalArgumentException if the header has no such column
+   */
+  public static int columnIndex(List<String> columns, String name) {
+    int index = columns.indexOf(name);
+    if (index < 0) {
+      throw new IllegalArgumentException("Column '" + name + "' missing in " + columns);
+    }
+    return index;
+  }
+}
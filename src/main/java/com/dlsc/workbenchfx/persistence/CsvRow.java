@@ -0,0 +1,214 @@
+package com.dlsc.workbenchfx.persistence;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+
+/**
+ * One line of a delimited text file, read directly from a {@link ByteBuffer}.
+ *
+ * <p>The row only remembers where its fields start and end, numbers are parsed straight from
+ * the bytes and only {@link #getString(int)} creates a String. Quoting is not supported, fields
+ * must not contain the delimiter or line breaks. A row is reused for every line of a batch, so it
+ * must not be kept by the mapper.
+ */
+public final class CsvRow {
+
+  private static final double[] POWERS_OF_TEN = {
+      1e0, 1e1, 1e2, 1e3, 1e4, 1e5, 1e6, 1e7, 1e8, 1e9, 1e10, 1e11,
+      1e12, 1e13, 1e14, 1e15, 1e16, 1e17, 1e18, 1e19, 1e20, 1e21, 1e22};
+  // mantissas up to 2^53 and powers up to 10^22 are exact doubles, so one division rounds right
+  private static final long MAX_EXACT_MANTISSA = 1L << 53;
+
+  private final byte delimiter;
+  private ByteBuffer buffer;
+  private long position;
+  private int[] starts = new int[16];
+  private int[] ends = new int[16];
+  private int fieldCount;
+  private byte[] scratch = new byte[64];
+
+  CsvRow(byte delimiter) {
+    this.delimiter = delimiter;
+  }
+
+  /**
+   * Splits the line {@code [start, end)} of the buffer into fields.
+   */
+  void reset(ByteBuffer buffer, long bufferPosition, int start, int end) {
+    this.buffer = buffer;
+    this.position = bufferPosition + start;
+    if (end > start && buffer.get(end - 1) == '\r') {
+      end--;
+    }
+    fieldCount = 0;
+    int fieldStart = start;
+    for (int i = start; i <= end; i++) {
+      if (i == end || buffer.get(i) == delimiter) {
+        if (fieldCount == starts.length) {
+          starts = Arrays.copyOf(starts, fieldCount * 2);
+          ends = Arrays.copyOf(ends, fieldCount * 2);
+        }
+        starts[fieldCount] = fieldStart;
+        ends[fieldCount] = i;
+        fieldCount++;
+        fieldStart = i + 1;
+      }
+    }
+  }
+
+  public int getFieldCount() {
+    return fieldCount;
+  }
+
+  /**
+   * Returns the offset of the row in the file, used in error messages.
+   */
+  public long getPosition() {
+    return position;
+  }
+
+  public boolean isEmpty(int field) {
+    return field >= fieldCount || starts[field] == ends[field];
+  }
+
+  /**
+   * Decodes a field as UTF-8, empty or missing fields are {@code null}.
+   */
+  public String getString(int field) {
+    if (isEmpty(field)) {
+      return null;
+    }
+    int length = ends[field] - starts[field];
+    if (scratch.length < length) {
+      scratch = new byte[Math.max(length, scratch.length * 2)];
+    }
+    for (int i = 0; i < length; i++) {
+      scratch[i] = buffer.get(starts[field] + i);
+    }
+    return new String(scratch, 0, length, StandardCharsets.UTF_8);
+  }
+
+  public int getInt(int field) {
+    long value = getLong(field);
+    if (value < Integer.MIN_VALUE || value > Integer.MAX_VALUE) {
+      throw error(field, "int out of range");
+    }
+    return (int) value;
+  }
+
+  public long getLong(int field) {
+    checkField(field);
+    int i = starts[field];
+    int end = ends[field];
+    boolean negative = buffer.get(i) == '-';
+    if (negative || buffer.get(i) == '+') {
+      i++;
+    }
+    if (i == end) {
+      throw error(field, "number expected");
+    }
+    long value = 0;
+    for (; i < end; i++) {
+      int digit = buffer.get(i) - '0';
+      if (digit < 0 || digit > 9) {
+        throw error(field, "digit expected");
+      }
+      if (value > (Long.MAX_VALUE - digit) / 10) {
+        throw error(field, "long out of range");
+      }
+      value = value * 10 + digit;
+    }
+    return negative ? -value : value;
+  }
+
+  /**
+   * Parses a decimal number like {@code -12.5} or {@code 1.2e3}. Numbers with more than 15
+   * significant digits or large exponents fall back to {@link Double#parseDouble(String)}.
+   */
+  public double getDouble(int field) {
+    checkField(field);
+    int i = starts[field];
+    int end = ends[field];
+    boolean negative = buffer.get(i) == '-';
+    if (negative || buffer.get(i) == '+') {
+      i++;
+    }
+    long mantissa = 0;
+    int digits = 0;
+    int scale = 0;
+    boolean fraction = false;
+    boolean exact = true;
+    for (; i < end; i++) {
+      byte b = buffer.get(i);
+      if (b >= '0' && b <= '9') {
+        if (mantissa < MAX_EXACT_MANTISSA / 10) {
+          mantissa = mantissa * 10 + (b - '0');
+          if (fraction) {
+            scale--;
+          }
+        } else {
+          exact = false;
+        }
+        digits++;
+      } else if (b == '.' && !fraction) {
+        fraction = true;
+      } else if (b == 'e' || b == 'E') {
+        break;
+      } else {
+        throw error(field, "number expected");
+      }
+    }
+    if (digits == 0) {
+      throw error(field, "number expected");
+    }
+    if (i < end) {
+      i++;
+      boolean negativeExponent = i < end && buffer.get(i) == '-';
+      if (negativeExponent || (i < end && buffer.get(i) == '+')) {
+        i++;
+      }
+      int exponent = 0;
+      for (; i < end; i++) {
+        int digit = buffer.get(i) - '0';
+        if (digit < 0 || digit > 9 || exponent > 10000) {
+          throw error(field, "exponent expected");
+        }
+        exponent = exponent * 10 + digit;
+      }
+      scale += negativeExponent ? -exponent : exponent;
+    }
+    if (!exact || Math.abs(scale) >= POWERS_OF_TEN.length) {
+      return Double.parseDouble(getString(field));
+    }
+    double value = scale < 0
+        ? mantissa / POWERS_OF_TEN[-scale] : mantissa * POWERS_OF_TEN[scale];
+    return negative ? -value : value;
+  }
+
+  /**
+   * Compares a field with a constant without decoding it, e.g. for enum columns.
+   */
+  public boolean equalsAscii(int field, String value) {
+    if (field >= fieldCount || ends[field] - starts[field] != value.length()) {
+      return false;
+    }
+    for (int i = 0; i < value.length(); i++) {
+      if (buffer.get(starts[field] + i) != value.charAt(i)) {
+        return false;
+      }
+    }
+    return true;
+  }
+
+  private void checkField(int field) {
+    if (isEmpty(field)) {
+      throw error(field, "value expected");
+    }
+  }
+
+  private IllegalArgumentException error(int field, String message) {
+    return new IllegalArgumentException(
+        "Invalid CSV row at byte " + position + ", field " + field + ": " + message);
+  }
+}
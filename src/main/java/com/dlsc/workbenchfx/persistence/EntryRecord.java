@@ -0,0 +1,115 @@
+package com.dlsc.workbenchfx.persistence;
+
+import com.calendarfx.model.Calendar;
+import com.calendarfx.model.Entry;
+import com.calendarfx.model.Interval;
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.util.Objects;
+import org.apache.commons.lang3.builder.ToStringBuilder;
+
+/**
+ * Immutable copy of a calendar {@link Entry}, so entries can be persisted off the FX thread.
+ */
+public final class EntryRecord {
+
+  private final String id;
+  private final String calendarName;
+  private final String title;
+  private final String location;
+  private final LocalDateTime startDateTime;
+  private final LocalDateTime endDateTime;
+  private final String zoneId;
+  private final boolean fullDay;
+  private final String recurrenceRule;
+
+  public EntryRecord(String id, String calendarName, String title, String location,
+                     LocalDateTime startDateTime, LocalDateTime endDateTime, String zoneId,
+                     boolean fullDay, String recurrenceRule) {
+    this.id = Objects.requireNonNull(id);
+    this.calendarName = calendarName;
+    this.title = title;
+    this.location = location;
+    this.startDateTime = startDateTime;
+    this.endDateTime = endDateTime;
+    this.zoneId = zoneId;
+    this.fullDay = fullDay;
+    this.recurrenceRule = recurrenceRule;
+  }
+
+  /**
+   * Copies the state of an entry, has to be called on the FX thread.
+   *
+   * @param entry to copy
+   * @return the record
+   */
+  public static EntryRecord of(Entry<?> entry) {
+    Interval interval = entry.getInterval();
+    Calendar calendar = entry.getCalendar();
+    return new EntryRecord(entry.getId(),
+        calendar == null ? null : calendar.getName(),
+        entry.getTitle(),
+        entry.getLocation(),
+        interval.getStartDateTime(),
+        interval.getEndDateTime(),
+        interval.getZoneId().getId(),
+        entry.isFullDay(),
+        entry.getRecurrenceRule());
+  }
+
+  /**
+   * Creates a new entry with the state of this record.
+   *
+   * @return the entry, not yet added to a calendar
+   */
+  public Entry<String> toEntry() {
+    Entry<String> entry = new Entry<>(title,
+        new Interval(startDateTime, endDateTime, ZoneId.of(zoneId)), id);
+    entry.setLocation(location);
+    entry.setFullDay(fullDay);
+    if (recurrenceRule != null && !recurrenceRule.isEmpty()) {
+      entry.setRecurrenceRule(recurrenceRule);
+    }
+    return entry;
+  }
+
+  public String getId() {
+    return id;
+  }
+  public String getCalendarName() {
+    return calendarName;
+  }
+  public String getTitle() {
+    return title;
+  }
+  public String getLocation() {
+    return location;
+  }
+  public LocalDateTime getStartDateTime() {
+    return startDateTime;
+  }
+  public LocalDateTime getEndDateTime() {
+    return endDateTime;
+  }
+  public String getZoneId() {
+    return zoneId;
+  }
+  public boolean isFullDay() {
+    return fullDay;
+  }
+  public String getRecurrenceRule() {
+    return recurrenceRule;
+  }
+
+  @Override
+  public String toString() {
+    return new ToStringBuilder(this)
+        .append("id", id)
+        .append("calendarName", calendarName)
+        .append("title", title)
+        .append("startDateTime", startDateTime)
+        .append("endDateTime", endDateTime)
+        .append("recurrenceRule", recurrenceRule)
+        .toString();
+  }
+}
@@ -0,0 +1,645 @@
+package com.dlsc.workbenchfx.persistence;
+
+import com.dlsc.workbenchfx.modules.dashboard.model.TaskDTOModel;
+import com.dlsc.workbenchfx.modules.dashboard.model.TaskFactory;
+import com.dlsc.workbenchfx.modules.dashboard.model.TaskStore;
+import com.dlsc.workbenchfx.utils.LatencyHistogram;
+import com.dlsc.workbenchfx.utils.Metrics;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.Closeable;
+import java.io.DataInput;
+import java.io.DataInputStream;
+import java.io.DataOutput;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.time.LocalDateTime;
+import java.time.ZoneOffset;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.stream.IntStream;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+
+/**
+ * Local persistence engine for tasks and calendar entries.
+ *
+ * <p>Changes are appended to a {@link TaskJournal}, the live records are periodically compacted
+ * into a snapshot file (which uses the journal format, but only contains puts). Loading replays
+ * the snapshot and then the journal.
+ *
+ * <p>{@link #save} encodes all records on a single background writer thread, which also runs
+ * diffing, journal writes, fsync and compaction, so the FX thread never waits for the store.
+ * {@link #saveChanges} encodes its few changed records on the calling thread instead, so the
+ * live objects are never read from another thread. Only records whose bytes changed since the
+ * last save are written.
+ *
+ * <p>{@link #saveChanges} takes single changed records, e.g. from {@link Autosave}. Changes
+ * arriving within {@link #GROUP_COMMIT_MILLIS} are written as one group with one fsync, and only
+ * the latest bytes of a record are written. After a group commit the store is compacted as soon
+ * as the journal holds more records than are live, which keeps the replay after a crash short.
+ */
+public class LocalStore implements Closeable {
+
+  private static final Logger LOGGER = LogManager.getLogger(LocalStore.class.getName());
+
+  static final String JOURNAL_FILE = "fixit.journal";
+  static final String SNAPSHOT_FILE = "fixit.snapshot";
+  static final String REPLICA_FILE = "replica.id";
+
+  static final byte TASK_PUT = 1;
+  static final byte TASK_REMOVE = 2;
+  static final byte ENTRY_PUT = 3;
+  static final byte ENTRY_REMOVE = 4;
+  static final byte DICTIONARY_PUT = 5;
+
+  static final long GROUP_COMMIT_MILLIS = 50;
+
+  private static final long COMPACTION_PERIOD_MINUTES = 5;
+  private static final int MIN_COMPACTION_RECORDS = 1024;
+  private static final int DECODE_BATCH = 1024;
+  private static final int MIN_DECODE_CHUNK = 10_000;
+
+  private final Path directory;
+  private final ScheduledExecutorService writer;
+  private final LatencyHistogram flushTime = Metrics.histogram("store.flush");
+  private final LongAdder recordsWritten = Metrics.counter("store.records.written");
+  private final LatencyHistogram groupCommitTime = Metrics.histogram("store.group.commit");
+  private final LatencyHistogram recoveryTime = Metrics.histogram("store.recovery");
+  private final StringDictionary dictionary = new StringDictionary();
+  private final CompletableFuture<Void> opened;
+
+  // confined to the writer thread
+  private final TaskRecordMap taskRecords = new TaskRecordMap();
+  private final Map<String, byte[]> entryRecords = new LinkedHashMap<>();
+  private int journaledDictionarySize;
+  private TaskJournal journal;
+
+  // guarded by this, handed to the writer thread as a whole
+  private PendingChanges pending;
+
+  /**
+   * Contents of the store after loading.
+   */
+  public static final class StoreContents {
+    private final List<TaskDTOModel> tasks;
+    private final List<EntryRecord> entries;
+
+    StoreContents(List<TaskDTOModel> tasks, List<EntryRecord> entries) {
+      this.tasks = Collections.unmodifiableList(tasks);
+      this.entries = Collections.unmodifiableList(entries);
+    }
+
+    public List<TaskDTOModel> getTasks() {
+      return tasks;
+    }
+
+    public List<EntryRecord> getEntries() {
+      return entries;
+    }
+  }
+
+  /**
+   * Records changed since the last group commit, null values are removals.
+   */
+  private static final class PendingChanges {
+    final Map<String, byte[]> tasks = new LinkedHashMap<>();
+    final Map<String, byte[]> entries = new LinkedHashMap<>();
+    final CompletableFuture<Integer> committed = new CompletableFuture<>();
+    int dictionarySize;
+  }
+
+  /**
+   * Creates a store which keeps its files in {@code directory} and starts reading them in the
+   * background right away, so the dictionary is known before the first save.
+   *
+   * @param directory for the journal and snapshot files
+   */
+  public LocalStore(Path directory) {
+    this.directory = directory;
+    writer = Executors.newSingleThreadScheduledExecutor(runnable -> {
+      Thread thread = new Thread(runnable, "LocalStore: Writer Thread");
+      thread.setDaemon(true);
+      return thread;
+    });
+    writer.scheduleWithFixedDelay(this::compactIfNeeded,
+        COMPACTION_PERIOD_MINUTES, COMPACTION_PERIOD_MINUTES, TimeUnit.MINUTES);
+    opened = CompletableFuture.runAsync(this::ensureOpen, writer);
+  }
+
+  /**
+   * Returns the sync replica id of this installation. It is created together with the store
+   * directory and kept in it, so the version vectors of the records stay the same across
+   * launches. Reads a small file on the calling thread.
+   */
+  public String getReplicaId() throws IOException {
+    Path path = directory.resolve(REPLICA_FILE);
+    if (Files.exists(path)) {
+      String id = new String(Files.readAllBytes(path), StandardCharsets.UTF_8).trim();
+      if (!id.isEmpty()) {
+        return id;
+      }
+    }
+    String id = UUID.randomUUID().toString();
+    Files.createDirectories(directory);
+    Path tempPath = directory.resolve(REPLICA_FILE + ".tmp");
+    Files.write(tempPath, id.getBytes(StandardCharsets.UTF_8));
+    Files.move(tempPath, path, StandardCopyOption.REPLACE_EXISTING,
+        StandardCopyOption.ATOMIC_MOVE);
+    return id;
+  }
+
+  /**
+   * Returns whether the initial load of the store has finished, so saving does not have to
+   * wait for it.
+   */
+  public boolean isOpen() {
+    return opened.isDone();
+  }
+
+  /**
+   * Returns a future which completes when the initial load of the store has finished.
+   */
+  public CompletableFuture<Void> whenOpen() {
+    return opened.thenApply(ignored -> null);
+  }
+
+  /**
+   * Decodes all live records. Large numbers of tasks are decoded in parallel chunks, the rest
+   * runs on the writer thread.
+   *
+   * @return the stored tasks and entries
+   */
+  public CompletableFuture<StoreContents> load() {
+    return load(false);
+  }
+
+  /**
+   * Decodes all live records, see {@link #load()}.
+   *
+   * @param offHeap whether the tasks are decoded straight into the rows of {@link TaskStore}s,
+   *     one per chunk, so there is never a heap copy of all tasks. The tasks are views of the
+   *     rows then.
+   * @return the stored tasks and entries
+   */
+  public CompletableFuture<StoreContents> load(boolean offHeap) {
+    return CompletableFuture.supplyAsync(() -> {
+      ensureOpen();
+      List<byte[]> taskList = new ArrayList<>(taskRecords.values());
+      int chunks = Math.max(1, Math.min(taskList.size() / MIN_DECODE_CHUNK,
+          Runtime.getRuntime().availableProcessors()));
+      List<TaskDTOModel> tasks;
+      if (chunks == 1) {
+        // keeps the views of a task store as they are instead of copying them
+        tasks = decodeTasks(taskList, offHeap);
+      } else {
+        tasks = new ArrayList<>(taskList.size());
+        IntStream.range(0, chunks).parallel()
+            .mapToObj(chunk -> decodeTasks(taskList.subList(chunk * taskList.size() / chunks,
+                (chunk + 1) * taskList.size() / chunks), offHeap))
+            .forEachOrdered(tasks::addAll);
+      }
+      List<EntryRecord> entries = new ArrayList<>(entryRecords.size());
+      try {
+        for (byte[] record : entryRecords.values()) {
+          entries.add(readEntry(new DataInputStream(new ByteArrayInputStream(record))));
+        }
+      } catch (IOException e) {
+        throw new UncheckedIOException(e);
+      }
+      return new StoreContents(tasks, entries);
+    }, writer);
+  }
+
+  /**
+   * Makes the given tasks and entries the new contents of the store. Records which did not
+   * change are skipped, records which are missing are removed. Encoding and writing run on the
+   * writer thread once the initial load of the store has finished, the calling thread never
+   * waits. The tasks are read there, callers on the FX thread pass copies of the live tasks.
+   *
+   * @param tasks to store, not changed until the returned future completes
+   * @param entries to store
+   * @return the number of journal records written
+   */
+  public CompletableFuture<Integer> save(Collection<TaskDTOModel> tasks,
+                                         Collection<EntryRecord> entries) {
+    // changes handed over before this snapshot are contained in it
+    PendingChanges superseded;
+    synchronized (this) {
+      superseded = pending;
+      pending = null;
+    }
+
+    CompletableFuture<Integer> saved = opened.thenApplyAsync(ignored -> {
+      long start = System.nanoTime();
+      Map<String, byte[]> encodedTasks = new LinkedHashMap<>(tasks.size() * 2);
+      Map<String, byte[]> encodedEntries = new LinkedHashMap<>(entries.size() * 2);
+      TaskCodec codec = new TaskCodec(dictionary);
+      RecordBuffer out = new RecordBuffer();
+      try {
+        for (TaskDTOModel task : tasks) {
+          encodedTasks.put(task.getUuid(), codec.encodeToArray(task));
+        }
+        for (EntryRecord entry : entries) {
+          writeEntry(out.begin(), entry);
+          encodedEntries.put(entry.getId(), out.toByteArray());
+        }
+        int written = appendDictionary(journal, journaledDictionarySize, dictionary.size())
+            + apply(taskRecords, encodedTasks, TASK_PUT, TASK_REMOVE)
+            + apply(entryRecords, encodedEntries, ENTRY_PUT, ENTRY_REMOVE);
+        if (written > 0) {
+          journal.force();
+        }
+        flushTime.recordSince(start);
+        recordsWritten.add(written);
+        LOGGER.debug("Saved {} changed records", written);
+        return written;
+      } catch (IOException e) {
+        throw new UncheckedIOException(e);
+      }
+    }, writer);
+    if (superseded != null) {
+      saved.whenComplete((written, ex) -> {
+        if (ex != null) {
+          superseded.committed.completeExceptionally(ex);
+        } else {
+          superseded.committed.complete(0);
+        }
+      });
+    }
+    return saved;
+  }
+
+  /**
+   * Stores changed and removed records without touching the others. The records are encoded on
+   * the calling thread and written by the next group commit.
+   *
+   * @param tasks which were added or changed
+   * @param removedTasks uuids of removed tasks
+   * @param entries which were added or changed
+   * @param removedEntries ids of removed entries
+   * @return completes with the number of records written by the group commit once it has been
+   *     forced to the storage device
+   * @throws IllegalStateException if the store is not {@link #isOpen() open} yet
+   */
+  public CompletableFuture<Integer> saveChanges(Collection<TaskDTOModel> tasks,
+                                                Collection<String> removedTasks,
+                                                Collection<EntryRecord> entries,
+                                                Collection<String> removedEntries) {
+    if (!isOpen()) {
+      throw new IllegalStateException("The store is still being opened");
+    }
+    TaskCodec codec = new TaskCodec(dictionary);
+    RecordBuffer out = new RecordBuffer();
+    Map<String, byte[]> encodedTasks = new LinkedHashMap<>();
+    Map<String, byte[]> encodedEntries = new LinkedHashMap<>();
+    try {
+      for (String uuid : removedTasks) {
+        encodedTasks.put(uuid, null);
+      }
+      for (TaskDTOModel task : tasks) {
+        encodedTasks.put(task.getUuid(), codec.encodeToArray(task));
+      }
+      for (String id : removedEntries) {
+        encodedEntries.put(id, null);
+      }
+      for (EntryRecord entry : entries) {
+        writeEntry(out.begin(), entry);
+        encodedEntries.put(entry.getId(), out.toByteArray());
+      }
+    } catch (IOException e) {
+      CompletableFuture<Integer> failed = new CompletableFuture<>();
+      failed.completeExceptionally(e);
+      return failed;
+    }
+
+    synchronized (this) {
+      if (pending == null) {
+        pending = new PendingChanges();
+        writer.schedule(this::commitPending, GROUP_COMMIT_MILLIS, TimeUnit.MILLISECONDS);
+      }
+      pending.tasks.putAll(encodedTasks);
+      pending.entries.putAll(encodedEntries);
+      pending.dictionarySize = dictionary.size();
+      return pending.committed;
+    }
+  }
+
+  /**
+   * Writes all live records into a new snapshot and empties the journal.
+   *
+   * @return completes when the snapshot has been written
+   */
+  public CompletableFuture<Void> compact() {
+    return CompletableFuture.runAsync(() -> {
+      ensureOpen();
+      try {
+        writeSnapshot();
+      } catch (IOException e) {
+        throw new UncheckedIOException(e);
+      }
+    }, writer);
+  }
+
+  @Override
+  public void close() {
+    writer.shutdown();
+    try {
+      writer.awaitTermination(10, TimeUnit.SECONDS);
+      if (journal != null) {
+        journal.close();
+      }
+    } catch (IOException e) {
+      LOGGER.error("Closing the journal failed", e);
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+    }
+  }
+
+  private List<TaskDTOModel> decodeTasks(List<byte[]> records, boolean offHeap) {
+    TaskCodec codec = new TaskCodec(dictionary);
+    try {
+      if (offHeap) {
+        TaskStore store = new TaskStore(records.size());
+        codec.decodeInto(records, store);
+        return store.views();
+      }
+      // shares the tag lists of the tasks
+      TaskFactory factory = new TaskFactory();
+      List<TaskDTOModel> tasks = new ArrayList<>(records.size());
+      // in batches, so the decoded columns of all records are never alive at once
+      for (int from = 0; from < records.size(); from += DECODE_BATCH) {
+        tasks.addAll(factory.create(codec.decodeColumns(
+            records.subList(from, Math.min(from + DECODE_BATCH, records.size())))));
+      }
+      return tasks;
+    } catch (IOException e) {
+      throw new UncheckedIOException(e);
+    }
+  }
+
+  private void commitPending() {
+    PendingChanges changes;
+    synchronized (this) {
+      changes = pending;
+      pending = null;
+    }
+    if (changes == null) {
+      return;
+    }
+    long start = System.nanoTime();
+    try {
+      ensureOpen();
+      int written = appendDictionary(journal, journaledDictionarySize,
+          Math.max(journaledDictionarySize, changes.dictionarySize))
+          + applyChanges(taskRecords, changes.tasks, TASK_PUT, TASK_REMOVE)
+          + applyChanges(entryRecords, changes.entries, ENTRY_PUT, ENTRY_REMOVE);
+      if (written > 0) {
+        journal.force();
+      }
+      groupCommitTime.recordSince(start);
+      recordsWritten.add(written);
+      changes.committed.complete(written);
+    } catch (IOException | RuntimeException e) {
+      LOGGER.error("Writing " + (changes.tasks.size() + changes.entries.size())
+          + " changed records failed", e);
+      changes.committed.completeExceptionally(e);
+      return;
+    }
+    compactIfNeeded();
+  }
+
+  private void ensureOpen() {
+    if (journal != null) {
+      return;
+    }
+    long start = System.nanoTime();
+    try {
+      Files.createDirectories(directory);
+      Path snapshotPath = directory.resolve(SNAPSHOT_FILE);
+      if (Files.exists(snapshotPath)) {
+        new TaskJournal(snapshotPath, this::applyRecord).close();
+      }
+      journal = new TaskJournal(directory.resolve(JOURNAL_FILE), this::applyRecord);
+      recoveryTime.recordSince(start);
+      LOGGER.info("Opened store with {} tasks and {} entries in {} ms", taskRecords.size(),
+          entryRecords.size(), TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start));
+    } catch (IOException e) {
+      throw new UncheckedIOException(e);
+    }
+  }
+
+  private void applyRecord(byte kind, ByteBuffer payload) throws IOException {
+    byte[] bytes = new byte[payload.remaining()];
+    payload.get(bytes);
+    switch (kind) {
+      case TASK_PUT:
+        taskRecords.putRecord(bytes);
+        break;
+      case TASK_REMOVE:
+        taskRecords.remove(readKey(bytes));
+        break;
+      case ENTRY_PUT:
+        entryRecords.put(readKey(bytes), bytes);
+        break;
+      case ENTRY_REMOVE:
+        entryRecords.remove(readKey(bytes));
+        break;
+      case DICTIONARY_PUT:
+        DataInputStream in = new DataInputStream(new ByteArrayInputStream(bytes));
+        dictionary.put(in.readInt(), readString(in));
+        journaledDictionarySize = dictionary.size();
+        break;
+      default:
+        throw new IOException("Unknown record kind " + kind);
+    }
+  }
+
+  private int appendDictionary(TaskJournal target, int from, int to) throws IOException {
+    RecordBuffer out = new RecordBuffer();
+    for (int id = from; id < to; id++) {
+      DataOutputStream data = out.begin();
+      data.writeInt(id);
+      writeString(data, dictionary.valueOf(id));
+      target.append(DICTIONARY_PUT, out.array(), 0, out.size());
+    }
+    if (target == journal) {
+      journaledDictionarySize = Math.max(journaledDictionarySize, to);
+    }
+    return to - from;
+  }
+
+  private int apply(Map<String, byte[]> current, Map<String, byte[]> updated,
+                    byte putKind, byte removeKind) throws IOException {
+    int written = 0;
+    Set<String> removed = new HashSet<>(current.keySet());
+    removed.removeAll(updated.keySet());
+    RecordBuffer out = new RecordBuffer();
+    for (String key : removed) {
+      writeString(out.begin(), key);
+      journal.append(removeKind, out.array(), 0, out.size());
+      current.remove(key);
+      written++;
+    }
+    for (Map.Entry<String, byte[]> record : updated.entrySet()) {
+      byte[] previous = current.put(record.getKey(), record.getValue());
+      if (!Arrays.equals(previous, record.getValue())) {
+        journal.append(putKind, record.getValue(), 0, record.getValue().length);
+        written++;
+      }
+    }
+    return written;
+  }
+
+  private int applyChanges(Map<String, byte[]> current, Map<String, byte[]> changes,
+                           byte putKind, byte removeKind) throws IOException {
+    int written = 0;
+    RecordBuffer out = new RecordBuffer();
+    for (Map.Entry<String, byte[]> change : changes.entrySet()) {
+      byte[] record = change.getValue();
+      if (record == null) {
+        if (current.remove(change.getKey()) != null) {
+          writeString(out.begin(), change.getKey());
+          journal.append(removeKind, out.array(), 0, out.size());
+          written++;
+        }
+      } else if (!Arrays.equals(current.put(change.getKey(), record), record)) {
+        journal.append(putKind, record, 0, record.length);
+        written++;
+      }
+    }
+    return written;
+  }
+
+  private void compactIfNeeded() {
+    if (journal == null) {
+      return;
+    }
+    int live = taskRecords.size() + entryRecords.size();
+    if (journal.getRecordCount() > Math.max(MIN_COMPACTION_RECORDS, live)) {
+      try {
+        writeSnapshot();
+      } catch (IOException e) {
+        LOGGER.error("Compaction failed", e);
+      }
+    }
+  }
+
+  private void writeSnapshot() throws IOException {
+    long start = System.nanoTime();
+    Path snapshotPath = directory.resolve(SNAPSHOT_FILE);
+    Path tempPath = directory.resolve(SNAPSHOT_FILE + ".tmp");
+    Files.deleteIfExists(tempPath);
+    int dictionarySize = journaledDictionarySize;
+    try (TaskJournal snapshot = new TaskJournal(tempPath)) {
+      appendDictionary(snapshot, 0, dictionarySize);
+      for (byte[] record : taskRecords.values()) {
+        snapshot.append(TASK_PUT, record, 0, record.length);
+      }
+      for (byte[] record : entryRecords.values()) {
+        snapshot.append(ENTRY_PUT, record, 0, record.length);
+      }
+    }
+    Files.move(tempPath, snapshotPath,
+        StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+    journal.reset();
+    LOGGER.debug("Compacted store in {} ms", (System.nanoTime() - start) / 1_000_000);
+  }
+
+  // entry and removal records start with their key, tasks use the TaskCodec
+
+  private static String readKey(byte[] record) throws IOException {
+    return readString(new DataInputStream(new ByteArrayInputStream(record)));
+  }
+
+  static void writeEntry(DataOutput out, EntryRecord entry) throws IOException {
+    writeString(out, entry.getId());
+    writeString(out, entry.getCalendarName());
+    writeString(out, entry.getTitle());
+    writeString(out, entry.getLocation());
+    writeDateTime(out, entry.getStartDateTime());
+    writeDateTime(out, entry.getEndDateTime());
+    writeString(out, entry.getZoneId());
+    out.writeBoolean(entry.isFullDay());
+    writeString(out, entry.getRecurrenceRule());
+  }
+
+  static EntryRecord readEntry(DataInput in) throws IOException {
+    return new EntryRecord(readString(in), readString(in), readString(in), readString(in),
+        readDateTime(in), readDateTime(in), readString(in), in.readBoolean(), readString(in));
+  }
+
+  private static void writeString(DataOutput out, String value) throws IOException {
+    if (value == null) {
+      out.writeInt(-1);
+      return;
+    }
+    byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+    out.writeInt(bytes.length);
+    out.write(bytes);
+  }
+
+  private static String readString(DataInput in) throws IOException {
+    int length = in.readInt();
+    if (length < 0) {
+      return null;
+    }
+    byte[] bytes = new byte[length];
+    in.readFully(bytes);
+    return new String(bytes, StandardCharsets.UTF_8);
+  }
+
+  private static void writeDateTime(DataOutput out, LocalDateTime dateTime) throws IOException {
+    out.writeBoolean(dateTime != null);
+    if (dateTime != null) {
+      out.writeLong(dateTime.toEpochSecond(ZoneOffset.UTC));
+      out.writeInt(dateTime.getNano());
+    }
+  }
+
+  private static LocalDateTime readDateTime(DataInput in) throws IOException {
+    if (!in.readBoolean()) {
+      return null;
+    }
+    return LocalDateTime.ofEpochSecond(in.readLong(), in.readInt(), ZoneOffset.UTC);
+  }
+
+  /**
+   * Reusable output buffer which exposes its backing array.
+   */
+  private static final class RecordBuffer extends ByteArrayOutputStream {
+    private final DataOutputStream data = new DataOutputStream(this);
+
+    RecordBuffer() {
+      super(256);
+    }
+
+    DataOutputStream begin() {
+      reset();
+      return data;
+    }
+
+    byte[] array() {
+      return buf;
+    }
+  }
+}
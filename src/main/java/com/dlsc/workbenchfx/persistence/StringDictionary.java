@@ -0,0 +1,74 @@
+package com.dlsc.workbenchfx.persistence;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Assigns dense int ids to repeated strings such as tags.
+ *
+ * <p>Ids are handed out in insertion order and never change, so a dictionary can be persisted
+ * by writing the values from a known size onwards. Decoding through the dictionary returns the
+ * same {@link String} instance for every occurrence of a value.
+ */
+public class StringDictionary {
+
+  private final Map<String, Integer> ids = new HashMap<>();
+  private final List<String> values = new ArrayList<>();
+
+  /**
+   * Returns the id of {@code value}, adding it if it is not yet known.
+   *
+   * @param value to look up, not null
+   * @return the id of the value
+   */
+  public synchronized int idOf(String value) {
+    Integer id = ids.get(value);
+    if (id == null) {
+      id = values.size();
+      ids.put(value, id);
+      values.add(value);
+    }
+    return id;
+  }
+
+  /**
+   * Returns the value with the given id.
+   *
+   * @param id of the value
+   * @return the value
+   * @throws IndexOutOfBoundsException if the id is unknown
+   */
+  public synchronized String valueOf(int id) {
+    return values.get(id);
+  }
+
+  /**
+   * Restores a value with a known id, used when replaying a persisted dictionary.
+   *
+   * @param id which has to be the next free id, or an existing id with the same value
+   * @param value of the id
+   */
+  public synchronized void put(int id, String value) {
+    if (id < values.size() && values.get(id).equals(value)) {
+      return;
+    }
+    if (id != values.size()) {
+      throw new IllegalStateException("Expected dictionary id " + values.size() + ", got " + id);
+    }
+    ids.put(value, id);
+    values.add(value);
+  }
+
+  /**
+   * Returns all values, the index of a value is its id.
+   */
+  public synchronized String[] values() {
+    return values.toArray(new String[0]);
+  }
+
+  public synchronized int size() {
+    return values.size();
+  }
+}
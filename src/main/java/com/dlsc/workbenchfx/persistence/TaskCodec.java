@@ -0,0 +1,495 @@
+package com.dlsc.workbenchfx.persistence;
+
+import com.dlsc.workbenchfx.modules.dashboard.model.ColorCategories;
+import com.dlsc.workbenchfx.modules.dashboard.model.TaskDTOModel;
+import com.dlsc.workbenchfx.modules.dashboard.model.TaskFactory;
+import com.dlsc.workbenchfx.modules.dashboard.model.TaskStore;
+import com.dlsc.workbenchfx.modules.dashboard.model.TimeList;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDateTime;
+import java.time.ZoneOffset;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.UUID;
+
+/**
+ * Versioned binary format for {@link TaskDTOModel}.
+ *
+ * <p>Layout of version 2:
+ * <pre>
+ * byte    version
+ * byte    flags, one bit per optional field (see the FLAG_ constants)
+ * uuid    two big-endian longs if the uuid is a canonical UUID, else a string
+ * string  name, description (varint length + UTF-8)
+ * varint  urgency, importance (zigzag)
+ * varint  colorCategory as {@link ColorCategories} ordinal
+ * varint  tag count, followed by one dictionary id per tag
+ * time    createLocalDateTime, then varint count + one time per listOfLocalDateTimes element
+ * </pre>
+ * A time is a zigzag varlong epoch second (UTC) followed by a varint nano of second. Version 1
+ * kept the color category as a dictionary id of its name, it is still read.
+ *
+ * <p>Tags go through a shared {@link StringDictionary}, so the decoded tasks share their tag
+ * strings. Decoding writes into a caller-supplied builder and reads strings through a reusable
+ * scratch array, the only allocations are the field values themselves. Many tasks can also be
+ * decoded into the {@link TaskFactory.Columns} of a {@link TaskFactory}, or straight into the
+ * rows of a {@link TaskStore}. An instance is not thread-safe, use one per thread.
+ */
+public class TaskCodec {
+
+  public static final byte VERSION = 2;
+
+  private static final byte VERSION_WITH_NAMED_COLOR_CATEGORY = 1;
+  private static final ColorCategories[] COLOR_CATEGORIES = ColorCategories.values();
+
+  static final int FLAG_UUID_BINARY = 1;
+  static final int FLAG_UUID_STRING = 1 << 1;
+  static final int FLAG_NAME = 1 << 2;
+  static final int FLAG_DESCRIPTION = 1 << 3;
+  static final int FLAG_COLOR_CATEGORY = 1 << 4;
+  static final int FLAG_TAGS = 1 << 5;
+  static final int FLAG_CREATED = 1 << 6;
+  static final int FLAG_DATE_TIMES = 1 << 7;
+
+  private final StringDictionary dictionary;
+  private byte[] out = new byte[256];
+  private int size;
+  private byte[] scratch = new byte[64];
+  private long[] scratchSeconds = new long[16];
+  private int[] scratchNanos = new int[16];
+  // the record decodeRow reads and its position in it
+  private byte[] input;
+  private int position;
+
+  public TaskCodec(StringDictionary dictionary) {
+    this.dictionary = dictionary;
+  }
+
+  public StringDictionary getDictionary() {
+    return dictionary;
+  }
+
+  /**
+   * Encodes a task into the internal buffer, which stays valid until the next call.
+   *
+   * @param task to encode
+   * @return the number of bytes written to {@link #buffer()}
+   */
+  public int encode(TaskDTOModel task) {
+    size = 0;
+    String uuid = task.getUuid();
+    UUID binaryUuid = parseUuid(uuid);
+    List<String> tags = task.getTags();
+    List<LocalDateTime> dateTimes = task.getListOfLocalDateTimes();
+
+    int flags = 0;
+    if (binaryUuid != null) {
+      flags |= FLAG_UUID_BINARY;
+    } else if (uuid != null) {
+      flags |= FLAG_UUID_STRING;
+    }
+    flags |= task.getName() != null ? FLAG_NAME : 0;
+    flags |= task.getDescription() != null ? FLAG_DESCRIPTION : 0;
+    flags |= task.getColorCategory() != null ? FLAG_COLOR_CATEGORY : 0;
+    flags |= tags != null ? FLAG_TAGS : 0;
+    flags |= task.getCreateLocalDateTime() != null ? FLAG_CREATED : 0;
+    flags |= dateTimes != null ? FLAG_DATE_TIMES : 0;
+
+    writeByte(VERSION);
+    writeByte(flags);
+    if (binaryUuid != null) {
+      writeLong(binaryUuid.getMostSignificantBits());
+      writeLong(binaryUuid.getLeastSignificantBits());
+    } else if (uuid != null) {
+      writeString(uuid);
+    }
+    if (task.getName() != null) {
+      writeString(task.getName());
+    }
+    if (task.getDescription() != null) {
+      writeString(task.getDescription());
+    }
+    writeVarLong(zigzag(task.getUrgency()));
+    writeVarLong(zigzag(task.getImportance()));
+    if (task.getColorCategory() != null) {
+      writeVarLong(task.getColorCategory().ordinal());
+    }
+    if (tags != null) {
+      writeVarLong(tags.size());
+      for (String tag : tags) {
+        writeVarLong(dictionary.idOf(tag));
+      }
+    }
+    if (task.getCreateLocalDateTime() != null) {
+      writeDateTime(task.getCreateLocalDateTime());
+    }
+    if (dateTimes != null) {
+      writeVarLong(dateTimes.size());
+      for (LocalDateTime dateTime : dateTimes) {
+        writeDateTime(dateTime);
+      }
+    }
+    return size;
+  }
+
+  /**
+   * Returns the internal buffer holding the result of the last {@link #encode(TaskDTOModel)}.
+   */
+  public byte[] buffer() {
+    return out;
+  }
+
+  /**
+   * Encodes a task into a new array of the exact size.
+   *
+   * @param task to encode
+   * @return the encoded task
+   */
+  public byte[] encodeToArray(TaskDTOModel task) {
+    // encode first, it may replace the buffer
+    int length = encode(task);
+    return Arrays.copyOf(out, length);
+  }
+
+  /**
+   * Decodes a task into {@code builder}, overwriting every field of it.
+   *
+   * @param in positioned at the start of an encoded task, advanced behind it
+   * @param builder to fill, can be reused for the next task after calling build
+   * @return the builder
+   * @throws IOException if the data has an unsupported version
+   */
+  public TaskDTOModel.TaskBuilder decode(ByteBuffer in, TaskDTOModel.TaskBuilder builder)
+      throws IOException {
+    int version = readVersion(in);
+    int flags = in.get() & 0xFF;
+    builder.uuid(readUuid(in, flags));
+    builder.name((flags & FLAG_NAME) != 0 ? readString(in) : null);
+    builder.description((flags & FLAG_DESCRIPTION) != 0 ? readString(in) : null);
+    builder.urgency(unzigzag(readVarLong(in)));
+    builder.importance(unzigzag(readVarLong(in)));
+    byte colorCategory = (flags & FLAG_COLOR_CATEGORY) != 0
+        ? readColorCategory(in, version) : TaskFactory.NO_COLOR_CATEGORY;
+    builder.colorCategory(colorCategory == TaskFactory.NO_COLOR_CATEGORY
+        ? null : COLOR_CATEGORIES[colorCategory]);
+    List<String> tags = null;
+    if ((flags & FLAG_TAGS) != 0) {
+      int count = (int) readVarLong(in);
+      tags = new ArrayList<>(count);
+      for (int i = 0; i < count; i++) {
+        tags.add(dictionary.valueOf((int) readVarLong(in)));
+      }
+    }
+    builder.tags(tags);
+    builder.createLocalDateTime((flags & FLAG_CREATED) != 0 ? readDateTime(in) : null);
+    builder.listOfLocalDateTimes((flags & FLAG_DATE_TIMES) != 0 ? readTimeList(in) : null);
+    return builder;
+  }
+
+  /**
+   * Decodes encoded tasks into columns, without creating the tasks. Tags are given as indexes
+   * into the values of the dictionary.
+   *
+   * @param records one encoded task each
+   * @return the columns, one row per record
+   * @throws IOException if a record has an unsupported version
+   */
+  public TaskFactory.Columns decodeColumns(List<byte[]> records) throws IOException {
+    int size = records.size();
+    String[] uuids = new String[size];
+    String[] names = new String[size];
+    String[] descriptions = new String[size];
+    int[] urgencies = new int[size];
+    int[] importances = new int[size];
+    byte[] colorCategories = new byte[size];
+    int[][] tags = new int[size][];
+    LocalDateTime[] created = new LocalDateTime[size];
+    TimeList[] dateTimes = new TimeList[size];
+    for (int row = 0; row < size; row++) {
+      ByteBuffer in = ByteBuffer.wrap(records.get(row));
+      int version = readVersion(in);
+      int flags = in.get() & 0xFF;
+      uuids[row] = readUuid(in, flags);
+      names[row] = (flags & FLAG_NAME) != 0 ? readString(in) : null;
+      descriptions[row] = (flags & FLAG_DESCRIPTION) != 0 ? readString(in) : null;
+      urgencies[row] = unzigzag(readVarLong(in));
+      importances[row] = unzigzag(readVarLong(in));
+      colorCategories[row] = (flags & FLAG_COLOR_CATEGORY) != 0
+          ? readColorCategory(in, version) : TaskFactory.NO_COLOR_CATEGORY;
+      if ((flags & FLAG_TAGS) != 0) {
+        int[] ids = new int[(int) readVarLong(in)];
+        for (int i = 0; i < ids.length; i++) {
+          ids[i] = (int) readVarLong(in);
+        }
+        tags[row] = ids;
+      }
+      created[row] = (flags & FLAG_CREATED) != 0 ? readDateTime(in) : null;
+      dateTimes[row] = (flags & FLAG_DATE_TIMES) != 0 ? readTimeList(in) : null;
+    }
+    return new TaskFactory.Columns(size)
+        .uuids(uuids)
+        .names(names)
+        .descriptions(descriptions)
+        .urgencies(urgencies)
+        .importances(importances)
+        .colorCategories(colorCategories)
+        // read after the records, so it holds every id they use
+        .tags(dictionary.values(), tags)
+        .createLocalDateTimes(created)
+        .listsOfLocalDateTimes(dateTimes);
+  }
+
+  /**
+   * Decodes encoded tasks straight into new rows of {@code store}. Names and descriptions are
+   * copied as UTF-8 and the times as seconds and nanos, no task, string or date-time is
+   * created for the values of a row.
+   *
+   * @param records one encoded task each
+   * @param store to append one row per record to
+   * @throws IOException if a record has an unsupported version
+   */
+  public void decodeInto(List<byte[]> records, TaskStore store) throws IOException {
+    TaskStore.RowWriter writer = store.rowWriter();
+    // the records were read after the dictionary ids they use
+    String[] tagValues = dictionary.values();
+    for (byte[] record : records) {
+      decodeRow(record, writer.begin(), tagValues);
+    }
+  }
+
+  // one call per record, so it is compiled early on instead of only after many records; reads
+  // the array itself, a buffer per record costs more than the row while it is interpreted
+  private void decodeRow(byte[] record, TaskStore.RowWriter row, String[] tagValues)
+      throws IOException {
+    int version = readVersion(ByteBuffer.wrap(record, 0, 1));
+    int flags = record[1] & 0xFF;
+    input = record;
+    position = 2;
+    if ((flags & FLAG_UUID_BINARY) != 0) {
+      row.uuid(nextLong(), nextLong());
+    } else if ((flags & FLAG_UUID_STRING) != 0) {
+      int length = (int) nextVarLong();
+      row.uuid(new String(record, position, length, StandardCharsets.UTF_8));
+      position += length;
+    }
+    if ((flags & FLAG_NAME) != 0) {
+      int length = (int) nextVarLong();
+      row.name(record, position, length);
+      position += length;
+    }
+    if ((flags & FLAG_DESCRIPTION) != 0) {
+      int length = (int) nextVarLong();
+      row.description(record, position, length);
+      position += length;
+    }
+    row.urgency(unzigzag(nextVarLong()));
+    row.importance(unzigzag(nextVarLong()));
+    if ((flags & FLAG_COLOR_CATEGORY) != 0) {
+      row.colorCategory(colorCategory((int) nextVarLong(), version));
+    }
+    if ((flags & FLAG_TAGS) != 0) {
+      String[] tags = new String[(int) nextVarLong()];
+      for (int i = 0; i < tags.length; i++) {
+        tags[i] = tagValues[(int) nextVarLong()];
+      }
+      row.tags(Arrays.asList(tags));
+    }
+    if ((flags & FLAG_CREATED) != 0) {
+      row.createLocalDateTime(unzigzagLong(nextVarLong()), (int) nextVarLong());
+    }
+    if ((flags & FLAG_DATE_TIMES) != 0) {
+      int count = (int) nextVarLong();
+      if (scratchSeconds.length < count) {
+        scratchSeconds = new long[Math.max(count, scratchSeconds.length * 2)];
+        scratchNanos = new int[scratchSeconds.length];
+      }
+      for (int i = 0; i < count; i++) {
+        scratchSeconds[i] = unzigzagLong(nextVarLong());
+        scratchNanos[i] = (int) nextVarLong();
+      }
+      row.listOfLocalDateTimes(scratchSeconds, scratchNanos, count);
+    }
+    input = null;
+  }
+
+  private long nextLong() {
+    long value = 0;
+    for (int end = position + 8; position < end; position++) {
+      value = (value << 8) | (input[position] & 0xFF);
+    }
+    return value;
+  }
+
+  private long nextVarLong() {
+    byte b = input[position++];
+    if (b >= 0) {
+      return b;
+    }
+    long value = b & 0x7F;
+    int shift = 7;
+    do {
+      b = input[position++];
+      value |= (long) (b & 0x7F) << shift;
+      shift += 7;
+    } while (b < 0);
+    return value;
+  }
+
+  /**
+   * Reads only the uuid of an encoded task, without moving the position of {@code in}.
+   *
+   * @param in positioned at the start of an encoded task
+   * @return the uuid, may be null
+   * @throws IOException if the data has an unsupported version
+   */
+  public String peekUuid(ByteBuffer in) throws IOException {
+    ByteBuffer view = in.duplicate();
+    readVersion(view);
+    return readUuid(view, view.get() & 0xFF);
+  }
+
+  static int readVersion(ByteBuffer in) throws IOException {
+    byte version = in.get();
+    if (version != VERSION && version != VERSION_WITH_NAMED_COLOR_CATEGORY) {
+      throw new IOException("Unsupported task format version " + version);
+    }
+    return version;
+  }
+
+  private byte readColorCategory(ByteBuffer in, int version) {
+    return colorCategory((int) readVarLong(in), version);
+  }
+
+  private byte colorCategory(int value, int version) {
+    if (version != VERSION_WITH_NAMED_COLOR_CATEGORY) {
+      return value < COLOR_CATEGORIES.length ? (byte) value : TaskFactory.NO_COLOR_CATEGORY;
+    }
+    String name = dictionary.valueOf(value);
+    for (ColorCategories category : COLOR_CATEGORIES) {
+      if (category.getName().equalsIgnoreCase(name)) {
+        return (byte) category.ordinal();
+      }
+    }
+    return TaskFactory.NO_COLOR_CATEGORY;
+  }
+
+  /**
+   * Reads date-times straight into the primitive form the task keeps, without a
+   * {@link LocalDateTime} per element.
+   */
+  private static TimeList readTimeList(ByteBuffer in) {
+    long[] seconds = new long[(int) readVarLong(in)];
+    int[] nanos = new int[seconds.length];
+    for (int i = 0; i < seconds.length; i++) {
+      seconds[i] = unzigzagLong(readVarLong(in));
+      nanos[i] = (int) readVarLong(in);
+    }
+    return TimeList.ofEpochSeconds(seconds, nanos);
+  }
+
+  private String readUuid(ByteBuffer in, int flags) {
+    if ((flags & FLAG_UUID_BINARY) != 0) {
+      return new UUID(in.getLong(), in.getLong()).toString();
+    }
+    return (flags & FLAG_UUID_STRING) != 0 ? readString(in) : null;
+  }
+
+  static UUID parseUuid(String uuid) {
+    if (uuid == null || uuid.length() != 36) {
+      return null;
+    }
+    try {
+      UUID parsed = UUID.fromString(uuid);
+      // only canonical strings survive the round trip through two longs
+      return parsed.toString().equals(uuid) ? parsed : null;
+    } catch (IllegalArgumentException e) {
+      return null;
+    }
+  }
+
+  // primitives
+
+  private void ensureCapacity(int bytes) {
+    if (size + bytes > out.length) {
+      out = Arrays.copyOf(out, Math.max(out.length * 2, size + bytes));
+    }
+  }
+
+  private void writeByte(int value) {
+    ensureCapacity(1);
+    out[size++] = (byte) value;
+  }
+
+  private void writeLong(long value) {
+    ensureCapacity(8);
+    for (int shift = 56; shift >= 0; shift -= 8) {
+      out[size++] = (byte) (value >>> shift);
+    }
+  }
+
+  private void writeVarLong(long value) {
+    ensureCapacity(10);
+    while ((value & ~0x7FL) != 0) {
+      out[size++] = (byte) ((value & 0x7F) | 0x80);
+      value >>>= 7;
+    }
+    out[size++] = (byte) value;
+  }
+
+  private void writeString(String value) {
+    byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+    writeVarLong(bytes.length);
+    ensureCapacity(bytes.length);
+    System.arraycopy(bytes, 0, out, size, bytes.length);
+    size += bytes.length;
+  }
+
+  private void writeDateTime(LocalDateTime dateTime) {
+    writeVarLong(zigzag(dateTime.toEpochSecond(ZoneOffset.UTC)));
+    writeVarLong(dateTime.getNano());
+  }
+
+  private static long readVarLong(ByteBuffer in) {
+    byte b = in.get();
+    if (b >= 0) {
+      return b;
+    }
+    long value = b & 0x7F;
+    int shift = 7;
+    do {
+      b = in.get();
+      value |= (long) (b & 0x7F) << shift;
+      shift += 7;
+    } while (b < 0);
+    return value;
+  }
+
+  private String readString(ByteBuffer in) {
+    int length = (int) readVarLong(in);
+    if (scratch.length < length) {
+      scratch = new byte[Math.max(length, scratch.length * 2)];
+    }
+    in.get(scratch, 0, length);
+    return new String(scratch, 0, length, StandardCharsets.UTF_8);
+  }
+
+  private static LocalDateTime readDateTime(ByteBuffer in) {
+    long epochSecond = unzigzagLong(readVarLong(in));
+    return LocalDateTime.ofEpochSecond(epochSecond, (int) readVarLong(in), ZoneOffset.UTC);
+  }
+
+  private static long zigzag(long value) {
+    return (value << 1) ^ (value >> 63);
+  }
+
+  private static int unzigzag(long value) {
+    return (int) unzigzagLong(value);
+  }
+
+  private static long unzigzagLong(long value) {
+    return (value >>> 1) ^ -(value & 1);
+  }
+}
@@ -0,0 +1,212 @@
+package com.dlsc.workbenchfx.persistence;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.zip.CRC32;
+
+/**
+ * Append-only record log written through a memory-mapped {@link FileChannel}.
+ *
+ * <p>Layout: a fixed header followed by records of the form
+ * {@code [int length][int crc32][byte kind][payload]}. Every append writes a zero length behind
+ * its record to mark the end of the log. A record with a wrong checksum is treated as a torn
+ * write and ends the log as well.
+ * The mapping grows in {@link #MAP_CHUNK} steps, so appends are plain memory writes.
+ *
+ * <p>Not thread-safe, the owning {@link LocalStore} confines it to its writer thread.
+ */
+public class TaskJournal implements Closeable {
+
+  static final int MAGIC = 0x46495831; // "FIX1"
+  static final int FORMAT_VERSION = 1;
+  static final int HEADER_SIZE = 16;
+  static final int RECORD_HEADER_SIZE = 9;
+  static final long MAP_CHUNK = 4L << 20;
+
+  /**
+   * Receives the records of a journal in the order they were appended.
+   */
+  @FunctionalInterface
+  public interface RecordVisitor {
+    void visit(byte kind, ByteBuffer payload) throws IOException;
+  }
+
+  private final Path path;
+  private final FileChannel channel;
+  private final CRC32 crc = new CRC32();
+  private MappedByteBuffer buffer;
+  private int recordCount;
+
+  /**
+   * Opens the journal at {@code path}, creating it if necessary, and positions the writer
+   * behind the last intact record.
+   *
+   * @param path of the journal file
+   * @throws IOException if the file cannot be opened or has an unknown format
+   */
+  public TaskJournal(Path path) throws IOException {
+    this(path, (kind, payload) -> { });
+  }
+
+  /**
+   * Opens the journal at {@code path} like {@link #TaskJournal(Path)} and visits its intact
+   * records while doing so, which saves a second pass over a large journal compared to
+   * {@link #replay}.
+   *
+   * @param path of the journal file
+   * @param visitor to call for every record, the payload buffer is only valid during the call
+   * @throws IOException if the file cannot be opened, has an unknown format or the visitor
+   *     fails
+   */
+  public TaskJournal(Path path, RecordVisitor visitor) throws IOException {
+    this.path = path;
+    channel = FileChannel.open(path,
+        StandardOpenOption.CREATE, StandardOpenOption.READ, StandardOpenOption.WRITE);
+    boolean fresh = channel.size() == 0;
+    map(Math.max(channel.size(), MAP_CHUNK));
+    if (fresh) {
+      buffer.putInt(0, MAGIC);
+      buffer.putInt(4, FORMAT_VERSION);
+    } else if (buffer.getInt(0) != MAGIC) {
+      throw new IOException("Not a journal file: " + path);
+    }
+    buffer.position(HEADER_SIZE);
+    try {
+      replay(visitor);
+    } catch (IOException | RuntimeException e) {
+      channel.close();
+      throw e;
+    }
+  }
+
+  /**
+   * Appends a record.
+   *
+   * @param kind of the record, interpreted by the caller
+   * @param payload bytes of the record
+   * @param offset of the payload in the array
+   * @param length of the payload
+   * @throws IOException if the mapping cannot be grown
+   */
+  public void append(byte kind, byte[] payload, int offset, int length) throws IOException {
+    ensureCapacity(RECORD_HEADER_SIZE + length + 4);
+    crc.reset();
+    crc.update(kind);
+    crc.update(payload, offset, length);
+    buffer.putInt(length + 1);
+    buffer.putInt((int) crc.getValue());
+    buffer.put(kind);
+    buffer.put(payload, offset, length);
+    buffer.putInt(buffer.position(), 0);
+    recordCount++;
+  }
+
+  /**
+   * Visits all intact records from the start of the journal and leaves the write position
+   * behind the last one.
+   *
+   * @param visitor to call for every record, the payload buffer is only valid during the call
+   * @throws IOException if the visitor fails
+   */
+  public void replay(RecordVisitor visitor) throws IOException {
+    ByteBuffer reader = buffer.duplicate();
+    reader.position(HEADER_SIZE);
+    int count = 0;
+    while (replayRecord(reader, visitor)) {
+      count++;
+    }
+    buffer.position(reader.position());
+    // clear a torn tail so a later append cannot be mistaken for a continuation of it
+    if (buffer.remaining() >= 4) {
+      buffer.putInt(buffer.position(), 0);
+    }
+    recordCount = count;
+  }
+
+  // one call per record, so it is compiled early on instead of only after many records
+  private boolean replayRecord(ByteBuffer reader, RecordVisitor visitor) throws IOException {
+    if (reader.remaining() < RECORD_HEADER_SIZE) {
+      return false;
+    }
+    int start = reader.position();
+    int length = reader.getInt();
+    if (length <= 0 || length > reader.remaining() - 4) {
+      reader.position(start);
+      return false;
+    }
+    int checksum = reader.getInt();
+    int end = reader.position() + length;
+    int limit = reader.limit();
+    // the reader itself is narrowed to the record, a slice per record costs more than its bytes
+    reader.limit(end);
+    crc.reset();
+    crc.update(reader);
+    if ((int) crc.getValue() != checksum) {
+      reader.limit(limit);
+      reader.position(start);
+      return false;
+    }
+    reader.position(end - length);
+    byte kind = reader.get();
+    visitor.visit(kind, reader);
+    reader.limit(limit);
+    reader.position(end);
+    return true;
+  }
+
+  /**
+   * Flushes the mapped pages to the storage device.
+   */
+  public void force() {
+    buffer.force();
+  }
+
+  /**
+   * Drops all records, keeping only the header.
+   */
+  public void reset() {
+    buffer.putInt(HEADER_SIZE, 0);
+    buffer.position(HEADER_SIZE);
+    recordCount = 0;
+    force();
+  }
+
+  public int getRecordCount() {
+    return recordCount;
+  }
+
+  /**
+   * Returns the number of bytes used by the header and all records.
+   */
+  public long size() {
+    return buffer.position();
+  }
+
+  public Path getPath() {
+    return path;
+  }
+
+  @Override
+  public void close() throws IOException {
+    force();
+    channel.close();
+  }
+
+  private void ensureCapacity(int bytes) throws IOException {
+    if (buffer.remaining() < bytes) {
+      long required = (long) buffer.position() + bytes;
+      map(((required / MAP_CHUNK) + 1) * MAP_CHUNK);
+    }
+  }
+
+  private void map(long size) throws IOException {
+    int position = buffer == null ? 0 : buffer.position();
+    buffer = channel.map(FileChannel.MapMode.READ_WRITE, 0, size);
+    buffer.position(position);
+  }
+}
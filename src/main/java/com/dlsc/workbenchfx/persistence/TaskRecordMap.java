@@ -0,0 +1,345 @@
+package com.dlsc.workbenchfx.persistence;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.util.AbstractCollection;
+import java.util.AbstractMap;
+import java.util.AbstractSet;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.ConcurrentModificationException;
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+import java.util.Objects;
+import java.util.Set;
+import java.util.UUID;
+
+/**
+ * Encoded tasks by uuid, in insertion order like a {@link java.util.LinkedHashMap}.
+ *
+ * <p>The uuid of a task is not kept as a key, it is read from the encoded record whenever it is
+ * needed. Tasks with a binary uuid are hashed and compared by its two longs, so replaying a
+ * journal never formats a uuid string and creates no object per record besides the record
+ * itself. The key given to {@link #put} has to be the uuid of the record.
+ *
+ * <p>Not thread-safe, the store keeps it on its writer thread.
+ */
+final class TaskRecordMap extends AbstractMap<String, byte[]> {
+
+  private static final int UUID_OFFSET = 2;
+  private static final int DELETED = -1;
+
+  private final TaskCodec codec = new TaskCodec(new StringDictionary());
+  // records in insertion order, null where one was removed
+  private byte[][] records = new byte[16][];
+  private int[] hashes = new int[16];
+  private int count;
+  private int size;
+  // index + 1 of a record, 0 for a free slot and DELETED for one which was freed
+  private int[] slots = new int[32];
+  private int modCount;
+
+  /**
+   * Adds or replaces the record with the uuid of {@code record}.
+   *
+   * @param record an encoded task
+   * @throws IOException if the record has an unsupported version
+   */
+  void putRecord(byte[] record) throws IOException {
+    TaskCodec.readVersion(ByteBuffer.wrap(record, 0, 1));
+    putRecord(record, hash(record));
+  }
+
+  @Override
+  public byte[] put(String uuid, byte[] record) {
+    return putRecord(Objects.requireNonNull(record), hash(record));
+  }
+
+  @Override
+  public byte[] get(Object uuid) {
+    int index = indexOf(uuid);
+    return index < 0 ? null : records[index];
+  }
+
+  @Override
+  public boolean containsKey(Object uuid) {
+    return indexOf(uuid) >= 0;
+  }
+
+  @Override
+  public byte[] remove(Object uuid) {
+    int index = indexOf(uuid);
+    return index < 0 ? null : removeAt(index);
+  }
+
+  @Override
+  public int size() {
+    return size;
+  }
+
+  @Override
+  public void clear() {
+    Arrays.fill(records, 0, count, null);
+    Arrays.fill(slots, 0);
+    count = 0;
+    size = 0;
+    modCount++;
+  }
+
+  @Override
+  public Set<Entry<String, byte[]>> entrySet() {
+    return new AbstractSet<Entry<String, byte[]>>() {
+      @Override
+      public Iterator<Entry<String, byte[]>> iterator() {
+        return new RecordIterator<Entry<String, byte[]>>() {
+          @Override
+          Entry<String, byte[]> valueAt(int index) {
+            return new SimpleImmutableEntry<>(uuidOf(records[index]), records[index]);
+          }
+        };
+      }
+
+      @Override
+      public int size() {
+        return size;
+      }
+    };
+  }
+
+  /**
+   * Returns the records in insertion order, without reading their uuids.
+   */
+  @Override
+  public Collection<byte[]> values() {
+    return new AbstractCollection<byte[]>() {
+      @Override
+      public Iterator<byte[]> iterator() {
+        return new RecordIterator<byte[]>() {
+          @Override
+          byte[] valueAt(int index) {
+            return records[index];
+          }
+        };
+      }
+
+      @Override
+      public Object[] toArray() {
+        Object[] values = new Object[size];
+        int next = 0;
+        for (int index = 0; index < count; index++) {
+          if (records[index] != null) {
+            values[next++] = records[index];
+          }
+        }
+        return values;
+      }
+
+      @Override
+      public int size() {
+        return size;
+      }
+    };
+  }
+
+  private byte[] putRecord(byte[] record, int hash) {
+    int mask = slots.length - 1;
+    int free = -1;
+    for (int slot = hash & mask; ; slot = (slot + 1) & mask) {
+      int entry = slots[slot];
+      if (entry == 0) {
+        break;
+      }
+      if (entry == DELETED) {
+        free = free < 0 ? slot : free;
+      } else if (hashes[entry - 1] == hash && sameUuid(records[entry - 1], record)) {
+        byte[] previous = records[entry - 1];
+        records[entry - 1] = record;
+        return previous;
+      }
+    }
+    if (count == records.length) {
+      // drop the removed records before growing
+      rebuild(size + 1 > records.length / 2 ? records.length * 2 : records.length);
+      return putRecord(record, hash);
+    }
+    // at most half of the slots are used, there is always a free one
+    int slot = free;
+    if (slot < 0) {
+      slot = hash & mask;
+      while (slots[slot] != 0) {
+        slot = (slot + 1) & mask;
+      }
+    }
+    records[count] = record;
+    hashes[count] = hash;
+    slots[slot] = ++count;
+    size++;
+    modCount++;
+    return null;
+  }
+
+  private int indexOf(Object key) {
+    if (key != null && !(key instanceof String)) {
+      return -1;
+    }
+    String uuid = (String) key;
+    UUID binary = uuid == null ? null : TaskCodec.parseUuid(uuid);
+    int hash = binary != null
+        ? hash(binary.getMostSignificantBits(), binary.getLeastSignificantBits())
+        : spread(Objects.hashCode(uuid));
+    int mask = slots.length - 1;
+    for (int slot = hash & mask; ; slot = (slot + 1) & mask) {
+      int entry = slots[slot];
+      if (entry == 0) {
+        return -1;
+      }
+      if (entry != DELETED && hashes[entry - 1] == hash
+          && hasUuid(records[entry - 1], uuid, binary)) {
+        return entry - 1;
+      }
+    }
+  }
+
+  private byte[] removeAt(int index) {
+    int mask = slots.length - 1;
+    int slot = hashes[index] & mask;
+    while (slots[slot] != index + 1) {
+      slot = (slot + 1) & mask;
+    }
+    slots[slot] = DELETED;
+    byte[] previous = records[index];
+    records[index] = null;
+    size--;
+    modCount++;
+    return previous;
+  }
+
+  private void rebuild(int capacity) {
+    byte[][] newRecords = new byte[capacity][];
+    int[] newHashes = new int[capacity];
+    int newCount = 0;
+    for (int i = 0; i < count; i++) {
+      if (records[i] != null) {
+        newRecords[newCount] = records[i];
+        newHashes[newCount++] = hashes[i];
+      }
+    }
+    records = newRecords;
+    hashes = newHashes;
+    count = newCount;
+    slots = new int[capacity * 2];
+    int mask = slots.length - 1;
+    for (int i = 0; i < count; i++) {
+      int slot = hashes[i] & mask;
+      while (slots[slot] != 0) {
+        slot = (slot + 1) & mask;
+      }
+      slots[slot] = i + 1;
+    }
+    modCount++;
+  }
+
+  // the uuid follows the version and flags byte, see the layout in TaskCodec
+
+  private int hash(byte[] record) {
+    if ((record[1] & TaskCodec.FLAG_UUID_BINARY) != 0) {
+      return hash(readLong(record, UUID_OFFSET), readLong(record, UUID_OFFSET + 8));
+    }
+    return spread(Objects.hashCode(uuidOf(record)));
+  }
+
+  private boolean sameUuid(byte[] record, byte[] other) {
+    int uuidFlags = TaskCodec.FLAG_UUID_BINARY | TaskCodec.FLAG_UUID_STRING;
+    if ((record[1] & uuidFlags) != (other[1] & uuidFlags)) {
+      return false;
+    }
+    if ((record[1] & TaskCodec.FLAG_UUID_BINARY) != 0) {
+      for (int i = UUID_OFFSET; i < UUID_OFFSET + 16; i++) {
+        if (record[i] != other[i]) {
+          return false;
+        }
+      }
+      return true;
+    }
+    return (record[1] & TaskCodec.FLAG_UUID_STRING) == 0
+        || uuidOf(record).equals(uuidOf(other));
+  }
+
+  private boolean hasUuid(byte[] record, String uuid, UUID binary) {
+    if ((record[1] & TaskCodec.FLAG_UUID_BINARY) != 0) {
+      return binary != null
+          && readLong(record, UUID_OFFSET) == binary.getMostSignificantBits()
+          && readLong(record, UUID_OFFSET + 8) == binary.getLeastSignificantBits();
+    }
+    return binary == null && Objects.equals(uuidOf(record), uuid);
+  }
+
+  private String uuidOf(byte[] record) {
+    try {
+      return codec.peekUuid(ByteBuffer.wrap(record));
+    } catch (IOException e) {
+      // the version was checked when the record was added
+      throw new UncheckedIOException(e);
+    }
+  }
+
+  private static long readLong(byte[] bytes, int offset) {
+    long value = 0;
+    for (int i = offset; i < offset + 8; i++) {
+      value = (value << 8) | (bytes[i] & 0xFF);
+    }
+    return value;
+  }
+
+  private static int hash(long mostSignificantBits, long leastSignificantBits) {
+    long hash = mostSignificantBits * 31 + leastSignificantBits;
+    return spread((int) (hash ^ (hash >>> 32)));
+  }
+
+  private static int spread(int hash) {
+    int spread = hash * 0x9E3779B9;
+    return spread ^ (spread >>> 16);
+  }
+
+  private abstract class RecordIterator<T> implements Iterator<T> {
+    private int next;
+    private int last = -1;
+    private int expectedModCount = modCount;
+
+    @Override
+    public boolean hasNext() {
+      while (next < count && records[next] == null) {
+        next++;
+      }
+      return next < count;
+    }
+
+    abstract T valueAt(int index);
+
+    @Override
+    public T next() {
+      if (expectedModCount != modCount) {
+        throw new ConcurrentModificationException();
+      }
+      if (!hasNext()) {
+        throw new NoSuchElementException();
+      }
+      last = next++;
+      return valueAt(last);
+    }
+
+    @Override
+    public void remove() {
+      if (last < 0) {
+        throw new IllegalStateException();
+      }
+      if (expectedModCount != modCount) {
+        throw new ConcurrentModificationException();
+      }
+      removeAt(last);
+      last = -1;
+      expectedModCount = modCount;
+    }
+  }
+}
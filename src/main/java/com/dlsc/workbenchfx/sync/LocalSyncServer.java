@@ -0,0 +1,68 @@
+package com.dlsc.workbenchfx.sync;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.NavigableMap;
+import java.util.TreeMap;
+
+/**
+ * In-process stand-in for the sync server, keeping the latest version of every record in memory.
+ *
+ * <p>Every accepted change gets a new sequence number, pulling returns the records whose last
+ * change is newer than the sequence the client has seen. Several {@link SyncEngine}s can share
+ * one instance to simulate devices syncing with each other.
+ */
+public class LocalSyncServer implements SyncTransport {
+
+  private final Map<String, SyncRecord> records = new HashMap<>();
+  private final Map<String, Long> sequences = new HashMap<>();
+  private final NavigableMap<Long, String> changes = new TreeMap<>();
+  private long sequence;
+
+  @Override
+  public synchronized byte[] push(byte[] batch) throws IOException {
+    List<SyncRecord> rejected = new ArrayList<>();
+    for (SyncRecord record : SyncBatch.fromBytes(batch).getRecords()) {
+      String key = record.getKey();
+      SyncRecord stored = records.get(key);
+      VersionVector.Order order = stored == null
+          ? VersionVector.Order.BEFORE : stored.getVector().compare(record.getVector());
+      if (order == VersionVector.Order.BEFORE) {
+        records.put(key, record);
+        Long previous = sequences.put(key, ++sequence);
+        if (previous != null) {
+          changes.remove(previous);
+        }
+        changes.put(sequence, key);
+      } else if (order != VersionVector.Order.EQUAL) {
+        rejected.add(stored);
+      }
+    }
+    return new SyncBatch(sequence, rejected).toBytes();
+  }
+
+  @Override
+  public synchronized byte[] pull(long afterSequence, int limit) throws IOException {
+    List<SyncRecord> changed = new ArrayList<>(Math.min(limit, changes.size()));
+    long last = sequence;
+    for (Map.Entry<Long, String> change : changes.tailMap(afterSequence, false).entrySet()) {
+      if (changed.size() == limit) {
+        break;
+      }
+      changed.add(records.get(change.getValue()));
+      last = change.getKey();
+    }
+    return new SyncBatch(last, changed).toBytes();
+  }
+
+  public synchronized int getRecordCount() {
+    return records.size();
+  }
+
+  public synchronized long getSequence() {
+    return sequence;
+  }
+}
@@ -0,0 +1,57 @@
+package com.dlsc.workbenchfx.sync;
+
+import java.util.Objects;
+
+/**
+ * Resolves a record which was changed locally and remotely since the last sync.
+ *
+ * <p>Deletions and records without a common base version are always resolved by the last
+ * writer, only changes to both sides of an existing record are merged field by field.
+ */
+public enum MergePolicy {
+
+  /**
+   * The version written last wins as a whole, ties are broken by the replica id.
+   */
+  LAST_WRITER_WINS {
+    @Override
+    Object[] merge(Object[] base, Object[] local, Object[] remote, boolean localWins) {
+      return localWins ? local : remote;
+    }
+  },
+
+  /**
+   * Three-way merge against the last synced version: fields changed on one side only keep that
+   * change, fields changed on both sides are taken from the version written last.
+   */
+  FIELD_LEVEL {
+    @Override
+    Object[] merge(Object[] base, Object[] local, Object[] remote, boolean localWins) {
+      if (base.length != local.length || local.length != remote.length) {
+        return localWins ? local : remote;
+      }
+      Object[] merged = new Object[local.length];
+      for (int i = 0; i < merged.length; i++) {
+        if (Objects.equals(local[i], base[i])) {
+          merged[i] = remote[i];
+        } else if (Objects.equals(remote[i], base[i])) {
+          merged[i] = local[i];
+        } else {
+          merged[i] = localWins ? local[i] : remote[i];
+        }
+      }
+      return merged;
+    }
+  };
+
+  /**
+   * Merges the decoded fields of two concurrent versions.
+   *
+   * @param base fields of the last version both sides agreed on
+   * @param local fields of the local version
+   * @param remote fields of the remote version
+   * @param localWins whether the local version was written last
+   * @return the merged fields
+   */
+  abstract Object[] merge(Object[] base, Object[] local, Object[] remote, boolean localWins);
+}
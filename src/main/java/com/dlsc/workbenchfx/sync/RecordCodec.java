@@ -0,0 +1,224 @@
+package com.dlsc.workbenchfx.sync;
+
+import com.dlsc.workbenchfx.modules.dashboard.model.ColorCategories;
+import com.dlsc.workbenchfx.modules.dashboard.model.TaskDTOModel;
+import com.dlsc.workbenchfx.persistence.EntryRecord;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDateTime;
+import java.time.ZoneOffset;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Converts tasks and entries to field arrays and field arrays to self-describing bytes.
+ *
+ * <p>Unlike the {@link com.dlsc.workbenchfx.persistence.TaskCodec} the encoding does not depend
+ * on a local string dictionary, so it can be sent to other replicas. It is deterministic, equal
+ * records always have equal bytes, which is how the {@link SyncEngine} detects changes. Each
+ * value starts with a type tag, so the field-level merge can work on any record kind. The undo
+ * history keeps its snapshots in the same encoding.
+ */
+public final class RecordCodec {
+
+  static final int TASK_NAME = 0;
+  static final int TASK_DESCRIPTION = 1;
+  static final int TASK_URGENCY = 2;
+  static final int TASK_IMPORTANCE = 3;
+  static final int TASK_COLOR_CATEGORY = 4;
+  static final int TASK_TAGS = 5;
+  static final int TASK_CREATED = 6;
+  static final int TASK_DATE_TIMES = 7;
+  static final int TASK_FIELDS = 8;
+
+  static final int ENTRY_CALENDAR = 0;
+  static final int ENTRY_TITLE = 1;
+  static final int ENTRY_LOCATION = 2;
+  static final int ENTRY_START = 3;
+  static final int ENTRY_END = 4;
+  static final int ENTRY_ZONE = 5;
+  static final int ENTRY_FULL_DAY = 6;
+  static final int ENTRY_RECURRENCE_RULE = 7;
+  static final int ENTRY_FIELDS = 8;
+
+  private static final byte TYPE_NULL = 0;
+  private static final byte TYPE_STRING = 1;
+  private static final byte TYPE_INT = 2;
+  private static final byte TYPE_BOOLEAN = 3;
+  private static final byte TYPE_DATE_TIME = 4;
+  private static final byte TYPE_LIST = 5;
+
+  private RecordCodec() {
+  }
+
+  public static Object[] fieldsOf(TaskDTOModel task) {
+    Object[] fields = new Object[TASK_FIELDS];
+    fields[TASK_NAME] = task.getName();
+    fields[TASK_DESCRIPTION] = task.getDescription();
+    fields[TASK_URGENCY] = task.getUrgency();
+    fields[TASK_IMPORTANCE] = task.getImportance();
+    // by name, the ordinals are local to this version of the app
+    fields[TASK_COLOR_CATEGORY] =
+        task.getColorCategory() == null ? null : task.getColorCategory().name();
+    fields[TASK_TAGS] = copyOf(task.getTags());
+    fields[TASK_CREATED] = task.getCreateLocalDateTime();
+    fields[TASK_DATE_TIMES] = copyOf(task.getListOfLocalDateTimes());
+    return fields;
+  }
+
+  @SuppressWarnings("unchecked")
+  public static TaskDTOModel toTask(String uuid, Object[] fields) {
+    return new TaskDTOModel.TaskBuilder()
+        .uuid(uuid)
+        .name((String) fields[TASK_NAME])
+        .description((String) fields[TASK_DESCRIPTION])
+        .urgency(intValue(fields[TASK_URGENCY]))
+        .importance(intValue(fields[TASK_IMPORTANCE]))
+        .colorCategory(colorCategoryOf((String) fields[TASK_COLOR_CATEGORY]))
+        .tags((List<String>) fields[TASK_TAGS])
+        .createLocalDateTime((LocalDateTime) fields[TASK_CREATED])
+        .listOfLocalDateTimes((List<LocalDateTime>) fields[TASK_DATE_TIMES])
+        .build();
+  }
+
+  /**
+   * Returns the color category with the given name, null for null and for names which are not
+   * known here.
+   */
+  private static ColorCategories colorCategoryOf(String name) {
+    if (name != null) {
+      for (ColorCategories category : ColorCategories.values()) {
+        if (category.name().equals(name)) {
+          return category;
+        }
+      }
+    }
+    return null;
+  }
+
+  public static Object[] fieldsOf(EntryRecord entry) {
+    Object[] fields = new Object[ENTRY_FIELDS];
+    fields[ENTRY_CALENDAR] = entry.getCalendarName();
+    fields[ENTRY_TITLE] = entry.getTitle();
+    fields[ENTRY_LOCATION] = entry.getLocation();
+    fields[ENTRY_START] = entry.getStartDateTime();
+    fields[ENTRY_END] = entry.getEndDateTime();
+    fields[ENTRY_ZONE] = entry.getZoneId();
+    fields[ENTRY_FULL_DAY] = entry.isFullDay();
+    // EntryRecord.toEntry() does not set empty rules, so an empty rule would never round-trip
+    String rule = entry.getRecurrenceRule();
+    fields[ENTRY_RECURRENCE_RULE] = rule == null || rule.isEmpty() ? null : rule;
+    return fields;
+  }
+
+  public static EntryRecord toEntry(String id, Object[] fields) {
+    return new EntryRecord(id,
+        (String) fields[ENTRY_CALENDAR],
+        (String) fields[ENTRY_TITLE],
+        (String) fields[ENTRY_LOCATION],
+        (LocalDateTime) fields[ENTRY_START],
+        (LocalDateTime) fields[ENTRY_END],
+        (String) fields[ENTRY_ZONE],
+        Boolean.TRUE.equals(fields[ENTRY_FULL_DAY]),
+        (String) fields[ENTRY_RECURRENCE_RULE]);
+  }
+
+  public static byte[] encode(Object[] fields) {
+    ByteArrayOutputStream bytes = new ByteArrayOutputStream(128);
+    DataOutputStream out = new DataOutputStream(bytes);
+    try {
+      out.writeByte(fields.length);
+      for (Object field : fields) {
+        writeValue(out, field);
+      }
+    } catch (IOException e) {
+      // cannot happen when writing to memory
+      throw new UncheckedIOException(e);
+    }
+    return bytes.toByteArray();
+  }
+
+  public static Object[] decode(byte[] bytes) {
+    DataInputStream in = new DataInputStream(new ByteArrayInputStream(bytes));
+    try {
+      Object[] fields = new Object[in.readUnsignedByte()];
+      for (int i = 0; i < fields.length; i++) {
+        fields[i] = readValue(in);
+      }
+      return fields;
+    } catch (IOException e) {
+      throw new IllegalArgumentException("Malformed sync record", e);
+    }
+  }
+
+  private static void writeValue(DataOutputStream out, Object value) throws IOException {
+    if (value == null) {
+      out.writeByte(TYPE_NULL);
+    } else if (value instanceof String) {
+      byte[] utf8 = ((String) value).getBytes(StandardCharsets.UTF_8);
+      out.writeByte(TYPE_STRING);
+      out.writeInt(utf8.length);
+      out.write(utf8);
+    } else if (value instanceof Integer) {
+      out.writeByte(TYPE_INT);
+      out.writeInt((Integer) value);
+    } else if (value instanceof Boolean) {
+      out.writeByte(TYPE_BOOLEAN);
+      out.writeBoolean((Boolean) value);
+    } else if (value instanceof LocalDateTime) {
+      LocalDateTime dateTime = (LocalDateTime) value;
+      out.writeByte(TYPE_DATE_TIME);
+      out.writeLong(dateTime.toEpochSecond(ZoneOffset.UTC));
+      out.writeInt(dateTime.getNano());
+    } else if (value instanceof List) {
+      List<?> list = (List<?>) value;
+      out.writeByte(TYPE_LIST);
+      out.writeInt(list.size());
+      for (Object element : list) {
+        writeValue(out, element);
+      }
+    } else {
+      throw new IllegalArgumentException("Cannot encode " + value.getClass().getName());
+    }
+  }
+
+  private static Object readValue(DataInputStream in) throws IOException {
+    byte type = in.readByte();
+    switch (type) {
+      case TYPE_NULL:
+        return null;
+      case TYPE_STRING:
+        byte[] utf8 = new byte[in.readInt()];
+        in.readFully(utf8);
+        return new String(utf8, StandardCharsets.UTF_8);
+      case TYPE_INT:
+        return in.readInt();
+      case TYPE_BOOLEAN:
+        return in.readBoolean();
+      case TYPE_DATE_TIME:
+        return LocalDateTime.ofEpochSecond(in.readLong(), in.readInt(), ZoneOffset.UTC);
+      case TYPE_LIST:
+        int size = in.readInt();
+        List<Object> list = new ArrayList<>(size);
+        for (int i = 0; i < size; i++) {
+          list.add(readValue(in));
+        }
+        return list;
+      default:
+        throw new IOException("Unknown value type " + type);
+    }
+  }
+
+  private static <T> List<T> copyOf(List<T> list) {
+    return list == null ? null : new ArrayList<>(list);
+  }
+
+  private static int intValue(Object value) {
+    return value == null ? 0 : (Integer) value;
+  }
+}
@@ -0,0 +1,100 @@
+package com.dlsc.workbenchfx.sync;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.zip.Deflater;
+import java.util.zip.DeflaterOutputStream;
+import java.util.zip.InflaterInputStream;
+
+/**
+ * Batch of records together with a server sequence number, the unit sent over a
+ * {@link SyncTransport}.
+ *
+ * <p>On the wire a batch is deflate-compressed. Task and entry payloads repeat calendar names,
+ * tags and color categories a lot, so batches usually shrink to a fraction of their size.
+ */
+public final class SyncBatch {
+
+  private static final int MAGIC = 0x46585331;
+
+  private final long sequence;
+  private final List<SyncRecord> records;
+
+  public SyncBatch(long sequence, List<SyncRecord> records) {
+    this.sequence = sequence;
+    this.records = Collections.unmodifiableList(records);
+  }
+
+  /**
+   * Returns the sequence number, for pulled batches the last server change they contain.
+   */
+  public long getSequence() {
+    return sequence;
+  }
+
+  public List<SyncRecord> getRecords() {
+    return records;
+  }
+
+  public byte[] toBytes() throws IOException {
+    ByteArrayOutputStream bytes = new ByteArrayOutputStream(64 + records.size() * 64);
+    Deflater deflater = new Deflater(Deflater.BEST_SPEED);
+    try (DataOutputStream out = new DataOutputStream(new DeflaterOutputStream(bytes, deflater))) {
+      out.writeInt(MAGIC);
+      out.writeLong(sequence);
+      out.writeInt(records.size());
+      for (SyncRecord record : records) {
+        out.writeByte(record.getKind().ordinal());
+        out.writeUTF(record.getId());
+        record.getVector().write(out);
+        out.writeLong(record.getModified());
+        out.writeUTF(record.getWriter());
+        byte[] payload = record.getPayload();
+        out.writeInt(payload == null ? -1 : payload.length);
+        if (payload != null) {
+          out.write(payload);
+        }
+      }
+    } finally {
+      deflater.end();
+    }
+    return bytes.toByteArray();
+  }
+
+  public static SyncBatch fromBytes(byte[] bytes) throws IOException {
+    try (DataInputStream in = new DataInputStream(
+        new InflaterInputStream(new ByteArrayInputStream(bytes)))) {
+      if (in.readInt() != MAGIC) {
+        throw new IOException("Not a sync batch");
+      }
+      long sequence = in.readLong();
+      int count = in.readInt();
+      SyncRecord.Kind[] kinds = SyncRecord.Kind.values();
+      List<SyncRecord> records = new ArrayList<>(count);
+      for (int i = 0; i < count; i++) {
+        int kind = in.readUnsignedByte();
+        if (kind >= kinds.length) {
+          throw new IOException("Unknown record kind " + kind);
+        }
+        String id = in.readUTF();
+        VersionVector vector = VersionVector.read(in);
+        long modified = in.readLong();
+        String writer = in.readUTF();
+        int length = in.readInt();
+        byte[] payload = null;
+        if (length >= 0) {
+          payload = new byte[length];
+          in.readFully(payload);
+        }
+        records.add(new SyncRecord(kinds[kind], id, vector, modified, writer, payload));
+      }
+      return new SyncBatch(sequence, records);
+    }
+  }
+}
@@ -0,0 +1,419 @@
+package com.dlsc.workbenchfx.sync;
+
+import com.dlsc.workbenchfx.modules.dashboard.model.TaskDTOModel;
+import com.dlsc.workbenchfx.persistence.EntryRecord;
+import com.dlsc.workbenchfx.utils.LatencyHistogram;
+import com.dlsc.workbenchfx.utils.Metrics;
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.EnumMap;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+
+/**
+ * Synchronizes tasks and calendar entries with a server, sending only what changed.
+ *
+ * <p>Every push and pull first compares the given records with the ones seen last time. Each
+ * changed, added or removed record gets its counter in the record's {@link VersionVector}
+ * incremented and is marked dirty. Pushing sends the dirty records in compressed batches, the
+ * server rejects a record if another replica changed it in the meantime. Pulling fetches the
+ * records which changed on the server since the last pull. Remote versions which have seen the
+ * local changes replace them, concurrent versions are resolved with the {@link MergePolicy} and
+ * stay dirty, so the merged version is sent with the next push.
+ *
+ * <p>Encoding, comparing, merging and talking to the server run on a single background thread,
+ * which also confines the sync state. Callers on the FX thread only pay for copying their own
+ * objects, the given records must not be changed afterwards. The state is kept in memory, like the
+ * {@link LocalSyncServer} which is used until there is a real server.
+ */
+public class SyncEngine implements Closeable {
+
+  private static final Logger LOGGER = LogManager.getLogger(SyncEngine.class.getName());
+
+  static final int MAX_BATCH_RECORDS = 512;
+
+  private final String replicaId;
+  private final SyncTransport transport;
+  private final MergePolicy mergePolicy;
+  private final ExecutorService syncThread;
+  private final LatencyHistogram pushTime = Metrics.histogram("sync.push");
+  private final LatencyHistogram pullTime = Metrics.histogram("sync.pull");
+  private final LongAdder recordsPushed = Metrics.counter("sync.records.pushed");
+  private final LongAdder recordsPulled = Metrics.counter("sync.records.pulled");
+  private final LongAdder conflicts = Metrics.counter("sync.conflicts");
+  private final LongAdder bytesSent = Metrics.counter("sync.bytes.sent");
+  private final LongAdder bytesReceived = Metrics.counter("sync.bytes.received");
+
+  // confined to the sync thread
+  private final Map<SyncRecord.Kind, Map<String, RecordState>> states =
+      new EnumMap<>(SyncRecord.Kind.class);
+  private long pulledSequence;
+
+  /**
+   * Sync state of one record.
+   */
+  private static final class RecordState {
+    VersionVector vector = VersionVector.EMPTY;
+    // null if the record is deleted or not known
+    byte[] local;
+    byte[] synced;
+    long modified;
+    String writer;
+    boolean dirty;
+  }
+
+  /**
+   * Outcome of a push or a pull. The remote changes have to be applied to the local data.
+   */
+  public static final class SyncResult {
+    private final int pushed;
+    private final int rejected;
+    private final int pulled;
+    private final int conflicts;
+    private final List<TaskDTOModel> changedTasks;
+    private final Set<String> removedTasks;
+    private final List<EntryRecord> changedEntries;
+    private final Set<String> removedEntries;
+
+    SyncResult(int pushed, int rejected, int pulled, int conflicts,
+               List<TaskDTOModel> changedTasks, Set<String> removedTasks,
+               List<EntryRecord> changedEntries, Set<String> removedEntries) {
+      this.pushed = pushed;
+      this.rejected = rejected;
+      this.pulled = pulled;
+      this.conflicts = conflicts;
+      this.changedTasks = Collections.unmodifiableList(changedTasks);
+      this.removedTasks = Collections.unmodifiableSet(removedTasks);
+      this.changedEntries = Collections.unmodifiableList(changedEntries);
+      this.removedEntries = Collections.unmodifiableSet(removedEntries);
+    }
+
+    public int getPushed() {
+      return pushed;
+    }
+    /**
+     * Returns the number of records the server rejected, they are sent again after a pull.
+     */
+    public int getRejected() {
+      return rejected;
+    }
+    public int getPulled() {
+      return pulled;
+    }
+    public int getConflicts() {
+      return conflicts;
+    }
+    /**
+     * Returns the tasks which were added or changed remotely, as new detached instances.
+     */
+    public List<TaskDTOModel> getChangedTasks() {
+      return changedTasks;
+    }
+    public Set<String> getRemovedTasks() {
+      return removedTasks;
+    }
+    public List<EntryRecord> getChangedEntries() {
+      return changedEntries;
+    }
+    public Set<String> getRemovedEntries() {
+      return removedEntries;
+    }
+    public boolean hasRemoteChanges() {
+      return !changedTasks.isEmpty() || !removedTasks.isEmpty()
+          || !changedEntries.isEmpty() || !removedEntries.isEmpty();
+    }
+  }
+
+  /**
+   * Creates an engine for the replica {@code replicaId}.
+   *
+   * @param replicaId unique id of this installation, used in the version vectors
+   * @param transport connection to the server
+   * @param mergePolicy resolves records changed locally and remotely
+   */
+  public SyncEngine(String replicaId, SyncTransport transport, MergePolicy mergePolicy) {
+    this.replicaId = replicaId;
+    this.transport = transport;
+    this.mergePolicy = mergePolicy;
+    for (SyncRecord.Kind kind : SyncRecord.Kind.values()) {
+      states.put(kind, new HashMap<>());
+    }
+    syncThread = Executors.newSingleThreadExecutor(runnable -> {
+      Thread thread = new Thread(runnable, "SyncEngine: Sync Thread");
+      thread.setDaemon(true);
+      return thread;
+    });
+  }
+
+  public String getReplicaId() {
+    return replicaId;
+  }
+
+  /**
+   * Sends the records which changed since the last sync to the server.
+   *
+   * @param tasks copies of all local tasks
+   * @param entries all local entries
+   * @return the result, it never contains remote changes
+   */
+  public CompletableFuture<SyncResult> push(Collection<TaskDTOModel> tasks,
+                                            Collection<EntryRecord> entries) {
+    return CompletableFuture.supplyAsync(() -> {
+      long start = System.nanoTime();
+      stage(encodeTasks(tasks), encodeEntries(entries));
+      try {
+        SyncResult result = pushDirty();
+        pushTime.recordSince(start);
+        return result;
+      } catch (IOException e) {
+        throw new UncheckedIOException(e);
+      }
+    }, syncThread);
+  }
+
+  /**
+   * Fetches the records which changed on the server since the last pull and merges them with
+   * the given local records. Merged records are sent with the next push.
+   *
+   * @param tasks copies of all local tasks
+   * @param entries all local entries
+   * @return the result with the remote changes to apply to the local data
+   */
+  public CompletableFuture<SyncResult> pull(Collection<TaskDTOModel> tasks,
+                                            Collection<EntryRecord> entries) {
+    return CompletableFuture.supplyAsync(() -> {
+      long start = System.nanoTime();
+      stage(encodeTasks(tasks), encodeEntries(entries));
+      try {
+        SyncResult result = pullChanges();
+        pullTime.recordSince(start);
+        return result;
+      } catch (IOException e) {
+        throw new UncheckedIOException(e);
+      }
+    }, syncThread);
+  }
+
+  @Override
+  public void close() {
+    syncThread.shutdown();
+    try {
+      syncThread.awaitTermination(10, TimeUnit.SECONDS);
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+    }
+  }
+
+  private static Map<String, byte[]> encodeTasks(Collection<TaskDTOModel> tasks) {
+    Map<String, byte[]> encoded = new HashMap<>(tasks.size() * 2);
+    for (TaskDTOModel task : tasks) {
+      encoded.put(task.getUuid(), RecordCodec.encode(RecordCodec.fieldsOf(task)));
+    }
+    return encoded;
+  }
+
+  private static Map<String, byte[]> encodeEntries(Collection<EntryRecord> entries) {
+    Map<String, byte[]> encoded = new HashMap<>(entries.size() * 2);
+    for (EntryRecord entry : entries) {
+      encoded.put(entry.getId(), RecordCodec.encode(RecordCodec.fieldsOf(entry)));
+    }
+    return encoded;
+  }
+
+  private void stage(Map<String, byte[]> tasks, Map<String, byte[]> entries) {
+    long now = System.currentTimeMillis();
+    stage(states.get(SyncRecord.Kind.TASK), tasks, now);
+    stage(states.get(SyncRecord.Kind.ENTRY), entries, now);
+  }
+
+  private void stage(Map<String, RecordState> current, Map<String, byte[]> encoded, long now) {
+    for (Map.Entry<String, byte[]> record : encoded.entrySet()) {
+      RecordState state = current.computeIfAbsent(record.getKey(), key -> new RecordState());
+      if (!Arrays.equals(state.local, record.getValue())) {
+        state.local = record.getValue();
+        touch(state, now);
+      }
+    }
+    for (Map.Entry<String, RecordState> record : current.entrySet()) {
+      RecordState state = record.getValue();
+      if (state.local != null && !encoded.containsKey(record.getKey())) {
+        state.local = null;
+        touch(state, now);
+      }
+    }
+  }
+
+  private void touch(RecordState state, long now) {
+    state.vector = state.vector.increment(replicaId);
+    state.modified = now;
+    state.writer = replicaId;
+    state.dirty = true;
+  }
+
+  private SyncResult pushDirty() throws IOException {
+    List<SyncRecord> dirty = new ArrayList<>();
+    for (Map.Entry<SyncRecord.Kind, Map<String, RecordState>> kind : states.entrySet()) {
+      for (Map.Entry<String, RecordState> record : kind.getValue().entrySet()) {
+        RecordState state = record.getValue();
+        if (state.dirty) {
+          dirty.add(new SyncRecord(kind.getKey(), record.getKey(), state.vector,
+              state.modified, state.writer, state.local));
+        }
+      }
+    }
+    int pushed = 0;
+    int rejected = 0;
+    for (int from = 0; from < dirty.size(); from += MAX_BATCH_RECORDS) {
+      List<SyncRecord> batch = dirty.subList(from, Math.min(dirty.size(), from + MAX_BATCH_RECORDS));
+      byte[] request = new SyncBatch(pulledSequence, batch).toBytes();
+      bytesSent.add(request.length);
+      byte[] response = transport.push(request);
+      bytesReceived.add(response.length);
+      Set<String> rejectedKeys = new HashSet<>();
+      for (SyncRecord record : SyncBatch.fromBytes(response).getRecords()) {
+        rejectedKeys.add(record.getKey());
+      }
+      for (SyncRecord record : batch) {
+        if (rejectedKeys.contains(record.getKey())) {
+          rejected++;
+        } else {
+          RecordState state = states.get(record.getKind()).get(record.getId());
+          state.synced = state.local;
+          state.dirty = false;
+          pushed++;
+        }
+      }
+    }
+    recordsPushed.add(pushed);
+    if (rejected > 0) {
+      LOGGER.warn("Server rejected {} records changed by other replicas, pull to merge them",
+          rejected);
+    }
+    LOGGER.debug("Pushed {} records", pushed);
+    return new SyncResult(pushed, rejected, 0, 0, Collections.emptyList(),
+        Collections.emptySet(), Collections.emptyList(), Collections.emptySet());
+  }
+
+  private SyncResult pullChanges() throws IOException {
+    Map<SyncRecord.Kind, Map<String, byte[]>> changes = new EnumMap<>(SyncRecord.Kind.class);
+    for (SyncRecord.Kind kind : SyncRecord.Kind.values()) {
+      changes.put(kind, new LinkedHashMap<>());
+    }
+    int pulled = 0;
+    int conflicted = 0;
+    List<SyncRecord> records;
+    do {
+      byte[] response = transport.pull(pulledSequence, MAX_BATCH_RECORDS);
+      bytesReceived.add(response.length);
+      SyncBatch batch = SyncBatch.fromBytes(response);
+      records = batch.getRecords();
+      for (SyncRecord record : records) {
+        if (merge(record, changes.get(record.getKind()))) {
+          conflicted++;
+        }
+      }
+      pulled += records.size();
+      pulledSequence = batch.getSequence();
+    } while (records.size() == MAX_BATCH_RECORDS);
+    recordsPulled.add(pulled);
+    conflicts.add(conflicted);
+    LOGGER.debug("Pulled {} records, {} conflicts", pulled, conflicted);
+
+    List<TaskDTOModel> changedTasks = new ArrayList<>();
+    Set<String> removedTasks = new HashSet<>();
+    for (Map.Entry<String, byte[]> change : changes.get(SyncRecord.Kind.TASK).entrySet()) {
+      if (change.getValue() == null) {
+        removedTasks.add(change.getKey());
+      } else {
+        changedTasks.add(RecordCodec.toTask(change.getKey(),
+            RecordCodec.decode(change.getValue())));
+      }
+    }
+    List<EntryRecord> changedEntries = new ArrayList<>();
+    Set<String> removedEntries = new HashSet<>();
+    for (Map.Entry<String, byte[]> change : changes.get(SyncRecord.Kind.ENTRY).entrySet()) {
+      if (change.getValue() == null) {
+        removedEntries.add(change.getKey());
+      } else {
+        changedEntries.add(RecordCodec.toEntry(change.getKey(),
+            RecordCodec.decode(change.getValue())));
+      }
+    }
+    return new SyncResult(0, 0, pulled, conflicted, changedTasks, removedTasks,
+        changedEntries, removedEntries);
+  }
+
+  /**
+   * Merges a remote version into the local state.
+   *
+   * @param changes collects the local records which changed, by id
+   * @return whether the record was changed concurrently
+   */
+  private boolean merge(SyncRecord remote, Map<String, byte[]> changes) {
+    Map<String, RecordState> current = states.get(remote.getKind());
+    RecordState state = current.get(remote.getId());
+    if (state == null) {
+      state = new RecordState();
+      current.put(remote.getId(), state);
+    }
+    switch (remote.getVector().compare(state.vector)) {
+      case EQUAL:
+        // our own push coming back, or a push whose response got lost
+        state.synced = remote.getPayload();
+        state.dirty = false;
+        return false;
+      case BEFORE:
+        return false;
+      case AFTER:
+        if (!Arrays.equals(state.local, remote.getPayload())) {
+          changes.put(remote.getId(), remote.getPayload());
+        }
+        state.vector = remote.getVector();
+        state.local = remote.getPayload();
+        state.synced = remote.getPayload();
+        state.modified = remote.getModified();
+        state.writer = remote.getWriter();
+        state.dirty = false;
+        return false;
+      default:
+        byte[] merged = resolve(state, remote);
+        if (!Arrays.equals(state.local, merged)) {
+          changes.put(remote.getId(), merged);
+        }
+        state.vector = state.vector.merge(remote.getVector()).increment(replicaId);
+        state.local = merged;
+        state.synced = remote.getPayload();
+        state.modified = Math.max(state.modified, remote.getModified());
+        state.writer = replicaId;
+        state.dirty = true;
+        return true;
+    }
+  }
+
+  private byte[] resolve(RecordState local, SyncRecord remote) {
+    boolean localWins = local.modified != remote.getModified()
+        ? local.modified > remote.getModified()
+        : local.writer.compareTo(remote.getWriter()) > 0;
+    if (local.local == null || remote.isDeleted() || local.synced == null) {
+      return localWins ? local.local : remote.getPayload();
+    }
+    return RecordCodec.encode(mergePolicy.merge(RecordCodec.decode(local.synced),
+        RecordCodec.decode(local.local), RecordCodec.decode(remote.getPayload()), localWins));
+  }
+}
@@ -0,0 +1,79 @@
+package com.dlsc.workbenchfx.sync;
+
+import java.util.Objects;
+import org.apache.commons.lang3.builder.ToStringBuilder;
+
+/**
+ * One version of a task or calendar entry as it is exchanged with the sync server.
+ *
+ * <p>The payload is the {@link RecordCodec} encoding of the record, {@code null} marks a deleted
+ * record. The modification time and the replica which wrote this version decide conflicts for
+ * {@link MergePolicy#LAST_WRITER_WINS}.
+ */
+public final class SyncRecord {
+
+  /**
+   * Type of the synchronized record.
+   */
+  public enum Kind {
+    TASK, ENTRY
+  }
+
+  private final Kind kind;
+  private final String id;
+  private final VersionVector vector;
+  private final long modified;
+  private final String writer;
+  private final byte[] payload;
+
+  public SyncRecord(Kind kind, String id, VersionVector vector, long modified, String writer,
+                    byte[] payload) {
+    this.kind = Objects.requireNonNull(kind);
+    this.id = Objects.requireNonNull(id);
+    this.vector = Objects.requireNonNull(vector);
+    this.modified = modified;
+    this.writer = Objects.requireNonNull(writer);
+    this.payload = payload;
+  }
+
+  /**
+   * Returns a key which is unique across record kinds.
+   */
+  public String getKey() {
+    return kind.name() + '/' + id;
+  }
+
+  public Kind getKind() {
+    return kind;
+  }
+  public String getId() {
+    return id;
+  }
+  public VersionVector getVector() {
+    return vector;
+  }
+  public long getModified() {
+    return modified;
+  }
+  public String getWriter() {
+    return writer;
+  }
+  public byte[] getPayload() {
+    return payload;
+  }
+  public boolean isDeleted() {
+    return payload == null;
+  }
+
+  @Override
+  public String toString() {
+    return new ToStringBuilder(this)
+        .append("kind", kind)
+        .append("id", id)
+        .append("vector", vector)
+        .append("modified", modified)
+        .append("writer", writer)
+        .append("deleted", isDeleted())
+        .toString();
+  }
+}
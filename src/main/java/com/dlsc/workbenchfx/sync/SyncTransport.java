@@ -0,0 +1,30 @@
+package com.dlsc.workbenchfx.sync;
+
+import java.io.IOException;
+
+/**
+ * Connection to a sync server. Requests and responses are {@link SyncBatch#toBytes() encoded}
+ * batches, so an implementation only has to move bytes.
+ *
+ * <p>Methods are only called from the sync thread of a {@link SyncEngine} and may block.
+ */
+public interface SyncTransport {
+
+  /**
+   * Sends changed records. The server accepts a record if its vector has seen every change of
+   * the stored version.
+   *
+   * @param batch encoded batch of changed records
+   * @return encoded batch with the current server versions of the records which were rejected
+   */
+  byte[] push(byte[] batch) throws IOException;
+
+  /**
+   * Fetches the records which changed on the server after {@code afterSequence}.
+   *
+   * @param afterSequence last sequence number the client has seen
+   * @param limit maximum number of records to return
+   * @return encoded batch, its sequence is the last change it contains
+   */
+  byte[] pull(long afterSequence, int limit) throws IOException;
+}
@@ -0,0 +1,169 @@
+package com.dlsc.workbenchfx.sync;
+
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.IOException;
+import java.util.Arrays;
+
+/**
+ * Immutable version vector, one counter per replica which changed a record.
+ *
+ * <p>Replicas are kept sorted, so comparing and merging two vectors is a single pass. Records
+ * are usually changed by a handful of replicas, the vectors stay tiny.
+ */
+public final class VersionVector {
+
+  public static final VersionVector EMPTY = new VersionVector(new String[0], new long[0]);
+
+  /**
+   * How a vector relates to another one.
+   */
+  public enum Order {
+    EQUAL, BEFORE, AFTER, CONCURRENT
+  }
+
+  private final String[] replicas;
+  private final long[] counters;
+
+  private VersionVector(String[] replicas, long[] counters) {
+    this.replicas = replicas;
+    this.counters = counters;
+  }
+
+  public long get(String replica) {
+    int index = Arrays.binarySearch(replicas, replica);
+    return index < 0 ? 0 : counters[index];
+  }
+
+  /**
+   * Returns a copy of this vector with the counter of {@code replica} incremented.
+   */
+  public VersionVector increment(String replica) {
+    int index = Arrays.binarySearch(replicas, replica);
+    if (index >= 0) {
+      long[] incremented = counters.clone();
+      incremented[index]++;
+      return new VersionVector(replicas, incremented);
+    }
+    int insertAt = -index - 1;
+    String[] newReplicas = new String[replicas.length + 1];
+    long[] newCounters = new long[counters.length + 1];
+    System.arraycopy(replicas, 0, newReplicas, 0, insertAt);
+    System.arraycopy(counters, 0, newCounters, 0, insertAt);
+    newReplicas[insertAt] = replica;
+    newCounters[insertAt] = 1;
+    System.arraycopy(replicas, insertAt, newReplicas, insertAt + 1, replicas.length - insertAt);
+    System.arraycopy(counters, insertAt, newCounters, insertAt + 1, counters.length - insertAt);
+    return new VersionVector(newReplicas, newCounters);
+  }
+
+  /**
+   * Returns the pairwise maximum of both vectors.
+   */
+  public VersionVector merge(VersionVector other) {
+    String[] mergedReplicas = new String[replicas.length + other.replicas.length];
+    long[] mergedCounters = new long[mergedReplicas.length];
+    int size = 0;
+    int i = 0;
+    int j = 0;
+    while (i < replicas.length || j < other.replicas.length) {
+      int cmp = i == replicas.length ? 1
+          : j == other.replicas.length ? -1 : replicas[i].compareTo(other.replicas[j]);
+      if (cmp < 0) {
+        mergedReplicas[size] = replicas[i];
+        mergedCounters[size++] = counters[i++];
+      } else if (cmp > 0) {
+        mergedReplicas[size] = other.replicas[j];
+        mergedCounters[size++] = other.counters[j++];
+      } else {
+        mergedReplicas[size] = replicas[i];
+        mergedCounters[size++] = Math.max(counters[i++], other.counters[j++]);
+      }
+    }
+    return new VersionVector(Arrays.copyOf(mergedReplicas, size),
+        Arrays.copyOf(mergedCounters, size));
+  }
+
+  /**
+   * Compares this vector to {@code other}.
+   *
+   * @return {@link Order#BEFORE} if {@code other} has seen every change of this vector and more
+   */
+  public Order compare(VersionVector other) {
+    boolean less = false;
+    boolean greater = false;
+    int i = 0;
+    int j = 0;
+    while (i < replicas.length || j < other.replicas.length) {
+      int cmp = i == replicas.length ? 1
+          : j == other.replicas.length ? -1 : replicas[i].compareTo(other.replicas[j]);
+      if (cmp < 0) {
+        greater = true;
+        i++;
+      } else if (cmp > 0) {
+        less = true;
+        j++;
+      } else {
+        less |= counters[i] < other.counters[j];
+        greater |= counters[i] > other.counters[j];
+        i++;
+        j++;
+      }
+    }
+    if (less && greater) {
+      return Order.CONCURRENT;
+    }
+    return less ? Order.BEFORE : greater ? Order.AFTER : Order.EQUAL;
+  }
+
+  void write(DataOutput out) throws IOException {
+    out.writeShort(replicas.length);
+    for (int i = 0; i < replicas.length; i++) {
+      out.writeUTF(replicas[i]);
+      out.writeLong(counters[i]);
+    }
+  }
+
+  static VersionVector read(DataInput in) throws IOException {
+    int size = in.readUnsignedShort();
+    if (size == 0) {
+      return EMPTY;
+    }
+    String[] replicas = new String[size];
+    long[] counters = new long[size];
+    for (int i = 0; i < size; i++) {
+      replicas[i] = in.readUTF();
+      counters[i] = in.readLong();
+      if (i > 0 && replicas[i - 1].compareTo(replicas[i]) >= 0) {
+        throw new IOException("Replicas of a version vector are not sorted");
+      }
+    }
+    return new VersionVector(replicas, counters);
+  }
+
+  @Override
+  public boolean equals(Object obj) {
+    if (this == obj) {
+      return true;
+    }
+    if (!(obj instanceof VersionVector)) {
+      return false;
+    }
+    VersionVector other = (VersionVector) obj;
+    return Arrays.equals(replicas, other.replicas) && Arrays.equals(counters, other.counters);
+  }
+
+  @Override
+  public int hashCode() {
+    return 31 * Arrays.hashCode(replicas) + Arrays.hashCode(counters);
+  }
+
+  @Override
+  public String toString() {
+    StringBuilder builder = new StringBuilder("{");
+    for (int i = 0; i < replicas.length; i++) {
+      builder.append(i == 0 ? "" : ", ").append(replicas[i]).append('=').append(counters[i]);
+    }
+    return builder.append('}').toString();
+  }
+}
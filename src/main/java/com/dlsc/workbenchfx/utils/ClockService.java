@@ -0,0 +1,79 @@
+package com.dlsc.workbenchfx.utils;
+
+import javafx.application.Platform;
+
+import java.time.LocalDateTime;
+import java.util.Set;
+import java.util.concurrent.CopyOnWriteArraySet;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.function.Consumer;
+
+/**
+ * Application-wide clock which tells subscribed views the current time.
+ *
+ * <p>One daemon thread ticks every {@link #TICK_SECONDS} seconds while there are subscribers and
+ * delivers the tick to all of them in a single {@link Platform#runLater(Runnable)}. If the FX
+ * thread has not yet run the previous tick, the new one is dropped instead of queued.
+ * Views subscribe in {@code activate()} and unsubscribe in {@code deactivate()}, so hidden
+ * modules cost nothing.
+ */
+public final class ClockService {
+
+    static final long TICK_SECONDS = 10;
+
+    private static final ClockService INSTANCE = new ClockService();
+
+    private final Set<Consumer<LocalDateTime>> subscribers = new CopyOnWriteArraySet<>();
+    private final AtomicBoolean tickPending = new AtomicBoolean();
+    private final ScheduledExecutorService executor =
+            Executors.newSingleThreadScheduledExecutor(runnable -> {
+                Thread thread = new Thread(runnable, "Clock Service Thread");
+                thread.setPriority(Thread.MIN_PRIORITY);
+                thread.setDaemon(true);
+                return thread;
+            });
+    private ScheduledFuture<?> ticks;
+
+    private ClockService() {
+    }
+
+    public static ClockService getInstance() {
+        return INSTANCE;
+    }
+
+    /**
+     * Adds a subscriber and, when called on the FX thread, brings it up to date immediately.
+     *
+     * @param subscriber called on the FX thread with the current time on every tick
+     */
+    public synchronized void subscribe(Consumer<LocalDateTime> subscriber) {
+        if (subscribers.add(subscriber) && ticks == null) {
+            ticks = executor.scheduleAtFixedRate(this::tick,
+                    TICK_SECONDS, TICK_SECONDS, TimeUnit.SECONDS);
+        }
+        if (Platform.isFxApplicationThread()) {
+            subscriber.accept(LocalDateTime.now());
+        }
+    }
+
+    public synchronized void unsubscribe(Consumer<LocalDateTime> subscriber) {
+        if (subscribers.remove(subscriber) && subscribers.isEmpty() && ticks != null) {
+            ticks.cancel(false);
+            ticks = null;
+        }
+    }
+
+    private void tick() {
+        if (tickPending.compareAndSet(false, true)) {
+            Platform.runLater(() -> {
+                tickPending.set(false);
+                LocalDateTime now = LocalDateTime.now();
+                subscribers.forEach(subscriber -> subscriber.accept(now));
+            });
+        }
+    }
+}
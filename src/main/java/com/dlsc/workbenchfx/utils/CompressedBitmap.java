@@ -0,0 +1,432 @@
+package com.dlsc.workbenchfx.utils;
+
+import java.util.Arrays;
+import java.util.function.IntConsumer;
+
+/**
+ * Compressed set of non-negative ints in the style of a roaring bitmap.
+ *
+ * <p>Values are split into the upper and the lower 16 bits. For every distinct upper half there
+ * is a container holding the lower halves, either as a sorted {@code char[]} while it has at most
+ * {@link #ARRAY_LIMIT} values or as a 65536 bit {@code long[]} once it grows beyond that. Dense
+ * ranges cost one bit per value, sparse ones two bytes, and set operations work container by
+ * container instead of value by value.
+ *
+ * <p>{@link #and}, {@link #or} and {@link #andNot} return new bitmaps and leave their operands
+ * untouched. Not thread-safe.
+ */
+public class CompressedBitmap {
+
+    static final int ARRAY_LIMIT = 4096;
+    private static final int BITMAP_WORDS = 1024;
+
+    private char[] keys = new char[4];
+    private Object[] containers = new Object[4];
+    private int size;
+
+    public void add(int value) {
+        checkValue(value);
+        char key = (char) (value >>> 16);
+        char low = (char) value;
+        int index = indexOf(key);
+        if (index < 0) {
+            index = -index - 1;
+            insertContainer(index, key, new char[] {low});
+            return;
+        }
+        Object container = containers[index];
+        if (container instanceof char[]) {
+            containers[index] = addToArray((char[]) container, low);
+        } else {
+            long[] words = (long[]) container;
+            words[low >>> 6] |= 1L << low;
+        }
+    }
+
+    public void remove(int value) {
+        if (value < 0) {
+            return;
+        }
+        int index = indexOf((char) (value >>> 16));
+        if (index < 0) {
+            return;
+        }
+        char low = (char) value;
+        Object container = containers[index];
+        if (container instanceof char[]) {
+            char[] values = (char[]) container;
+            int position = Arrays.binarySearch(values, low);
+            if (position >= 0) {
+                char[] result = new char[values.length - 1];
+                System.arraycopy(values, 0, result, 0, position);
+                System.arraycopy(values, position + 1, result, position, result.length - position);
+                setContainer(index, result);
+            }
+        } else {
+            long[] words = (long[]) container;
+            words[low >>> 6] &= ~(1L << low);
+            setContainer(index, shrink(words));
+        }
+    }
+
+    public boolean contains(int value) {
+        if (value < 0) {
+            return false;
+        }
+        int index = indexOf((char) (value >>> 16));
+        if (index < 0) {
+            return false;
+        }
+        char low = (char) value;
+        Object container = containers[index];
+        if (container instanceof char[]) {
+            return Arrays.binarySearch((char[]) container, low) >= 0;
+        }
+        return (((long[]) container)[low >>> 6] & (1L << low)) != 0;
+    }
+
+    public int getCardinality() {
+        int cardinality = 0;
+        for (int i = 0; i < size; i++) {
+            cardinality += cardinality(containers[i]);
+        }
+        return cardinality;
+    }
+
+    public boolean isEmpty() {
+        return size == 0;
+    }
+
+    public void clear() {
+        Arrays.fill(containers, 0, size, null);
+        size = 0;
+    }
+
+    /**
+     * Calls {@code action} for every value in ascending order.
+     */
+    public void forEach(IntConsumer action) {
+        for (int i = 0; i < size; i++) {
+            int high = keys[i] << 16;
+            Object container = containers[i];
+            if (container instanceof char[]) {
+                for (char low : (char[]) container) {
+                    action.accept(high | low);
+                }
+            } else {
+                long[] words = (long[]) container;
+                for (int word = 0; word < BITMAP_WORDS; word++) {
+                    long bits = words[word];
+                    while (bits != 0) {
+                        action.accept(high | (word << 6) | Long.numberOfTrailingZeros(bits));
+                        bits &= bits - 1;
+                    }
+                }
+            }
+        }
+    }
+
+    public int[] toArray() {
+        int[] result = new int[getCardinality()];
+        int[] position = {0};
+        forEach(value -> result[position[0]++] = value);
+        return result;
+    }
+
+    public CompressedBitmap copy() {
+        CompressedBitmap result = new CompressedBitmap();
+        for (int i = 0; i < size; i++) {
+            result.appendContainer(keys[i], copy(containers[i]));
+        }
+        return result;
+    }
+
+    public CompressedBitmap and(CompressedBitmap other) {
+        CompressedBitmap result = new CompressedBitmap();
+        int i = 0;
+        int j = 0;
+        while (i < size && j < other.size) {
+            if (keys[i] < other.keys[j]) {
+                i++;
+            } else if (keys[i] > other.keys[j]) {
+                j++;
+            } else {
+                Object container = and(containers[i], other.containers[j]);
+                if (container != null) {
+                    result.appendContainer(keys[i], container);
+                }
+                i++;
+                j++;
+            }
+        }
+        return result;
+    }
+
+    public CompressedBitmap or(CompressedBitmap other) {
+        CompressedBitmap result = new CompressedBitmap();
+        int i = 0;
+        int j = 0;
+        while (i < size || j < other.size) {
+            if (j >= other.size || (i < size && keys[i] < other.keys[j])) {
+                result.appendContainer(keys[i], copy(containers[i]));
+                i++;
+            } else if (i >= size || keys[i] > other.keys[j]) {
+                result.appendContainer(other.keys[j], copy(other.containers[j]));
+                j++;
+            } else {
+                result.appendContainer(keys[i], or(containers[i], other.containers[j]));
+                i++;
+                j++;
+            }
+        }
+        return result;
+    }
+
+    public CompressedBitmap andNot(CompressedBitmap other) {
+        CompressedBitmap result = new CompressedBitmap();
+        int j = 0;
+        for (int i = 0; i < size; i++) {
+            while (j < other.size && other.keys[j] < keys[i]) {
+                j++;
+            }
+            Object container = j < other.size && other.keys[j] == keys[i]
+                ? andNot(containers[i], other.containers[j]) : copy(containers[i]);
+            if (container != null) {
+                result.appendContainer(keys[i], container);
+            }
+        }
+        return result;
+    }
+
+    @Override
+    public String toString() {
+        return getClass().getSimpleName() + "[cardinality=" + getCardinality()
+            + ", containers=" + size + "]";
+    }
+
+    // containers
+
+    private static int cardinality(Object container) {
+        if (container instanceof char[]) {
+            return ((char[]) container).length;
+        }
+        int cardinality = 0;
+        for (long word : (long[]) container) {
+            cardinality += Long.bitCount(word);
+        }
+        return cardinality;
+    }
+
+    private static Object copy(Object container) {
+        return container instanceof char[]
+            ? ((char[]) container).clone() : ((long[]) container).clone();
+    }
+
+    private static Object and(Object a, Object b) {
+        if (a instanceof char[] && b instanceof char[]) {
+            char[] left = (char[]) a;
+            char[] right = (char[]) b;
+            char[] result = new char[Math.min(left.length, right.length)];
+            int count = 0;
+            int i = 0;
+            int j = 0;
+            while (i < left.length && j < right.length) {
+                if (left[i] < right[j]) {
+                    i++;
+                } else if (left[i] > right[j]) {
+                    j++;
+                } else {
+                    result[count++] = left[i];
+                    i++;
+                    j++;
+                }
+            }
+            return count == 0 ? null : Arrays.copyOf(result, count);
+        }
+        if (a instanceof char[] || b instanceof char[]) {
+            char[] values = (char[]) (a instanceof char[] ? a : b);
+            long[] words = (long[]) (a instanceof char[] ? b : a);
+            char[] result = new char[values.length];
+            int count = 0;
+            for (char value : values) {
+                if ((words[value >>> 6] & (1L << value)) != 0) {
+                    result[count++] = value;
+                }
+            }
+            return count == 0 ? null : Arrays.copyOf(result, count);
+        }
+        long[] left = (long[]) a;
+        long[] right = (long[]) b;
+        long[] result = new long[BITMAP_WORDS];
+        for (int i = 0; i < BITMAP_WORDS; i++) {
+            result[i] = left[i] & right[i];
+        }
+        return shrink(result);
+    }
+
+    private static Object or(Object a, Object b) {
+        if (a instanceof char[] && b instanceof char[]) {
+            char[] left = (char[]) a;
+            char[] right = (char[]) b;
+            char[] result = new char[left.length + right.length];
+            int count = 0;
+            int i = 0;
+            int j = 0;
+            while (i < left.length || j < right.length) {
+                if (j >= right.length || (i < left.length && left[i] < right[j])) {
+                    result[count++] = left[i++];
+                } else if (i >= left.length || left[i] > right[j]) {
+                    result[count++] = right[j++];
+                } else {
+                    result[count++] = left[i];
+                    i++;
+                    j++;
+                }
+            }
+            return count > ARRAY_LIMIT ? toWords(result, count) : Arrays.copyOf(result, count);
+        }
+        long[] result = a instanceof long[] ? ((long[]) a).clone() : toWords((char[]) a);
+        if (b instanceof char[]) {
+            for (char value : (char[]) b) {
+                result[value >>> 6] |= 1L << value;
+            }
+        } else {
+            long[] words = (long[]) b;
+            for (int i = 0; i < BITMAP_WORDS; i++) {
+                result[i] |= words[i];
+            }
+        }
+        return result;
+    }
+
+    private static Object andNot(Object a, Object b) {
+        if (a instanceof char[]) {
+            char[] values = (char[]) a;
+            char[] result = new char[values.length];
+            int count = 0;
+            if (b instanceof char[]) {
+                char[] removed = (char[]) b;
+                int j = 0;
+                for (char value : values) {
+                    while (j < removed.length && removed[j] < value) {
+                        j++;
+                    }
+                    if (j >= removed.length || removed[j] != value) {
+                        result[count++] = value;
+                    }
+                }
+            } else {
+                long[] words = (long[]) b;
+                for (char value : values) {
+                    if ((words[value >>> 6] & (1L << value)) == 0) {
+                        result[count++] = value;
+                    }
+                }
+            }
+            return count == 0 ? null : Arrays.copyOf(result, count);
+        }
+        long[] result = ((long[]) a).clone();
+        if (b instanceof char[]) {
+            for (char value : (char[]) b) {
+                result[value >>> 6] &= ~(1L << value);
+            }
+        } else {
+            long[] words = (long[]) b;
+            for (int i = 0; i < BITMAP_WORDS; i++) {
+                result[i] &= ~words[i];
+            }
+        }
+        return shrink(result);
+    }
+
+    private static Object addToArray(char[] values, char value) {
+        int position = Arrays.binarySearch(values, value);
+        if (position >= 0) {
+            return values;
+        }
+        position = -position - 1;
+        if (values.length >= ARRAY_LIMIT) {
+            long[] words = toWords(values);
+            words[value >>> 6] |= 1L << value;
+            return words;
+        }
+        char[] result = new char[values.length + 1];
+        System.arraycopy(values, 0, result, 0, position);
+        result[position] = value;
+        System.arraycopy(values, position, result, position + 1, values.length - position);
+        return result;
+    }
+
+    private static long[] toWords(char[] values) {
+        return toWords(values, values.length);
+    }
+
+    private static long[] toWords(char[] values, int count) {
+        long[] words = new long[BITMAP_WORDS];
+        for (int i = 0; i < count; i++) {
+            words[values[i] >>> 6] |= 1L << values[i];
+        }
+        return words;
+    }
+
+    /**
+     * Converts a bitmap container back to an array container once it got sparse enough.
+     */
+    private static Object shrink(long[] words) {
+        int cardinality = cardinality(words);
+        if (cardinality == 0) {
+            return null;
+        }
+        if (cardinality > ARRAY_LIMIT) {
+            return words;
+        }
+        char[] values = new char[cardinality];
+        int count = 0;
+        for (int word = 0; word < BITMAP_WORDS; word++) {
+            long bits = words[word];
+            while (bits != 0) {
+                values[count++] = (char) ((word << 6) | Long.numberOfTrailingZeros(bits));
+                bits &= bits - 1;
+            }
+        }
+        return values;
+    }
+
+    // container directory
+
+    private int indexOf(char key) {
+        return Arrays.binarySearch(keys, 0, size, key);
+    }
+
+    private void insertContainer(int index, char key, Object container) {
+        if (size == keys.length) {
+            keys = Arrays.copyOf(keys, size * 2);
+            containers = Arrays.copyOf(containers, size * 2);
+        }
+        System.arraycopy(keys, index, keys, index + 1, size - index);
+        System.arraycopy(containers, index, containers, index + 1, size - index);
+        keys[index] = key;
+        containers[index] = container;
+        size++;
+    }
+
+    private void appendContainer(char key, Object container) {
+        insertContainer(size, key, container);
+    }
+
+    private void setContainer(int index, Object container) {
+        if (container == null || (container instanceof char[] && ((char[]) container).length == 0)) {
+            System.arraycopy(keys, index + 1, keys, index, size - index - 1);
+            System.arraycopy(containers, index + 1, containers, index, size - index - 1);
+            containers[--size] = null;
+        } else {
+            containers[index] = container;
+        }
+    }
+
+    private static void checkValue(int value) {
+        if (value < 0) {
+            throw new IllegalArgumentException("Only non-negative values are supported: " + value);
+        }
+    }
+}
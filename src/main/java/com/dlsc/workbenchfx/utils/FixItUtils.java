@@ -1,35 +1,347 @@
 package com.dlsc.workbenchfx.utils;
 
+import com.calendarfx.model.Calendar;
 import com.calendarfx.model.Entry;
 import com.calendarfx.model.Interval;
+import com.dlsc.workbenchfx.history.WorkspaceHistory;
 import com.dlsc.workbenchfx.modules.calendar.CalendarFxView;
+import com.dlsc.workbenchfx.modules.calendar.CalendarUpdateDispatcher;
+import com.dlsc.workbenchfx.modules.calendar.RecurrenceEngine;
+import com.dlsc.workbenchfx.modules.dashboard.model.ColorCategories;
+import com.dlsc.workbenchfx.modules.dashboard.model.TagIndex;
+import com.dlsc.workbenchfx.modules.dashboard.model.TaskDTOModel;
+import com.dlsc.workbenchfx.modules.dashboard.model.TaskFactory;
+import com.dlsc.workbenchfx.modules.dashboard.model.TaskIndex;
+import com.dlsc.workbenchfx.modules.dashboard.model.TaskStore;
+import com.dlsc.workbenchfx.modules.patient.model.Patient;
+import com.dlsc.workbenchfx.persistence.Autosave;
+import com.dlsc.workbenchfx.persistence.CsvImport;
+import com.dlsc.workbenchfx.persistence.EntryRecord;
+import com.dlsc.workbenchfx.persistence.LocalStore;
+import com.dlsc.workbenchfx.sync.LocalSyncServer;
+import com.dlsc.workbenchfx.sync.MergePolicy;
+import com.dlsc.workbenchfx.sync.SyncEngine;
+import javafx.application.Platform;
+import javafx.collections.FXCollections;
+import javafx.collections.ListChangeListener;
+import javafx.collections.ObservableList;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
 
+import java.io.IOException;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.time.LocalDate;
 import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+import java.util.function.Function;
 
 import static com.dlsc.workbenchfx.modules.calendar.CalendarFxView.*;
 
 public class FixItUtils {
+    private static final Logger LOGGER = LogManager.getLogger(FixItUtils.class.getName());
+
     static int counter = 1;
 
+    /**
+     * Whether loaded tasks are kept in a {@link TaskStore} instead of the heap, can be turned off
+     * with {@code -Dfixit.tasks.offheap=false}.
+     */
+    private static final boolean OFF_HEAP_TASKS =
+            Boolean.parseBoolean(System.getProperty("fixit.tasks.offheap", "true"));
+
+    private static final LocalStore localStore =
+            new LocalStore(Paths.get(System.getProperty("user.home"), ".fixit"));
+    private static final SyncEngine syncEngine = new SyncEngine(replicaId(),
+            new LocalSyncServer(), MergePolicy.FIELD_LEVEL);
+    private static final ObservableList<TaskDTOModel> tasks = FXCollections.observableArrayList();
+    private static final WorkspaceHistory history = new WorkspaceHistory(tasks,
+            CalendarFxView.getCalendars(), Integer.getInteger("fixit.history.depth", 100),
+            Boolean.getBoolean("fixit.history.spill")
+                    ? Paths.get(System.getProperty("user.home"), ".fixit", "history.spill") : null);
+    private static final Autosave autosave = new Autosave(localStore, tasks,
+            CalendarFxView.getCalendars(), getUpdateDispatcher(), getRecurrenceEngine());
+    private static final TaskIndex taskIndex = new TaskIndex();
+    private static final TagIndex tagIndex = new TagIndex();
+    private static final FullTextIndex<TaskDTOModel> taskSearchIndex = new FullTextIndex<>();
+    private static final ObservableList<Patient> patients = FXCollections.observableArrayList();
+    // shares the tags of all generated test tasks, only used on the FX thread
+    private static final TaskFactory testTaskFactory = new TaskFactory();
+    private static final String[] TEST_TAGS = {"work", "home", "meeting", "call", "errand"};
+    private static final LatencyHistogram taskSearchTime = Metrics.histogram("search.tasks");
+
+    static {
+        tasks.addListener((ListChangeListener<TaskDTOModel>) change -> {
+            while (change.next()) {
+                change.getRemoved().forEach(taskIndex::remove);
+                change.getRemoved().forEach(tagIndex::remove);
+                change.getRemoved().forEach(taskSearchIndex::remove);
+                taskIndex.addAll(change.getAddedSubList());
+                tagIndex.addAll(change.getAddedSubList());
+                change.getAddedSubList().forEach(FixItUtils::indexTaskText);
+            }
+        });
+        history.setOnTaskEdited(FixItUtils::taskEdited);
+        Metrics.gauge("tasks", tasks::size);
+        Metrics.gauge("patients", patients::size);
+        Metrics.gauge("calendar.entries", CalendarFxView::getEntryCount);
+        Metrics.gauge("heap.used.mb", () -> {
+            Runtime runtime = Runtime.getRuntime();
+            return (runtime.totalMemory() - runtime.freeMemory()) / (1024d * 1024d);
+        });
+    }
+
+    public static LocalStore getLocalStore() {
+        return localStore;
+    }
+    public static SyncEngine getSyncEngine() {
+        return syncEngine;
+    }
+    public static Autosave getAutosave() {
+        return autosave;
+    }
+    public static WorkspaceHistory getHistory() {
+        return history;
+    }
+    public static ObservableList<TaskDTOModel> getTasks() {
+        return tasks;
+    }
+    public static TaskIndex getTaskIndex() {
+        return taskIndex;
+    }
+    public static TagIndex getTagIndex() {
+        return tagIndex;
+    }
+    public static ObservableList<Patient> getPatients() {
+        return patients;
+    }
+
+    /**
+     * Searches the names and descriptions of all tasks, best match first.
+     */
+    public static List<TaskDTOModel> searchTasks(String query, int limit) {
+        long start = System.nanoTime();
+        List<TaskDTOModel> result = taskSearchIndex.search(query, limit);
+        taskSearchTime.recordSince(start);
+        return result;
+    }
+
+    /**
+     * Re-indexes the name and description of a task after they were changed.
+     */
+    public static void indexTaskText(TaskDTOModel task) {
+        taskSearchIndex.put(task, task.getName(), task.getDescription());
+    }
+
+    /**
+     * Re-indexes and saves a task whose fields were restored by undo or redo. The priority index
+     * follows the setters itself.
+     */
+    private static void taskEdited(TaskDTOModel task) {
+        tagIndex.update(task);
+        indexTaskText(task);
+        autosave.taskChanged(task);
+    }
 
     public static void loadTestData () {
-        System.out.println(++counter);
-        getEntries_nUrgent_Important().addEntry(new Entry<>("Dentist",
+        counter++;
+        tasks.addAll(testTaskFactory.create(
+                testTasks(Integer.getInteger("fixit.testdata.tasks", 1000))));
+        CalendarUpdateDispatcher dispatcher = getUpdateDispatcher();
+        dispatcher.addEntry(getEntries_nUrgent_Important(), new Entry<>("Dentist",
        new Interval(LocalDateTime.of(2020, 4,counter,15,00),LocalDateTime.of(2020, 4,counter,16,00))));
-                getEntries_Urgent_nImportant().addEntry (new Entry<>("Call",
+        dispatcher.addEntry(getEntries_Urgent_nImportant(), new Entry<>("Call",
          new Interval(LocalDateTime.of(2020, 4,counter,11,00),LocalDateTime.of(2020, 4,counter,13,00))));
-        getEntries_Urgent_Important().addEntry (new Entry<>("Important meeting",
+        dispatcher.addEntry(getEntries_Urgent_Important(), new Entry<>("Important meeting",
                 new Interval(LocalDateTime.of(2020, 4,counter,9,00),LocalDateTime.of(2020, 4,counter,12,00))));
-        getEntries_Urgent_Important().addEntry (new Entry<>("Interview",
+        dispatcher.addEntry(getEntries_Urgent_Important(), new Entry<>("Interview",
                 new Interval(LocalDateTime.of(2020, 4,counter,14,00),LocalDateTime.of(2020, 4,counter,16,00))));
-        System.out.println(getEntries_Urgent_Important().findEntries(""));
+        if (LOGGER.isDebugEnabled()) {
+            LocalDate day = LocalDate.of(2020, 4, counter);
+            Platform.runLater(() -> {
+                List<Entry<?>> entries = new ArrayList<>();
+                for (Calendar calendar : getCalendars()) {
+                    calendar.findEntries(day, day, ZoneId.systemDefault()).values()
+                            .forEach(entries::addAll);
+                }
+                LOGGER.debug("Entries on {}: {}", day, entries);
+            });
+        }
+    }
+
+    /**
+     * Generates {@code size} tasks on the current test day, spread over all priorities, color
+     * categories and tags.
+     */
+    private static TaskFactory.Columns testTasks(int size) {
+        String[] names = new String[size];
+        int[] urgencies = new int[size];
+        int[] importances = new int[size];
+        byte[] colorCategories = new byte[size];
+        int[][] tags = new int[size][];
+        LocalDateTime[] created = new LocalDateTime[size];
+        LocalDateTime start = LocalDateTime.of(2020, 4, counter, 8, 0);
+        for (int i = 0; i < size; i++) {
+            names[i] = "Test task " + counter + "." + i;
+            urgencies[i] = i % 10;
+            importances[i] = i / 10 % 10;
+            colorCategories[i] = (byte) (i % ColorCategories.values().length);
+            tags[i] = new int[] {i % TEST_TAGS.length};
+            created[i] = start.plusSeconds(i);
+        }
+        return new TaskFactory.Columns(size)
+                .names(names)
+                .urgencies(urgencies)
+                .importances(importances)
+                .colorCategories(colorCategories)
+                .tags(TEST_TAGS, tags)
+                .createLocalDateTimes(created);
+    }
+
+    /**
+     * Returns the replica id given with {@code -Dfixit.sync.replica} or the one kept in the
+     * local store directory.
+     */
+    private static String replicaId() {
+        String replicaId = System.getProperty("fixit.sync.replica");
+        if (replicaId != null) {
+            return replicaId;
+        }
+        try {
+            return localStore.getReplicaId();
+        } catch (IOException e) {
+            LOGGER.error("Reading the sync replica id failed, using a new one", e);
+            return UUID.randomUUID().toString();
+        }
     }
 
-    public static void pushData() {
+    /**
+     * Saves the tasks and the entries of all calendars to the local store and sends the records
+     * which changed since the last sync to the sync server. Has to be called on the FX thread,
+     * only the copying of the tasks and entries happens there, the rest runs in the background.
+     *
+     * @return the number of records which were sent to the sync server
+     */
+    public static CompletableFuture<Integer> pushData() {
+        List<TaskDTOModel> taskSnapshot = new ArrayList<>(tasks.size());
+        TaskDTOModel.TaskBuilder builder = new TaskDTOModel.TaskBuilder();
+        for (TaskDTOModel task : tasks) {
+            taskSnapshot.add(builder.from(task).build());
+        }
+        List<EntryRecord> entries = new ArrayList<>();
+        for (Calendar calendar : CalendarFxView.getCalendars()) {
+            for (Entry<?> entry : calendar.findEntries("")) {
+                if (!(entry instanceof RecurrenceEngine.Occurrence)) {
+                    entries.add(EntryRecord.of(entry));
+                }
+            }
+        }
+        entries.addAll(getRecurrenceEngine().getSources());
+        CompletableFuture<Integer> saved = localStore.save(taskSnapshot, entries);
+        return syncEngine.push(taskSnapshot, entries)
+                .thenCombine(saved, (result, written) -> result.getPushed());
+    }
+
+    /**
+     * Loads the tasks and entries from the local store and merges the changes of the sync server
+     * into them in the background. The merged data is saved again and replaces the contents of
+     * the calendars in one batch on the FX thread. Has to be called on the FX thread.
+     *
+     * <p>The autosave is flushed before the store is read, because saving the merged data
+     * supersedes the changes handed to the store before it and the shown data replaces the
+     * tasks. Changes made while the pull runs are replaced by the pulled data.
+     *
+     * @return completes when the merged data has been handed to the FX thread
+     */
+    public static CompletableFuture<Void> pullData() {
+        return autosave.flush().thenCompose(flushed -> localStore.load(OFF_HEAP_TASKS))
+                .thenCompose(contents -> syncEngine.pull(contents.getTasks(), contents.getEntries())
+                        .thenCompose(result -> {
+                            if (!result.hasRemoteChanges()) {
+                                showData(contents.getTasks(), contents.getEntries());
+                                return CompletableFuture.<Void>completedFuture(null);
+                            }
+                            List<TaskDTOModel> mergedTasks = applyChanges(contents.getTasks(),
+                                    result.getChangedTasks(), result.getRemovedTasks(),
+                                    TaskDTOModel::getUuid);
+                            List<EntryRecord> mergedEntries = applyChanges(contents.getEntries(),
+                                    result.getChangedEntries(), result.getRemovedEntries(),
+                                    EntryRecord::getId);
+                            return localStore.save(mergedTasks, mergedEntries)
+                                    .thenRun(() -> showData(mergedTasks, mergedEntries));
+                        }));
+    }
+
+    /**
+     * Shows the tasks and entries of the local store, e.g. to recover the autosaved workspace
+     * on startup. The store is read in the background, an empty store changes nothing.
+     *
+     * @return completes when the data has been handed to the FX thread
+     */
+    public static CompletableFuture<Void> loadData() {
+        return localStore.load(OFF_HEAP_TASKS).thenAccept(contents -> {
+            if (!contents.getTasks().isEmpty() || !contents.getEntries().isEmpty()) {
+                showData(contents.getTasks(), contents.getEntries());
+            }
+        });
+    }
+
+    private static <T> List<T> applyChanges(List<T> current, List<T> changed, Set<String> removed,
+                                            Function<T, String> idOf) {
+        Map<String, T> merged = new LinkedHashMap<>(current.size() * 2);
+        for (T item : current) {
+            merged.put(idOf.apply(item), item);
+        }
+        merged.keySet().removeAll(removed);
+        for (T item : changed) {
+            merged.put(idOf.apply(item), item);
+        }
+        return new ArrayList<>(merged.values());
+    }
 
+    private static void showData(List<TaskDTOModel> loadedTasks, List<EntryRecord> loadedEntries) {
+        CalendarUpdateDispatcher dispatcher = getUpdateDispatcher();
+        Map<String, Calendar> calendars = new HashMap<>();
+        for (Calendar calendar : CalendarFxView.getCalendars()) {
+            calendars.put(calendar.getName(), calendar);
+            dispatcher.clear(calendar);
+        }
+        RecurrenceEngine recurrenceEngine = getRecurrenceEngine();
+        List<EntryRecord> recurringEntries = new ArrayList<>();
+        for (EntryRecord record : loadedEntries) {
+            Calendar calendar = calendars.get(record.getCalendarName());
+            if (recurrenceEngine.accepts(record)) {
+                recurringEntries.add(record);
+            } else if (calendar != null) {
+                dispatcher.addEntry(calendar, record.toEntry());
+            }
+        }
+        // the data is in the store already
+        Platform.runLater(() -> history.runUnrecorded(() -> autosave.runUnsaved(() -> {
+            recurrenceEngine.setSources(recurringEntries);
+            tasks.setAll(loadedTasks);
+        })));
     }
-    public static void pullData() {
 
+    /**
+     * Replaces the patients with the ones of a semicolon-delimited file like {@code PATIENT.csv}.
+     * The patients are cleared on the FX thread, then the file is parsed in the background and
+     * the patients are added batch by batch on the FX thread.
+     *
+     * @return the number of imported patients
+     */
+    public static CompletableFuture<Long> importPatients(Path file) {
+        return CompletableFuture.runAsync(patients::clear, Platform::runLater)
+                .thenCompose(cleared -> new CsvImport<>(file, ';', Patient::csvMapper)
+                        .start(patients::addAll, Platform::runLater));
     }
 
 }
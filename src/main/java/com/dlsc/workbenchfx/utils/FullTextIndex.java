@@ -0,0 +1,320 @@
+package com.dlsc.workbenchfx.utils;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Deque;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.IdentityHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.PriorityQueue;
+import java.util.Set;
+import java.util.TreeSet;
+
+/**
+ * In-process full-text index with prefix and trigram matching and ranked results.
+ *
+ * <p>Texts are lower-cased and split into letter/digit tokens. Every document has a title and a
+ * body, title tokens weigh {@link #TITLE_WEIGHT} times more. A query token matches
+ * <ul>
+ * <li>exactly, with full weight,</li>
+ * <li>as prefix of an indexed term, so search-as-you-type works on partial words,</li>
+ * <li>via shared trigrams, so {@code ntist} still finds {@code dentist}.</li>
+ * </ul>
+ * A document has to match every query token, the score adds up match weight times inverse
+ * document frequency. Documents are added, updated and removed individually.
+ *
+ * <p>Not thread-safe.
+ *
+ * @param <T> type of the indexed documents, compared by identity
+ */
+public class FullTextIndex<T> {
+
+    static final float TITLE_WEIGHT = 2f;
+    static final float PREFIX_MATCH = 0.6f;
+    static final float TRIGRAM_MATCH = 0.3f;
+    private static final int MAX_EXPANSIONS = 64;
+    private static final int MIN_TRIGRAM_TOKEN = 4;
+
+    private final Map<T, Integer> ids = new IdentityHashMap<>();
+    private final List<T> documents = new ArrayList<>();
+    private final List<String[]> documentTerms = new ArrayList<>();
+    private final Deque<Integer> freeIds = new ArrayDeque<>();
+    private final Map<String, Postings> postings = new HashMap<>();
+    private final TreeSet<String> terms = new TreeSet<>();
+    private final Map<String, Set<String>> trigrams = new HashMap<>();
+
+    private float[] scores = new float[16];
+    private int[] matches = new int[16];
+    private int modificationCount;
+    private String cachedQuery;
+    private int cachedLimit;
+    private int cachedModificationCount = -1;
+    private List<T> cachedResult;
+
+    /**
+     * Documents containing one term, with the weight of the term in each of them.
+     */
+    private static final class Postings {
+        int[] documents = new int[2];
+        float[] weights = new float[2];
+        int size;
+
+        void add(int document, float weight) {
+            if (size == documents.length) {
+                documents = Arrays.copyOf(documents, size * 2);
+                weights = Arrays.copyOf(weights, size * 2);
+            }
+            documents[size] = document;
+            weights[size] = weight;
+            size++;
+        }
+
+        void remove(int document) {
+            for (int i = 0; i < size; i++) {
+                if (documents[i] == document) {
+                    size--;
+                    documents[i] = documents[size];
+                    weights[i] = weights[size];
+                    return;
+                }
+            }
+        }
+    }
+
+    /**
+     * Adds a document or replaces the indexed texts of a document which was added before.
+     */
+    public void put(T document, String title, String body) {
+        remove(document);
+        int id;
+        if (freeIds.isEmpty()) {
+            id = documents.size();
+            documents.add(document);
+            documentTerms.add(null);
+        } else {
+            id = freeIds.pop();
+            documents.set(id, document);
+        }
+        ids.put(document, id);
+
+        Map<String, Float> weights = new HashMap<>();
+        for (String token : tokenize(title)) {
+            weights.merge(token, TITLE_WEIGHT, Float::sum);
+        }
+        for (String token : tokenize(body)) {
+            weights.merge(token, 1f, Float::sum);
+        }
+        for (Map.Entry<String, Float> weight : weights.entrySet()) {
+            postingsOf(weight.getKey()).add(id, weight.getValue());
+        }
+        documentTerms.set(id, weights.keySet().toArray(new String[0]));
+        modificationCount++;
+    }
+
+    public void remove(T document) {
+        Integer id = ids.remove(document);
+        if (id == null) {
+            return;
+        }
+        for (String term : documentTerms.get(id)) {
+            Postings termPostings = postings.get(term);
+            termPostings.remove(id);
+            if (termPostings.size == 0) {
+                removeTerm(term);
+            }
+        }
+        documents.set(id, null);
+        documentTerms.set(id, null);
+        freeIds.push(id);
+        modificationCount++;
+    }
+
+    public void clear() {
+        ids.clear();
+        documents.clear();
+        documentTerms.clear();
+        freeIds.clear();
+        postings.clear();
+        terms.clear();
+        trigrams.clear();
+        modificationCount++;
+    }
+
+    public int size() {
+        return ids.size();
+    }
+
+    /**
+     * Returns the best matching documents, best first. The result of the last query is cached
+     * until the index changes, so several views can run the same query cheaply.
+     *
+     * @param query free text, every token is also matched as prefix
+     * @param limit maximum number of results
+     * @return the matching documents
+     */
+    public List<T> search(String query, int limit) {
+        if (modificationCount == cachedModificationCount && limit == cachedLimit
+                && query.equals(cachedQuery)) {
+            return cachedResult;
+        }
+        List<String> tokens = tokenize(query);
+        List<T> result = tokens.isEmpty() ? Collections.emptyList() : rank(tokens, limit);
+        cachedQuery = query;
+        cachedLimit = limit;
+        cachedModificationCount = modificationCount;
+        cachedResult = Collections.unmodifiableList(result);
+        return cachedResult;
+    }
+
+    public static List<String> tokenize(String text) {
+        if (text == null || text.isEmpty()) {
+            return Collections.emptyList();
+        }
+        List<String> tokens = new ArrayList<>();
+        String lowerCase = text.toLowerCase(Locale.ROOT);
+        int start = -1;
+        for (int i = 0; i <= lowerCase.length(); i++) {
+            boolean tokenChar = i < lowerCase.length()
+                    && Character.isLetterOrDigit(lowerCase.charAt(i));
+            if (tokenChar && start < 0) {
+                start = i;
+            } else if (!tokenChar && start >= 0) {
+                tokens.add(lowerCase.substring(start, i));
+                start = -1;
+            }
+        }
+        return tokens;
+    }
+
+    private List<T> rank(List<String> tokens, int limit) {
+        if (scores.length < documents.size()) {
+            scores = new float[Math.max(documents.size(), scores.length * 2)];
+            matches = new int[scores.length];
+        }
+        List<Integer> touched = new ArrayList<>();
+        int required = 0;
+        for (String token : new LinkedHashSet<>(tokens)) {
+            required++;
+            Map<String, Float> expansions = expand(token);
+            for (Map.Entry<String, Float> expansion : expansions.entrySet()) {
+                Postings termPostings = postings.get(expansion.getKey());
+                float idf = (float) Math.log(1 + (double) ids.size() / termPostings.size);
+                for (int i = 0; i < termPostings.size; i++) {
+                    int document = termPostings.documents[i];
+                    if (matches[document] == required - 1) {
+                        // first expansion of this token matching the document
+                        if (required == 1) {
+                            touched.add(document);
+                        }
+                        matches[document] = required;
+                    }
+                    if (matches[document] == required) {
+                        scores[document] += termPostings.weights[i] * expansion.getValue() * idf;
+                    }
+                }
+            }
+        }
+
+        PriorityQueue<Integer> best = new PriorityQueue<>(
+                (a, b) -> Float.compare(scores[a], scores[b]));
+        for (int document : touched) {
+            if (matches[document] == required) {
+                best.add(document);
+                if (best.size() > limit) {
+                    best.poll();
+                }
+            }
+        }
+        T[] ranked = newArray(best.size());
+        for (int i = ranked.length - 1; i >= 0; i--) {
+            ranked[i] = documents.get(best.poll());
+        }
+        for (int document : touched) {
+            scores[document] = 0;
+            matches[document] = 0;
+        }
+        return Arrays.asList(ranked);
+    }
+
+    /**
+     * Returns the indexed terms matching a query token, with the weight of the match.
+     */
+    private Map<String, Float> expand(String token) {
+        Map<String, Float> expansions = new HashMap<>();
+        if (postings.containsKey(token)) {
+            expansions.put(token, 1f);
+        }
+        for (String term : terms.subSet(token, false, token + Character.MAX_VALUE, false)) {
+            if (expansions.size() >= MAX_EXPANSIONS) {
+                break;
+            }
+            expansions.put(term, PREFIX_MATCH);
+        }
+        if (expansions.isEmpty() && token.length() >= MIN_TRIGRAM_TOKEN) {
+            Map<String, Integer> shared = new HashMap<>();
+            Set<String> tokenTrigrams = trigramsOf(token);
+            for (String trigram : tokenTrigrams) {
+                for (String term : trigrams.getOrDefault(trigram, Collections.emptySet())) {
+                    shared.merge(term, 1, Integer::sum);
+                }
+            }
+            for (Map.Entry<String, Integer> candidate : shared.entrySet()) {
+                float similarity = (float) candidate.getValue() / tokenTrigrams.size();
+                if (similarity >= 0.5f && expansions.size() < MAX_EXPANSIONS) {
+                    expansions.put(candidate.getKey(), TRIGRAM_MATCH * similarity);
+                }
+            }
+        }
+        return expansions;
+    }
+
+    private Postings postingsOf(String term) {
+        Postings termPostings = postings.get(term);
+        if (termPostings == null) {
+            termPostings = new Postings();
+            postings.put(term, termPostings);
+            terms.add(term);
+            for (String trigram : trigramsOf(term)) {
+                trigrams.computeIfAbsent(trigram, key -> new HashSet<>()).add(term);
+            }
+        }
+        return termPostings;
+    }
+
+    private void removeTerm(String term) {
+        postings.remove(term);
+        terms.remove(term);
+        for (String trigram : trigramsOf(term)) {
+            Set<String> trigramTerms = trigrams.get(trigram);
+            if (trigramTerms != null) {
+                trigramTerms.remove(term);
+                if (trigramTerms.isEmpty()) {
+                    trigrams.remove(trigram);
+                }
+            }
+        }
+    }
+
+    private static Set<String> trigramsOf(String term) {
+        if (term.chars().allMatch(Character::isDigit)) {
+            // numbers are only matched exactly or by prefix
+            return Collections.emptySet();
+        }
+        Set<String> result = new HashSet<>();
+        for (int i = 0; i + 3 <= term.length(); i++) {
+            result.add(term.substring(i, i + 3));
+        }
+        return result;
+    }
+
+    @SuppressWarnings("unchecked")
+    private T[] newArray(int length) {
+        return (T[]) new Object[length];
+    }
+}
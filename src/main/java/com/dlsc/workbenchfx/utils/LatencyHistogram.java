@@ -0,0 +1,150 @@
+package com.dlsc.workbenchfx.utils;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Lock-free histogram of durations in nanoseconds with log-linear buckets, like HdrHistogram.
+ *
+ * <p>Every power of two is split into {@link #SUB_BUCKETS} linear buckets, so a recorded value
+ * is known to about 3% while the whole range up to days fits into a fixed array. Recording is a
+ * few atomic increments and never allocates, so it can be used on the FX thread and in loops.
+ */
+public class LatencyHistogram {
+
+    static final int SUB_BUCKET_BITS = 5;
+    static final int SUB_BUCKETS = 1 << SUB_BUCKET_BITS;
+
+    private final AtomicLongArray buckets = new AtomicLongArray((64 - SUB_BUCKET_BITS) * SUB_BUCKETS);
+    private final LongAdder count = new LongAdder();
+    private final LongAdder sum = new LongAdder();
+    private final AtomicLong max = new AtomicLong();
+
+    /**
+     * Summary of a histogram at one point in time, all values in nanoseconds.
+     */
+    public static final class Snapshot {
+        private final long count;
+        private final double mean;
+        private final long p50;
+        private final long p90;
+        private final long p99;
+        private final long max;
+
+        Snapshot(long count, double mean, long p50, long p90, long p99, long max) {
+            this.count = count;
+            this.mean = mean;
+            this.p50 = p50;
+            this.p90 = p90;
+            this.p99 = p99;
+            this.max = max;
+        }
+
+        public long getCount() {
+            return count;
+        }
+        public double getMean() {
+            return mean;
+        }
+        public long getP50() {
+            return p50;
+        }
+        public long getP90() {
+            return p90;
+        }
+        public long getP99() {
+            return p99;
+        }
+        public long getMax() {
+            return max;
+        }
+    }
+
+    public void record(long nanos) {
+        long value = Math.max(0, nanos);
+        buckets.incrementAndGet(indexOf(value));
+        count.increment();
+        sum.add(value);
+        long current;
+        while (value > (current = max.get()) && !max.compareAndSet(current, value)) {
+            // retry, another thread recorded a new maximum
+        }
+    }
+
+    /**
+     * Records the time since {@code startNanos}, taken from {@link System#nanoTime()}.
+     */
+    public void recordSince(long startNanos) {
+        record(System.nanoTime() - startNanos);
+    }
+
+    public void record(long duration, TimeUnit unit) {
+        record(unit.toNanos(duration));
+    }
+
+    public long getCount() {
+        return count.sum();
+    }
+
+    /**
+     * Returns the summary. Values recorded concurrently may or may not be included.
+     */
+    public Snapshot snapshot() {
+        long[] counts = new long[buckets.length()];
+        long total = 0;
+        for (int i = 0; i < counts.length; i++) {
+            counts[i] = buckets.get(i);
+            total += counts[i];
+        }
+        if (total == 0) {
+            return new Snapshot(0, 0, 0, 0, 0, 0);
+        }
+        long maxValue = max.get();
+        return new Snapshot(total, (double) sum.sum() / count.sum(),
+                Math.min(maxValue, percentile(counts, total, 0.5)),
+                Math.min(maxValue, percentile(counts, total, 0.9)),
+                Math.min(maxValue, percentile(counts, total, 0.99)),
+                maxValue);
+    }
+
+    public void reset() {
+        for (int i = 0; i < buckets.length(); i++) {
+            buckets.set(i, 0);
+        }
+        count.reset();
+        sum.reset();
+        max.set(0);
+    }
+
+    private static long percentile(long[] counts, long total, double quantile) {
+        long rank = (long) Math.ceil(quantile * total);
+        long seen = 0;
+        for (int i = 0; i < counts.length; i++) {
+            seen += counts[i];
+            if (seen >= rank) {
+                return highestValueOf(i);
+            }
+        }
+        return highestValueOf(counts.length - 1);
+    }
+
+    static int indexOf(long value) {
+        if (value < SUB_BUCKETS) {
+            return (int) value;
+        }
+        int shift = 63 - Long.numberOfLeadingZeros(value) - SUB_BUCKET_BITS;
+        int subBucket = (int) (value >>> shift) - SUB_BUCKETS;
+        return (shift + 1) * SUB_BUCKETS + subBucket;
+    }
+
+    static long highestValueOf(int index) {
+        if (index < SUB_BUCKETS) {
+            return index;
+        }
+        int shift = index / SUB_BUCKETS - 1;
+        long lowest = (long) (SUB_BUCKETS + index % SUB_BUCKETS) << shift;
+        return lowest + (1L << shift) - 1;
+    }
+}
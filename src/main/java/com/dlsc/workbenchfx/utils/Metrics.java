@@ -0,0 +1,63 @@
+package com.dlsc.workbenchfx.utils;
+
+import java.util.Collections;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.DoubleSupplier;
+
+/**
+ * Application-wide registry of counters, latency histograms and gauges.
+ *
+ * <p>Metrics are created on first use and live as long as the application. Callers on hot paths
+ * keep the returned instance in a field, recording is lock-free and does not allocate. Names are
+ * dotted, e.g. {@code calendar.flush} or {@code module.activate.Dashboard}.
+ */
+public final class Metrics {
+
+    private static final Map<String, LongAdder> counters = new ConcurrentHashMap<>();
+    private static final Map<String, LatencyHistogram> histograms = new ConcurrentHashMap<>();
+    private static final Map<String, DoubleSupplier> gauges = new ConcurrentHashMap<>();
+
+    private Metrics() {
+    }
+
+    public static LongAdder counter(String name) {
+        return counters.computeIfAbsent(name, key -> new LongAdder());
+    }
+
+    public static LatencyHistogram histogram(String name) {
+        return histograms.computeIfAbsent(name, key -> new LatencyHistogram());
+    }
+
+    /**
+     * Registers a value which is read whenever the metrics are shown, replacing an existing gauge
+     * with the same name.
+     *
+     * @param value has to be cheap and safe to call from the FX thread
+     */
+    public static void gauge(String name, DoubleSupplier value) {
+        gauges.put(name, value);
+    }
+
+    public static Map<String, LongAdder> getCounters() {
+        return Collections.unmodifiableMap(new TreeMap<>(counters));
+    }
+
+    public static Map<String, LatencyHistogram> getHistograms() {
+        return Collections.unmodifiableMap(new TreeMap<>(histograms));
+    }
+
+    public static Map<String, DoubleSupplier> getGauges() {
+        return Collections.unmodifiableMap(new TreeMap<>(gauges));
+    }
+
+    /**
+     * Resets all counters and histograms, gauges are left alone.
+     */
+    public static void reset() {
+        counters.values().forEach(LongAdder::reset);
+        histograms.values().forEach(LatencyHistogram::reset);
+    }
+}
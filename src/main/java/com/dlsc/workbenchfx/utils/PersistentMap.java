@@ -0,0 +1,340 @@
+package com.dlsc.workbenchfx.utils;
+
+import java.util.Arrays;
+import java.util.Objects;
+import java.util.function.BiConsumer;
+import java.util.function.Consumer;
+
+/**
+ * Immutable hash map which shares its structure with the maps it was derived from.
+ *
+ * <p>Implemented as a hash array mapped trie with 32-way branching. {@link #plus} and
+ * {@link #minus} copy only the O(log32 n) nodes on the path to the key, all other nodes are
+ * shared with the original map, so keeping many versions of a large map costs little more than
+ * the changes between them. {@link #diff} skips the shared nodes and visits only what changed.
+ *
+ * <p>Keys need stable {@code equals} and {@code hashCode}, null keys and values are not
+ * allowed. Values are compared by identity.
+ *
+ * @param <K> type of the keys
+ * @param <V> type of the values
+ */
+public final class PersistentMap<K, V> {
+
+    private static final PersistentMap<?, ?> EMPTY = new PersistentMap<>(null, 0);
+    private static final int BITS = 5;
+    private static final int MASK = (1 << BITS) - 1;
+
+    private final Object root;
+    private final int size;
+
+    /**
+     * Notified of a key whose value differs between two maps.
+     */
+    public interface DiffConsumer<K, V> {
+        /**
+         * @param oldValue the value in this map, null if the key was added
+         * @param newValue the value in the other map, null if the key was removed
+         */
+        void changed(K key, V oldValue, V newValue);
+    }
+
+    private static final class Leaf {
+        final int hash;
+        final Object key;
+        final Object value;
+
+        Leaf(int hash, Object key, Object value) {
+            this.hash = hash;
+            this.key = key;
+            this.value = value;
+        }
+    }
+
+    private static final class BitmapNode {
+        final int bitmap;
+        final Object[] slots;
+
+        BitmapNode(int bitmap, Object[] slots) {
+            this.bitmap = bitmap;
+            this.slots = slots;
+        }
+    }
+
+    /**
+     * Leaves whose keys have the same hash.
+     */
+    private static final class CollisionNode {
+        final int hash;
+        final Leaf[] leaves;
+
+        CollisionNode(int hash, Leaf[] leaves) {
+            this.hash = hash;
+            this.leaves = leaves;
+        }
+    }
+
+    private PersistentMap(Object root, int size) {
+        this.root = root;
+        this.size = size;
+    }
+
+    @SuppressWarnings("unchecked")
+    public static <K, V> PersistentMap<K, V> empty() {
+        return (PersistentMap<K, V>) EMPTY;
+    }
+
+    public int size() {
+        return size;
+    }
+
+    public boolean isEmpty() {
+        return size == 0;
+    }
+
+    @SuppressWarnings("unchecked")
+    public V get(K key) {
+        Leaf leaf = find(root, key, hash(key), 0);
+        return leaf == null ? null : (V) leaf.value;
+    }
+
+    public boolean containsKey(K key) {
+        return find(root, key, hash(key), 0) != null;
+    }
+
+    /**
+     * Returns a map which also maps {@code key} to {@code value}, or this map if it already
+     * does.
+     */
+    public PersistentMap<K, V> plus(K key, V value) {
+        Objects.requireNonNull(value);
+        int hash = hash(key);
+        boolean added = find(root, key, hash, 0) == null;
+        Object newRoot = root == null
+                ? new Leaf(hash, key, value) : plus(root, new Leaf(hash, key, value), 0);
+        return newRoot == root ? this : new PersistentMap<>(newRoot, added ? size + 1 : size);
+    }
+
+    /**
+     * Returns a map without {@code key}, or this map if it does not contain the key.
+     */
+    public PersistentMap<K, V> minus(K key) {
+        int hash = hash(key);
+        if (find(root, key, hash, 0) == null) {
+            return this;
+        }
+        return size == 1 ? empty() : new PersistentMap<>(minus(root, key, hash, 0), size - 1);
+    }
+
+    @SuppressWarnings("unchecked")
+    public void forEach(BiConsumer<? super K, ? super V> action) {
+        forEachLeaf(root, leaf -> action.accept((K) leaf.key, (V) leaf.value));
+    }
+
+    /**
+     * Reports every key whose value in {@code other} is missing or not the same as in this map,
+     * and every key which is only in {@code other}. Nodes shared by both maps are skipped.
+     */
+    public void diff(PersistentMap<K, V> other, DiffConsumer<K, V> consumer) {
+        diff(root, other.root, 0, consumer);
+    }
+
+    private static int hash(Object key) {
+        int hash = key.hashCode();
+        return hash ^ (hash >>> 16);
+    }
+
+    private static int index(int bitmap, int bit) {
+        return Integer.bitCount(bitmap & (bit - 1));
+    }
+
+    private static Leaf find(Object node, Object key, int hash, int shift) {
+        while (node instanceof BitmapNode) {
+            BitmapNode bitmapNode = (BitmapNode) node;
+            int bit = 1 << ((hash >>> shift) & MASK);
+            if ((bitmapNode.bitmap & bit) == 0) {
+                return null;
+            }
+            node = bitmapNode.slots[index(bitmapNode.bitmap, bit)];
+            shift += BITS;
+        }
+        if (node instanceof Leaf) {
+            Leaf leaf = (Leaf) node;
+            return leaf.hash == hash && leaf.key.equals(key) ? leaf : null;
+        }
+        if (node instanceof CollisionNode && ((CollisionNode) node).hash == hash) {
+            for (Leaf leaf : ((CollisionNode) node).leaves) {
+                if (leaf.key.equals(key)) {
+                    return leaf;
+                }
+            }
+        }
+        return null;
+    }
+
+    private static Object plus(Object node, Leaf leaf, int shift) {
+        if (node instanceof Leaf) {
+            Leaf existing = (Leaf) node;
+            if (existing.hash == leaf.hash && existing.key.equals(leaf.key)) {
+                return existing.value == leaf.value ? existing : leaf;
+            }
+            return merge(existing, leaf, shift);
+        }
+        if (node instanceof CollisionNode) {
+            CollisionNode collision = (CollisionNode) node;
+            if (collision.hash != leaf.hash) {
+                return merge(collision, collision.hash, leaf, shift);
+            }
+            for (int i = 0; i < collision.leaves.length; i++) {
+                if (collision.leaves[i].key.equals(leaf.key)) {
+                    if (collision.leaves[i].value == leaf.value) {
+                        return collision;
+                    }
+                    Leaf[] leaves = collision.leaves.clone();
+                    leaves[i] = leaf;
+                    return new CollisionNode(leaf.hash, leaves);
+                }
+            }
+            Leaf[] leaves = Arrays.copyOf(collision.leaves, collision.leaves.length + 1);
+            leaves[collision.leaves.length] = leaf;
+            return new CollisionNode(leaf.hash, leaves);
+        }
+
+        BitmapNode bitmapNode = (BitmapNode) node;
+        int bit = 1 << ((leaf.hash >>> shift) & MASK);
+        int index = index(bitmapNode.bitmap, bit);
+        if ((bitmapNode.bitmap & bit) == 0) {
+            Object[] slots = new Object[bitmapNode.slots.length + 1];
+            System.arraycopy(bitmapNode.slots, 0, slots, 0, index);
+            slots[index] = leaf;
+            System.arraycopy(bitmapNode.slots, index, slots, index + 1,
+                    bitmapNode.slots.length - index);
+            return new BitmapNode(bitmapNode.bitmap | bit, slots);
+        }
+        Object child = bitmapNode.slots[index];
+        Object newChild = plus(child, leaf, shift + BITS);
+        if (newChild == child) {
+            return bitmapNode;
+        }
+        Object[] slots = bitmapNode.slots.clone();
+        slots[index] = newChild;
+        return new BitmapNode(bitmapNode.bitmap, slots);
+    }
+
+    private static Object merge(Leaf existing, Leaf leaf, int shift) {
+        if (existing.hash == leaf.hash) {
+            return new CollisionNode(leaf.hash, new Leaf[] {existing, leaf});
+        }
+        return merge(existing, existing.hash, leaf, shift);
+    }
+
+    /**
+     * Creates the node holding a leaf or collision node and a leaf with a different hash.
+     */
+    private static Object merge(Object existing, int existingHash, Leaf leaf, int shift) {
+        int existingIndex = (existingHash >>> shift) & MASK;
+        int leafIndex = (leaf.hash >>> shift) & MASK;
+        if (existingIndex == leafIndex) {
+            return new BitmapNode(1 << existingIndex,
+                    new Object[] {merge(existing, existingHash, leaf, shift + BITS)});
+        }
+        Object[] slots = existingIndex < leafIndex
+                ? new Object[] {existing, leaf} : new Object[] {leaf, existing};
+        return new BitmapNode((1 << existingIndex) | (1 << leafIndex), slots);
+    }
+
+    private static Object minus(Object node, Object key, int hash, int shift) {
+        if (node instanceof Leaf) {
+            return null;
+        }
+        if (node instanceof CollisionNode) {
+            Leaf[] leaves = ((CollisionNode) node).leaves;
+            if (leaves.length == 2) {
+                return leaves[0].key.equals(key) ? leaves[1] : leaves[0];
+            }
+            Leaf[] remaining = new Leaf[leaves.length - 1];
+            int count = 0;
+            for (Leaf leaf : leaves) {
+                if (!leaf.key.equals(key)) {
+                    remaining[count++] = leaf;
+                }
+            }
+            return new CollisionNode(hash, remaining);
+        }
+
+        BitmapNode bitmapNode = (BitmapNode) node;
+        int bit = 1 << ((hash >>> shift) & MASK);
+        int index = index(bitmapNode.bitmap, bit);
+        Object newChild = minus(bitmapNode.slots[index], key, hash, shift + BITS);
+        if (newChild == null) {
+            if (bitmapNode.slots.length == 1) {
+                return null;
+            }
+            Object sibling = bitmapNode.slots.length == 2 ? bitmapNode.slots[1 - index] : null;
+            if (sibling != null && !(sibling instanceof BitmapNode)) {
+                // a single leaf moves up, so equal maps tend to have the same shape
+                return sibling;
+            }
+            Object[] slots = new Object[bitmapNode.slots.length - 1];
+            System.arraycopy(bitmapNode.slots, 0, slots, 0, index);
+            System.arraycopy(bitmapNode.slots, index + 1, slots, index, slots.length - index);
+            return new BitmapNode(bitmapNode.bitmap & ~bit, slots);
+        }
+        if (bitmapNode.slots.length == 1 && !(newChild instanceof BitmapNode)) {
+            return newChild;
+        }
+        Object[] slots = bitmapNode.slots.clone();
+        slots[index] = newChild;
+        return new BitmapNode(bitmapNode.bitmap, slots);
+    }
+
+    private static void forEachLeaf(Object node, Consumer<Leaf> action) {
+        if (node instanceof Leaf) {
+            action.accept((Leaf) node);
+        } else if (node instanceof CollisionNode) {
+            for (Leaf leaf : ((CollisionNode) node).leaves) {
+                action.accept(leaf);
+            }
+        } else if (node instanceof BitmapNode) {
+            for (Object slot : ((BitmapNode) node).slots) {
+                forEachLeaf(slot, action);
+            }
+        }
+    }
+
+    @SuppressWarnings("unchecked")
+    private static <K, V> void diff(Object node, Object otherNode, int shift,
+                                    DiffConsumer<K, V> consumer) {
+        if (node == otherNode) {
+            return;
+        }
+        if (node instanceof BitmapNode && otherNode instanceof BitmapNode) {
+            BitmapNode bitmapNode = (BitmapNode) node;
+            BitmapNode otherBitmapNode = (BitmapNode) otherNode;
+            int bits = bitmapNode.bitmap | otherBitmapNode.bitmap;
+            while (bits != 0) {
+                int bit = Integer.lowestOneBit(bits);
+                bits &= ~bit;
+                Object slot = (bitmapNode.bitmap & bit) == 0
+                        ? null : bitmapNode.slots[index(bitmapNode.bitmap, bit)];
+                Object otherSlot = (otherBitmapNode.bitmap & bit) == 0
+                        ? null : otherBitmapNode.slots[index(otherBitmapNode.bitmap, bit)];
+                diff(slot, otherSlot, shift + BITS, consumer);
+            }
+            return;
+        }
+        // different kinds of nodes, compare the few leaves below them by key
+        forEachLeaf(node, leaf -> {
+            Leaf otherLeaf = find(otherNode, leaf.key, leaf.hash, shift);
+            if (otherLeaf == null || otherLeaf.value != leaf.value) {
+                consumer.changed((K) leaf.key, (V) leaf.value,
+                        otherLeaf == null ? null : (V) otherLeaf.value);
+            }
+        });
+        forEachLeaf(otherNode, otherLeaf -> {
+            if (find(node, otherLeaf.key, otherLeaf.hash, shift) == null) {
+                consumer.changed((K) otherLeaf.key, null, (V) otherLeaf.value);
+            }
+        });
+    }
+}
@@ -0,0 +1,71 @@
+package com.dlsc.workbenchfx.utils;
+
+import javafx.collections.ObservableList;
+import javafx.css.PseudoClass;
+import javafx.scene.Parent;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Switches between the day and the night theme of the workbench.
+ *
+ * <p>Both theme stylesheets are added to the root once and stay there, so they are parsed a
+ * single time. The night theme only applies below the {@code :night} pseudo-class of the root
+ * and overrides the looked-up colors like {@code -primary-color}. Switching the theme toggles
+ * that pseudo-class, the stylesheets and the cached styles stay valid and only the properties
+ * which use the changed colors get new values. CSS is applied right away, the time it takes is
+ * recorded as {@code theme.switch}.
+ */
+public class ThemeEngine {
+
+    private static final Logger LOGGER = LogManager.getLogger(ThemeEngine.class.getName());
+
+    public static final PseudoClass NIGHT = PseudoClass.getPseudoClass("night");
+
+    private static final String DAY_THEME =
+            ThemeEngine.class.getResource("/com/dlsc/workbenchfx/customTheme.css").toExternalForm();
+    private static final String NIGHT_THEME =
+            ThemeEngine.class.getResource("/com/dlsc/workbenchfx/darkTheme.css").toExternalForm();
+
+    private final Parent root;
+    private final LatencyHistogram switchTime = Metrics.histogram("theme.switch");
+    private boolean nightMode;
+
+    /**
+     * Installs both themes on {@code root}, starting with the day theme.
+     *
+     * @param root the scene root, e.g. the workbench
+     */
+    public ThemeEngine(Parent root) {
+        this.root = root;
+        ObservableList<String> stylesheets = root.getStylesheets();
+        if (!stylesheets.contains(DAY_THEME)) {
+            stylesheets.add(DAY_THEME);
+        }
+        if (!stylesheets.contains(NIGHT_THEME)) {
+            stylesheets.add(NIGHT_THEME);
+        }
+    }
+
+    public boolean isNightMode() {
+        return nightMode;
+    }
+
+    public void setNightMode(boolean on) {
+        if (nightMode == on) {
+            return;
+        }
+        nightMode = on;
+        long start = System.nanoTime();
+        root.pseudoClassStateChanged(NIGHT, on);
+        if (root.getScene() != null) {
+            root.applyCss();
+        }
+        long duration = System.nanoTime() - start;
+        switchTime.record(duration);
+        LOGGER.debug("Switched to the {} theme in {} ms", on ? "night" : "day",
+                TimeUnit.NANOSECONDS.toMillis(duration));
+    }
+}
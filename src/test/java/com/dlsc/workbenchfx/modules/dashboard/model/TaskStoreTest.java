@@ -0,0 +1,88 @@
+package com.dlsc.workbenchfx.modules.dashboard.model;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.UUID;
+import org.junit.Test;
+
+/**
+ * Reading and writing tasks through the views of a {@link TaskStore}, including the shared tag
+ * lists and the cached texts.
+ */
+public class TaskStoreTest {
+
+    @Test
+    public void returnsTheSameValuesWhenReadAgain() {
+        TaskStore store = new TaskStore(16);
+        TaskDTOModel view = store.get(store.add(new TaskDTOModel.TaskBuilder()
+                .uuid(UUID.randomUUID().toString())
+                .name("Important meeting")
+                .urgency(3)
+                .colorCategory(ColorCategories.GREEN)
+                .tags(new ArrayList<>(Arrays.asList("work", "q3")))
+                .build()));
+
+        assertSame(view.getUuid(), view.getUuid());
+        assertSame(view.getName(), view.getName());
+        assertEquals(3, view.getUrgency());
+        assertEquals(ColorCategories.GREEN, view.getColorCategory());
+        assertEquals(view, store.get(0));
+    }
+
+    @Test
+    public void sharesTagLists() {
+        TaskStore store = new TaskStore(16);
+        List<String> tags = new ArrayList<>(Arrays.asList("work", "q3"));
+        TaskDTOModel first =
+                store.get(store.add(new TaskDTOModel.TaskBuilder().tags(tags).build()));
+        TaskDTOModel second = store.get(store.add(new TaskDTOModel.TaskBuilder()
+                .tags(Arrays.asList("work", "q3"))
+                .build()));
+        tags.add("changed");
+
+        assertEquals(Arrays.asList("work", "q3"), first.getTags());
+        assertSame(first.getTags(), second.getTags());
+
+        second.setTags(null);
+        assertNull(second.getTags());
+    }
+
+    @Test(expected = UnsupportedOperationException.class)
+    public void tagListsCannotBeModified() {
+        TaskStore store = new TaskStore(16);
+        TaskDTOModel view = store.get(store.add(new TaskDTOModel.TaskBuilder()
+                .tags(new ArrayList<>(Arrays.asList("work")))
+                .build()));
+
+        view.getTags().add("other");
+    }
+
+    @Test
+    public void readsTextsWhichWereReplacedAndCompacted() {
+        TaskStore store = new TaskStore(16);
+        List<TaskDTOModel> views = new ArrayList<>();
+        for (int i = 0; i < 2000; i++) {
+            views.add(store.get(store.add(new TaskDTOModel.TaskBuilder()
+                    .uuid(UUID.randomUUID().toString())
+                    .name("Task " + i)
+                    .build())));
+        }
+        for (int i = 0; i < views.size(); i++) {
+            views.get(i).setName("Renamed " + i);
+        }
+        views.get(7).setUuid("not a canonical uuid");
+        store.remove(8);
+        store.compact();
+
+        for (int i = 0; i < views.size(); i++) {
+            assertEquals(i == 8 ? null : "Renamed " + i, views.get(i).getName());
+        }
+        assertEquals("not a canonical uuid", views.get(7).getUuid());
+        assertNull(views.get(8).getUuid());
+    }
+}
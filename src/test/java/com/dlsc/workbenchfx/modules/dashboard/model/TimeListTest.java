@@ -0,0 +1,131 @@
+package com.dlsc.workbenchfx.modules.dashboard.model;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Random;
+import org.junit.Test;
+
+/**
+ * Encoding of {@link TimeList}s in each unit and in the fallback to seconds plus nanos, and
+ * their round trip through a {@link TaskStore}.
+ */
+public class TimeListTest {
+
+    private static final LocalDateTime START = LocalDateTime.of(2024, 5, 1, 10, 0);
+
+    @Test
+    public void sortsAndKeepsDuplicates() {
+        List<LocalDateTime> dateTimes = Arrays.asList(START.plusHours(2), START, START.plusHours(2));
+
+        assertSorted(dateTimes, TimeList.copyOf(dateTimes));
+    }
+
+    @Test
+    public void keepsEveryPrecision() {
+        Random random = new Random(1);
+        int[] nanosPerUnit = {1_000_000_000, 1_000_000, 1_000, 1};
+        for (int unit : nanosPerUnit) {
+            List<LocalDateTime> dateTimes = new ArrayList<>();
+            for (int i = 0; i < 500; i++) {
+                dateTimes.add(START.plusSeconds(random.nextInt(10_000_000))
+                        .withNano(random.nextInt(1_000_000_000 / unit) * unit));
+            }
+            assertSorted(dateTimes, TimeList.copyOf(dateTimes));
+        }
+    }
+
+    @Test
+    public void fallsBackToSecondsAndNanosOutsideOfTheNanosecondRange() {
+        Random random = new Random(2);
+        List<LocalDateTime> dateTimes = new ArrayList<>(Arrays.asList(LocalDateTime.MIN,
+                LocalDateTime.MAX, LocalDateTime.of(1677, 1, 1, 0, 0, 0, 1), START.withNano(7)));
+        for (int i = 0; i < 200; i++) {
+            dateTimes.add(LocalDateTime.of(random.nextInt(20_000) - 10_000, 1, 1, 0, 0)
+                    .plusSeconds(random.nextInt(Integer.MAX_VALUE))
+                    .withNano(random.nextInt(1_000_000_000)));
+        }
+        TimeList list = TimeList.copyOf(dateTimes);
+
+        assertSorted(dateTimes, list);
+        // the nanos are kept in an int per element
+        assertTrue(list.getEncodedBytes() >= dateTimes.size() * 4L);
+    }
+
+    @Test
+    public void searchesBoundsAcrossBlocks() {
+        List<LocalDateTime> dateTimes = new ArrayList<>();
+        for (int i = 0; i < TimeList.BLOCK_SIZE * 5; i++) {
+            dateTimes.add(START.plusMinutes(i * 10L));
+        }
+        TimeList list = TimeList.copyOf(dateTimes);
+
+        assertEquals(0, list.lowerBound(LocalDateTime.MIN));
+        assertEquals(list.size(), list.lowerBound(LocalDateTime.MAX));
+        assertEquals(40, list.lowerBound(START.plusMinutes(395)));
+        assertEquals(40, list.lowerBound(START.plusMinutes(400)));
+        assertEquals(41, list.upperBound(START.plusMinutes(400)));
+        assertEquals(6, list.count(START.plusMinutes(300), START.plusMinutes(360)));
+        assertEquals(dateTimes.subList(30, 36),
+                list.range(START.plusMinutes(300), START.plusMinutes(360)));
+        assertTrue(list.contains(START.plusMinutes(1590)));
+        assertFalse(list.contains(START.plusMinutes(1591)));
+    }
+
+    @Test
+    public void addsElements() {
+        TimeList list = TimeList.copyOf(Arrays.asList(START, START.plusDays(1)));
+
+        TimeList added = list.plus(LocalDateTime.MIN).plus(START.plusHours(1).withNano(1));
+
+        assertEquals(Arrays.asList(START, START.plusDays(1)), list);
+        assertEquals(Arrays.asList(LocalDateTime.MIN, START, START.plusHours(1).withNano(1),
+                START.plusDays(1)), added);
+    }
+
+    @Test(expected = NullPointerException.class)
+    public void rejectsNullElements() {
+        TimeList.copyOf(Arrays.asList(START, null));
+    }
+
+    @Test(expected = UnsupportedOperationException.class)
+    public void cannotBeModified() {
+        TimeList.copyOf(Collections.singletonList(START)).add(START);
+    }
+
+    @Test
+    public void roundTripsThroughTaskStore() {
+        List<LocalDateTime> dateTimes = Arrays.asList(LocalDateTime.MAX, START.withNano(5),
+                LocalDateTime.MIN, START);
+        TaskStore store = new TaskStore(16);
+        TaskDTOModel view = store.get(store.add(new TaskDTOModel.TaskBuilder()
+                .createLocalDateTime(LocalDateTime.MIN)
+                .listOfLocalDateTimes(dateTimes)
+                .build()));
+
+        assertSorted(dateTimes, view.getListOfLocalDateTimes());
+        assertEquals(LocalDateTime.MIN, view.getCreateLocalDateTime());
+
+        view.setListOfLocalDateTimes(Collections.singletonList(LocalDateTime.MAX));
+        view.setCreateLocalDateTime(null);
+        store.compact();
+
+        assertEquals(Collections.singletonList(LocalDateTime.MAX), view.getListOfLocalDateTimes());
+        assertEquals(null, view.getCreateLocalDateTime());
+    }
+
+    private static void assertSorted(List<LocalDateTime> expected, List<LocalDateTime> actual) {
+        List<LocalDateTime> sorted = new ArrayList<>(expected);
+        Collections.sort(sorted);
+        assertEquals(sorted, actual);
+        for (int i = 0; i < sorted.size(); i++) {
+            assertEquals(sorted.get(i), actual.get(i));
+        }
+    }
+}
@@ -0,0 +1,191 @@
+package com.dlsc.workbenchfx.persistence;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+
+import com.dlsc.workbenchfx.modules.dashboard.model.ColorCategories;
+import com.dlsc.workbenchfx.modules.dashboard.model.TaskDTOModel;
+import com.dlsc.workbenchfx.modules.dashboard.model.TaskFactory;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.UUID;
+import org.junit.Test;
+
+/**
+ * Round trips of tasks through the binary format of {@link TaskCodec}.
+ */
+public class TaskCodecTest {
+
+  private final StringDictionary dictionary = new StringDictionary();
+  private final TaskCodec codec = new TaskCodec(dictionary);
+
+  @Test
+  public void roundTripsAllFields() throws IOException {
+    TaskDTOModel task = new TaskDTOModel.TaskBuilder()
+        .uuid(UUID.randomUUID().toString())
+        .name("Important meeting")
+        .description("Quarterly planning, äöü ✓")
+        .urgency(-3)
+        .importance(9)
+        .colorCategory(ColorCategories.BLUE)
+        .tags(Arrays.asList("work", "q3", "work"))
+        .createLocalDateTime(LocalDateTime.of(2020, 4, 2, 9, 0, 1, 123_456_789))
+        .listOfLocalDateTimes(Arrays.asList(LocalDateTime.of(2020, 4, 2, 12, 0),
+            LocalDateTime.of(2020, 4, 2, 9, 0)))
+        .build();
+
+    assertSameTask(task, roundTrip(task));
+  }
+
+  @Test
+  public void roundTripsMissingFields() throws IOException {
+    TaskDTOModel task = new TaskDTOModel.TaskBuilder().build();
+
+    TaskDTOModel decoded = roundTrip(task);
+
+    assertSameTask(task, decoded);
+    assertNull(decoded.getTags());
+    assertNull(decoded.getListOfLocalDateTimes());
+  }
+
+  @Test
+  public void keepsUuidsWhichAreNotCanonical() throws IOException {
+    TaskDTOModel task = new TaskDTOModel.TaskBuilder()
+        .uuid(UUID.randomUUID().toString().toUpperCase())
+        .build();
+
+    assertEquals(task.getUuid(), roundTrip(task).getUuid());
+    assertEquals(task.getUuid(),
+        codec.peekUuid(ByteBuffer.wrap(codec.encodeToArray(task))));
+  }
+
+  @Test
+  public void roundTripsTasksLargerThanTheInitialBuffer() throws IOException {
+    List<LocalDateTime> dateTimes = new ArrayList<>();
+    for (int i = 0; i < 1000; i++) {
+      dateTimes.add(LocalDateTime.of(2020, 1, 1, 0, 0).plusMinutes(i * 37L));
+    }
+    TaskDTOModel task = new TaskDTOModel.TaskBuilder()
+        .uuid(UUID.randomUUID().toString())
+        .name(String.join("", Collections.nCopies(100, "name ")))
+        .listOfLocalDateTimes(dateTimes)
+        .build();
+
+    byte[] encoded = codec.encodeToArray(task);
+
+    assertEquals(codec.encode(task), encoded.length);
+    assertSameTask(task, codec.decode(ByteBuffer.wrap(encoded),
+        new TaskDTOModel.TaskBuilder()).build());
+  }
+
+  @Test
+  public void roundTripsDateTimesOutsideOfTheNanosecondRange() throws IOException {
+    // nanosecond precision far from the epoch does not fit into a long of nanos
+    TaskDTOModel task = new TaskDTOModel.TaskBuilder()
+        .uuid(UUID.randomUUID().toString())
+        .createLocalDateTime(LocalDateTime.MAX)
+        .listOfLocalDateTimes(Arrays.asList(LocalDateTime.MAX, LocalDateTime.MIN,
+            LocalDateTime.of(1500, 1, 1, 0, 0, 0, 1), LocalDateTime.of(3000, 1, 1, 0, 0)))
+        .build();
+
+    assertSameTask(task, roundTrip(task));
+  }
+
+  @Test
+  public void sharesDictionaryStrings() throws IOException {
+    TaskDTOModel task = new TaskDTOModel.TaskBuilder()
+        .tags(Collections.singletonList(new String("home")))
+        .build();
+
+    TaskDTOModel first = roundTrip(task);
+    TaskDTOModel second = roundTrip(task);
+
+    assertSame(first.getTags().get(0), second.getTags().get(0));
+  }
+
+  @Test
+  public void decodesColumnsIntoTasksWithSharedTagLists() throws IOException {
+    List<byte[]> records = new ArrayList<>();
+    List<TaskDTOModel> tasks = new ArrayList<>();
+    for (int i = 0; i < 4; i++) {
+      TaskDTOModel task = new TaskDTOModel.TaskBuilder()
+          .uuid(UUID.randomUUID().toString())
+          .name("Task " + i)
+          .colorCategory(i % 2 == 0 ? ColorCategories.GREEN : null)
+          .tags(Arrays.asList("work", "tag " + i % 2))
+          .listOfLocalDateTimes(Collections.singletonList(LocalDateTime.of(2020, 1, 1, 0, i)))
+          .build();
+      tasks.add(task);
+      records.add(codec.encodeToArray(task));
+    }
+
+    List<TaskDTOModel> decoded = new TaskFactory().create(codec.decodeColumns(records));
+
+    assertEquals(tasks.size(), decoded.size());
+    for (int i = 0; i < tasks.size(); i++) {
+      assertSameTask(tasks.get(i), decoded.get(i));
+    }
+    assertSame(decoded.get(0).getTags(), decoded.get(2).getTags());
+  }
+
+  @Test
+  public void readsColorCategoriesByNameInVersion1() throws IOException {
+    // version, flags, urgency, importance, dictionary id of the color category
+    byte[] encoded = {1, TaskCodec.FLAG_COLOR_CATEGORY, 0, 0, (byte) dictionary.idOf("blue")};
+    byte[] unknown = {1, TaskCodec.FLAG_COLOR_CATEGORY, 0, 0, (byte) dictionary.idOf("teal")};
+
+    assertEquals(ColorCategories.BLUE, codec.decode(ByteBuffer.wrap(encoded),
+        new TaskDTOModel.TaskBuilder()).build().getColorCategory());
+    assertNull(codec.decode(ByteBuffer.wrap(unknown),
+        new TaskDTOModel.TaskBuilder()).build().getColorCategory());
+  }
+
+  @Test(expected = IOException.class)
+  public void rejectsUnknownVersions() throws IOException {
+    byte[] encoded = codec.encodeToArray(new TaskDTOModel.TaskBuilder().build());
+    encoded[0] = TaskCodec.VERSION + 1;
+
+    codec.decode(ByteBuffer.wrap(encoded), new TaskDTOModel.TaskBuilder());
+  }
+
+  @Test
+  public void decodesConsecutiveTasks() throws IOException {
+    TaskDTOModel first = new TaskDTOModel.TaskBuilder().name("first").build();
+    TaskDTOModel second = new TaskDTOModel.TaskBuilder().name("second").urgency(4).build();
+    byte[] a = codec.encodeToArray(first);
+    byte[] b = codec.encodeToArray(second);
+    ByteBuffer in = ByteBuffer.allocate(a.length + b.length).put(a).put(b);
+    in.flip();
+
+    TaskDTOModel.TaskBuilder builder = new TaskDTOModel.TaskBuilder();
+    assertSameTask(first, codec.decode(in, builder).build());
+    assertSameTask(second, codec.decode(in, builder).build());
+    assertFalse(in.hasRemaining());
+  }
+
+  private TaskDTOModel roundTrip(TaskDTOModel task) throws IOException {
+    ByteBuffer in = ByteBuffer.wrap(codec.encodeToArray(task));
+    TaskDTOModel decoded = codec.decode(in, new TaskDTOModel.TaskBuilder()).build();
+    assertFalse(in.hasRemaining());
+    return decoded;
+  }
+
+  static void assertSameTask(TaskDTOModel expected, TaskDTOModel actual) {
+    assertEquals(expected.getUuid(), actual.getUuid());
+    assertEquals(expected.getName(), actual.getName());
+    assertEquals(expected.getDescription(), actual.getDescription());
+    assertEquals(expected.getUrgency(), actual.getUrgency());
+    assertEquals(expected.getImportance(), actual.getImportance());
+    assertEquals(expected.getColorCategory(), actual.getColorCategory());
+    assertEquals(expected.getTags(), actual.getTags());
+    assertEquals(expected.getCreateLocalDateTime(), actual.getCreateLocalDateTime());
+    assertEquals(expected.getListOfLocalDateTimes(), actual.getListOfLocalDateTimes());
+  }
+}
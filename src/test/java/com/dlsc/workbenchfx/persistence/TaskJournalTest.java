@@ -0,0 +1,184 @@
+package com.dlsc.workbenchfx.persistence;
+
+import static org.junit.Assert.assertEquals;
+
+import com.dlsc.workbenchfx.modules.dashboard.model.ColorCategories;
+import com.dlsc.workbenchfx.modules.dashboard.model.TaskDTOModel;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+import java.util.UUID;
+import java.util.stream.Stream;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+/**
+ * Replay of {@link TaskJournal}s and recovery of a {@link LocalStore} from its files, including
+ * torn writes which are detected by their checksum.
+ */
+public class TaskJournalTest {
+
+  private Path directory;
+
+  @Before
+  public void createDirectory() throws IOException {
+    directory = Files.createTempDirectory("fixit-journal");
+  }
+
+  @After
+  public void deleteDirectory() throws IOException {
+    try (Stream<Path> files = Files.walk(directory)) {
+      files.sorted(Comparator.reverseOrder()).forEach(path -> path.toFile().delete());
+    }
+  }
+
+  @Test
+  public void replaysRecordsAfterReopening() throws IOException {
+    Path path = directory.resolve("test.journal");
+    try (TaskJournal journal = new TaskJournal(path)) {
+      journal.append((byte) 1, bytes("first"), 0, 5);
+      journal.append((byte) 2, bytes("xsecondx"), 1, 6);
+      journal.append((byte) 3, new byte[0], 0, 0);
+    }
+
+    try (TaskJournal journal = new TaskJournal(path)) {
+      assertEquals(Arrays.asList("1:first", "2:second", "3:"), replay(journal));
+      assertEquals(3, journal.getRecordCount());
+    }
+  }
+
+  @Test
+  public void endsTheLogAtARecordWithAWrongChecksum() throws IOException {
+    Path path = directory.resolve("test.journal");
+    long secondRecord;
+    try (TaskJournal journal = new TaskJournal(path)) {
+      journal.append((byte) 1, bytes("first"), 0, 5);
+      secondRecord = journal.size();
+      journal.append((byte) 1, bytes("second"), 0, 6);
+    }
+    // a torn write: the payload of the second record did not reach the disk
+    overwrite(path, secondRecord + TaskJournal.RECORD_HEADER_SIZE, bytes("XX"));
+
+    try (TaskJournal journal = new TaskJournal(path)) {
+      assertEquals(Collections.singletonList("1:first"), replay(journal));
+      assertEquals(secondRecord, journal.size());
+      journal.append((byte) 1, bytes("third"), 0, 5);
+    }
+
+    try (TaskJournal journal = new TaskJournal(path)) {
+      assertEquals(Arrays.asList("1:first", "1:third"), replay(journal));
+    }
+  }
+
+  @Test
+  public void keepsEmptyJournalsAfterReset() throws IOException {
+    Path path = directory.resolve("test.journal");
+    try (TaskJournal journal = new TaskJournal(path)) {
+      journal.append((byte) 1, bytes("first"), 0, 5);
+      journal.reset();
+    }
+
+    try (TaskJournal journal = new TaskJournal(path)) {
+      assertEquals(Collections.emptyList(), replay(journal));
+    }
+  }
+
+  @Test(expected = IOException.class)
+  public void rejectsOtherFiles() throws IOException {
+    Path path = directory.resolve("other.file");
+    Files.write(path, bytes("not a journal at all"));
+
+    new TaskJournal(path).close();
+  }
+
+  @Test
+  public void recoversTheStoreAndSkipsATornTail() throws IOException {
+    List<TaskDTOModel> tasks = new ArrayList<>();
+    for (int i = 0; i < 100; i++) {
+      tasks.add(new TaskDTOModel.TaskBuilder()
+          .uuid(UUID.randomUUID().toString())
+          .name("Task " + i)
+          .colorCategory(ColorCategories.values()[i % 3])
+          .tags(Arrays.asList("tag " + i % 5, "all"))
+          .createLocalDateTime(LocalDateTime.of(2020, 1, 1, 0, 0).plusSeconds(i))
+          .listOfLocalDateTimes(Arrays.asList(LocalDateTime.MIN, LocalDateTime.MAX,
+              LocalDateTime.of(2020, 1, 1, 0, 0).plusNanos(i)))
+          .build());
+    }
+    EntryRecord entry = new EntryRecord("entry", "Calendar", "Meeting", null,
+        LocalDateTime.of(2020, 1, 1, 10, 0), LocalDateTime.of(2020, 1, 1, 11, 0), "UTC",
+        false, null);
+    LocalStore store = new LocalStore(directory);
+    store.whenOpen().join();
+    store.saveChanges(tasks, Collections.emptyList(), Collections.singletonList(entry),
+        Collections.emptyList()).join();
+    store.saveChanges(Collections.emptyList(), Collections.singletonList(tasks.get(0).getUuid()),
+        Collections.emptyList(), Collections.emptyList()).join();
+    store.close();
+
+    // a record which was being written when the app died
+    Path journalPath = directory.resolve(LocalStore.JOURNAL_FILE);
+    long end;
+    try (TaskJournal journal = new TaskJournal(journalPath)) {
+      end = journal.size();
+    }
+    ByteBuffer torn = ByteBuffer.allocate(TaskJournal.RECORD_HEADER_SIZE + 4);
+    torn.putInt(5).putInt(0xBAD).put(LocalStore.TASK_REMOVE).putInt(42);
+    overwrite(journalPath, end, torn.array());
+
+    store = new LocalStore(directory);
+    try {
+      LocalStore.StoreContents contents = store.load().join();
+      assertEquals(tasks.size() - 1, contents.getTasks().size());
+      for (int i = 1; i < tasks.size(); i++) {
+        TaskCodecTest.assertSameTask(tasks.get(i), contents.getTasks().get(i - 1));
+      }
+      assertEquals(1, contents.getEntries().size());
+      assertEquals(entry.toString(), contents.getEntries().get(0).toString());
+
+      // the torn tail is overwritten by the next commit
+      store.saveChanges(Collections.singletonList(tasks.get(0)), Collections.emptyList(),
+          Collections.emptyList(), Collections.emptyList()).join();
+    } finally {
+      store.close();
+    }
+
+    store = new LocalStore(directory);
+    try {
+      assertEquals(tasks.size(), store.load(true).join().getTasks().size());
+    } finally {
+      store.close();
+    }
+  }
+
+  private static List<String> replay(TaskJournal journal) throws IOException {
+    List<String> records = new ArrayList<>();
+    journal.replay((kind, payload) -> {
+      byte[] bytes = new byte[payload.remaining()];
+      payload.get(bytes);
+      records.add(kind + ":" + new String(bytes, StandardCharsets.UTF_8));
+    });
+    return records;
+  }
+
+  private static void overwrite(Path path, long position, byte[] bytes) throws IOException {
+    try (FileChannel channel = FileChannel.open(path, StandardOpenOption.WRITE)) {
+      channel.write(ByteBuffer.wrap(bytes), position);
+    }
+  }
+
+  private static byte[] bytes(String value) {
+    return value.getBytes(StandardCharsets.UTF_8);
+  }
+}